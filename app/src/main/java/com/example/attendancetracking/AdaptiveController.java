@@ -0,0 +1,215 @@
+package com.example.attendancetracking;
+
+/**
+ * Keeps recognition within a latency budget as the device heats up or cools down, using stage
+ * timings measured on the device rather than fixed settings:
+ * <ul>
+ *   <li>detection input scale: detection cost grows with pixel count, so the measured cost per
+ *   full-resolution frame gives the largest scale whose detection fits its share of the budget;</li>
+ *   <li>detection frequency: frames are only submitted as fast as the slowest stage can take
+ *   them, instead of being copied and then dropped by the queues;</li>
+ *   <li>recognition cadence: tracks are re-embedded less often when extraction is slow, so
+ *   refreshes keep the embed worker below a fixed duty cycle;</li>
+ *   <li>idle mode: after a while without faces, detection runs at a low rate and scale until
+ *   the next face appears.</li>
+ * </ul>
+ * Stage threads report timings through the record methods; settings are re-derived at most every
+ * ADJUST_INTERVAL_MS. Every method takes explicit timestamps so the logic can be driven by
+ * synthetic timings.
+ */
+public class AdaptiveController {
+
+    public static final long DEFAULT_LATENCY_BUDGET_MS = 150;
+    private static final long DEFAULT_IDLE_AFTER_MS = 10_000;
+    private static final long DEFAULT_IDLE_DETECT_INTERVAL_MS = 500;
+
+    static final float MIN_SCALE = 0.4f;
+    static final float SCALE_STEP = 0.05f;
+    /** Scale is raised only when the measured headroom allows at least this much more... */
+    private static final float SCALE_UP_MARGIN = 0.1f;
+    /** ...and end-to-end latency is below this fraction of the budget. */
+    private static final float SCALE_UP_LATENCY = 0.8f;
+    private static final float IDLE_SCALE = 0.5f;
+    /** Part of the latency budget detection may use; the rest is left for embed and match. */
+    private static final float DETECT_SHARE = 0.5f;
+    /** Fraction of time the embed worker may spend on track refreshes. */
+    private static final float EMBED_DUTY_CYCLE = 0.25f;
+    private static final long MAX_REFRESH_INTERVAL_MS = 8_000;
+    private static final long ADJUST_INTERVAL_MS = 500;
+    private static final float SMOOTHING = 0.2f;
+
+    private final long latencyBudgetNanos;
+    private final long baseRefreshIntervalNanos;
+    private final long idleAfterNanos;
+    private final long idleDetectIntervalNanos;
+
+    // Measurements, each written by a single stage thread
+    private volatile float detectFullFrameNanos;
+    private volatile float embedPerFaceNanos;
+    private volatile float matchNanos;
+    private volatile float facesPerFrame;
+    private volatile long lastFaceNanos = Long.MIN_VALUE;
+    private float latencyNanos;
+    private long lastAdjustNanos = Long.MIN_VALUE;
+
+    // Settings, written by the thread reporting latency and read by the others
+    private volatile float detectionScale = 1f;
+    // Scale to return to when idle mode ends
+    private volatile float activeScale = 1f;
+    private volatile long submitIntervalNanos;
+    private volatile long refreshIntervalNanos;
+    private volatile boolean idle;
+
+    // Camera thread only
+    private long lastSubmitNanos = Long.MIN_VALUE;
+    private long lastCameraFrameNanos = Long.MIN_VALUE;
+    private float cameraFrameNanos;
+
+    public AdaptiveController() {
+        this(DEFAULT_LATENCY_BUDGET_MS, FaceTracker.DEFAULT_REFRESH_INTERVAL_MS,
+                DEFAULT_IDLE_AFTER_MS, DEFAULT_IDLE_DETECT_INTERVAL_MS);
+    }
+
+    /**
+     * @param latencyBudgetMs        target time from capture to recognized result
+     * @param baseRefreshIntervalMs  track refresh interval while extraction is fast enough
+     * @param idleAfterMs            enter idle mode after this long without a detected face
+     * @param idleDetectIntervalMs   detect at most this often while idle
+     */
+    public AdaptiveController(long latencyBudgetMs, long baseRefreshIntervalMs, long idleAfterMs,
+                              long idleDetectIntervalMs) {
+        this.latencyBudgetNanos = latencyBudgetMs * 1_000_000L;
+        this.baseRefreshIntervalNanos = baseRefreshIntervalMs * 1_000_000L;
+        this.idleAfterNanos = idleAfterMs * 1_000_000L;
+        this.idleDetectIntervalNanos = idleDetectIntervalMs * 1_000_000L;
+        this.refreshIntervalNanos = baseRefreshIntervalNanos;
+    }
+
+    /**
+     * Camera thread: whether this preview frame should enter the pipeline. Frames are spaced by
+     * the current submit interval, with half a camera frame of slack so a 66 ms interval takes
+     * every second frame of a 30 FPS camera rather than every third.
+     */
+    public boolean shouldSubmit(long nowNanos) {
+        if (lastCameraFrameNanos != Long.MIN_VALUE) {
+            cameraFrameNanos = smooth(cameraFrameNanos, nowNanos - lastCameraFrameNanos);
+        }
+        lastCameraFrameNanos = nowNanos;
+        if (lastSubmitNanos != Long.MIN_VALUE
+                && nowNanos - lastSubmitNanos < submitIntervalNanos - cameraFrameNanos / 2) {
+            return false;
+        }
+        lastSubmitNanos = nowNanos;
+        return true;
+    }
+
+    /** Detect stage: the scale the next frame should be detected at. */
+    public float getDetectionScale() {
+        return detectionScale;
+    }
+
+    /** Detect stage: detection at scale took durationNanos and found faces. */
+    public void recordDetect(long nowNanos, float scale, long durationNanos, int faces) {
+        detectFullFrameNanos = smooth(detectFullFrameNanos, durationNanos / (scale * scale));
+        facesPerFrame = smooth(facesPerFrame, faces);
+        if (faces > 0) {
+            lastFaceNanos = nowNanos;
+            if (idle) {
+                // Leave idle mode at once instead of waiting for the next adjustment
+                idle = false;
+                detectionScale = activeScale;
+                submitIntervalNanos = Math.min(submitIntervalNanos, stageBottleneckNanos(detectionScale));
+            }
+        }
+    }
+
+    /** Embed stage: count faces were embedded in one batch taking durationNanos. */
+    public void recordEmbed(int count, long durationNanos) {
+        if (count > 0) embedPerFaceNanos = smooth(embedPerFaceNanos, durationNanos / (float) count);
+    }
+
+    /** Match stage: one gallery search took durationNanos. */
+    public void recordMatch(long durationNanos) {
+        matchNanos = smooth(matchNanos, durationNanos);
+    }
+
+    /** Completion of a frame, capture to result; settings are re-derived from here. */
+    public void recordLatency(long nowNanos, long latency) {
+        latencyNanos = smooth(latencyNanos, latency);
+        if (lastAdjustNanos != Long.MIN_VALUE && nowNanos - lastAdjustNanos < ADJUST_INTERVAL_MS * 1_000_000L) {
+            return;
+        }
+        lastAdjustNanos = nowNanos;
+        adjust(nowNanos);
+    }
+
+    private void adjust(long nowNanos) {
+        if (lastFaceNanos == Long.MIN_VALUE) lastFaceNanos = nowNanos;
+        boolean nowIdle = nowNanos - lastFaceNanos >= idleAfterNanos;
+
+        float scale = activeScale;
+        if (detectFullFrameNanos > 0f) {
+            // Largest scale whose predicted detection time fits its share of the budget
+            float headroom = (float) Math.sqrt(latencyBudgetNanos * DETECT_SHARE / detectFullFrameNanos);
+            float target = headroom >= 1f
+                    ? 1f
+                    // Quantized so small timing noise does not change the resize every adjustment
+                    : Math.max(MIN_SCALE, (float) Math.floor(headroom / SCALE_STEP + 1e-4f) * SCALE_STEP);
+            if (target < scale) {
+                scale = target;
+            } else if (headroom >= scale + SCALE_UP_MARGIN
+                    && latencyNanos < latencyBudgetNanos * SCALE_UP_LATENCY) {
+                // Raise gradually so a cooled-down reading does not overshoot straight back
+                scale = Math.min(target, quantize(scale + SCALE_STEP));
+            }
+            if (latencyNanos > latencyBudgetNanos && scale == activeScale) {
+                // Over budget although detection alone fits: queueing or embed spikes, shed more
+                scale = Math.max(MIN_SCALE, quantize(scale - SCALE_STEP));
+            }
+        }
+        activeScale = scale;
+        detectionScale = nowIdle ? Math.min(scale, IDLE_SCALE) : scale;
+
+        long interval = stageBottleneckNanos(detectionScale);
+        submitIntervalNanos = nowIdle ? Math.max(interval, idleDetectIntervalNanos) : interval;
+        idle = nowIdle;
+
+        long refresh = (long) (embedPerFaceNanos * Math.max(1f, facesPerFrame) / EMBED_DUTY_CYCLE);
+        refreshIntervalNanos = Math.max(baseRefreshIntervalNanos,
+                Math.min(refresh, MAX_REFRESH_INTERVAL_MS * 1_000_000L));
+    }
+
+    private static float quantize(float scale) {
+        return Math.round(scale / SCALE_STEP) * SCALE_STEP;
+    }
+
+    /**
+     * Predicted time of the slowest per-frame stage at the given scale. Embedding is left out:
+     * only refresh frames run the recognizer, and the refresh interval bounds its load.
+     */
+    private long stageBottleneckNanos(float scale) {
+        return (long) Math.max(detectFullFrameNanos * scale * scale, matchNanos);
+    }
+
+    /** Minimum spacing between frames entering the pipeline. */
+    public long getSubmitIntervalNanos() {
+        return submitIntervalNanos;
+    }
+
+    /** Interval at which tracks should be re-embedded. */
+    public long getRefreshIntervalNanos() {
+        return refreshIntervalNanos;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    public long getLatencyBudgetNanos() {
+        return latencyBudgetNanos;
+    }
+
+    private static float smooth(float current, float sample) {
+        return current == 0f ? sample : current + SMOOTHING * (sample - current);
+    }
+}
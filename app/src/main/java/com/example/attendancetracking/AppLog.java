@@ -0,0 +1,88 @@
+package com.example.attendancetracking;
+
+import android.util.Log;
+
+/**
+ * Logging facade over logcat. A message below the minimum level is dropped before it reaches
+ * the sink; call sites that build a message on a hot path check isLoggable() first, so a
+ * disabled level costs one volatile read and no string building.
+ *
+ * The sink is replaceable, which lets Android-free classes log on the JVM.
+ */
+public final class AppLog {
+
+    // Same values as the android.util.Log priorities
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    /** Minimum level that turns logging off altogether. */
+    public static final int NONE = 8;
+
+    public interface Sink {
+        void println(int level, String tag, String message, Throwable error);
+    }
+
+    private static volatile int minLevel = DEBUG;
+    private static volatile Sink sink = new LogcatSink();
+
+    private AppLog() {
+    }
+
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : new LogcatSink();
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    public static void v(String tag, String message) {
+        log(VERBOSE, tag, message, null);
+    }
+
+    public static void d(String tag, String message) {
+        log(DEBUG, tag, message, null);
+    }
+
+    public static void i(String tag, String message) {
+        log(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        log(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        log(WARN, tag, message, error);
+    }
+
+    public static void e(String tag, String message) {
+        log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        log(ERROR, tag, message, error);
+    }
+
+    private static void log(int level, String tag, String message, Throwable error) {
+        if (level < minLevel) return;
+        sink.println(level, tag, message, error);
+    }
+
+    private static final class LogcatSink implements Sink {
+        @Override
+        public void println(int level, String tag, String message, Throwable error) {
+            Log.println(level, tag, error != null ? message + '\n' + Log.getStackTraceString(error) : message);
+        }
+    }
+}
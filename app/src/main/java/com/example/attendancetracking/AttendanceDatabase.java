@@ -0,0 +1,40 @@
+package com.example.attendancetracking;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+@Database(entities = {AttendanceEvent.class}, version = 2, exportSchema = false)
+public abstract class AttendanceDatabase extends RoomDatabase {
+
+    private static final String DATABASE_NAME = "attendance.db";
+    private static volatile AttendanceDatabase instance;
+
+    // Version 2 adds the site geofence result of each event's location fix
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE attendance_events ADD COLUMN onSite INTEGER");
+        }
+    };
+
+    public abstract AttendanceEventDao attendanceEventDao();
+
+    public static AttendanceDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AttendanceDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                            AttendanceDatabase.class, DATABASE_NAME)
+                            .addMigrations(MIGRATION_1_2)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.attendancetracking;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One recognized sighting of a registered user, stored locally in Room.
+ */
+@Entity(tableName = "attendance_events",
+        indices = {@Index(value = {"userId", "timestamp"})})
+public class AttendanceEvent {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    private String userId;
+    private long timestamp;
+    private float similarity;
+    // Null when no location fix was available
+    private Double latitude;
+    private Double longitude;
+    // Site geofence result of that fix; null when unknown or no geofence is configured
+    private Boolean onSite;
+
+    // Constructor trống cho Room
+    public AttendanceEvent() {
+    }
+
+    @Ignore
+    public AttendanceEvent(String userId, long timestamp, float similarity, Double latitude, Double longitude) {
+        this(userId, timestamp, similarity, latitude, longitude, null);
+    }
+
+    @Ignore
+    public AttendanceEvent(String userId, long timestamp, float similarity, Double latitude, Double longitude,
+                           Boolean onSite) {
+        this.userId = userId;
+        this.timestamp = timestamp;
+        this.similarity = similarity;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.onSite = onSite;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public float getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(float similarity) {
+        this.similarity = similarity;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Boolean getOnSite() {
+        return onSite;
+    }
+
+    public void setOnSite(Boolean onSite) {
+        this.onSite = onSite;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.attendancetracking;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface AttendanceEventDao {
+
+    // Room wraps a list insert in a single transaction
+    @Insert
+    void insertAll(List<AttendanceEvent> events);
+
+    @Query("SELECT * FROM attendance_events ORDER BY timestamp DESC LIMIT :limit")
+    List<AttendanceEvent> getRecent(int limit);
+
+    @Query("SELECT * FROM attendance_events WHERE userId = :userId AND timestamp >= :sinceMillis ORDER BY timestamp")
+    List<AttendanceEvent> getForUserSince(String userId, long sinceMillis);
+
+    @Query("SELECT COUNT(*) FROM attendance_events")
+    int count();
+}
@@ -0,0 +1,141 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes attendance events to Room from a background thread, coalescing them into batched
+ * inserts (one transaction each). Repeated sightings of the same user within the de-duplication
+ * window are dropped, so someone standing in front of the kiosk produces one row, not hundreds.
+ *
+ * record() never blocks: it only checks the window and offers to a bounded queue.
+ */
+public class AttendanceEventWriter {
+
+    private static final String TAG = "AttendanceEventWriter";
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+
+    private final AttendanceEventDao dao;
+    private final long dedupWindowMillis;
+    private final int maxBatchSize;
+    private final ArrayBlockingQueue<AttendanceEvent> pending;
+    private final Map<String, Long> lastRecordedMillis = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public AttendanceEventWriter(AttendanceEventDao dao, long dedupWindowMillis) {
+        this(dao, dedupWindowMillis, DEFAULT_MAX_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public AttendanceEventWriter(AttendanceEventDao dao, long dedupWindowMillis, int maxBatchSize,
+                                 int queueCapacity, long flushIntervalMillis) {
+        this.dao = dao;
+        this.dedupWindowMillis = dedupWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a sighting unless the same user was already recorded within the window.
+     * Returns true if the event was queued.
+     */
+    public boolean record(String userId, float similarity, long timestampMillis, Double latitude, Double longitude) {
+        return record(userId, similarity, timestampMillis, latitude, longitude, null);
+    }
+
+    /** Same, with the site geofence result of the location fix. */
+    public boolean record(String userId, float similarity, long timestampMillis, Double latitude, Double longitude,
+                          Boolean onSite) {
+        synchronized (lastRecordedMillis) {
+            Long last = lastRecordedMillis.get(userId);
+            if (last != null && timestampMillis - last < dedupWindowMillis) {
+                deduplicated.incrementAndGet();
+                return false;
+            }
+            lastRecordedMillis.put(userId, timestampMillis);
+        }
+
+        if (!pending.offer(new AttendanceEvent(userId, timestampMillis, similarity, latitude, longitude, onSite))) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (pending.size() >= maxBatchSize && flushQueued.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the background thread after writing everything still queued. Returns at once, so it
+     * is safe on the UI thread; the last batch is committed after it returns.
+     */
+    public void close() {
+        executor.execute(this::flush);
+        executor.shutdown();
+    }
+
+    /** Waits for the writes queued before close() to finish; used by tests. */
+    boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /** Runs on the writer thread only. */
+    private void flush() {
+        flushQueued.set(false);
+        List<AttendanceEvent> batch = new ArrayList<>(maxBatchSize);
+        while (pending.drainTo(batch, maxBatchSize) > 0) {
+            try {
+                dao.insertAll(batch);
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Keep the scheduled flush alive; a failed batch is counted as dropped
+                dropped.addAndGet(batch.size());
+                AppLog.e(TAG, "Failed to write attendance batch of " + batch.size() + " events.", e);
+            }
+            batch.clear();
+        }
+    }
+
+    /** Writes everything queued so far and waits for it; used by tests. */
+    void flushNow() throws InterruptedException {
+        try {
+            executor.submit(this::flush).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
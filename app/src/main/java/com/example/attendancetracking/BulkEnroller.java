@@ -0,0 +1,484 @@
+package com.example.attendancetracking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Enrols many people at once from a Source that groups photos by person, e.g. a folder tree or
+ * a ZIP with one folder per person.
+ *
+ * The source is walked on the calling thread while a fixed pool of workers decodes photos and
+ * extracts embeddings; a semaphore caps the photos in flight so memory stays bounded however
+ * large the source is. The embeddings of each person are averaged into one template after
+ * dropping photos that disagree with the rest (e.g. a colleague in the wrong folder). Templates
+ * are then resolved against the gallery index: a face already enrolled under the same name gets
+ * the template as one more of its own, one enrolled under another name or repeated within the
+ * batch is reported as a conflict, and everything else becomes a new user. Nothing is written
+ * here; the caller commits Report.getEnrolled() in one batch.
+ */
+public class BulkEnroller {
+
+    /** Photos whose similarity to their person's average is below this are dropped. */
+    static final float OUTLIER_THRESHOLD = FaceMatcher.RECOGNITION_THRESHOLD;
+    /** Below this many photos there is no majority to tell the outlier from the rest. */
+    private static final int MIN_PHOTOS_FOR_OUTLIERS = 3;
+    /** Per-photo issues kept for the report; the counters include every issue. */
+    private static final int MAX_ISSUES = 50;
+
+    /** One photo of a person, opened lazily so only the photos in flight occupy memory. */
+    public static final class Photo implements PhotoDecoder.Source {
+
+        private final String person;
+        private final String label;
+        private final PhotoDecoder.Source opener;
+
+        public Photo(String person, String label, PhotoDecoder.Source opener) {
+            this.person = person;
+            this.label = label;
+            this.opener = opener;
+        }
+
+        public String getPerson() {
+            return person;
+        }
+
+        /** File name or path, for the report. */
+        public String getLabel() {
+            return label;
+        }
+
+        /** May be called more than once, e.g. to read image bounds before decoding. */
+        @Override
+        public InputStream open() throws IOException {
+            return opener.open();
+        }
+    }
+
+    public interface Source {
+        /** Passes every photo to consumer on the calling thread. */
+        void forEach(PhotoConsumer consumer) throws IOException, InterruptedException;
+    }
+
+    public interface PhotoConsumer {
+        void accept(Photo photo) throws InterruptedException;
+    }
+
+    /** Decodes a photo and extracts its face embedding; null if no face was found. Called on workers. */
+    public interface Embedder {
+        float[] embed(Photo photo) throws IOException;
+    }
+
+    /** Called on worker threads after each photo; done never exceeds submitted. */
+    public interface ProgressListener {
+        void onProgress(int done, int submitted);
+    }
+
+    private final FaceMatcher faceMatcher;
+    private final Embedder embedder;
+    private final int workers;
+
+    public BulkEnroller(FaceMatcher faceMatcher, Embedder embedder, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be at least 1");
+        this.faceMatcher = faceMatcher;
+        this.embedder = embedder;
+        this.workers = workers;
+    }
+
+    /**
+     * Processes every photo of source and resolves the resulting templates against snapshot and
+     * the matcher's index. Blocks until done; an interrupt stops the workers and is rethrown.
+     */
+    public Report enroll(Source source, GallerySnapshot snapshot, ProgressListener listener)
+            throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final int maxInFlight = workers * 2;
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicLong embedNanos = new AtomicLong();
+        final Report report = new Report();
+        // Walker thread only; the workers write into their Person's slots
+        final Map<String, Person> people = new LinkedHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            source.forEach(photo -> {
+                String name = photo.getPerson() == null ? "" : photo.getPerson().trim();
+                if (name.isEmpty()) {
+                    report.skipped++;
+                    report.addIssue(photo.getLabel() + ": not in a person folder");
+                    return;
+                }
+                Person person = people.get(name);
+                if (person == null) {
+                    person = new Person(name);
+                    people.put(name, person);
+                }
+                final Person owner = person;
+                final int slot = owner.reserveSlot();
+                inFlight.acquire();
+                submitted.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        long embedStart = System.nanoTime();
+                        float[] embedding = embedder.embed(photo);
+                        embedNanos.addAndGet(System.nanoTime() - embedStart);
+                        if (embedding == null) {
+                            report.countNoFace(photo);
+                        } else {
+                            owner.set(slot, embedding);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        report.countFailed(photo, e);
+                    } finally {
+                        if (listener != null) listener.onProgress(done.incrementAndGet(), submitted.get());
+                        inFlight.release();
+                    }
+                });
+            });
+            // Every permit back means every submitted photo has finished
+            inFlight.acquire(maxInFlight);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        report.photos = submitted.get();
+        report.embedNanos = embedNanos.get();
+        resolve(new ArrayList<>(people.values()), snapshot, report);
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void resolve(List<Person> people, GallerySnapshot snapshot, Report report) {
+        // Templates accepted so far in this batch, to catch one face under two folder names
+        EmbeddingGallery batch = new EmbeddingGallery();
+        for (Person person : people) {
+            List<float[]> embeddings = person.embeddings();
+            if (embeddings.isEmpty()) {
+                report.addIssue(person.name + ": no usable face in any photo");
+                report.withoutTemplate++;
+                continue;
+            }
+            Template average = averageTemplate(embeddings);
+            report.outliers += embeddings.size() - average.photos;
+            float[] template = average.vector;
+
+            EmbeddingGallery.Match sameBatch = batch.findBestMatch(template, FaceMatcher.DUPLICATE_THRESHOLD);
+            if (sameBatch != null) {
+                report.addConflict(person.name + ": same face as \"" + sameBatch.getName() + "\" in this import");
+                continue;
+            }
+            EmbeddingGallery.Match enrolled = faceMatcher.findDuplicate(template);
+            FaceData faceData;
+            if (enrolled == null) {
+                faceData = new FaceData(UUID.randomUUID().toString(), person.name, template);
+                report.added++;
+            } else if (GallerySnapshot.normalizeName(person.name).equals(
+                    GallerySnapshot.normalizeName(nameOf(enrolled, snapshot)))) {
+                faceData = mergeTemplate(enrolled, snapshot, template);
+                report.updated++;
+            } else {
+                report.addConflict(person.name + ": already enrolled as \"" + nameOf(enrolled, snapshot)
+                        + "\" (ID: " + enrolled.getUserId() + ")");
+                continue;
+            }
+            batch.add(faceData.getUserId(), person.name, template);
+            report.enrolled.add(faceData);
+        }
+    }
+
+    /** The enrolled identity with template added, or replaced by it when it is not in the snapshot. */
+    private static FaceData mergeTemplate(EmbeddingGallery.Match match, GallerySnapshot snapshot, float[] template) {
+        FaceData existing = snapshot.get(match.getUserId());
+        if (existing == null || existing.getEmbedding() == null
+                || existing.getEmbedding().length != template.length) {
+            return new FaceData(match.getUserId(), nameOf(match, snapshot), template);
+        }
+        return TemplatePolicy.withTemplate(existing, template, System.currentTimeMillis(),
+                TemplatePolicy.DEFAULT_MAX_TEMPLATES);
+    }
+
+    /** Current name from the snapshot; the index may still hold the name from before a rename. */
+    private static String nameOf(EmbeddingGallery.Match match, GallerySnapshot snapshot) {
+        FaceData faceData = snapshot.get(match.getUserId());
+        String name = faceData != null ? faceData.getName() : match.getName();
+        return name == null ? "" : name;
+    }
+
+    /** Averaged embedding of one person and the number of photos it was averaged from. */
+    static final class Template {
+        final float[] vector;
+        final int photos;
+
+        Template(float[] vector, int photos) {
+            this.vector = vector;
+            this.photos = photos;
+        }
+    }
+
+    /**
+     * L2-normalized mean of the normalized embeddings, recomputed without the photos far from
+     * the first mean.
+     */
+    static Template averageTemplate(List<float[]> embeddings) {
+        int dimension = embeddings.get(0).length;
+        float[][] normalized = new float[embeddings.size()][dimension];
+        for (int i = 0; i < embeddings.size(); i++) {
+            EmbeddingGallery.normalizeInto(embeddings.get(i), normalized[i], 0);
+        }
+        boolean[] keep = new boolean[normalized.length];
+        Arrays.fill(keep, true);
+        float[] mean = mean(normalized, keep, dimension);
+        int kept = normalized.length;
+        if (normalized.length >= MIN_PHOTOS_FOR_OUTLIERS) {
+            int remaining = 0;
+            for (int i = 0; i < normalized.length; i++) {
+                keep[i] = EmbeddingGallery.dot(normalized[i], 0, mean, dimension) >= OUTLIER_THRESHOLD;
+                if (keep[i]) remaining++;
+            }
+            // With no majority left the folder is too mixed to tell; keep every photo
+            if (remaining * 2 > normalized.length && remaining < normalized.length) {
+                mean = mean(normalized, keep, dimension);
+                kept = remaining;
+            }
+        }
+        return new Template(mean, kept);
+    }
+
+    private static float[] mean(float[][] vectors, boolean[] keep, int dimension) {
+        float[] sum = new float[dimension];
+        for (int i = 0; i < vectors.length; i++) {
+            if (!keep[i]) continue;
+            for (int d = 0; d < dimension; d++) {
+                sum[d] += vectors[i][d];
+            }
+        }
+        float norm = EmbeddingGallery.norm(sum, 0, dimension);
+        if (norm > 0f) {
+            for (int d = 0; d < dimension; d++) {
+                sum[d] /= norm;
+            }
+        }
+        return sum;
+    }
+
+    /** Photos of one person, one slot per photo so the average does not depend on worker timing. */
+    private static final class Person {
+        final String name;
+        private final List<float[]> slots = new ArrayList<>();
+
+        Person(String name) {
+            this.name = name;
+        }
+
+        synchronized int reserveSlot() {
+            slots.add(null);
+            return slots.size() - 1;
+        }
+
+        synchronized void set(int slot, float[] embedding) {
+            slots.set(slot, embedding);
+        }
+
+        synchronized List<float[]> embeddings() {
+            List<float[]> embeddings = new ArrayList<>();
+            for (float[] embedding : slots) {
+                if (embedding != null) embeddings.add(embedding);
+            }
+            return embeddings;
+        }
+    }
+
+    /** Outcome of one import; counters are final once enroll returns. */
+    public static final class Report {
+        private final List<FaceData> enrolled = new ArrayList<>();
+        private final List<String> conflicts = new ArrayList<>();
+        private final List<String> issues = new ArrayList<>();
+        private int photos;
+        private int skipped;
+        private final AtomicInteger noFace = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private int outliers;
+        private int added;
+        private int updated;
+        private int withoutTemplate;
+        private long elapsedNanos;
+        private long embedNanos;
+
+        /** New and updated users to commit, with their averaged templates. */
+        public List<FaceData> getEnrolled() {
+            return Collections.unmodifiableList(enrolled);
+        }
+
+        public List<String> getConflicts() {
+            return Collections.unmodifiableList(conflicts);
+        }
+
+        /** Photos and people that contributed nothing, at most MAX_ISSUES of them. */
+        public List<String> getIssues() {
+            synchronized (issues) {
+                return new ArrayList<>(issues);
+            }
+        }
+
+        public int getPhotos() {
+            return photos;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getNoFace() {
+            return noFace.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getOutliers() {
+            return outliers;
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getWithoutTemplate() {
+            return withoutTemplate;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public float getPhotosPerSecond() {
+            return elapsedNanos == 0 ? 0f : photos * 1e9f / elapsedNanos;
+        }
+
+        /** Average decode and embedding time per photo, summed over workers. */
+        public float getMillisPerPhoto() {
+            return photos == 0 ? 0f : embedNanos / 1e6f / photos;
+        }
+
+        /** Multi-line summary for the end-of-import dialog and the log. */
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Added ").append(added).append(", updated ").append(updated)
+                    .append(", conflicts ").append(conflicts.size())
+                    .append(", no usable face ").append(withoutTemplate).append('\n');
+            sb.append(photos).append(" photos: ").append(getNoFace()).append(" without a face, ")
+                    .append(getFailed()).append(" unreadable, ").append(outliers).append(" outliers");
+            if (skipped > 0) sb.append(", ").append(skipped).append(" outside a person folder");
+            sb.append('\n');
+            sb.append(String.format(Locale.US, "%.1f s, %.1f photos/s, %.0f ms/photo",
+                    elapsedNanos / 1e9, getPhotosPerSecond(), getMillisPerPhoto()));
+            for (String conflict : conflicts) {
+                sb.append('\n').append(conflict);
+            }
+            return sb.toString();
+        }
+
+        void countNoFace(Photo photo) {
+            noFace.incrementAndGet();
+            addIssue(photo.getLabel() + ": no face");
+        }
+
+        void countFailed(Photo photo, Exception e) {
+            failed.incrementAndGet();
+            addIssue(photo.getLabel() + ": " + e.getMessage());
+        }
+
+        void addConflict(String conflict) {
+            conflicts.add(conflict);
+        }
+
+        void addIssue(String issue) {
+            synchronized (issues) {
+                if (issues.size() < MAX_ISSUES) issues.add(issue);
+            }
+        }
+    }
+
+    /**
+     * Reads a ZIP stream with one folder per person, e.g. staff/Nguyen Van An/1.jpg; the folder
+     * directly containing a photo names its person. Entries are read one at a time on the
+     * calling thread and handed over as bytes, so only the photos in flight are held in memory.
+     */
+    public static class ZipSource implements Source {
+
+        /** Larger entries are rejected rather than read into memory. */
+        static final int MAX_ENTRY_BYTES = 32 * 1024 * 1024;
+        private static final String[] IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".webp", ".bmp", ".heic", ".heif"};
+
+        private final InputStream in;
+
+        public ZipSource(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public void forEach(PhotoConsumer consumer) throws IOException, InterruptedException {
+            ZipInputStream zip = new ZipInputStream(in);
+            try {
+                ZipEntry entry;
+                byte[] buffer = new byte[64 * 1024];
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory() || !isPhoto(entry.getName())) continue;
+                    String[] segments = entry.getName().split("/");
+                    String person = segments.length >= 2 ? segments[segments.length - 2] : null;
+                    final byte[] bytes = readEntry(zip, entry, buffer);
+                    consumer.accept(new Photo(person, entry.getName(), () -> new ByteArrayInputStream(bytes)));
+                }
+            } finally {
+                zip.close();
+            }
+        }
+
+        static boolean isPhoto(String path) {
+            for (String segment : path.split("/")) {
+                // Hidden files and the resource forks macOS adds to archives
+                if (segment.startsWith(".") || segment.equals("__MACOSX")) return false;
+            }
+            String lower = path.toLowerCase(Locale.ROOT);
+            for (String extension : IMAGE_EXTENSIONS) {
+                if (lower.endsWith(extension)) return true;
+            }
+            return false;
+        }
+
+        private static byte[] readEntry(ZipInputStream zip, ZipEntry entry, byte[] buffer) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    entry.getSize() > 0 && entry.getSize() <= MAX_ENTRY_BYTES ? (int) entry.getSize() : 64 * 1024);
+            int read;
+            while ((read = zip.read(buffer)) != -1) {
+                if (out.size() + read > MAX_ENTRY_BYTES) {
+                    throw new IOException(entry.getName() + " is larger than " + MAX_ENTRY_BYTES + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * Two-stage FaceDetector: a cheap proposer (Haar) runs on every frame and the accurate refiner
+ * (YuNet) only on the region around its candidates and the faces found on the previous frame.
+ * Frames without candidates skip the refiner altogether, which is most frames at a door nobody
+ * is walking through. Every fullFrameInterval frames the refiner scans the whole frame, so a
+ * face the proposer keeps missing (a turned head, poor light) is still picked up.
+ *
+ * Rows come from the refiner, so they keep YuNet's landmarks and scores.
+ */
+public class CascadeFaceDetector implements FaceDetector {
+
+    /** Margin added around each candidate on every side, as a fraction of its size. */
+    static final float DEFAULT_MARGIN = 0.5f;
+    static final int DEFAULT_FULL_FRAME_INTERVAL = 15;
+
+    private static final int FACE_STRIDE = RecognitionPipeline.FACE_STRIDE;
+    private static final int MAX_FACES = RecognitionPipeline.MAX_FACES;
+
+    private final FaceDetector proposer;
+    private final FaceDetector refiner;
+    private final float margin;
+    private final int fullFrameInterval;
+    // Proposals of this frame followed by the faces of the previous one
+    private final float[] candidates = new float[2 * MAX_FACES * FACE_STRIDE];
+    private final float[] previous = new float[MAX_FACES * FACE_STRIDE];
+    private int previousCount;
+    private final int[] region = new int[4];
+    private final Rect regionRect = new Rect();
+    private int framesUntilFullFrame;
+
+    private long frames;
+    private long fullFrameRuns;
+    private long regionRuns;
+
+    public CascadeFaceDetector(FaceDetector proposer, FaceDetector refiner) {
+        this(proposer, refiner, DEFAULT_MARGIN, DEFAULT_FULL_FRAME_INTERVAL);
+    }
+
+    public CascadeFaceDetector(FaceDetector proposer, FaceDetector refiner, float margin, int fullFrameInterval) {
+        if (fullFrameInterval < 1) throw new IllegalArgumentException("fullFrameInterval must be at least 1");
+        this.proposer = proposer;
+        this.refiner = refiner;
+        this.margin = margin;
+        this.fullFrameInterval = fullFrameInterval;
+    }
+
+    @Override
+    public int detect(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+        frames++;
+        int count;
+        if (framesUntilFullFrame-- <= 0) {
+            framesUntilFullFrame = fullFrameInterval - 1;
+            fullFrameRuns++;
+            count = refiner.detect(gray, rgba, faces, maxFaces);
+        } else {
+            int proposed = proposer.detect(gray, rgba, candidates, MAX_FACES);
+            System.arraycopy(previous, 0, candidates, proposed * FACE_STRIDE, previousCount * FACE_STRIDE);
+            count = 0;
+            if (candidateRegion(candidates, proposed + previousCount, gray.cols(), gray.rows(), margin, region)) {
+                regionRuns++;
+                count = detectInRegion(gray, rgba, faces, maxFaces);
+            }
+        }
+        previousCount = Math.min(count, MAX_FACES);
+        System.arraycopy(faces, 0, previous, 0, previousCount * FACE_STRIDE);
+        return count;
+    }
+
+    private int detectInRegion(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+        regionRect.x = region[0];
+        regionRect.y = region[1];
+        regionRect.width = region[2];
+        regionRect.height = region[3];
+        Mat regionGray = gray.submat(regionRect);
+        Mat regionRgba = rgba.submat(regionRect);
+        try {
+            int count = refiner.detect(regionGray, regionRgba, faces, maxFaces);
+            offsetFaces(faces, count, region[0], region[1]);
+            return count;
+        } finally {
+            regionGray.release();
+            regionRgba.release();
+        }
+    }
+
+    /** Frames seen, and how many of them ran the refiner on the full frame or on a region. */
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getFullFrameRuns() {
+        return fullFrameRuns;
+    }
+
+    public long getRegionRuns() {
+        return regionRuns;
+    }
+
+    /**
+     * Bounding region, as x, y, width, height in region, of the count face rows in faces, each
+     * grown by margin times its size on every side and clipped to the frame. Returns false if
+     * there are no rows or the region is empty.
+     */
+    static boolean candidateRegion(float[] faces, int count, int frameWidth, int frameHeight, float margin, int[] region) {
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int offset = i * FACE_STRIDE;
+            float w = faces[offset + BOX + 2];
+            float h = faces[offset + BOX + 3];
+            if (w <= 0f || h <= 0f) continue;
+            left = Math.min(left, faces[offset + BOX] - margin * w);
+            top = Math.min(top, faces[offset + BOX + 1] - margin * h);
+            right = Math.max(right, faces[offset + BOX] + (1f + margin) * w);
+            bottom = Math.max(bottom, faces[offset + BOX + 1] + (1f + margin) * h);
+        }
+        int x = Math.max(0, (int) Math.floor(left));
+        int y = Math.max(0, (int) Math.floor(top));
+        int x2 = Math.min(frameWidth, (int) Math.ceil(right));
+        int y2 = Math.min(frameHeight, (int) Math.ceil(bottom));
+        if (x2 <= x || y2 <= y) return false;
+        region[0] = x;
+        region[1] = y;
+        region[2] = x2 - x;
+        region[3] = y2 - y;
+        return true;
+    }
+
+    /** Moves the box and landmarks of count face rows by (dx, dy), e.g. from region to frame coordinates. */
+    static void offsetFaces(float[] faces, int count, float dx, float dy) {
+        for (int i = 0; i < count; i++) {
+            int offset = i * FACE_STRIDE;
+            faces[offset + BOX] += dx;
+            faces[offset + BOX + 1] += dy;
+            for (int k = LANDMARKS; k < SCORE; k += 2) {
+                // Absent landmarks stay 0 so the recognizer still sees them as absent
+                if (faces[offset + k] == 0f && faces[offset + k + 1] == 0f) continue;
+                faces[offset + k] += dx;
+                faces[offset + k + 1] += dy;
+            }
+        }
+    }
+}
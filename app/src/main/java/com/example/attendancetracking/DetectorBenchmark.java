@@ -0,0 +1,212 @@
+package com.example.attendancetracking;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs several detector backends over the same recorded frames and reports, per backend, its
+ * throughput and how well its boxes agree with a reference backend (YuNet). Frames are loaded
+ * one at a time and shown to every backend in recording order, so stateful backends such as
+ * CascadeFaceDetector see the same sequence they would see live.
+ *
+ * Generic over the frame type so the bookkeeping runs on the JVM; the app plugs in
+ * RecordedFrames and FaceDetector backends.
+ */
+public final class DetectorBenchmark {
+
+    /** Boxes overlapping at least this much (intersection over union) count as the same face. */
+    static final float MATCH_IOU = 0.5f;
+
+    private static final int FACE_STRIDE = RecognitionPipeline.FACE_STRIDE;
+    private static final int MAX_FACES = RecognitionPipeline.MAX_FACES;
+
+    private DetectorBenchmark() {
+    }
+
+    public interface Frames<F> {
+        int size();
+
+        F load(int index) throws IOException;
+
+        void release(F frame);
+    }
+
+    public interface Detector<F> {
+        int detect(F frame, float[] faces, int maxFaces);
+    }
+
+    /**
+     * Runs reference and every candidate on each frame. The reference is reported first, with
+     * full agreement by definition.
+     */
+    public static <F> List<Result> run(Frames<F> frames, String referenceName, Detector<F> reference,
+                                       Map<String, Detector<F>> candidates) throws IOException {
+        Map<String, Detector<F>> detectors = new LinkedHashMap<>();
+        detectors.put(referenceName, reference);
+        detectors.putAll(candidates);
+        List<Result> results = new ArrayList<>();
+        for (String name : detectors.keySet()) {
+            results.add(new Result(name));
+        }
+
+        float[] expected = new float[MAX_FACES * FACE_STRIDE];
+        float[] actual = new float[MAX_FACES * FACE_STRIDE];
+        for (int i = 0; i < frames.size(); i++) {
+            F frame = frames.load(i);
+            try {
+                int expectedCount = 0;
+                int d = 0;
+                for (Detector<F> detector : detectors.values()) {
+                    boolean isReference = d == 0;
+                    Result result = results.get(d++);
+                    float[] faces = isReference ? expected : actual;
+                    long start = System.nanoTime();
+                    int count = Math.min(detector.detect(frame, faces, MAX_FACES), MAX_FACES);
+                    result.nanos += System.nanoTime() - start;
+                    result.frames++;
+                    result.faces += count;
+                    if (isReference) expectedCount = count;
+                    result.referenceFaces += expectedCount;
+                    result.matched += countMatches(faces, count, expected, expectedCount, MATCH_IOU);
+                }
+            } finally {
+                frames.release(frame);
+            }
+        }
+        return results;
+    }
+
+    /** One line per backend. */
+    public static String summary(List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        for (Result result : results) {
+            sb.append(result).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Results of one run as JSON, in the style of PipelineMetrics.toJson. */
+    public static String toJson(String device, int frameCount, List<Result> results) {
+        StringBuilder json = new StringBuilder(256 + 192 * results.size());
+        json.append("{\"device\":\"").append(device.replace("\\", "\\\\").replace("\"", "\\\""));
+        json.append("\",\"frames\":").append(frameCount);
+        json.append(",\"matchIou\":").append(MATCH_IOU);
+        json.append(",\"backends\":{");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (i > 0) json.append(',');
+            json.append('"').append(result.name).append("\":{");
+            json.append(String.format(Locale.US,
+                    "\"fps\":%.2f,\"meanMs\":%.3f,\"detectionsPerSecond\":%.2f,\"agreement\":%.4f,"
+                            + "\"precision\":%.4f,\"recall\":%.4f,\"faces\":%d,\"referenceFaces\":%d",
+                    result.getFramesPerSecond(), result.getMeanMillis(), result.getDetectionsPerSecond(),
+                    result.getAgreement(), result.getPrecision(), result.getRecall(),
+                    result.faces, result.referenceFaces));
+            json.append('}');
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    /**
+     * Number of one-to-one pairs between the count rows of a and the other rows of b that overlap
+     * by at least minIou, pairing the most overlapping boxes first.
+     */
+    static int countMatches(float[] a, int count, float[] b, int otherCount, float minIou) {
+        int matched = 0;
+        boolean[] usedA = new boolean[count];
+        boolean[] usedB = new boolean[otherCount];
+        while (true) {
+            float best = minIou;
+            int bestA = -1;
+            int bestB = -1;
+            for (int i = 0; i < count; i++) {
+                if (usedA[i]) continue;
+                for (int j = 0; j < otherCount; j++) {
+                    if (usedB[j]) continue;
+                    float iou = iou(a, i * FACE_STRIDE, b, j * FACE_STRIDE);
+                    if (iou >= best) {
+                        best = iou;
+                        bestA = i;
+                        bestB = j;
+                    }
+                }
+            }
+            if (bestA < 0) return matched;
+            usedA[bestA] = true;
+            usedB[bestB] = true;
+            matched++;
+        }
+    }
+
+    static float iou(float[] a, int aOffset, float[] b, int bOffset) {
+        float ax2 = a[aOffset] + a[aOffset + 2];
+        float ay2 = a[aOffset + 1] + a[aOffset + 3];
+        float bx2 = b[bOffset] + b[bOffset + 2];
+        float by2 = b[bOffset + 1] + b[bOffset + 3];
+        float w = Math.min(ax2, bx2) - Math.max(a[aOffset], b[bOffset]);
+        float h = Math.min(ay2, by2) - Math.max(a[aOffset + 1], b[bOffset + 1]);
+        if (w <= 0f || h <= 0f) return 0f;
+        float intersection = w * h;
+        float union = a[aOffset + 2] * a[aOffset + 3] + b[bOffset + 2] * b[bOffset + 3] - intersection;
+        return union <= 0f ? 0f : intersection / union;
+    }
+
+    public static class Result {
+        private final String name;
+        private int frames;
+        private long nanos;
+        private long faces;
+        private long referenceFaces;
+        private long matched;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getFramesPerSecond() {
+            return nanos == 0 ? 0f : frames * 1e9f / nanos;
+        }
+
+        public float getDetectionsPerSecond() {
+            return nanos == 0 ? 0f : faces * 1e9f / nanos;
+        }
+
+        public float getMeanMillis() {
+            return frames == 0 ? 0f : nanos / 1e6f / frames;
+        }
+
+        /** Share of this backend's faces that the reference also found. */
+        public float getPrecision() {
+            return faces == 0 ? 1f : (float) matched / faces;
+        }
+
+        /** Share of the reference's faces that this backend also found. */
+        public float getRecall() {
+            return referenceFaces == 0 ? 1f : (float) matched / referenceFaces;
+        }
+
+        /** Harmonic mean of precision and recall: the agreement with the reference. */
+        public float getAgreement() {
+            float precision = getPrecision();
+            float recall = getRecall();
+            return precision + recall == 0f ? 0f : 2f * precision * recall / (precision + recall);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %.1f frames/s (%.2f ms), %.1f detections/s, agreement %.3f (precision %.3f, recall %.3f)",
+                    name, getFramesPerSecond(), getMeanMillis(), getDetectionsPerSecond(),
+                    getAgreement(), getPrecision(), getRecall());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.attendancetracking;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BulkEnroller source for a folder picked with ACTION_OPEN_DOCUMENT_TREE, walked through
+ * DocumentsContract so no storage permission is needed. The folder directly containing a photo
+ * names its person; photos are opened only when a worker decodes them.
+ */
+public class DocumentTreeSource implements BulkEnroller.Source {
+
+    private static final String[] PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_MIME_TYPE
+    };
+
+    private final ContentResolver resolver;
+    private final Uri treeUri;
+
+    public DocumentTreeSource(ContentResolver resolver, Uri treeUri) {
+        this.resolver = resolver;
+        this.treeUri = treeUri;
+    }
+
+    @Override
+    public void forEach(BulkEnroller.PhotoConsumer consumer) throws IOException, InterruptedException {
+        // Photos directly in the picked folder have no person folder and are reported as skipped
+        walk(DocumentsContract.getTreeDocumentId(treeUri), null, "", consumer);
+    }
+
+    private void walk(String documentId, String folderName, String path, BulkEnroller.PhotoConsumer consumer)
+            throws IOException, InterruptedException {
+        Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, documentId);
+        Cursor cursor = resolver.query(children, PROJECTION, null, null, null);
+        if (cursor == null) throw new IOException("Unable to list " + (path.isEmpty() ? "folder" : path));
+        try {
+            while (cursor.moveToNext()) {
+                String childId = cursor.getString(0);
+                String name = cursor.getString(1);
+                String mimeType = cursor.getString(2);
+                if (name == null || name.startsWith(".")) continue;
+                String childPath = path.isEmpty() ? name : path + "/" + name;
+                if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) {
+                    walk(childId, name, childPath, consumer);
+                } else if (mimeType != null && mimeType.startsWith("image/")) {
+                    final Uri photoUri = DocumentsContract.buildDocumentUriUsingTree(treeUri, childId);
+                    consumer.accept(new BulkEnroller.Photo(folderName, childPath, () -> open(photoUri)));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) throw new IOException("Unable to open " + uri);
+        return in;
+    }
+}
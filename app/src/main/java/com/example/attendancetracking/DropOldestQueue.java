@@ -0,0 +1,60 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded blocking queue that never blocks the producer: when full, offering a new element
+ * evicts the oldest one and hands it back so the caller can release its resources.
+ */
+public class DropOldestQueue<T> {
+
+    private final int capacity;
+    private final ArrayDeque<T> items;
+    private long droppedCount;
+
+    public DropOldestQueue(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.items = new ArrayDeque<>(capacity);
+    }
+
+    /** Enqueues item and returns the element evicted to make room for it, or null. */
+    public synchronized T offer(T item) {
+        T evicted = null;
+        if (items.size() == capacity) {
+            evicted = items.pollFirst();
+            droppedCount++;
+        }
+        items.addLast(item);
+        notifyAll();
+        return evicted;
+    }
+
+    public synchronized T take() throws InterruptedException {
+        while (items.isEmpty()) {
+            wait();
+        }
+        return items.pollFirst();
+    }
+
+    public synchronized T poll() {
+        return items.pollFirst();
+    }
+
+    /** Removes and returns everything currently queued. */
+    public synchronized List<T> drain() {
+        List<T> drained = new ArrayList<>(items);
+        items.clear();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
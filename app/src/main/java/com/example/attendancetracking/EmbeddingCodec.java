@@ -0,0 +1,295 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact text encoding of embeddings for Firebase: Base64 of a small header followed by the
+ * little-endian vector, instead of a JSON array of boxed numbers.
+ *
+ * Header: byte format version, byte precision code, little-endian unsigned short dimension.
+ * FLOAT32 is lossless; FLOAT16 halves the size again at roughly 1e-3 relative error per
+ * component, which does not change cosine rankings in practice.
+ *
+ * Template sets (format version 2) extend the header with an unsigned short template count,
+ * followed by one little-endian long capture time per template and then the templates back to
+ * back in the same value encoding.
+ */
+public final class EmbeddingCodec {
+
+    public static final int VERSION = 1;
+    public static final int TEMPLATES_VERSION = 2;
+    private static final int HEADER_BYTES = 4;
+    private static final int TEMPLATES_HEADER_BYTES = 6;
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        for (int i = 0; i < BASE64.length; i++) {
+            BASE64_VALUES[BASE64[i]] = i;
+        }
+    }
+
+    public enum Precision {
+        FLOAT32(0, 4),
+        FLOAT16(1, 2);
+
+        final int code;
+        final int bytesPerValue;
+
+        Precision(int code, int bytesPerValue) {
+            this.code = code;
+            this.bytesPerValue = bytesPerValue;
+        }
+
+        static Precision fromCode(int code) {
+            for (Precision precision : values()) {
+                if (precision.code == code) return precision;
+            }
+            throw new IllegalArgumentException("Unknown embedding precision " + code);
+        }
+    }
+
+    private EmbeddingCodec() {
+    }
+
+    public static String encode(float[] embedding, Precision precision) {
+        if (embedding.length > 0xFFFF) {
+            throw new IllegalArgumentException("Embedding too long: " + embedding.length);
+        }
+        byte[] bytes = new byte[HEADER_BYTES + embedding.length * precision.bytesPerValue];
+        bytes[0] = (byte) VERSION;
+        bytes[1] = (byte) precision.code;
+        bytes[2] = (byte) embedding.length;
+        bytes[3] = (byte) (embedding.length >>> 8);
+        writeValues(embedding, bytes, HEADER_BYTES, precision);
+        return base64Encode(bytes);
+    }
+
+    /** Encodes capturedAt.length templates packed back to back in templates. */
+    public static String encodeTemplates(float[] templates, long[] capturedAt, Precision precision) {
+        int count = capturedAt.length;
+        if (count == 0 || count > 0xFFFF || templates.length % count != 0) {
+            throw new IllegalArgumentException(templates.length + " floats do not hold " + count + " templates");
+        }
+        int dimension = templates.length / count;
+        if (dimension > 0xFFFF) {
+            throw new IllegalArgumentException("Embedding too long: " + dimension);
+        }
+        byte[] bytes = new byte[TEMPLATES_HEADER_BYTES + count * 8 + templates.length * precision.bytesPerValue];
+        bytes[0] = (byte) TEMPLATES_VERSION;
+        bytes[1] = (byte) precision.code;
+        bytes[2] = (byte) dimension;
+        bytes[3] = (byte) (dimension >>> 8);
+        bytes[4] = (byte) count;
+        bytes[5] = (byte) (count >>> 8);
+        int pos = TEMPLATES_HEADER_BYTES;
+        for (long time : capturedAt) {
+            for (int b = 0; b < 8; b++) {
+                bytes[pos++] = (byte) (time >>> (8 * b));
+            }
+        }
+        writeValues(templates, bytes, pos, precision);
+        return base64Encode(bytes);
+    }
+
+    /** Templates and capture times decoded by decodeTemplates. */
+    public static final class TemplateSet {
+        public final float[] templates;
+        public final long[] capturedAt;
+
+        TemplateSet(float[] templates, long[] capturedAt) {
+            this.templates = templates;
+            this.capturedAt = capturedAt;
+        }
+    }
+
+    /** Decodes a string produced by encodeTemplates; throws IllegalArgumentException if it is malformed. */
+    public static TemplateSet decodeTemplates(String data) {
+        byte[] bytes = base64Decode(data);
+        if (bytes.length < TEMPLATES_HEADER_BYTES) {
+            throw new IllegalArgumentException("Template data too short");
+        }
+        if (bytes[0] != TEMPLATES_VERSION) {
+            throw new IllegalArgumentException("Unsupported template format version " + bytes[0]);
+        }
+        Precision precision = Precision.fromCode(bytes[1]);
+        int dimension = (bytes[2] & 0xFF) | (bytes[3] & 0xFF) << 8;
+        int count = (bytes[4] & 0xFF) | (bytes[5] & 0xFF) << 8;
+        if (count == 0 || bytes.length != TEMPLATES_HEADER_BYTES + count * 8
+                + count * dimension * precision.bytesPerValue) {
+            throw new IllegalArgumentException("Template data length does not match " + count
+                    + " templates of dimension " + dimension);
+        }
+        long[] capturedAt = new long[count];
+        int pos = TEMPLATES_HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            long time = 0;
+            for (int b = 0; b < 8; b++) {
+                time |= (bytes[pos++] & 0xFFL) << (8 * b);
+            }
+            capturedAt[i] = time;
+        }
+        float[] templates = new float[count * dimension];
+        readValues(bytes, pos, templates, precision);
+        return new TemplateSet(templates, capturedAt);
+    }
+
+    /** Decodes a string produced by encode; throws IllegalArgumentException if it is malformed. */
+    public static float[] decode(String data) {
+        byte[] bytes = base64Decode(data);
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Embedding data too short");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported embedding format version " + bytes[0]);
+        }
+        Precision precision = Precision.fromCode(bytes[1]);
+        int dimension = (bytes[2] & 0xFF) | (bytes[3] & 0xFF) << 8;
+        if (bytes.length != HEADER_BYTES + dimension * precision.bytesPerValue) {
+            throw new IllegalArgumentException("Embedding data length does not match dimension " + dimension);
+        }
+        float[] embedding = new float[dimension];
+        readValues(bytes, HEADER_BYTES, embedding, precision);
+        return embedding;
+    }
+
+    private static void writeValues(float[] values, byte[] bytes, int pos, Precision precision) {
+        for (float value : values) {
+            int bits = precision == Precision.FLOAT32 ? Float.floatToIntBits(value) : toHalf(value);
+            for (int b = 0; b < precision.bytesPerValue; b++) {
+                bytes[pos++] = (byte) (bits >>> (8 * b));
+            }
+        }
+    }
+
+    private static void readValues(byte[] bytes, int pos, float[] values, Precision precision) {
+        for (int i = 0; i < values.length; i++) {
+            if (precision == Precision.FLOAT32) {
+                values[i] = Float.intBitsToFloat((bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8
+                        | (bytes[pos + 2] & 0xFF) << 16 | (bytes[pos + 3] & 0xFF) << 24);
+            } else {
+                values[i] = fromHalf((bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8);
+            }
+            pos += precision.bytesPerValue;
+        }
+    }
+
+    /** Legacy Firebase representation: one boxed Float per component. */
+    public static List<Float> toList(float[] embedding) {
+        List<Float> list = new ArrayList<>(embedding.length);
+        for (float value : embedding) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public static float[] fromList(List<Float> list) {
+        float[] embedding = new float[list.size()];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = list.get(i);
+        }
+        return embedding;
+    }
+
+    /** IEEE 754 binary16 bits of value, rounded to nearest even. */
+    static int toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (exponent == 0xFF) {
+            return sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0);
+        }
+        int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return sign | 0x7C00;
+        }
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) return sign;
+            // Subnormal: shift the implicit leading one into the mantissa
+            mantissa |= 0x800000;
+            int shift = 14 - halfExponent;
+            int half = mantissa >>> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) half++;
+            return sign | half;
+        }
+        int half = halfExponent << 10 | mantissa >>> 13;
+        int remainder = mantissa & 0x1FFF;
+        // A carry out of the mantissa correctly bumps the exponent (up to infinity)
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) half++;
+        return sign | half;
+    }
+
+    static float fromHalf(int half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+        }
+        if (exponent == 0) {
+            if (mantissa == 0) return Float.intBitsToFloat(sign);
+            // Subnormal half: value is mantissa * 2^-24
+            float value = mantissa * (1f / (1 << 24));
+            return sign != 0 ? -value : value;
+        }
+        return Float.intBitsToFloat(sign | (exponent - 15 + 127) << 23 | mantissa << 13);
+    }
+
+    private static String base64Encode(byte[] bytes) {
+        char[] out = new char[(bytes.length + 2) / 3 * 4];
+        int o = 0;
+        int i = 0;
+        for (; i + 2 < bytes.length; i += 3) {
+            int chunk = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+            out[o++] = BASE64[chunk >>> 18];
+            out[o++] = BASE64[(chunk >>> 12) & 0x3F];
+            out[o++] = BASE64[(chunk >>> 6) & 0x3F];
+            out[o++] = BASE64[chunk & 0x3F];
+        }
+        int remaining = bytes.length - i;
+        if (remaining > 0) {
+            int chunk = (bytes[i] & 0xFF) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xFF) << 8 : 0);
+            out[o++] = BASE64[chunk >>> 18];
+            out[o++] = BASE64[(chunk >>> 12) & 0x3F];
+            out[o++] = remaining == 2 ? BASE64[(chunk >>> 6) & 0x3F] : '=';
+            out[o++] = '=';
+        }
+        return new String(out);
+    }
+
+    private static byte[] base64Decode(String data) {
+        int length = data.length();
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Invalid Base64 length " + length);
+        }
+        int padding = length == 0 ? 0 : data.charAt(length - 1) == '=' ? (data.charAt(length - 2) == '=' ? 2 : 1) : 0;
+        byte[] out = new byte[length / 4 * 3 - padding];
+        int o = 0;
+        for (int i = 0; i < length; i += 4) {
+            int chunk = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = data.charAt(i + j);
+                int value;
+                if (c == '=' && i + 4 == length && j >= 4 - padding) {
+                    value = 0;
+                } else if (c >= 128 || (value = BASE64_VALUES[c]) < 0) {
+                    throw new IllegalArgumentException("Invalid Base64 character '" + c + "'");
+                }
+                chunk = chunk << 6 | value;
+            }
+            out[o++] = (byte) (chunk >>> 16);
+            if (o < out.length) out[o++] = (byte) (chunk >>> 8);
+            if (o < out.length) out[o++] = (byte) chunk;
+        }
+        return out;
+    }
+}
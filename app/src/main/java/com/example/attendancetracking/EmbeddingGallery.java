@@ -0,0 +1,289 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores every enrolled embedding L2-normalized in one contiguous float[] with parallel
+ * userId/name tables, so a whole-gallery top-1 search is a single linear pass over primitive
+ * memory instead of one CalculateSimilarity JNI call per FaceData.
+ *
+ * Because stored vectors and the query are normalized, cosine similarity is a plain dot product.
+ * This exact scan is also the brute-force reference FaceIndex that approximate indexes are
+ * measured against. A userId to slot map keeps add and remove O(1), so syncing a large gallery
+ * is linear rather than quadratic.
+ */
+public class EmbeddingGallery implements FaceIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int dimension;
+    private int size;
+    private float[] vectors = new float[0];
+    private String[] userIds = new String[0];
+    private String[] names = new String[0];
+    private final Map<String, Integer> slotByUserId = new HashMap<>();
+
+    public EmbeddingGallery() {
+    }
+
+    public EmbeddingGallery(List<FaceData> faceDataList) {
+        for (FaceData faceData : faceDataList) {
+            add(faceData.getUserId(), faceData.getName(), faceData.getEmbedding());
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Adds an entry, or replaces it if userId is already present. Null or zero-norm embeddings
+     * are ignored, mirroring the null check in the old per-entry loop.
+     */
+    @Override
+    public synchronized void add(String userId, String name, float[] embedding) {
+        if (userId == null || embedding == null || embedding.length == 0) return;
+        // Zero vector can never match; skip it instead of storing NaNs.
+        if (norm(embedding, 0, embedding.length) == 0f) return;
+        if (dimension == 0) {
+            dimension = embedding.length;
+        } else if (embedding.length != dimension) {
+            throw new IllegalArgumentException("Embedding dimension " + embedding.length
+                    + " does not match gallery dimension " + dimension);
+        }
+
+        int slot = indexOf(userId);
+        if (slot < 0) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            slotByUserId.put(userId, slot);
+        }
+        normalizeInto(embedding, vectors, slot * dimension);
+        userIds[slot] = userId;
+        names[slot] = name;
+    }
+
+    @Override
+    public synchronized boolean remove(String userId) {
+        int slot = indexOf(userId);
+        if (slot < 0) return false;
+        removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(userIds, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        slotByUserId.clear();
+        size = 0;
+    }
+
+    /**
+     * Scores the query against every entry in one pass and returns the best entry whose cosine
+     * similarity is strictly greater than threshold, or null if none qualifies.
+     */
+    @Override
+    public synchronized Match findBestMatch(float[] query, float threshold) {
+        if (query == null || size == 0 || query.length != dimension) return null;
+
+        float queryNorm = norm(query, 0, dimension);
+        if (queryNorm == 0f) return null;
+        float invNorm = 1f / queryNorm;
+
+        int bestSlot = -1;
+        float bestScore = threshold;
+        final float[] v = vectors;
+        final int dim = dimension;
+        for (int slot = 0, offset = 0; slot < size; slot++, offset += dim) {
+            float score = dot(v, offset, query, dim) * invNorm;
+            if (score > bestScore) {
+                bestScore = score;
+                bestSlot = slot;
+            }
+        }
+        return bestSlot < 0 ? null : new Match(bestSlot, userIds[bestSlot], names[bestSlot], bestScore);
+    }
+
+    /**
+     * Batched variant that streams the gallery once for all queries, so each stored vector is
+     * loaded from memory once per frame rather than once per face.
+     */
+    @Override
+    public synchronized Match[] findBestMatches(float[] queries, int count, int queryDimension, float threshold) {
+        Match[] matches = new Match[count];
+        if (count == 0 || size == 0 || queryDimension != dimension || queries.length < count * dimension) {
+            return matches;
+        }
+
+        float[] invNorms = new float[count];
+        int[] bestSlots = new int[count];
+        float[] bestScores = new float[count];
+        for (int q = 0; q < count; q++) {
+            float queryNorm = norm(queries, q * dimension, dimension);
+            invNorms[q] = queryNorm == 0f ? 0f : 1f / queryNorm;
+            bestSlots[q] = -1;
+            bestScores[q] = threshold;
+        }
+
+        for (int slot = 0, offset = 0; slot < size; slot++, offset += dimension) {
+            for (int q = 0; q < count; q++) {
+                if (invNorms[q] == 0f) continue;
+                float score = dot(vectors, offset, queries, q * dimension, dimension) * invNorms[q];
+                if (score > bestScores[q]) {
+                    bestScores[q] = score;
+                    bestSlots[q] = slot;
+                }
+            }
+        }
+
+        for (int q = 0; q < count; q++) {
+            int slot = bestSlots[q];
+            if (slot >= 0) matches[q] = new Match(slot, userIds[slot], names[slot], bestScores[q]);
+        }
+        return matches;
+    }
+
+    @Override
+    public synchronized List<Match> search(float[] query, int k) {
+        if (query == null || size == 0 || k <= 0 || query.length != dimension) return Collections.emptyList();
+
+        float queryNorm = norm(query, 0, dimension);
+        if (queryNorm == 0f) return Collections.emptyList();
+        float invNorm = 1f / queryNorm;
+
+        // Keep the k best slots sorted by descending score with insertion; k is small in practice.
+        int limit = Math.min(k, size);
+        int[] topSlots = new int[limit];
+        float[] topScores = new float[limit];
+        int count = 0;
+        for (int slot = 0, offset = 0; slot < size; slot++, offset += dimension) {
+            float score = dot(vectors, offset, query, dimension) * invNorm;
+            if (count == limit && score <= topScores[limit - 1]) continue;
+            int pos = count < limit ? count++ : limit - 1;
+            while (pos > 0 && topScores[pos - 1] < score) {
+                topScores[pos] = topScores[pos - 1];
+                topSlots[pos] = topSlots[pos - 1];
+                pos--;
+            }
+            topScores[pos] = score;
+            topSlots[pos] = slot;
+        }
+
+        List<Match> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int slot = topSlots[i];
+            matches.add(new Match(slot, userIds[slot], names[slot], topScores[i]));
+        }
+        return matches;
+    }
+
+    private int indexOf(String userId) {
+        Integer slot = slotByUserId.get(userId);
+        return slot == null ? -1 : slot;
+    }
+
+    private void removeAt(int slot) {
+        slotByUserId.remove(userIds[slot]);
+        int last = size - 1;
+        if (slot != last) {
+            // The last entry moves into the freed slot
+            System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+            userIds[slot] = userIds[last];
+            names[slot] = names[last];
+            slotByUserId.put(userIds[slot], slot);
+        }
+        userIds[last] = null;
+        names[last] = null;
+        size = last;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= userIds.length) return;
+        int capacity = Math.max(INITIAL_CAPACITY, userIds.length * 2);
+        while (capacity < required) capacity *= 2;
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        userIds = Arrays.copyOf(userIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    // Four independent accumulators break the add dependency chain so the JIT can pipeline or
+    // vectorize the loop.
+    static float dot(float[] v, int offset, float[] q, int dim) {
+        return dot(v, offset, q, 0, dim);
+    }
+
+    static float dot(float[] v, int offset, float[] q, int qOffset, int dim) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < dim; i += 4) {
+            s0 += v[offset + i] * q[qOffset + i];
+            s1 += v[offset + i + 1] * q[qOffset + i + 1];
+            s2 += v[offset + i + 2] * q[qOffset + i + 2];
+            s3 += v[offset + i + 3] * q[qOffset + i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += v[offset + i] * q[qOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float norm(float[] v, int offset, int dim) {
+        float sum = 0f;
+        for (int i = 0; i < dim; i++) {
+            float x = v[offset + i];
+            sum += x * x;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    static boolean normalizeInto(float[] src, float[] dst, int dstOffset) {
+        float n = norm(src, 0, src.length);
+        if (n == 0f) return false;
+        float inv = 1f / n;
+        for (int i = 0; i < src.length; i++) {
+            dst[dstOffset + i] = src[i] * inv;
+        }
+        return true;
+    }
+
+    public static class Match {
+        private final int slot;
+        private final String userId;
+        private final String name;
+        private final float similarity;
+
+        Match(int slot, String userId, String name, float similarity) {
+            this.slot = slot;
+            this.userId = userId;
+            this.name = name;
+            this.similarity = similarity;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+}
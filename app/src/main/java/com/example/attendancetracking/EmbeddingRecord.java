@@ -0,0 +1,68 @@
+package com.example.attendancetracking;
+
+/**
+ * Embedding of one enrolled user, stored under embeddings/userId, apart from the metadata in
+ * UserRecord so a rename does not re-send the vector and a kiosk downloads it only when its
+ * hash changed.
+ */
+public class EmbeddingRecord {
+    // EmbeddingCodec string of the embedding (the centroid for several templates)
+    private String embeddingData;
+    // EmbeddingCodec template set, only for users with more than one template
+    private String templateData;
+    // FaceRecords.embeddingHash of the two fields above, as copied into UserRecord
+    private String embeddingHash;
+
+    // Constructor trống cho Firebase
+    public EmbeddingRecord() {
+    }
+
+    public EmbeddingRecord(String embeddingData, String templateData, String embeddingHash) {
+        this.embeddingData = embeddingData;
+        this.templateData = templateData;
+        this.embeddingHash = embeddingHash;
+    }
+
+    public String getEmbeddingData() {
+        return embeddingData;
+    }
+
+    public void setEmbeddingData(String embeddingData) {
+        this.embeddingData = embeddingData;
+    }
+
+    public String getTemplateData() {
+        return templateData;
+    }
+
+    public void setTemplateData(String templateData) {
+        this.templateData = templateData;
+    }
+
+    public String getEmbeddingHash() {
+        return embeddingHash;
+    }
+
+    public void setEmbeddingHash(String embeddingHash) {
+        this.embeddingHash = embeddingHash;
+    }
+
+    /**
+     * FaceData of the user, carrying every template and the hash of this record; null if it has
+     * no embedding. Throws IllegalArgumentException if the data is malformed.
+     */
+    public FaceData toFaceData(String userId, String name) {
+        FaceData faceData;
+        if (templateData != null) {
+            EmbeddingCodec.TemplateSet set = EmbeddingCodec.decodeTemplates(templateData);
+            faceData = new FaceData(userId, name, set.templates, set.capturedAt);
+        } else if (embeddingData != null) {
+            faceData = new FaceData(userId, name, EmbeddingCodec.decode(embeddingData));
+        } else {
+            return null;
+        }
+        // Recomputed rather than trusted, so a record edited by hand is fetched again next time
+        faceData.setEmbeddingHash(FaceRecords.embeddingHash(embeddingData, templateData));
+        return faceData;
+    }
+}
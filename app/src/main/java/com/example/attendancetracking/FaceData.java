@@ -3,7 +3,16 @@ package com.example.attendancetracking;
 public class FaceData {
     private String userId; // Thêm userId
     private String name;
+    // Centroid: normalized mean of the templates, or the single enrolled embedding
     private float[] embedding;
+    // Templates packed back to back, each L2-normalized; null when embedding is the only one
+    private float[] templates;
+    // Capture time of each template (ms since epoch); index 0 is the enrolment template
+    private long[] capturedAt;
+    // FaceRecords.embeddingHash of the synced record this came from; null when not synced yet
+    private String embeddingHash;
+    // Server time of the users record this came from (ms since epoch); 0 when not synced yet
+    private long updatedAt;
 
     // Constructor trống cho Firebase
     public FaceData() {
@@ -16,6 +25,26 @@ public class FaceData {
         this.embedding = embedding;
     }
 
+    /**
+     * Identity with several templates packed back to back in templates, one capture time each.
+     * The centroid is derived here; templates must already be L2-normalized.
+     */
+    public FaceData(String userId, String name, float[] templates, long[] capturedAt) {
+        this.userId = userId;
+        this.name = name;
+        if (capturedAt.length == 0 || templates.length % capturedAt.length != 0) {
+            throw new IllegalArgumentException(templates.length + " floats do not hold "
+                    + capturedAt.length + " templates");
+        }
+        this.capturedAt = capturedAt;
+        if (capturedAt.length == 1) {
+            this.embedding = templates;
+        } else {
+            this.templates = templates;
+            this.embedding = centroid(templates, capturedAt.length);
+        }
+    }
+
     // Getter và Setter cho userId
     public String getUserId() {
         return userId;
@@ -41,5 +70,87 @@ public class FaceData {
 
     public void setEmbedding(float[] embedding) {
         this.embedding = embedding;
+        this.templates = null;
+        this.capturedAt = null;
+        this.embeddingHash = null;
+    }
+
+    public String getEmbeddingHash() {
+        return embeddingHash;
+    }
+
+    public void setEmbeddingHash(String embeddingHash) {
+        this.embeddingHash = embeddingHash;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public int getTemplateCount() {
+        if (templates != null) return capturedAt.length;
+        return embedding == null ? 0 : 1;
+    }
+
+    /** All templates packed back to back; the embedding itself for a single-template identity. */
+    public float[] getTemplates() {
+        return templates != null ? templates : embedding;
+    }
+
+    /** Capture time of each template, or null when it was never recorded (e.g. older records). */
+    public long[] getCapturedAt() {
+        return capturedAt;
+    }
+
+    /** Capture time of the newest template, or 0 when unknown. */
+    public long getLastCapturedAt() {
+        long last = 0;
+        if (capturedAt != null) {
+            for (long time : capturedAt) last = Math.max(last, time);
+        }
+        return last;
+    }
+
+    /**
+     * Highest cosine similarity between query and any template. queryInvNorm is 1 / |query|, so
+     * a caller scoring several identities normalizes the query once.
+     */
+    public float maxTemplateSimilarity(float[] query, int queryOffset, float queryInvNorm) {
+        float[] packed = getTemplates();
+        if (packed == null) return -1f;
+        int dimension = embedding.length;
+        if (templates == null) {
+            // Single template, stored as delivered by the extractor and not necessarily normalized
+            float norm = EmbeddingGallery.norm(packed, 0, dimension);
+            if (norm == 0f) return -1f;
+            return EmbeddingGallery.dot(packed, 0, query, queryOffset, dimension) * queryInvNorm / norm;
+        }
+        float best = -1f;
+        for (int offset = 0; offset < packed.length; offset += dimension) {
+            best = Math.max(best, EmbeddingGallery.dot(packed, offset, query, queryOffset, dimension) * queryInvNorm);
+        }
+        return best;
+    }
+
+    /** Normalized mean of count normalized templates packed in templates. */
+    static float[] centroid(float[] templates, int count) {
+        int dimension = templates.length / count;
+        float[] mean = new float[dimension];
+        for (int offset = 0; offset < templates.length; offset += dimension) {
+            for (int d = 0; d < dimension; d++) {
+                mean[d] += templates[offset + d];
+            }
+        }
+        float norm = EmbeddingGallery.norm(mean, 0, dimension);
+        if (norm > 0f) {
+            for (int d = 0; d < dimension; d++) {
+                mean[d] /= norm;
+            }
+        }
+        return mean;
     }
 }
@@ -0,0 +1,35 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+
+/**
+ * Face detection backend used by the detect stage. Every backend writes the same row layout as
+ * the native YuNet detector, RecognitionPipeline.FACE_STRIDE floats per face: box x, y, w, h,
+ * five landmark (x, y) pairs and a score in [0, 1]. Backends without landmarks leave them 0,
+ * like the legacy single-face native, and the recognizer then crops the box without aligning.
+ *
+ * Implementations keep per-instance scratch buffers, so one instance serves one thread.
+ */
+public interface FaceDetector {
+
+    enum Backend {
+        /** YuNet CNN through the native library; boxes, landmarks and scores. The reference. */
+        YUNET,
+        /** OpenCV Haar cascade; cheapest, frontal faces only, no landmarks. */
+        HAAR,
+        /** ResNet-10 SSD through OpenCV DNN; no landmarks, needs the Caffe weights in the assets. */
+        SSD,
+        /** Haar on every frame, YuNet only around candidate faces and on a periodic full frame. */
+        CASCADE
+    }
+
+    /** Offset of the box x in a face row; y, w and h follow. */
+    int BOX = 0;
+    /** Offset of the first landmark x in a face row. */
+    int LANDMARKS = 4;
+    /** Offset of the score in a face row. */
+    int SCORE = 14;
+
+    /** Fills faces with up to maxFaces rows and returns the count. */
+    int detect(Mat gray, Mat rgba, float[] faces, int maxFaces);
+}
@@ -0,0 +1,180 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owner of the enrolled gallery: a copy-on-write GallerySnapshot published through a single
+ * volatile reference, so readers on any thread get a consistent view without locking.
+ *
+ * Updates from any thread are queued and applied in batches on the executor: the first update
+ * schedules a rebuild batchDelayMillis later, and everything queued by then is folded into one
+ * new snapshot. A burst of Firebase child events therefore costs one copy of the gallery rather
+ * than one per event. Listeners then receive the net change of the batch, e.g. to update a
+ * FaceIndex.
+ */
+public class FaceGallery {
+
+    /** Called on the executor after each published batch that changed the gallery. */
+    public interface Listener {
+        void onGalleryChanged(GallerySnapshot snapshot, List<FaceData> upserted, List<String> removed);
+    }
+
+    private interface Update {
+        void applyTo(Map<String, FaceData> entries);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long batchDelayMillis;
+    private final ConcurrentLinkedQueue<Update> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private volatile GallerySnapshot snapshot = GallerySnapshot.EMPTY;
+
+    public FaceGallery(ScheduledExecutorService executor, long batchDelayMillis) {
+        this.executor = executor;
+        this.batchDelayMillis = batchDelayMillis;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Latest published snapshot; never null and never modified. */
+    public GallerySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Inserts the entry, or replaces the one already stored under its userId. */
+    public void upsert(final FaceData faceData) {
+        if (faceData.getUserId() == null) return;
+        enqueue(entries -> entries.put(faceData.getUserId(), faceData));
+    }
+
+    public void upsertAll(final Collection<FaceData> faceDataList) {
+        final List<FaceData> copy = new ArrayList<>(faceDataList);
+        enqueue(entries -> {
+            for (FaceData faceData : copy) {
+                if (faceData.getUserId() != null) entries.put(faceData.getUserId(), faceData);
+            }
+        });
+    }
+
+    public void remove(final String userId) {
+        enqueue(entries -> entries.remove(userId));
+    }
+
+    /** Upserts and removes as one update, so no snapshot holds only part of the change. */
+    public void apply(final Collection<FaceData> upserts, final Collection<String> removals) {
+        final List<FaceData> upsertCopy = new ArrayList<>(upserts);
+        final List<String> removalCopy = new ArrayList<>(removals);
+        enqueue(entries -> {
+            for (FaceData faceData : upsertCopy) {
+                if (faceData.getUserId() != null) entries.put(faceData.getUserId(), faceData);
+            }
+            for (String userId : removalCopy) {
+                entries.remove(userId);
+            }
+        });
+    }
+
+    /**
+     * Removes every entry whose userId is not in userIds. Applied in order with the other
+     * updates, so entries upserted before this call are judged, later ones are kept.
+     */
+    public void retainOnly(final Set<String> userIds) {
+        final Set<String> keep = new HashSet<>(userIds);
+        enqueue(entries -> entries.keySet().retainAll(keep));
+    }
+
+    /**
+     * Runs task on the executor once every update queued before this call is published, so it
+     * reads a snapshot that includes them.
+     */
+    public void whenApplied(final Runnable task) {
+        executor.execute(() -> {
+            applyPending();
+            task.run();
+        });
+    }
+
+    /** Number of snapshots built since construction. */
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    /** Applies everything queued so far and waits for it, e.g. before shutting the executor down. */
+    public void flush() throws InterruptedException {
+        try {
+            executor.submit(this::applyPending).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Gallery update failed", e.getCause());
+        }
+    }
+
+    private void enqueue(Update update) {
+        pending.add(update);
+        if (applyScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::applyPending, batchDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Executor thread only, so there is a single writer of snapshot. */
+    private void applyPending() {
+        // Cleared first: an update queued while this batch is built schedules the next one
+        applyScheduled.set(false);
+        if (pending.isEmpty()) return;
+
+        GallerySnapshot previous = snapshot;
+        LinkedHashMap<String, FaceData> entries = previous.copyEntries();
+        Update update;
+        while ((update = pending.poll()) != null) {
+            update.applyTo(entries);
+        }
+
+        List<FaceData> upserted = new ArrayList<>();
+        for (FaceData faceData : entries.values()) {
+            if (!sameContent(previous.get(faceData.getUserId()), faceData)) upserted.add(faceData);
+        }
+        List<String> removed = new ArrayList<>();
+        for (FaceData faceData : previous.getEntries()) {
+            if (!entries.containsKey(faceData.getUserId())) removed.add(faceData.getUserId());
+        }
+        // E.g. Firebase replaying users already loaded from the local snapshot
+        if (upserted.isEmpty() && removed.isEmpty()) return;
+
+        GallerySnapshot next = new GallerySnapshot(entries, previous.getVersion() + 1);
+        snapshot = next;
+        rebuildCount.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.onGalleryChanged(next, upserted, removed);
+        }
+    }
+
+    private static boolean sameContent(FaceData a, FaceData b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        return a.getUserId().equals(b.getUserId())
+                && (a.getName() == null ? b.getName() == null : a.getName().equals(b.getName()))
+                && Arrays.equals(a.getEmbedding(), b.getEmbedding())
+                && Arrays.equals(a.getTemplates(), b.getTemplates())
+                && Arrays.equals(a.getCapturedAt(), b.getCapturedAt())
+                // Sync state too, so the snapshot on disk learns it
+                && (a.getEmbeddingHash() == null ? b.getEmbeddingHash() == null : a.getEmbeddingHash().equals(b.getEmbeddingHash()))
+                && a.getUpdatedAt() == b.getUpdatedAt();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.attendancetracking;
+
+import java.util.List;
+
+/**
+ * Searchable set of enrolled face embeddings keyed by userId. Implementations are kept in sync
+ * with the FaceGallery by MainActivity, which applies the net change of each published batch
+ * (add on added/changed, remove on removed).
+ */
+public interface FaceIndex {
+
+    enum Type {
+        /** Exact linear scan, used as the reference for recall measurements. */
+        BRUTE_FORCE,
+        /** Hierarchical navigable small world graph, roughly logarithmic search time. */
+        HNSW,
+        /** Linear scan over per-vector scaled int8 codes, a quarter of the float32 memory but slower. */
+        INT8,
+        /** Linear scan over float16 codes, half of the float32 memory but slower. */
+        FLOAT16
+    }
+
+    /** Inserts the entry, or replaces the one already stored under userId. */
+    void add(String userId, String name, float[] embedding);
+
+    boolean remove(String userId);
+
+    void clear();
+
+    int size();
+
+    /** Returns up to k entries ordered by descending cosine similarity. */
+    List<EmbeddingGallery.Match> search(float[] query, int k);
+
+    /** Returns the most similar entry whose similarity is strictly above threshold, or null. */
+    EmbeddingGallery.Match findBestMatch(float[] query, float threshold);
+
+    /**
+     * Matches count queries packed back to back in queries, e.g. every face in a frame. Entries
+     * are null where findBestMatch would return null.
+     */
+    default EmbeddingGallery.Match[] findBestMatches(float[] queries, int count, float threshold) {
+        return findBestMatches(queries, count, count == 0 ? 0 : queries.length / count, threshold);
+    }
+
+    /**
+     * Same as findBestMatches(queries, count, threshold) for queries of the given dimension
+     * packed at the start of a possibly larger buffer, such as a pooled frame's embeddings.
+     */
+    default EmbeddingGallery.Match[] findBestMatches(float[] queries, int count, int dimension, float threshold) {
+        EmbeddingGallery.Match[] matches = new EmbeddingGallery.Match[count];
+        if (count == 0) return matches;
+        for (int i = 0; i < count; i++) {
+            float[] query = new float[dimension];
+            System.arraycopy(queries, i * dimension, query, 0, dimension);
+            matches[i] = findBestMatch(query, threshold);
+        }
+        return matches;
+    }
+
+    static FaceIndex create(Type type) {
+        return create(type, QuantizedFaceIndex.DEFAULT_RERANK_DEPTH);
+    }
+
+    /** rerankDepth only applies to the quantized types; 0 disables the float32 re-rank. */
+    static FaceIndex create(Type type, int rerankDepth) {
+        switch (type) {
+            case HNSW:
+                return new HnswFaceIndex();
+            case INT8:
+                return new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.INT8, rerankDepth);
+            case FLOAT16:
+                return new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.FLOAT16, rerankDepth);
+            case BRUTE_FORCE:
+            default:
+                return new EmbeddingGallery();
+        }
+    }
+}
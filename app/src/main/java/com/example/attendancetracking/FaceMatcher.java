@@ -0,0 +1,99 @@
+package com.example.attendancetracking;
+
+import java.util.List;
+
+/**
+ * Recognition and enrolment decisions against a FaceIndex, kept free of Android types so the
+ * same code runs in the app and in the JVM benchmarks.
+ *
+ * The index holds one centroid per identity. With a gallery attached, it only pre-filters: the
+ * PREFILTER_CANDIDATES nearest centroids are re-scored by their best individual template, and
+ * thresholds apply to that score. A centroid sits between an identity's templates, so it ranks
+ * candidates well but understates how close a query is to the nearest of them.
+ */
+public class FaceMatcher {
+
+    /** Minimum cosine similarity for a camera face to be shown as an enrolled user. */
+    public static final float RECOGNITION_THRESHOLD = 0.5f;
+    /** Similarity above which a newly picked photo is treated as an already enrolled face. */
+    public static final float DUPLICATE_THRESHOLD = 0.8f;
+    /** Centroids re-scored per query; identities outside them are not considered. */
+    public static final int PREFILTER_CANDIDATES = 5;
+
+    /** Source of each identity's templates, e.g. the current GallerySnapshot. */
+    public interface Templates {
+        FaceData get(String userId);
+    }
+
+    /** Supplies the Templates to score against at the time of each call. */
+    public interface TemplateSource {
+        Templates current();
+    }
+
+    private final FaceIndex faceIndex;
+    private final TemplateSource templateSource;
+
+    /** Centroid-only matching, as before identities had several templates. */
+    public FaceMatcher(FaceIndex faceIndex) {
+        this(faceIndex, null);
+    }
+
+    public FaceMatcher(FaceIndex faceIndex, TemplateSource templateSource) {
+        this.faceIndex = faceIndex;
+        this.templateSource = templateSource;
+    }
+
+    public FaceIndex getFaceIndex() {
+        return faceIndex;
+    }
+
+    /** Matches count packed embeddings in one pass; entries are null for unknown faces. */
+    public EmbeddingGallery.Match[] match(float[] embeddings, int count) {
+        return match(embeddings, count, count == 0 ? 0 : embeddings.length / count);
+    }
+
+    /** Same as match(embeddings, count) for a buffer that may be longer than count * dimension. */
+    public EmbeddingGallery.Match[] match(float[] embeddings, int count, int dimension) {
+        if (templateSource == null) {
+            return faceIndex.findBestMatches(embeddings, count, dimension, RECOGNITION_THRESHOLD);
+        }
+        Templates templates = templateSource.current();
+        EmbeddingGallery.Match[] matches = new EmbeddingGallery.Match[count];
+        float[] query = new float[dimension];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(embeddings, i * dimension, query, 0, dimension);
+            matches[i] = bestTemplateMatch(query, templates, RECOGNITION_THRESHOLD);
+        }
+        return matches;
+    }
+
+    /** Enrolled entry that the embedding duplicates, or null if it is a new face. */
+    public EmbeddingGallery.Match findDuplicate(float[] embedding) {
+        if (templateSource == null) {
+            return faceIndex.findBestMatch(embedding, DUPLICATE_THRESHOLD);
+        }
+        return bestTemplateMatch(embedding, templateSource.current(), DUPLICATE_THRESHOLD);
+    }
+
+    private EmbeddingGallery.Match bestTemplateMatch(float[] query, Templates templates, float threshold) {
+        float norm = EmbeddingGallery.norm(query, 0, query.length);
+        if (norm == 0f) return null;
+        float invNorm = 1f / norm;
+        List<EmbeddingGallery.Match> candidates = faceIndex.search(query, PREFILTER_CANDIDATES);
+        EmbeddingGallery.Match best = null;
+        float bestScore = threshold;
+        for (EmbeddingGallery.Match candidate : candidates) {
+            FaceData faceData = templates.get(candidate.getUserId());
+            // Not in the gallery yet or any more: fall back to the centroid score
+            float score = faceData == null || faceData.getEmbedding().length != query.length
+                    ? candidate.getSimilarity()
+                    : faceData.maxTemplateSimilarity(query, 0, invNorm);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        if (best == null) return null;
+        return new EmbeddingGallery.Match(best.getSlot(), best.getUserId(), best.getName(), bestScore);
+    }
+}
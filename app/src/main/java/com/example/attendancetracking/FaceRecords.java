@@ -0,0 +1,206 @@
+package com.example.attendancetracking;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Firebase layout of the enrolled users:
+ * <pre>
+ *   users/userId      : UserRecord      (name, embeddingHash, updatedAt), or a deleted tombstone
+ *   embeddings/userId : EmbeddingRecord (embeddingData, templateData, embeddingHash)
+ * </pre>
+ * Kiosks follow users, which is a few dozen bytes per user, and fetch embeddings/userId only
+ * when its hash differs from that of their own copy. Every write goes through one multi-path
+ * update built here, so the two nodes of a user never disagree.
+ *
+ * The previous layout kept name and embedding together as a MainModel under faceDataList/userId;
+ * migrate() moves those records over.
+ */
+public final class FaceRecords {
+
+    public static final String USERS = "users";
+    public static final String EMBEDDINGS = "embeddings";
+    public static final String LEGACY_FACE_DATA = "faceDataList";
+
+    // 128 bits of SHA-256: collisions are out of reach for one directory
+    private static final int HASH_BYTES = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private FaceRecords() {
+    }
+
+    /** Content hash of an embedding record's payload, as lowercase hex. */
+    public static String embeddingHash(String embeddingData, String templateData) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (embeddingData != null) sha256.update(embeddingData.getBytes(UTF_8));
+        // Separates the fields, so moving data between them changes the hash
+        sha256.update((byte) 0);
+        if (templateData != null) sha256.update(templateData.getBytes(UTF_8));
+        byte[] digest = sha256.digest();
+        StringBuilder sb = new StringBuilder(HASH_BYTES * 2);
+        for (int i = 0; i < HASH_BYTES; i++) {
+            sb.append(Character.forDigit((digest[i] >>> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** The embedding record of faceData in the given wire precision. */
+    public static EmbeddingRecord toEmbeddingRecord(FaceData faceData, EmbeddingCodec.Precision precision) {
+        String embeddingData = EmbeddingCodec.encode(faceData.getEmbedding(), precision);
+        String templateData = null;
+        if (faceData.getCapturedAt() != null) {
+            templateData = EmbeddingCodec.encodeTemplates(faceData.getTemplates(), faceData.getCapturedAt(), precision);
+        }
+        return new EmbeddingRecord(embeddingData, templateData, embeddingHash(embeddingData, templateData));
+    }
+
+    /**
+     * Multi-path update, relative to the database root, that writes both nodes of a user.
+     * timestamp is the value stored as updatedAt, normally ServerValue.TIMESTAMP.
+     */
+    public static Map<String, Object> putUpdates(String userId, String name, EmbeddingRecord record, Object timestamp) {
+        Map<String, Object> updates = new HashMap<>();
+        putUser(updates, userId, name, record.getEmbeddingHash(), timestamp);
+        Map<String, Object> embedding = new HashMap<>();
+        embedding.put("embeddingData", record.getEmbeddingData());
+        embedding.put("templateData", record.getTemplateData());
+        embedding.put("embeddingHash", record.getEmbeddingHash());
+        updates.put(EMBEDDINGS + "/" + userId, embedding);
+        return updates;
+    }
+
+    /** Update of the metadata only, for a change that leaves the embedding as it is. */
+    public static Map<String, Object> userUpdates(String userId, String name, String embeddingHash, Object timestamp) {
+        Map<String, Object> updates = new HashMap<>();
+        putUser(updates, userId, name, embeddingHash, timestamp);
+        return updates;
+    }
+
+    /**
+     * Update that removes the embedding of a user and leaves a tombstone under users, so kiosks
+     * syncing only the records updated since their checkpoint learn of the deletion.
+     */
+    public static Map<String, Object> deleteUpdates(String userId, Object timestamp) {
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("deleted", true);
+        tombstone.put("updatedAt", timestamp);
+        updates.put(USERS + "/" + userId, tombstone);
+        updates.put(EMBEDDINGS + "/" + userId, null);
+        return updates;
+    }
+
+    private static void putUser(Map<String, Object> updates, String userId, String name, String embeddingHash,
+                                Object timestamp) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", name);
+        user.put("embeddingHash", embeddingHash);
+        user.put("updatedAt", timestamp);
+        updates.put(USERS + "/" + userId, user);
+    }
+
+    /** True unless local already holds the embedding that record points to. */
+    public static boolean needsEmbedding(FaceData local, UserRecord record) {
+        return local == null || local.getEmbeddingHash() == null || record.getEmbeddingHash() == null
+                || !record.getEmbeddingHash().equals(local.getEmbeddingHash());
+    }
+
+    /** Copy of faceData under another name, sharing its templates and sync state. */
+    public static FaceData renamed(FaceData faceData, String name) {
+        FaceData copy = faceData.getCapturedAt() != null
+                ? new FaceData(faceData.getUserId(), name, faceData.getTemplates(), faceData.getCapturedAt())
+                : new FaceData(faceData.getUserId(), name, faceData.getEmbedding());
+        copy.setEmbeddingHash(faceData.getEmbeddingHash());
+        copy.setUpdatedAt(faceData.getUpdatedAt());
+        return copy;
+    }
+
+    /** Result of migrate(): the updates to apply in order and what they amount to. */
+    public static final class Migration {
+        private final List<Map<String, Object>> batches;
+        private final int migrated;
+        private final int alreadyMigrated;
+        private final int invalid;
+
+        Migration(List<Map<String, Object>> batches, int migrated, int alreadyMigrated, int invalid) {
+            this.batches = Collections.unmodifiableList(batches);
+            this.migrated = migrated;
+            this.alreadyMigrated = alreadyMigrated;
+            this.invalid = invalid;
+        }
+
+        public List<Map<String, Object>> getBatches() {
+            return batches;
+        }
+
+        /** Legacy records copied into the new layout. */
+        public int getMigrated() {
+            return migrated;
+        }
+
+        /** Legacy records of users already in the new layout, which is newer and kept. */
+        public int getAlreadyMigrated() {
+            return alreadyMigrated;
+        }
+
+        /** Legacy records without a readable embedding, left where they are. */
+        public int getInvalid() {
+            return invalid;
+        }
+    }
+
+    /**
+     * Updates that move the legacy records into users and embeddings, at most batchSize users
+     * each. Each user moves within one update, removing faceDataList/userId as its new nodes are
+     * written, so an interrupted migration resumes from the records still left. Users already
+     * present in the new layout only lose their stale legacy record.
+     */
+    public static Migration migrate(Map<String, MainModel> legacy, Set<String> migratedUserIds,
+                                    EmbeddingCodec.Precision precision, Object timestamp, int batchSize) {
+        List<Map<String, Object>> batches = new ArrayList<>();
+        Map<String, Object> batch = new HashMap<>();
+        int users = 0;
+        int migrated = 0;
+        int alreadyMigrated = 0;
+        int invalid = 0;
+        for (Map.Entry<String, MainModel> entry : legacy.entrySet()) {
+            String userId = entry.getKey();
+            if (migratedUserIds.contains(userId)) {
+                alreadyMigrated++;
+            } else {
+                FaceData faceData;
+                try {
+                    faceData = entry.getValue() != null ? entry.getValue().toFaceData(userId) : null;
+                } catch (IllegalArgumentException e) {
+                    faceData = null;
+                }
+                if (faceData == null) {
+                    invalid++;
+                    continue;
+                }
+                batch.putAll(putUpdates(userId, faceData.getName(), toEmbeddingRecord(faceData, precision), timestamp));
+                migrated++;
+            }
+            batch.put(LEGACY_FACE_DATA + "/" + userId, null);
+            if (++users == batchSize) {
+                batches.add(batch);
+                batch = new HashMap<>();
+                users = 0;
+            }
+        }
+        if (!batch.isEmpty()) batches.add(batch);
+        return new Migration(batches, migrated, alreadyMigrated, invalid);
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Associates face boxes across frames by IoU so that an embedding only has to be extracted when
+ * a track is new, when its refresh interval has elapsed, or when its confidence has decayed
+ * because the box moved. Each track votes over its last K match results to stabilise identity.
+ *
+ * Boxes start with {x, y, width, height}, as filled in by DetectFaces. update() must be called
+ * from a single thread; the per-track identity state may be read and written from other threads.
+ */
+public class FaceTracker {
+
+    private static final float DEFAULT_IOU_THRESHOLD = 0.3f;
+    static final long DEFAULT_REFRESH_INTERVAL_MS = 2000;
+    private static final float DEFAULT_MIN_CONFIDENCE = 0.5f;
+    private static final float DEFAULT_MOTION_DECAY = 0.25f;
+    private static final int DEFAULT_VOTE_WINDOW = 5;
+    private static final long DEFAULT_MAX_LOST_MS = 500;
+
+    private final float iouThreshold;
+    // Adjusted at runtime by AdaptiveController, read by every track
+    private volatile long refreshIntervalNanos;
+    private final float minConfidence;
+    private final float motionDecay;
+    private final int voteWindow;
+    private final long maxLostNanos;
+
+    private final List<Track> tracks = new ArrayList<>();
+    // Reused by every update so steady-state tracking does not allocate
+    private boolean[] trackTaken = new boolean[0];
+    private int nextTrackId = 1;
+
+    public FaceTracker() {
+        this(DEFAULT_IOU_THRESHOLD, DEFAULT_REFRESH_INTERVAL_MS, DEFAULT_MIN_CONFIDENCE,
+                DEFAULT_MOTION_DECAY, DEFAULT_VOTE_WINDOW, DEFAULT_MAX_LOST_MS);
+    }
+
+    /**
+     * @param iouThreshold      minimum IoU for a detection to continue an existing track
+     * @param refreshIntervalMs re-embed a track at least this often
+     * @param minConfidence     re-embed once confidence drops below this
+     * @param motionDecay       confidence lost per frame is motionDecay * (1 - IoU)
+     * @param voteWindow        number of recent match results each track votes over
+     * @param maxLostMs         drop a track after it has not been seen for this long
+     */
+    public FaceTracker(float iouThreshold, long refreshIntervalMs, float minConfidence,
+                       float motionDecay, int voteWindow, long maxLostMs) {
+        this.iouThreshold = iouThreshold;
+        this.refreshIntervalNanos = refreshIntervalMs * 1_000_000L;
+        this.minConfidence = minConfidence;
+        this.motionDecay = motionDecay;
+        this.voteWindow = Math.max(1, voteWindow);
+        this.maxLostNanos = maxLostMs * 1_000_000L;
+    }
+
+    /**
+     * Associates count boxes (packed as x, y, w, h in rects) with existing tracks, greedily by
+     * highest IoU, and starts new tracks for the rest. Returns the track of each box in order.
+     */
+    public Track[] update(float[] rects, int count, long nowNanos) {
+        return update(rects, 4, count, nowNanos);
+    }
+
+    /** Same as update(rects, count, nowNanos) for rows of stride floats that start with a box. */
+    public Track[] update(float[] rects, int stride, int count, long nowNanos) {
+        Track[] assigned = new Track[count];
+        update(rects, stride, count, nowNanos, assigned);
+        return assigned;
+    }
+
+    /**
+     * Allocation-free variant for the frame path: writes the track of each box into the first
+     * count entries of assigned. Only starting a new track allocates.
+     */
+    public void update(float[] rects, int stride, int count, long nowNanos, Track[] assigned) {
+        Arrays.fill(assigned, 0, count, null);
+        if (trackTaken.length < tracks.size()) {
+            trackTaken = new boolean[Math.max(tracks.size(), trackTaken.length * 2)];
+        }
+        Arrays.fill(trackTaken, false);
+
+        while (true) {
+            float bestIou = iouThreshold;
+            int bestTrack = -1;
+            int bestBox = -1;
+            for (int t = 0; t < tracks.size(); t++) {
+                if (trackTaken[t]) continue;
+                float[] trackRect = tracks.get(t).rect;
+                for (int b = 0; b < count; b++) {
+                    if (assigned[b] != null) continue;
+                    float iou = iou(trackRect, 0, rects, b * stride);
+                    if (iou >= bestIou) {
+                        bestIou = iou;
+                        bestTrack = t;
+                        bestBox = b;
+                    }
+                }
+            }
+            if (bestTrack < 0) break;
+
+            Track track = tracks.get(bestTrack);
+            track.moveTo(rects, bestBox * stride, bestIou, nowNanos);
+            trackTaken[bestTrack] = true;
+            assigned[bestBox] = track;
+        }
+
+        for (int t = tracks.size() - 1; t >= 0; t--) {
+            if (!trackTaken[t] && nowNanos - tracks.get(t).lastSeenNanos > maxLostNanos) {
+                tracks.remove(t);
+            }
+        }
+
+        for (int b = 0; b < count; b++) {
+            if (assigned[b] == null) {
+                Track track = new Track(nextTrackId++, rects, b * stride, nowNanos);
+                tracks.add(track);
+                assigned[b] = track;
+            }
+        }
+    }
+
+    /** Changes how often tracks are re-embedded; takes effect for every existing track. */
+    public void setRefreshIntervalNanos(long refreshIntervalNanos) {
+        this.refreshIntervalNanos = refreshIntervalNanos;
+    }
+
+    public long getRefreshIntervalNanos() {
+        return refreshIntervalNanos;
+    }
+
+    public int getTrackCount() {
+        return tracks.size();
+    }
+
+    static float iou(float[] a, int aOffset, float[] b, int bOffset) {
+        float ax1 = a[aOffset], ay1 = a[aOffset + 1];
+        float ax2 = ax1 + a[aOffset + 2], ay2 = ay1 + a[aOffset + 3];
+        float bx1 = b[bOffset], by1 = b[bOffset + 1];
+        float bx2 = bx1 + b[bOffset + 2], by2 = by1 + b[bOffset + 3];
+
+        float iw = Math.min(ax2, bx2) - Math.max(ax1, bx1);
+        float ih = Math.min(ay2, by2) - Math.max(ay1, by1);
+        if (iw <= 0f || ih <= 0f) return 0f;
+        float intersection = iw * ih;
+        float union = a[aOffset + 2] * a[aOffset + 3] + b[bOffset + 2] * b[bOffset + 3] - intersection;
+        return union <= 0f ? 0f : intersection / union;
+    }
+
+    public class Track {
+        private final int id;
+        private final float[] rect = new float[4];
+        private long lastSeenNanos;
+        private long lastEmbeddedNanos = -1;
+        private float confidence;
+
+        private final EmbeddingGallery.Match[] votes = new EmbeddingGallery.Match[voteWindow];
+        private int voteCount;
+        private int voteHead;
+
+        Track(int id, float[] rects, int offset, long nowNanos) {
+            this.id = id;
+            System.arraycopy(rects, offset, rect, 0, 4);
+            this.lastSeenNanos = nowNanos;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public float[] getRect() {
+            return rect;
+        }
+
+        public synchronized float getConfidence() {
+            return confidence;
+        }
+
+        /** True if the track is new, due for a refresh, or its confidence has decayed. */
+        public synchronized boolean needsEmbedding(long nowNanos) {
+            return lastEmbeddedNanos < 0
+                    || nowNanos - lastEmbeddedNanos >= refreshIntervalNanos
+                    || confidence < minConfidence;
+        }
+
+        /** Called when an embedding is scheduled, so later frames do not schedule another one. */
+        public synchronized void markEmbedded(long nowNanos) {
+            lastEmbeddedNanos = nowNanos;
+            confidence = 1f;
+        }
+
+        /** Called when extraction produced nothing, so the next frame retries. */
+        public synchronized void invalidate() {
+            confidence = 0f;
+        }
+
+        /** Records a match result (null for unknown) into the vote window. */
+        public synchronized void recordMatch(EmbeddingGallery.Match match) {
+            votes[voteHead] = match;
+            voteHead = (voteHead + 1) % votes.length;
+            if (voteCount < votes.length) voteCount++;
+        }
+
+        public synchronized boolean hasIdentity() {
+            return voteCount > 0;
+        }
+
+        /**
+         * Majority vote over the last K results, where unknown is a candidate like any user. Ties
+         * go to the candidate with the higher summed similarity. Returns the most recent match for
+         * the winning user, or null if unknown wins.
+         */
+        public synchronized EmbeddingGallery.Match getVotedMatch() {
+            if (voteCount == 0) return null;
+            // K is small, so tally by rescanning the window instead of building maps every frame
+            int winner = -1;
+            int winnerCount = -1;
+            float winnerSimilarity = -1f;
+            for (int i = 0; i < voteCount; i++) {
+                EmbeddingGallery.Match candidate = vote(i);
+                int count = 0;
+                float similarity = 0f;
+                boolean counted = false;
+                for (int j = 0; j < voteCount; j++) {
+                    EmbeddingGallery.Match other = vote(j);
+                    if (sameIdentity(candidate, other)) {
+                        if (j < i) {
+                            counted = true;
+                            break;
+                        }
+                        count++;
+                        similarity += other == null ? 0f : other.getSimilarity();
+                    }
+                }
+                if (counted) continue;
+                if (count > winnerCount || (count == winnerCount && similarity > winnerSimilarity)) {
+                    winner = i;
+                    winnerCount = count;
+                    winnerSimilarity = similarity;
+                }
+            }
+
+            // Return the newest match for the winning identity
+            EmbeddingGallery.Match winning = vote(winner);
+            for (int i = voteCount - 1; i > winner; i--) {
+                if (sameIdentity(winning, vote(i))) return vote(i);
+            }
+            return winning;
+        }
+
+        /** i-th vote from oldest to newest. */
+        private EmbeddingGallery.Match vote(int i) {
+            return votes[(voteHead - voteCount + i + votes.length) % votes.length];
+        }
+
+        private boolean sameIdentity(EmbeddingGallery.Match a, EmbeddingGallery.Match b) {
+            if (a == null || b == null) return a == b;
+            return a.getUserId().equals(b.getUserId());
+        }
+
+        private synchronized void moveTo(float[] rects, int offset, float iou, long nowNanos) {
+            System.arraycopy(rects, offset, rect, 0, 4);
+            lastSeenNanos = nowNanos;
+            confidence = Math.max(0f, confidence - motionDecay * (1f - iou));
+        }
+    }
+}
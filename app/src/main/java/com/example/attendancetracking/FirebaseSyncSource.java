@@ -0,0 +1,147 @@
+package com.example.attendancetracking;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseException;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * SyncEngine.Source over the users and embeddings nodes. Delta reads query users ordered by
+ * updatedAt, which needs ".indexOn": "updatedAt" on users in the database rules; without it the
+ * client downloads the whole node and filters locally.
+ *
+ * Every read goes to the server with Query.get(). With disk persistence on, a single-value
+ * listener may answer from the local cache, which after some time offline holds only the
+ * records this device has seen; a pass given such an answer would move its checkpoint past
+ * records it never read. Reads made while the client is not connected fail instead, and
+ * watchConnection starts a pass on every reconnect.
+ *
+ * Snapshots are deserialized and sized on the executor given to the constructor, not on the
+ * main thread where the SDK delivers them; a full pass over a large users node would
+ * otherwise decode every record there.
+ */
+public class FirebaseSyncSource implements SyncEngine.Source {
+
+    private static final String TAG = "FirebaseSyncSource";
+
+    private final DatabaseReference usersRef;
+    private final DatabaseReference embeddingsRef;
+    private final Executor executor;
+    private volatile boolean connected;
+    private DatabaseReference connectedRef;
+    private ValueEventListener connectionListener;
+
+    /** Turns a snapshot read from the server into the result the SyncEngine asked for. */
+    private interface Decoder<T> {
+        T decode(DataSnapshot snapshot);
+    }
+
+    public FirebaseSyncSource(DatabaseReference usersRef, DatabaseReference embeddingsRef, Executor executor) {
+        this.usersRef = usersRef;
+        this.embeddingsRef = embeddingsRef;
+        this.executor = executor;
+    }
+
+    /** Follows .info/connected and runs onConnected, e.g. SyncEngine.sync, each time the client connects. */
+    public void watchConnection(final Runnable onConnected) {
+        connectedRef = usersRef.getDatabase().getReference(".info/connected");
+        connectionListener = connectedRef.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+                if (connected) onConnected.run();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                AppLog.e(TAG, "Failed to follow the Firebase connection state.", error.toException());
+            }
+        });
+    }
+
+    /** Stops starting passes on reconnect; call before the executor shuts down. */
+    public void stopWatching() {
+        if (connectionListener != null) {
+            connectedRef.removeEventListener(connectionListener);
+            connectionListener = null;
+        }
+        connected = false;
+    }
+
+    @Override
+    public void readUsers(long since, final SyncEngine.Callback<Map<String, UserRecord>> callback) {
+        Query query = since > 0 ? usersRef.orderByChild("updatedAt").startAt(since) : usersRef;
+        read(query, callback, snapshot -> {
+            Map<String, UserRecord> users = new LinkedHashMap<>();
+            for (DataSnapshot child : snapshot.getChildren()) {
+                try {
+                    users.put(child.getKey(), child.getValue(UserRecord.class));
+                } catch (DatabaseException e) {
+                    AppLog.e(TAG, "Invalid user record in Firebase. userId: " + child.getKey() + " " + e.getMessage());
+                }
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public void readEmbedding(final String userId, final SyncEngine.Callback<EmbeddingRecord> callback) {
+        read(embeddingsRef.child(userId), callback, snapshot -> {
+            try {
+                return snapshot.getValue(EmbeddingRecord.class);
+            } catch (DatabaseException e) {
+                AppLog.e(TAG, "Invalid embedding in Firebase. userId: " + userId + " " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    private <T> void read(Query query, final SyncEngine.Callback<T> callback, final Decoder<T> decoder) {
+        if (!connected) {
+            callback.onError(new IOException("Not connected to Firebase"));
+            return;
+        }
+        query.get().addOnCompleteListener(this::runOnExecutor, (Task<DataSnapshot> task) -> {
+            if (!task.isSuccessful()) {
+                Exception e = task.getException();
+                callback.onError(e != null ? e : new IOException("Firebase read failed"));
+                return;
+            }
+            DataSnapshot snapshot = task.getResult();
+            callback.onResult(decoder.decode(snapshot), approximateBytes(snapshot));
+        });
+    }
+
+    /** A read answered after the executor shut down is dropped; nothing is left to apply it to. */
+    private void runOnExecutor(Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            AppLog.d(TAG, "Dropped a Firebase read answered after shutdown.");
+        }
+    }
+
+    /** Size of the snapshot as JSON keys and values, without punctuation; the SDK does not report it. */
+    private static long approximateBytes(DataSnapshot snapshot) {
+        long bytes = snapshot.getKey() != null ? snapshot.getKey().length() : 0;
+        if (snapshot.hasChildren()) {
+            for (DataSnapshot child : snapshot.getChildren()) {
+                bytes += approximateBytes(child);
+            }
+        } else if (snapshot.getValue() != null) {
+            bytes += String.valueOf(snapshot.getValue()).length();
+        }
+        return bytes;
+    }
+}
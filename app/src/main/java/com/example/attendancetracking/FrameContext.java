@@ -0,0 +1,120 @@
+package com.example.attendancetracking;
+
+/**
+ * Preallocated working state of one frame in RecognitionPipeline: detected face rows, their
+ * tracks, the batch of faces to embed and the resulting embeddings. Contexts are pooled and
+ * reset for each camera frame, so a frame whose faces are all tracked allocates nothing.
+ *
+ * Only the Android-free part of each stage lives here, so it can be exercised on the JVM.
+ */
+class FrameContext {
+
+    /** Upper bound on the recognizer output size; SFace produces 128 floats. */
+    static final int MAX_EMBEDDING_DIMENSION = 512;
+
+    private static final int FACE_STRIDE = RecognitionPipeline.FACE_STRIDE;
+    private static final int MAX_FACES = RecognitionPipeline.MAX_FACES;
+
+    final float[] faces = new float[MAX_FACES * FACE_STRIDE];
+    final FaceTracker.Track[] tracks = new FaceTracker.Track[MAX_FACES];
+    final int[] embedIndexes = new int[MAX_FACES];
+    /** Face rows of the tracks that need an embedding, packed for one batched extraction. */
+    final float[] batch = new float[MAX_FACES * FACE_STRIDE];
+    final float[] embeddings = new float[MAX_FACES * MAX_EMBEDDING_DIMENSION];
+
+    long captureNanos;
+    int numFaces;
+    int pendingCount;
+    int embeddedCount;
+    int dimension;
+    // Stage times of this frame, 0 for a stage that did not run
+    long detectNanos;
+    long embedNanos;
+    long matchNanos;
+
+    void reset(long captureNanos) {
+        this.captureNanos = captureNanos;
+        numFaces = 0;
+        pendingCount = 0;
+        embeddedCount = 0;
+        dimension = 0;
+        detectNanos = 0L;
+        embedNanos = 0L;
+        matchNanos = 0L;
+    }
+
+    /** Maps face rows detected on a resized frame back to frame coordinates. */
+    void scaleFaces(float factor) {
+        for (int i = 0; i < numFaces; i++) {
+            int offset = i * FACE_STRIDE;
+            // Box and landmark coordinates; the trailing score is left as is
+            for (int k = 0; k < FACE_STRIDE - 1; k++) {
+                faces[offset + k] *= factor;
+            }
+        }
+    }
+
+    /**
+     * Associates the detected faces with tracks and packs the rows of those needing a fresh
+     * embedding into batch. Returns the number of pending faces.
+     */
+    int selectPending(FaceTracker tracker) {
+        tracker.update(faces, FACE_STRIDE, numFaces, captureNanos, tracks);
+        int pending = 0;
+        for (int i = 0; i < numFaces; i++) {
+            if (tracks[i].needsEmbedding(captureNanos)) {
+                tracks[i].markEmbedded(captureNanos);
+                System.arraycopy(faces, i * FACE_STRIDE, batch, pending * FACE_STRIDE, FACE_STRIDE);
+                embedIndexes[pending++] = i;
+            }
+        }
+        pendingCount = pending;
+        return pending;
+    }
+
+    /** Records the outcome of extracting the pending batch; dimension 0 means it failed. */
+    void setEmbedded(int dimension) {
+        if (dimension <= 0) {
+            invalidatePending();
+        } else {
+            this.dimension = dimension;
+            embeddedCount = pendingCount;
+        }
+    }
+
+    /** Lets the pending tracks retry on the next frame, e.g. when this frame is dropped. */
+    void invalidatePending() {
+        for (int j = 0; j < pendingCount; j++) {
+            tracks[embedIndexes[j]].invalidate();
+        }
+        embeddedCount = 0;
+    }
+
+    /**
+     * Feeds match results (null for unknown) into the track votes; zero vectors invalidate.
+     * Returns how many embedded faces matched an enrolled user.
+     */
+    int recordMatches(EmbeddingGallery.Match[] matches) {
+        int matched = 0;
+        for (int j = 0; j < embeddedCount; j++) {
+            FaceTracker.Track track = tracks[embedIndexes[j]];
+            if (EmbeddingGallery.norm(embeddings, j * dimension, dimension) == 0f) {
+                track.invalidate();
+            } else {
+                track.recordMatch(matches[j]);
+                if (matches[j] != null) matched++;
+            }
+        }
+        return matched;
+    }
+
+    /** Writes the faces and their voted identities into target. */
+    void fillAnnotation(RecognitionPipeline.Annotation target, long completedNanos) {
+        target.begin(faces, numFaces, captureNanos, completedNanos);
+        for (int i = 0; i < numFaces; i++) {
+            FaceTracker.Track track = tracks[i];
+            boolean identified = track.hasIdentity();
+            target.setIdentity(i, identified, identified ? track.getVotedMatch() : null);
+        }
+    }
+}
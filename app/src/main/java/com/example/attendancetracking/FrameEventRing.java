@@ -0,0 +1,260 @@
+package com.example.attendancetracking;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The most recent frame events of RecognitionPipeline as fixed-size binary records in one
+ * preallocated buffer, overwriting the oldest, for field debugging. Recording allocates nothing
+ * and formats nothing; dump() writes the retained records, oldest first, and read() decodes a
+ * dump back into events.
+ *
+ * Dump layout, little-endian: int magic, int version, int record size, int count, long wall
+ * clock ms and long System.nanoTime at the dump, then count records of RECORD_BYTES.
+ */
+public class FrameEventRing {
+
+    public static final int RECORD_BYTES = 32;
+    static final int MAGIC = 0x54564546; // "FEVT"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    public enum Type {COMPLETED, DROPPED, FAILED}
+
+    private static final Type[] TYPES = Type.values();
+
+    private final int capacity;
+    private final ByteBuffer buffer;
+    private long written;
+
+    public FrameEventRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+        buffer = ByteBuffer.allocate(capacity * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Events recorded so far, including those already overwritten. */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /** Records a frame that went through every stage; stage times are in nanoseconds. */
+    public void completed(long timeNanos, int faces, int embedded, int matched, float bestSimilarity,
+                          long detectNanos, long embedNanos, long matchNanos, long totalNanos) {
+        record(timeNanos, Type.COMPLETED, faces, embedded, matched, bestSimilarity,
+                detectNanos, embedNanos, matchNanos, totalNanos);
+    }
+
+    /** Records a frame evicted or not admitted because a stage had not caught up. */
+    public void dropped(long timeNanos) {
+        record(timeNanos, Type.DROPPED, 0, 0, 0, 0f, 0L, 0L, 0L, 0L);
+    }
+
+    /** Records a frame abandoned because a stage threw. */
+    public void failed(long timeNanos) {
+        record(timeNanos, Type.FAILED, 0, 0, 0, 0f, 0L, 0L, 0L, 0L);
+    }
+
+    private synchronized void record(long timeNanos, Type type, int faces, int embedded, int matched,
+                                     float bestSimilarity, long detectNanos, long embedNanos,
+                                     long matchNanos, long totalNanos) {
+        int offset = (int) (written % capacity) * RECORD_BYTES;
+        buffer.putLong(offset, timeNanos);
+        buffer.put(offset + 8, (byte) type.ordinal());
+        buffer.put(offset + 9, toByte(faces));
+        buffer.put(offset + 10, toByte(embedded));
+        buffer.put(offset + 11, toByte(matched));
+        buffer.putFloat(offset + 12, bestSimilarity);
+        buffer.putInt(offset + 16, toMicros(detectNanos));
+        buffer.putInt(offset + 20, toMicros(embedNanos));
+        buffer.putInt(offset + 24, toMicros(matchNanos));
+        buffer.putInt(offset + 28, toMicros(totalNanos));
+        written++;
+    }
+
+    /** Writes the retained events, oldest first; recording continues while the copy is written. */
+    public void dump(OutputStream out) throws IOException {
+        byte[] bytes;
+        synchronized (this) {
+            int count = size();
+            bytes = new byte[HEADER_BYTES + count * RECORD_BYTES];
+            ByteBuffer dump = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            dump.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(count);
+            dump.putLong(System.currentTimeMillis()).putLong(System.nanoTime());
+            // Oldest first: from the next slot to overwrite to the end, then from the start
+            int oldest = written > capacity ? (int) (written % capacity) : 0;
+            byte[] ring = buffer.array();
+            int tail = (count - oldest) * RECORD_BYTES;
+            System.arraycopy(ring, oldest * RECORD_BYTES, bytes, HEADER_BYTES, tail);
+            System.arraycopy(ring, 0, bytes, HEADER_BYTES + tail, oldest * RECORD_BYTES);
+        }
+        out.write(bytes);
+    }
+
+    /** Decodes the output of dump(). */
+    public static Dump read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[HEADER_BYTES];
+        data.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        if (headerBuffer.getInt() != MAGIC) throw new IOException("Not a frame event dump");
+        int version = headerBuffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported frame event dump version " + version);
+        int recordBytes = headerBuffer.getInt();
+        int count = headerBuffer.getInt();
+        if (recordBytes < RECORD_BYTES || count < 0) throw new IOException("Corrupt frame event dump");
+        long wallClockMillis = headerBuffer.getLong();
+        long nanoTime = headerBuffer.getLong();
+
+        byte[] record = new byte[recordBytes];
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.readFully(record);
+            int type = record[8] & 0xFF;
+            if (type >= TYPES.length) throw new IOException("Unknown frame event type " + type);
+            events.add(new Event(recordBuffer.getLong(0), TYPES[type], record[9] & 0xFF, record[10] & 0xFF,
+                    record[11] & 0xFF, recordBuffer.getFloat(12), recordBuffer.getInt(16),
+                    recordBuffer.getInt(20), recordBuffer.getInt(24), recordBuffer.getInt(28)));
+        }
+        return new Dump(wallClockMillis, nanoTime, events);
+    }
+
+    private static byte toByte(int count) {
+        return (byte) Math.max(0, Math.min(255, count));
+    }
+
+    private static int toMicros(long nanos) {
+        return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, nanos / 1000L));
+    }
+
+    public static final class Dump {
+        private final long wallClockMillis;
+        private final long nanoTime;
+        private final List<Event> events;
+
+        Dump(long wallClockMillis, long nanoTime, List<Event> events) {
+            this.wallClockMillis = wallClockMillis;
+            this.nanoTime = nanoTime;
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        /** Wall clock time of the dump, to place the events' nanoTime stamps in real time. */
+        public long getWallClockMillis() {
+            return wallClockMillis;
+        }
+
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        public List<Event> getEvents() {
+            return events;
+        }
+
+        /** One line per event, stamped with its age at the time of the dump. */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(events.size() * 96);
+            for (Event event : events) {
+                sb.append(String.format(Locale.US, "%9.3f s ", (event.timeNanos - nanoTime) / 1e9))
+                        .append(event).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    public static final class Event {
+        private final long timeNanos;
+        private final Type type;
+        private final int faces;
+        private final int embedded;
+        private final int matched;
+        private final float bestSimilarity;
+        private final int detectMicros;
+        private final int embedMicros;
+        private final int matchMicros;
+        private final int totalMicros;
+
+        Event(long timeNanos, Type type, int faces, int embedded, int matched, float bestSimilarity,
+              int detectMicros, int embedMicros, int matchMicros, int totalMicros) {
+            this.timeNanos = timeNanos;
+            this.type = type;
+            this.faces = faces;
+            this.embedded = embedded;
+            this.matched = matched;
+            this.bestSimilarity = bestSimilarity;
+            this.detectMicros = detectMicros;
+            this.embedMicros = embedMicros;
+            this.matchMicros = matchMicros;
+            this.totalMicros = totalMicros;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public int getFaces() {
+            return faces;
+        }
+
+        public int getEmbedded() {
+            return embedded;
+        }
+
+        public int getMatched() {
+            return matched;
+        }
+
+        /** Highest similarity among the frame's identified faces, 0 if none. */
+        public float getBestSimilarity() {
+            return bestSimilarity;
+        }
+
+        public int getDetectMicros() {
+            return detectMicros;
+        }
+
+        public int getEmbedMicros() {
+            return embedMicros;
+        }
+
+        public int getMatchMicros() {
+            return matchMicros;
+        }
+
+        /** Capture to annotation. */
+        public int getTotalMicros() {
+            return totalMicros;
+        }
+
+        @Override
+        public String toString() {
+            if (type != Type.COMPLETED) return type.name();
+            return String.format(Locale.US,
+                    "%s faces %d, embedded %d, matched %d, best %.3f, detect %.1f ms, embed %.1f ms, match %.1f ms, total %.1f ms",
+                    type.name(), faces, embedded, matched, bestSimilarity, detectMicros / 1000f,
+                    embedMicros / 1000f, matchMicros / 1000f, totalMicros / 1000f);
+        }
+    }
+}
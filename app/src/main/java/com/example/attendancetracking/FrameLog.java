@@ -0,0 +1,129 @@
+package com.example.attendancetracking;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-frame logging of RecognitionPipeline without a logcat line per frame. Completed frames
+ * are aggregated into one DEBUG summary per interval and every sampleEvery-th frame is logged in
+ * detail at VERBOSE; nothing is formatted unless its level is enabled. Every completed, dropped
+ * and failed frame also goes into the FrameEventRing, if there is one, whatever the log level.
+ */
+public class FrameLog {
+
+    private final String tag;
+    private final long summaryIntervalNanos;
+    private final int sampleEvery;
+    private final FrameEventRing ring;
+    // Any pipeline thread
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    // Match stage only
+    private long windowStartNanos = -1L;
+    private int frames;
+    private int faces;
+    private int embedded;
+    private int matched;
+    private long latencySumNanos;
+    private long latencyMaxNanos;
+    private float bestSimilarity;
+    private long sampleCounter;
+
+    /** ring may be null; sampleEvery 0 turns the detailed lines off. */
+    public FrameLog(String tag, long summaryIntervalNanos, int sampleEvery, FrameEventRing ring) {
+        this.tag = tag;
+        this.summaryIntervalNanos = summaryIntervalNanos;
+        this.sampleEvery = sampleEvery;
+        this.ring = ring;
+    }
+
+    public FrameEventRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Called on the match stage thread for every completed frame, with the annotation it
+     * published, how many faces were embedded and matched in it, and its stage times.
+     */
+    public void completed(RecognitionPipeline.Annotation annotation, int embeddedCount, int matchedCount,
+                          long detectNanos, long embedNanos, long matchNanos) {
+        long now = annotation.getCompletedNanos();
+        long latencyNanos = now - annotation.getCaptureNanos();
+        int faceCount = annotation.getNumFaces();
+        float best = 0f;
+        for (int i = 0; i < faceCount; i++) {
+            EmbeddingGallery.Match match = annotation.getMatch(i);
+            if (match != null && match.getSimilarity() > best) best = match.getSimilarity();
+        }
+        if (ring != null) {
+            ring.completed(now, faceCount, embeddedCount, matchedCount, best,
+                    detectNanos, embedNanos, matchNanos, latencyNanos);
+        }
+
+        if (sampleEvery > 0 && sampleCounter++ % sampleEvery == 0 && AppLog.isLoggable(AppLog.VERBOSE)) {
+            AppLog.v(tag, describe(annotation, embeddedCount, matchedCount, detectNanos, embedNanos, matchNanos, latencyNanos));
+        }
+
+        if (!AppLog.isLoggable(AppLog.DEBUG)) return;
+        if (windowStartNanos < 0) windowStartNanos = now;
+        frames++;
+        faces += faceCount;
+        embedded += embeddedCount;
+        matched += matchedCount;
+        latencySumNanos += latencyNanos;
+        latencyMaxNanos = Math.max(latencyMaxNanos, latencyNanos);
+        bestSimilarity = Math.max(bestSimilarity, best);
+        if (now - windowStartNanos >= summaryIntervalNanos) {
+            AppLog.d(tag, summary(now - windowStartNanos));
+            windowStartNanos = now;
+            frames = 0;
+            faces = 0;
+            embedded = 0;
+            matched = 0;
+            latencySumNanos = 0L;
+            latencyMaxNanos = 0L;
+            bestSimilarity = 0f;
+        }
+    }
+
+    /** Any thread: a frame was evicted or not admitted. */
+    public void dropped(long nowNanos) {
+        dropped.incrementAndGet();
+        if (ring != null) ring.dropped(nowNanos);
+    }
+
+    /** Any thread: a stage threw and the frame was abandoned. */
+    public void failed(long nowNanos) {
+        failed.incrementAndGet();
+        if (ring != null) ring.failed(nowNanos);
+    }
+
+    private String summary(long windowNanos) {
+        return String.format(Locale.US,
+                "Frames in %.1f s: %d completed, %d dropped, %d failed; %d face(s), %d embedded, %d matched, "
+                        + "%d unknown; latency mean %.1f ms, max %.1f ms; best similarity %.3f",
+                windowNanos / 1e9, frames, dropped.getAndSet(0), failed.getAndSet(0), faces, embedded,
+                matched, embedded - matched, latencySumNanos / 1e6 / frames, latencyMaxNanos / 1e6,
+                bestSimilarity);
+    }
+
+    static String describe(RecognitionPipeline.Annotation annotation, int embeddedCount, int matchedCount,
+                           long detectNanos, long embedNanos, long matchNanos, long latencyNanos) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("Frame: ").append(annotation.getNumFaces()).append(" face(s), ")
+                .append(embeddedCount).append(" embedded, ").append(matchedCount).append(" matched");
+        for (int i = 0; i < annotation.getNumFaces(); i++) {
+            sb.append(i == 0 ? "; " : ", ");
+            EmbeddingGallery.Match match = annotation.getMatch(i);
+            if (match != null) {
+                sb.append(match.getName()).append(String.format(Locale.US, " %.3f", match.getSimilarity()));
+            } else {
+                sb.append(annotation.hasIdentity(i) ? "unknown" : "pending");
+            }
+        }
+        sb.append(String.format(Locale.US, "; %.1f ms (detect %.1f, embed %.1f, match %.1f)",
+                latencyNanos / 1e6, detectNanos / 1e6, embedNanos / 1e6, matchNanos / 1e6));
+        return sb.toString();
+    }
+}
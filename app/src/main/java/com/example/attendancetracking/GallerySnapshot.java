@@ -0,0 +1,98 @@
+package com.example.attendancetracking;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable view of the enrolled gallery at one point in time, published by FaceGallery.
+ * Any thread may read a snapshot without locking; changes produce a new snapshot instead.
+ * The FaceData entries are shared between snapshots and must not be modified.
+ *
+ * Entries are indexed by userId and by normalized name, so lookups are O(1) and a batch of n
+ * updates costs one O(n) rebuild. Names are not unique: several users may share one, so name
+ * lookups return every match and updates must go by userId.
+ */
+public final class GallerySnapshot implements FaceMatcher.Templates {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static final GallerySnapshot EMPTY = new GallerySnapshot(new LinkedHashMap<String, FaceData>(), 0);
+
+    private final Map<String, FaceData> byUserId;
+    private final List<FaceData> entries;
+    private final Map<String, List<FaceData>> byName;
+    private final long version;
+
+    /** Takes ownership of byUserId, which must not be modified afterwards. */
+    GallerySnapshot(LinkedHashMap<String, FaceData> byUserId, long version) {
+        this.byUserId = byUserId;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(byUserId.values()));
+        this.byName = new HashMap<>();
+        for (FaceData faceData : entries) {
+            if (faceData.getName() == null) continue;
+            String key = normalizeName(faceData.getName());
+            List<FaceData> sameName = byName.get(key);
+            if (sameName == null) {
+                sameName = new ArrayList<>(1);
+                byName.put(key, sameName);
+            }
+            sameName.add(faceData);
+        }
+        this.version = version;
+    }
+
+    /** Entries in enrolment order. */
+    public List<FaceData> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public FaceData get(String userId) {
+        return byUserId.get(userId);
+    }
+
+    public boolean contains(String userId) {
+        return byUserId.containsKey(userId);
+    }
+
+    /** Every entry whose normalized name equals that of name, in enrolment order; never null. */
+    public List<FaceData> findByName(String name) {
+        if (name == null) return Collections.emptyList();
+        List<FaceData> sameName = byName.get(normalizeName(name));
+        return sameName == null ? Collections.<FaceData>emptyList() : Collections.unmodifiableList(sameName);
+    }
+
+    /** Incremented by every published batch. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Mutable copy of the entries keyed by userId, the starting point of the next snapshot. */
+    LinkedHashMap<String, FaceData> copyEntries() {
+        return new LinkedHashMap<>(byUserId);
+    }
+
+    /**
+     * Key under which names collide: NFC-composed so typed and pasted Vietnamese diacritics
+     * agree, inner whitespace collapsed, and lower-cased independently of the device locale.
+     */
+    static String normalizeName(String name) {
+        String composed = Normalizer.normalize(name.trim(), Normalizer.Form.NFC);
+        return WHITESPACE.matcher(composed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
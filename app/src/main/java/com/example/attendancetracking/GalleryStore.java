@@ -0,0 +1,230 @@
+package com.example.attendancetracking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local binary snapshot of the enrolled gallery, so recognition can start from disk in
+ * milliseconds instead of waiting for Firebase to replay every child.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   int   magic "FGAL"
+ *   int   format version
+ *   int   embedding dimension
+ *   int   entry count
+ *   long  time the snapshot was written (ms since epoch)
+ *   int   template count, summed over entries with more than one template
+ *   int   reserved, 0
+ *   float centroids[count * dimension]
+ *   float templates[template count * dimension]
+ *   entry table: count x (int length, UTF-8 userId, int length, UTF-8 name,
+ *                         int n, long capture times[n], int length, UTF-8 embedding hash,
+ *                         long updatedAt)
+ * </pre>
+ * An entry with n of 0 is a single embedding without a capture time. With n of 1 the centroid
+ * is its only template; with n above 1 its templates are the next n in the templates block.
+ * An empty hash and an updatedAt of 0 mean the entry has not been synced. Version 3 files,
+ * which have no updatedAt, version 2 files, which have no hashes either, and version 1 files,
+ * which also end the header after the timestamp and have no templates block or per-entry
+ * template data, are still read; the first sync after reading one is a full sync.
+ *
+ * Reads map the file and bulk-copy the packed floats; writes go to a temporary file that is
+ * renamed over the old snapshot, so a crash never leaves a truncated file behind.
+ */
+public class GalleryStore {
+
+    private static final int MAGIC = 0x4C414746; // "FGAL" in little-endian byte order
+    static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES_V1 = 24;
+    private static final int HEADER_BYTES = 32;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+
+    public GalleryStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean exists() {
+        return file.isFile() && file.length() >= HEADER_BYTES_V1;
+    }
+
+    /** Writes the entries with non-null embeddings of a common dimension. */
+    public void save(List<FaceData> faceDataList) throws IOException {
+        int dimension = 0;
+        List<FaceData> entries = new ArrayList<>(faceDataList.size());
+        for (FaceData faceData : faceDataList) {
+            float[] embedding = faceData.getEmbedding();
+            if (embedding == null || faceData.getUserId() == null) continue;
+            if (dimension == 0) dimension = embedding.length;
+            if (embedding.length != dimension) continue;
+            entries.add(faceData);
+        }
+
+        int templateCount = 0;
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream(entries.size() * 48);
+        DataOutputStream table = new DataOutputStream(tableBytes);
+        for (FaceData faceData : entries) {
+            writeString(table, faceData.getUserId());
+            writeString(table, faceData.getName());
+            long[] capturedAt = faceData.getCapturedAt();
+            int n = capturedAt == null ? 0 : capturedAt.length;
+            table.writeInt(Integer.reverseBytes(n));
+            for (int t = 0; t < n; t++) {
+                table.writeLong(Long.reverseBytes(capturedAt[t]));
+            }
+            writeString(table, faceData.getEmbeddingHash());
+            table.writeLong(Long.reverseBytes(faceData.getUpdatedAt()));
+            if (n > 1) templateCount += n;
+        }
+        table.flush();
+
+        int floatBytes = (entries.size() + templateCount) * dimension * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + floatBytes + tableBytes.size())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(dimension);
+        buffer.putInt(entries.size());
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(templateCount);
+        buffer.putInt(0);
+        FloatBuffer floats = buffer.asFloatBuffer();
+        for (FaceData faceData : entries) {
+            floats.put(faceData.getEmbedding());
+        }
+        for (FaceData faceData : entries) {
+            if (faceData.getTemplateCount() > 1) floats.put(faceData.getTemplates());
+        }
+        buffer.position(HEADER_BYTES + floatBytes);
+        buffer.put(tableBytes.toByteArray());
+        buffer.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace gallery snapshot " + file);
+        }
+    }
+
+    /** Reads the snapshot; throws IOException if it is missing, corrupt or of another version. */
+    public List<FaceData> load() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES_V1) throw new IOException("Gallery snapshot too small: " + size);
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt() != MAGIC) throw new IOException("Not a gallery snapshot: " + file);
+            int version = mapped.getInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported gallery snapshot version " + version);
+            }
+            int dimension = mapped.getInt();
+            int count = mapped.getInt();
+            mapped.getLong(); // saved-at timestamp, informational only
+            int headerBytes = HEADER_BYTES_V1;
+            int templateCount = 0;
+            if (version >= 2) {
+                templateCount = mapped.getInt();
+                mapped.getInt(); // reserved
+                headerBytes = HEADER_BYTES;
+            }
+            long floatBytes = ((long) count + templateCount) * dimension * 4;
+            if (dimension < 0 || count < 0 || templateCount < 0 || headerBytes + floatBytes > size) {
+                throw new IOException("Corrupt gallery snapshot header");
+            }
+
+            mapped.position(headerBytes);
+            FloatBuffer floats = mapped.asFloatBuffer();
+            List<FaceData> entries = new ArrayList<>(count);
+            float[][] embeddings = new float[count][];
+            for (int i = 0; i < count; i++) {
+                embeddings[i] = new float[dimension];
+                floats.get(embeddings[i]);
+            }
+
+            mapped.position((int) (headerBytes + floatBytes));
+            int templatesRead = 0;
+            for (int i = 0; i < count; i++) {
+                String userId = readString(mapped);
+                String name = readString(mapped);
+                int n = version >= 2 ? mapped.getInt() : 0;
+                if (n < 0 || (n > 1 && templatesRead + n > templateCount)) {
+                    throw new IOException("Corrupt gallery snapshot entry " + i);
+                }
+                long[] capturedAt = new long[n];
+                for (int t = 0; t < n; t++) {
+                    capturedAt[t] = mapped.getLong();
+                }
+                String hash = version >= 3 ? readString(mapped) : "";
+                long updatedAt = version >= 4 ? mapped.getLong() : 0L;
+
+                FaceData faceData;
+                if (n == 0) {
+                    faceData = new FaceData(userId, name, embeddings[i]);
+                } else {
+                    float[] templates = embeddings[i];
+                    if (n > 1) {
+                        templates = new float[n * dimension];
+                        floats.position((count + templatesRead) * dimension);
+                        floats.get(templates);
+                        templatesRead += n;
+                    }
+                    faceData = new FaceData(userId, name, templates, capturedAt);
+                }
+                if (!hash.isEmpty()) faceData.setEmbeddingHash(hash);
+                faceData.setUpdatedAt(updatedAt);
+                entries.add(faceData);
+            }
+            return entries;
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and friends mean the file is truncated or corrupt
+            throw new IOException("Corrupt gallery snapshot: " + e, e);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF_8);
+        out.writeInt(Integer.reverseBytes(bytes.length));
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
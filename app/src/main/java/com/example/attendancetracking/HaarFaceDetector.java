@@ -0,0 +1,60 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Size;
+import org.opencv.objdetect.CascadeClassifier;
+
+import java.util.Arrays;
+
+/**
+ * FaceDetector on the bundled OpenCV Haar cascade. It runs on the grayscale frame only and has
+ * no landmarks; the score grows with the number of neighbouring windows that agreed.
+ */
+public class HaarFaceDetector implements FaceDetector {
+
+    private static final double SCALE_FACTOR = 1.1;
+    private static final int MIN_NEIGHBORS = 4;
+    // Faces smaller than this fraction of the shorter frame side are too small to recognise anyway
+    private static final double MIN_FACE_FRACTION = 0.08;
+    private static final int MIN_FACE_PIXELS = 24;
+
+    private final CascadeClassifier classifier;
+    private final MatOfRect rects = new MatOfRect();
+    private final MatOfInt neighbours = new MatOfInt();
+    private final Size minSize = new Size();
+    private final Size maxSize = new Size();
+    private final int[] rectBuffer = new int[RecognitionPipeline.MAX_FACES * 4];
+    private final int[] neighbourBuffer = new int[RecognitionPipeline.MAX_FACES];
+
+    public HaarFaceDetector(String cascadePath) {
+        classifier = new CascadeClassifier(cascadePath);
+        if (classifier.empty()) {
+            throw new IllegalArgumentException("Unable to load Haar cascade " + cascadePath);
+        }
+    }
+
+    @Override
+    public int detect(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+        double side = Math.max(MIN_FACE_PIXELS, Math.min(gray.cols(), gray.rows()) * MIN_FACE_FRACTION);
+        minSize.width = side;
+        minSize.height = side;
+        classifier.detectMultiScale2(gray, rects, neighbours, SCALE_FACTOR, MIN_NEIGHBORS, 0, minSize, maxSize);
+
+        int count = Math.min(Math.min(rects.rows(), maxFaces), RecognitionPipeline.MAX_FACES);
+        if (count == 0) return 0;
+        rects.get(0, 0, rectBuffer);
+        neighbours.get(0, 0, neighbourBuffer);
+        for (int i = 0; i < count; i++) {
+            int offset = i * RecognitionPipeline.FACE_STRIDE;
+            Arrays.fill(faces, offset, offset + RecognitionPipeline.FACE_STRIDE, 0f);
+            for (int k = 0; k < 4; k++) {
+                faces[offset + BOX + k] = rectBuffer[i * 4 + k];
+            }
+            int votes = neighbourBuffer[i];
+            faces[offset + SCORE] = votes / (float) (votes + MIN_NEIGHBORS);
+        }
+        return count;
+    }
+}
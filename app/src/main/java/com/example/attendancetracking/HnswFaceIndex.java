@@ -0,0 +1,499 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Approximate nearest-neighbour FaceIndex based on HNSW (Malkov &amp; Yashunin). Search cost grows
+ * roughly logarithmically with the number of enrolled faces instead of linearly.
+ *
+ * Vectors are stored L2-normalized in one flat float[], so similarity is a dot product as in
+ * EmbeddingGallery. Removed or replaced entries are tombstoned and still used for graph
+ * navigation; the graph is rebuilt from the live entries once too many tombstones accumulate.
+ */
+public class HnswFaceIndex implements FaceIndex {
+
+    private static final int DEFAULT_M = 16;
+    private static final int DEFAULT_EF_CONSTRUCTION = 100;
+    private static final int DEFAULT_EF_SEARCH = 64;
+    private static final float MAX_DELETED_FRACTION = 0.3f;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private int dimension;
+    private int nodeCount;
+    private int deletedCount;
+    private float[] vectors = new float[0];
+    private String[] userIds = new String[0];
+    private String[] names = new String[0];
+    private boolean[] deleted = new boolean[0];
+    // links[node][layer] = {count, neighbour1, neighbour2, ...}
+    private int[][][] links = new int[0][][];
+    private final Map<String, Integer> nodeByUserId = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private long scoreCount;
+    private int[] visitedMarks = new int[0];
+    private int visitGeneration;
+    private float[] queryBuffer = new float[0];
+
+    public HnswFaceIndex() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH, 42L);
+    }
+
+    public HnswFaceIndex(int m, int efConstruction, int efSearch, long seed) {
+        if (m < 2) throw new IllegalArgumentException("m must be at least 2");
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public synchronized int size() {
+        return nodeCount - deletedCount;
+    }
+
+    @Override
+    public synchronized void add(String userId, String name, float[] embedding) {
+        if (userId == null || embedding == null || embedding.length == 0) return;
+        if (EmbeddingGallery.norm(embedding, 0, embedding.length) == 0f) return;
+        if (dimension == 0) {
+            dimension = embedding.length;
+            queryBuffer = new float[dimension];
+        } else if (embedding.length != dimension) {
+            throw new IllegalArgumentException("Embedding dimension " + embedding.length
+                    + " does not match index dimension " + dimension);
+        }
+
+        Integer existing = nodeByUserId.get(userId);
+        if (existing != null) {
+            EmbeddingGallery.normalizeInto(embedding, queryBuffer, 0);
+            if (sameVector(existing, queryBuffer)) {
+                // Rename only, the graph does not change
+                names[existing] = name;
+                return;
+            }
+            markDeleted(existing);
+        }
+
+        int node = nodeCount;
+        ensureCapacity(node + 1);
+        EmbeddingGallery.normalizeInto(embedding, vectors, node * dimension);
+        userIds[node] = userId;
+        names[node] = name;
+        deleted[node] = false;
+        nodeCount++;
+        nodeByUserId.put(userId, node);
+        insertNode(node);
+
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized boolean remove(String userId) {
+        Integer node = nodeByUserId.get(userId);
+        if (node == null) return false;
+        markDeleted(node);
+        compactIfNeeded();
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        nodeByUserId.clear();
+        Arrays.fill(userIds, 0, nodeCount, null);
+        Arrays.fill(names, 0, nodeCount, null);
+        Arrays.fill(links, 0, nodeCount, null);
+        nodeCount = 0;
+        deletedCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    @Override
+    public synchronized List<EmbeddingGallery.Match> search(float[] query, int k) {
+        if (query == null || k <= 0 || entryPoint < 0 || query.length != dimension) {
+            return Collections.emptyList();
+        }
+        if (!EmbeddingGallery.normalizeInto(query, queryBuffer, 0)) return Collections.emptyList();
+
+        int ep = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            ep = greedyClosest(queryBuffer, 0, ep, layer);
+        }
+        ScoredHeap results = searchLayer(queryBuffer, 0, ep, Math.max(efSearch, k), 0);
+
+        // Drain worst-first, then keep the k best live entries in descending order
+        int count = results.size();
+        int[] nodes = new int[count];
+        float[] scores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            scores[i] = results.topScore();
+            nodes[i] = results.pop();
+        }
+        List<EmbeddingGallery.Match> matches = new ArrayList<>(Math.min(k, count));
+        for (int i = 0; i < count && matches.size() < k; i++) {
+            int node = nodes[i];
+            if (deleted[node]) continue;
+            matches.add(new EmbeddingGallery.Match(node, userIds[node], names[node], scores[i]));
+        }
+        return matches;
+    }
+
+    /**
+     * Similarities computed so far by inserts and searches. The difference across one search is
+     * its cost in vectors read, which a linear scan puts at size().
+     */
+    synchronized long getScoreCount() {
+        return scoreCount;
+    }
+
+    @Override
+    public synchronized EmbeddingGallery.Match findBestMatch(float[] query, float threshold) {
+        List<EmbeddingGallery.Match> top = search(query, 1);
+        if (top.isEmpty() || top.get(0).getSimilarity() <= threshold) return null;
+        return top.get(0);
+    }
+
+    private void insertNode(int node) {
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            nodeLinks[layer] = new int[maxLinks(layer) + 1];
+        }
+        links[node] = nodeLinks;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int offset = node * dimension;
+        int ep = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            ep = greedyClosest(vectors, offset, ep, layer);
+        }
+
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            ScoredHeap candidates = searchLayer(vectors, offset, ep, efConstruction, layer);
+            int count = candidates.size();
+            int[] candidateNodes = new int[count];
+            float[] candidateScores = new float[count];
+            for (int i = count - 1; i >= 0; i--) {
+                candidateScores[i] = candidates.topScore();
+                candidateNodes[i] = candidates.pop();
+            }
+            ep = candidateNodes[0];
+
+            int[] selected = selectNeighbors(candidateNodes, candidateScores, count, m);
+            int[] own = nodeLinks[layer];
+            for (int neighbour : selected) {
+                own[++own[0]] = neighbour;
+                connect(neighbour, node, layer);
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /** Adds newNode to node's neighbour list at layer, pruning with the heuristic if it is full. */
+    private void connect(int node, int newNode, int layer) {
+        int[] list = links[node][layer];
+        int maxLinks = maxLinks(layer);
+        if (list[0] < maxLinks) {
+            list[++list[0]] = newNode;
+            return;
+        }
+
+        int count = list[0] + 1;
+        int[] candidateNodes = new int[count];
+        float[] candidateScores = new float[count];
+        int offset = node * dimension;
+        for (int i = 0; i < count; i++) {
+            int candidate = i < list[0] ? list[i + 1] : newNode;
+            candidateNodes[i] = candidate;
+            candidateScores[i] = score(vectors, offset, candidate);
+        }
+        sortDescending(candidateNodes, candidateScores, count);
+        int[] selected = selectNeighbors(candidateNodes, candidateScores, count, maxLinks);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base point than
+     * to every neighbour already kept, which spreads links in different directions. Leftover slots
+     * are filled with the best pruned candidates.
+     */
+    private int[] selectNeighbors(int[] candidateNodes, float[] candidateScores, int count, int maxCount) {
+        int[] selected = new int[Math.min(maxCount, count)];
+        boolean[] taken = new boolean[count];
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            int candidate = candidateNodes[i];
+            int candidateOffset = candidate * dimension;
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (score(vectors, candidateOffset, selected[j]) > candidateScores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            if (!taken[i]) selected[selectedCount++] = candidateNodes[i];
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int ep, int layer) {
+        int current = ep;
+        float currentScore = score(query, queryOffset, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[][] nodeLinks = links[current];
+            if (layer >= nodeLinks.length) break;
+            int[] list = nodeLinks[layer];
+            for (int i = 1; i <= list[0]; i++) {
+                int candidate = list[i];
+                float s = score(query, queryOffset, candidate);
+                if (s > currentScore) {
+                    currentScore = s;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Beam search on one layer; returns a min-heap holding the ef best nodes found. */
+    private ScoredHeap searchLayer(float[] query, int queryOffset, int ep, int ef, int layer) {
+        int generation = nextVisitGeneration();
+        ScoredHeap candidates = new ScoredHeap(ef * 2, true);
+        ScoredHeap results = new ScoredHeap(ef + 1, false);
+
+        float epScore = score(query, queryOffset, ep);
+        visitedMarks[ep] = generation;
+        candidates.push(ep, epScore);
+        results.push(ep, epScore);
+
+        while (candidates.size() > 0) {
+            float candidateScore = candidates.topScore();
+            if (results.size() >= ef && candidateScore < results.topScore()) break;
+            int candidate = candidates.pop();
+
+            int[][] nodeLinks = links[candidate];
+            if (layer >= nodeLinks.length) continue;
+            int[] list = nodeLinks[layer];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (visitedMarks[neighbour] == generation) continue;
+                visitedMarks[neighbour] = generation;
+
+                float s = score(query, queryOffset, neighbour);
+                if (results.size() < ef || s > results.topScore()) {
+                    candidates.push(neighbour, s);
+                    results.push(neighbour, s);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private int nextVisitGeneration() {
+        if (visitedMarks.length < nodeCount) {
+            visitedMarks = new int[Math.max(nodeCount, visitedMarks.length * 2)];
+            visitGeneration = 0;
+        }
+        if (++visitGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(visitedMarks, 0);
+            visitGeneration = 1;
+        }
+        return visitGeneration;
+    }
+
+    private void markDeleted(int node) {
+        if (deleted[node]) return;
+        deleted[node] = true;
+        deletedCount++;
+        nodeByUserId.remove(userIds[node]);
+    }
+
+    private void compactIfNeeded() {
+        if (deletedCount == 0 || deletedCount < nodeCount * MAX_DELETED_FRACTION) return;
+
+        int live = nodeCount - deletedCount;
+        float[] liveVectors = new float[live * dimension];
+        String[] liveUserIds = new String[live];
+        String[] liveNames = new String[live];
+        int j = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (deleted[node]) continue;
+            System.arraycopy(vectors, node * dimension, liveVectors, j * dimension, dimension);
+            liveUserIds[j] = userIds[node];
+            liveNames[j] = names[node];
+            j++;
+        }
+
+        clear();
+        ensureCapacity(live);
+        for (int node = 0; node < live; node++) {
+            System.arraycopy(liveVectors, node * dimension, vectors, node * dimension, dimension);
+            userIds[node] = liveUserIds[node];
+            names[node] = liveNames[node];
+            deleted[node] = false;
+            nodeCount++;
+            nodeByUserId.put(liveUserIds[node], node);
+            insertNode(node);
+        }
+    }
+
+    private boolean sameVector(int node, float[] normalized) {
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (vectors[offset + i] != normalized[i]) return false;
+        }
+        return true;
+    }
+
+    private float score(float[] query, int queryOffset, int node) {
+        scoreCount++;
+        float[] v = vectors;
+        int offset = node * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += v[offset + i] * query[queryOffset + i];
+            s1 += v[offset + i + 1] * query[queryOffset + i + 1];
+            s2 += v[offset + i + 2] * query[queryOffset + i + 2];
+            s3 += v[offset + i + 3] * query[queryOffset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += v[offset + i] * query[queryOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private int randomLevel() {
+        double r = random.nextDouble();
+        return (int) (-Math.log(1.0 - r) * levelMultiplier);
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? maxM0 : m;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= userIds.length) return;
+        int capacity = Math.max(INITIAL_CAPACITY, userIds.length * 2);
+        while (capacity < required) capacity *= 2;
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        userIds = Arrays.copyOf(userIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int node = nodes[i];
+            float s = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < s) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = s;
+        }
+    }
+
+    /** Binary heap of (node, score) pairs without boxing; max-heap or min-heap by score. */
+    private static final class ScoredHeap {
+        private final boolean max;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        ScoredHeap(int capacity, boolean max) {
+            this.max = max;
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) break;
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && before(scores[child + 1], scores[child])) child++;
+                if (!before(scores[child], lastScore)) break;
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.attendancetracking;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how often an approximate FaceIndex returns the same top-1 identity as an exact
+ * reference index, together with the average query latency of both.
+ */
+public final class IndexRecall {
+
+    private IndexRecall() {
+    }
+
+    public static Report measure(FaceIndex candidate, FaceIndex reference, List<float[]> queries) {
+        int hits = 0;
+        int evaluated = 0;
+        long candidateNanos = 0;
+        long referenceNanos = 0;
+        for (float[] query : queries) {
+            long start = System.nanoTime();
+            List<EmbeddingGallery.Match> expected = reference.search(query, 1);
+            long middle = System.nanoTime();
+            List<EmbeddingGallery.Match> actual = candidate.search(query, 1);
+            long end = System.nanoTime();
+            referenceNanos += middle - start;
+            candidateNanos += end - middle;
+
+            if (expected.isEmpty()) continue;
+            evaluated++;
+            if (!actual.isEmpty() && actual.get(0).getUserId().equals(expected.get(0).getUserId())) {
+                hits++;
+            }
+        }
+        return new Report(evaluated, hits, candidateNanos, referenceNanos, queries.size());
+    }
+
+    public static class Report {
+        private final int evaluated;
+        private final int hits;
+        private final long candidateNanos;
+        private final long referenceNanos;
+        private final int queryCount;
+
+        Report(int evaluated, int hits, long candidateNanos, long referenceNanos, int queryCount) {
+            this.evaluated = evaluated;
+            this.hits = hits;
+            this.candidateNanos = candidateNanos;
+            this.referenceNanos = referenceNanos;
+            this.queryCount = queryCount;
+        }
+
+        public float getRecallAt1() {
+            return evaluated == 0 ? 1f : (float) hits / evaluated;
+        }
+
+        public double getCandidateMicrosPerQuery() {
+            return queryCount == 0 ? 0 : candidateNanos / 1000.0 / queryCount;
+        }
+
+        public double getReferenceMicrosPerQuery() {
+            return queryCount == 0 ? 0 : referenceNanos / 1000.0 / queryCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "recall@1=%.4f (%d/%d), candidate=%.1f us/query, reference=%.1f us/query",
+                    getRecallAt1(), hits, evaluated, getCandidateMicrosPerQuery(), getReferenceMicrosPerQuery());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.attendancetracking;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets: values below 64 us are exact,
+ * larger ones fall into 32 buckets per power of two, so any percentile is within about 3% of
+ * the true value. Recording is a handful of atomic updates and never allocates, so every stage
+ * thread can record into the same histogram on every frame.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Larger values are clamped; about 35 minutes in microseconds. */
+    static final long MAX_VALUE_MICROS = (1L << 31) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE_MICROS));
+        counts.incrementAndGet(bucketIndex(value));
+        totalMicros.addAndGet(value);
+        long max;
+        while (value > (max = maxMicros.get())) {
+            if (maxMicros.compareAndSet(max, value)) break;
+        }
+    }
+
+    /** Not atomic with respect to concurrent recording; values recorded meanwhile may survive. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * Summarizes the histogram in one pass over its buckets. Values recorded concurrently may or
+     * may not be included, but the percentiles are always consistent with the returned count.
+     */
+    public Snapshot snapshot() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        long max = maxMicros.get();
+        if (count == 0) return new Snapshot(0, 0, 0, 0, 0, 0);
+
+        long p50Rank = rank(count, 0.50);
+        long p95Rank = rank(count, 0.95);
+        long p99Rank = rank(count, 0.99);
+        long p50 = -1;
+        long p95 = -1;
+        long p99 = -1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && p99 < 0; i++) {
+            seen += counts.get(i);
+            if (seen == 0) continue;
+            long value = Math.min(highestValueInBucket(i), max);
+            if (p50 < 0 && seen >= p50Rank) p50 = value;
+            if (p95 < 0 && seen >= p95Rank) p95 = value;
+            if (seen >= p99Rank) p99 = value;
+        }
+        // Buckets can only have grown since the count above, so every rank is reached
+        return new Snapshot(count, (double) totalMicros.get() / count, p50, p95, p99, max);
+    }
+
+    private static long rank(long count, double quantile) {
+        return Math.max(1, (long) Math.ceil(count * quantile));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /** Summary of a histogram; every latency is in microseconds. */
+    public static final class Snapshot {
+        private final long count;
+        private final double meanMicros;
+        private final long p50Micros;
+        private final long p95Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        Snapshot(long count, double meanMicros, long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p95Micros = p95Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP95Micros() {
+            return p95Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+}
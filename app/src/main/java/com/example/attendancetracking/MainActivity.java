@@ -5,21 +5,24 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.location.Location;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.SurfaceView;
 import android.view.WindowManager;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
-import android.widget.ListView;
+import android.widget.LinearLayout;
 import android.widget.Toast;
 import android.app.AlertDialog;
 
@@ -32,55 +35,225 @@ import androidx.recyclerview.widget.RecyclerView;
 import org.opencv.android.CameraActivity;
 import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.android.OpenCVLoader;
-import org.opencv.android.Utils;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
+import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
-import com.firebase.ui.database.FirebaseRecyclerOptions;
 import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DatabaseException;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
 import com.google.android.gms.location.*;
 import com.google.android.gms.tasks.OnSuccessListener;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class MainActivity extends CameraActivity {
 
-    RecyclerView recyclerView;
-    MainAdapter mainAdapter;
-
     private static final String TAG = "MainActivity";
     private CameraBridgeViewBase mOpenCvCameraView;
     private static final int GALLERY_REQUEST_CODE = 1001;
+    private static final int BULK_FOLDER_REQUEST_CODE = 1002;
+    private static final int BULK_ZIP_REQUEST_CODE = 1003;
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 2001;
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 2003;
+    // BRUTE_FORCE is exact; HNSW keeps match latency roughly flat for large enrolment databases;
+    // INT8 and FLOAT16 cut gallery memory at some cost in speed, see ./gradlew :benchmark:quantizationReport
+    private static final FaceIndex.Type FACE_INDEX_TYPE = FaceIndex.Type.HNSW;
+    // Quantized indexes re-score this many candidates with float32 copies of every vector; 0 keeps only the codes
+    private static final int FACE_INDEX_RERANK_DEPTH = QuantizedFaceIndex.DEFAULT_RERANK_DEPTH;
+    // Older results are not drawn, so a stalled pipeline does not leave a stale name on screen
+    private static final long ANNOTATION_MAX_AGE_NANOS = 1_000_000_000L;
+    // Repeated sightings of the same user within this window produce a single attendance event
+    private static final long ATTENDANCE_DEDUP_WINDOW_MS = 60_000L;
+    private static final String GALLERY_SNAPSHOT_FILE = "gallery.bin";
+    // Firebase replays every child at startup, so snapshot writes wait for the burst to settle
+    private static final long GALLERY_SNAPSHOT_SAVE_DELAY_MS = 5_000L;
+    // Gallery updates arriving within this window are applied as one batch
+    private static final long GALLERY_BATCH_DELAY_MS = 50L;
+    // FLOAT16 halves the synced size again; FLOAT32 keeps embeddings bit-exact
+    private static final EmbeddingCodec.Precision EMBEDDING_WIRE_PRECISION = EmbeddingCodec.Precision.FLOAT32;
+    // Legacy faceDataList records moved to users and embeddings per multi-path update
+    private static final int MIGRATION_BATCH_SIZE = 500;
+    // Frames are logged as one summary per interval at DEBUG, plus every Nth frame in detail at VERBOSE
+    private static final long FRAME_LOG_SUMMARY_INTERVAL_MS = 10_000L;
+    private static final int FRAME_LOG_SAMPLE_EVERY = 30;
+    // Recent frame events kept in memory for a dump from the field (32 bytes each); 0 keeps none
+    private static final int FRAME_EVENT_CAPACITY = 2048;
+    // Pipeline metrics are written as JSON under files/metrics, one file per camera session
+    private static final String METRICS_DIR = "metrics";
+    private static final long METRICS_EXPORT_INTERVAL_MS = 60_000L;
+    private static final String DETECTION_MODEL = "face_detection_yunet_2023mar.onnx";
+    private static final String RECOGNITION_MODEL = "face_recognition_sface_2021dec.onnx";
+    // Dummy inputs for the warm-up inference: a small camera frame and one SFace crop
+    private static final int WARM_UP_FRAME_WIDTH = 320;
+    private static final int WARM_UP_FRAME_HEIGHT = 240;
+    private static final int WARM_UP_FACE_SIZE = 112;
+    // YUNET is the most accurate; CASCADE saves most of its cost on low-end devices when the
+    // camera is usually empty. Compare backends on a device with the detector benchmark.
+    private static final FaceDetector.Backend FACE_DETECTOR_BACKEND = FaceDetector.Backend.YUNET;
+    private static final String HAAR_CASCADE_MODEL = "haarcascade_frontalface_default.xml";
+    // Camera frames recorded for the detector benchmark: every Nth preview frame, up to a limit
+    private static final String DETECTOR_BENCHMARK_DIR = "detector-benchmark";
+    private static final int BENCHMARK_FRAMES = 150;
+    private static final int BENCHMARK_FRAME_STRIDE = 5;
+    private static final int METRICS_FILES_KEPT = 20;
+    // Typing pauses this long before the registered-users list is searched again
+    private static final long DIRECTORY_SEARCH_DELAY_MS = 150L;
+    private static final int BULK_MAX_WORKERS = 4;
+    // Site the kiosk is installed at, e.g. new SiteLocation.Geofence(10.762622, 106.660172, 150f);
+    // null skips the geofence check and only caches the fix
+    private static final SiteLocation.Geofence SITE_GEOFENCE = null;
+    // High-accuracy updates run until a fix this accurate settles the site check, or the timeout
+    private static final float SITE_FIX_ACCURACY_M = 50f;
+    private static final long SITE_ACQUIRE_TIMEOUT_MS = 120_000L;
+    private static final long SITE_ACQUIRE_INTERVAL_MS = 5_000L;
+    // Afterwards low-power updates only watch for the kiosk being moved this far
+    private static final float SITE_RECHECK_DISTANCE_M = 200f;
+    private static final long LOW_POWER_LOCATION_INTERVAL_MS = 15 * 60_000L;
 
     Button galleryBtn;
     Button showFacesBtn;
+    Button bulkEnrolBtn;
     ImageView imageView;
 
-    private List<FaceData> faceDataList = new ArrayList<>();
-    private DatabaseReference faceDataRef;
+    // Searchable copy of the gallery embeddings used for per-frame matching and duplicate checks
+    private final FaceIndex faceIndex = FaceIndex.create(FACE_INDEX_TYPE, FACE_INDEX_RERANK_DEPTH);
+    private DatabaseReference rootRef;
+    // users/userId holds name and embedding hash; embeddings/userId is fetched only on a hash change
+    private DatabaseReference usersRef;
+    private DatabaseReference embeddingsRef;
+    // Reads only the users updated since the local snapshot and applies them as one gallery batch
+    private SyncEngine gallerySync;
+    // Reads users and embeddings from the server, never from the persistence cache
+    private FirebaseSyncSource gallerySyncSource;
+    // Local copy of the gallery so recognition works before (or without) the Firebase sync
+    private GalleryStore galleryStore;
+    // Applies gallery batches, faceIndex updates and snapshot/metrics writes in order, off the main thread;
+    // also searches the registered-users list and formats embeddings for display
+    private final ScheduledExecutorService galleryExecutor = Executors.newSingleThreadScheduledExecutor();
+    // Enrolled users; any thread reads its current snapshot without locking
+    private final FaceGallery faceGallery = new FaceGallery(galleryExecutor, GALLERY_BATCH_DELAY_MS);
+    // Pre-filters on faceIndex centroids, then scores the best of each candidate's templates
+    private final FaceMatcher faceMatcher = new FaceMatcher(faceIndex, faceGallery::getSnapshot);
+    // Decides which confident live matches become extra templates of the matched user
+    private final TemplatePolicy templatePolicy = new TemplatePolicy();
+    // Runs one bulk enrolment or detector benchmark at a time; the BulkEnroller starts its own worker pool
+    private final ExecutorService bulkEnrolExecutor = Executors.newSingleThreadExecutor();
+    // Held around every call into the native recognizer, which is not safe to enter from two
+    // threads: the pipeline's embed stage, enrolment (single photo and bulk workers) and warm-up
+    private final Object recognizerLock = new Object();
+    // Copies and initializes the detector and recognizer in parallel, one thread each, then warms them up in turn
+    private final ExecutorService modelExecutor = Executors.newFixedThreadPool(2);
+    private ModelLoader modelLoader;
+    // Enrolment photos, picked one at a time or imported in bulk
+    private final PhotoDecoder photoDecoder = new PhotoDecoder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable saveGallerySnapshotRunnable = this::saveGallerySnapshot;
+    private final Runnable exportMetricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            exportMetrics();
+            mainHandler.postDelayed(this, METRICS_EXPORT_INTERVAL_MS);
+        }
+    };
+    // Set on the gallery thread when a batch changes the gallery, cleared when a save is queued
+    private volatile boolean gallerySnapshotDirty;
+    // Main thread only: the registered-users list while its dialog is open, kept current with the gallery
+    private UserDirectoryAdapter directoryAdapter;
+
+    // The native YuNet detector; the reference backend, and the refiner of the cascade
+    private final FaceDetector yunetDetector = this::detectAllFaces;
+    // Backend of the detect stage, replaced while the models load if another one is selected
+    private volatile FaceDetector faceDetector = yunetDetector;
+    // Frames still to record for the detector benchmark; set on the main thread, counted down on the camera thread
+    private volatile int benchmarkFramesToRecord;
+    // Camera thread only
+    private int benchmarkFrameCounter;
+
+    // Summaries of the pipeline's frames, and the ring of recent frame events dumped on demand
+    private final FrameLog frameLog = new FrameLog("FramePipeline", FRAME_LOG_SUMMARY_INTERVAL_MS * 1_000_000L,
+            FRAME_LOG_SAMPLE_EVERY, FRAME_EVENT_CAPACITY > 0 ? new FrameEventRing(FRAME_EVENT_CAPACITY) : null);
+
+    // Detection, embedding and matching run off the camera thread
+    private final RecognitionPipeline recognitionPipeline = new RecognitionPipeline(new RecognitionPipeline.Engine() {
+        @Override
+        public int detectFaces(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+            return faceDetector.detect(gray, rgba, faces, maxFaces);
+        }
+
+        @Override
+        public int extractEmbeddings(Mat rgba, float[] faces, int count, float[] embeddings) {
+            return extractFaceEmbeddings(rgba, faces, count, embeddings);
+        }
+
+        @Override
+        public EmbeddingGallery.Match[] match(float[] embeddings, int count, int dimension) {
+            // Search the whole gallery once for every face in the frame
+            EmbeddingGallery.Match[] matches = faceMatcher.match(embeddings, count, dimension);
+            offerTemplates(matches, embeddings, dimension);
+            return matches;
+        }
+    });
+    // Cleared the first time the native library turns out to predate the multi-face entry points
+    private volatile boolean multiFaceNativeAvailable = true;
+    // Same, for the newer entry point that extracts into the caller's buffer
+    private volatile boolean extractIntoNativeAvailable = true;
+    // Detect stage only: output of the legacy single-face DetectFaces
+    private final float[] largestFaceRect = new float[4];
+
+    // Preview thread only: reused every frame so drawing the overlay does not allocate
+    private final RecognitionPipeline.Annotation overlayAnnotation = new RecognitionPipeline.Annotation();
+    private final OverlayText.Cache overlayText = new OverlayText.Cache();
+    private final Point boxTopLeft = new Point();
+    private final Point boxBottomRight = new Point();
+    private final Point nameOrigin = new Point();
+    private final Point previewTextOrigin = new Point(10, 30);
+    private final Point locationTextOrigin = new Point(10, 65);
+    private final Point recognitionTextOrigin = new Point(10, 100);
+    private final Point stagesTextOrigin = new Point(10, 135);
+    private final Scalar boxColor = new Scalar(0, 255, 0);
+    private final Scalar knownColor = new Scalar(30, 30, 220);
+    private final Scalar unknownColor = new Scalar(255, 50, 50);
+    private final Scalar statusColor = new Scalar(255, 255, 255);
+    private final Scalar locationColor = new Scalar(240, 240, 0);
+    private final Scalar noLocationColor = new Scalar(255, 0, 0);
+
+    private AttendanceEventWriter attendanceEventWriter;
 
     // Location variables
     private FusedLocationProviderClient fusedLocationClient;
-    private volatile Location currentLocation;
+    // Cached fix for the overlay and attendance events; its updates arrive on the main thread
+    private final SiteLocation siteLocation = new SiteLocation(SITE_GEOFENCE, SITE_FIX_ACCURACY_M,
+            SITE_ACQUIRE_TIMEOUT_MS, SITE_RECHECK_DISTANCE_M);
     private LocationCallback locationCallback;
 
     static {
         if (!OpenCVLoader.initDebug()) {
-            Log.e(TAG, "Cannot connect to OpenCV Manager");
+            AppLog.e(TAG, "Cannot connect to OpenCV Manager");
         } else {
             System.loadLibrary("attendancetracking");
         }
@@ -92,17 +265,29 @@ public class MainActivity extends CameraActivity {
     public native void InitFaceRecognition(String modelPath);
     public native float[] ExtractFaceEmbedding(long matAddr);
     public native float CalculateSimilarity(float[] emb1, float[] emb2);
+    // Fills faces with up to maxFaces rows of RecognitionPipeline.FACE_STRIDE floats:
+    // x, y, w, h, five landmark (x, y) pairs and score. Returns the number of faces found.
+    public native int DetectAllFaces(long matAddrGray, long matAddrRgba, float[] faces, int maxFaces);
+    // Aligns every face row in rects and runs the recognizer once on the stacked blob.
+    // Returns rows * dimension floats; faces that cannot be aligned are left as zero vectors.
+    public native float[] ExtractFaceEmbeddings(long matAddr, float[] rects);
+    // Like ExtractFaceEmbeddings for the first count rows of rects, but writes count * dimension
+    // floats into embeddings instead of allocating. Returns the dimension, or 0 on failure.
+    public native int ExtractFaceEmbeddingsInto(long matAddr, float[] rects, int count, float[] embeddings);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Debug builds log per-frame summaries; release builds keep INFO and up, plus the frame event ring
+        AppLog.setMinLevel((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0
+                ? AppLog.DEBUG : AppLog.INFO);
 
         // Enable Firebase persistence
         try {
             FirebaseDatabase.getInstance().setPersistenceEnabled(true);
-            Log.d(TAG, "Firebase persistence enabled.");
+            AppLog.d(TAG, "Firebase persistence enabled.");
         } catch (DatabaseException e) {
-            Log.w(TAG, "Persistence already enabled.");
+            AppLog.w(TAG, "Persistence already enabled.");
         }
 
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
@@ -116,9 +301,24 @@ public class MainActivity extends CameraActivity {
 
         galleryBtn = findViewById(R.id.galleryBtn);
         galleryBtn.setOnClickListener(view -> openGallery());
+        // Field debugging: a long press writes the recent frame events next to the metrics
+        galleryBtn.setOnLongClickListener(view -> {
+            dumpFrameEvents();
+            return true;
+        });
 
         showFacesBtn = findViewById(R.id.showFacesBtn);
         showFacesBtn.setOnClickListener(view -> displayRegisteredFaces());
+        showFacesBtn.setOnLongClickListener(view -> {
+            openDetectorBenchmark();
+            return true;
+        });
+
+        bulkEnrolBtn = findViewById(R.id.bulkEnrolBtn);
+        bulkEnrolBtn.setOnClickListener(view -> openBulkEnrolment());
+
+        // Before requestPermissions(), which starts loading once the camera is allowed
+        modelLoader = new ModelLoader(getCacheDir(), modelSourceKey(), modelExecutor);
 
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
@@ -129,31 +329,46 @@ public class MainActivity extends CameraActivity {
                     return;
                 }
                 for (Location location : locationResult.getLocations()) {
-                    currentLocation = location;
-                    Log.d(TAG, "Location updated: " + location.getLatitude() + ", " + location.getLongitude());
+                    onLocation(location);
                 }
             }
         };
 
+        // Attendance events are written to Room in batches off the camera and pipeline threads
+        attendanceEventWriter = new AttendanceEventWriter(
+                AttendanceDatabase.getInstance(this).attendanceEventDao(), ATTENDANCE_DEDUP_WINDOW_MS);
+        recognitionPipeline.setListener(this::recordAttendance);
+        recognitionPipeline.setFrameLog(frameLog);
+
         requestPermissions();
 
         // Firebase Database reference
-        faceDataRef = FirebaseDatabase.getInstance().getReference("faceDataList");
-        Log.d(TAG, "Firebase Database reference initialized.");
-
-        // Load face data from Firebase
-        loadFaceDataList();
+        rootRef = FirebaseDatabase.getInstance().getReference();
+        usersRef = rootRef.child(FaceRecords.USERS);
+        embeddingsRef = rootRef.child(FaceRecords.EMBEDDINGS);
+        gallerySyncSource = new FirebaseSyncSource(usersRef, embeddingsRef, galleryExecutor);
+        gallerySync = new SyncEngine(gallerySyncSource, faceGallery, galleryExecutor);
+        gallerySync.setListener(new SyncEngine.Listener() {
+            @Override
+            public void onSynced(SyncEngine.Report report) {
+                onGallerySynced(report);
+            }
 
-        recyclerView = findViewById(R.id.rv);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+            @Override
+            public void onSyncFailed(Exception e) {
+                onGallerySyncFailed(e);
+            }
+        });
+        AppLog.d(TAG, "Firebase Database reference initialized.");
 
-        // Use FirebaseRecyclerOptions
-        FirebaseRecyclerOptions<MainModel> options = new FirebaseRecyclerOptions.Builder<MainModel>()
-                .setQuery(faceDataRef, MainModel.class)
-                .build();
+        // Start from the local snapshot, then let Firebase bring it up to date
+        galleryStore = new GalleryStore(new File(getFilesDir(), GALLERY_SNAPSHOT_FILE));
+        faceGallery.addListener(this::onGalleryChanged);
+        loadGallerySnapshot();
 
-        mainAdapter = new MainAdapter(options);
-        recyclerView.setAdapter(mainAdapter);
+        // Move records of the old single-node layout, then sync what changed since the snapshot
+        migrateLegacyFaceDataList();
+        startGallerySync();
     }
 
     private void requestPermissions() {
@@ -163,7 +378,7 @@ public class MainActivity extends CameraActivity {
         } else {
             initFaceDetectionAndRecognition();
             mOpenCvCameraView.enableView();
-            Log.d(TAG, "Camera permission already granted.");
+            AppLog.d(TAG, "Camera permission already granted.");
         }
 
         // Request location permission
@@ -172,55 +387,438 @@ public class MainActivity extends CameraActivity {
             requestLocationPermission();
         } else {
             startLocationUpdates();
-            Log.d(TAG, "Location permission already granted.");
+            AppLog.d(TAG, "Location permission already granted.");
         }
     }
 
     private void requestCameraPermission() {
         ActivityCompat.requestPermissions(this,
                 new String[]{Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST_CODE);
-        Log.d(TAG, "Requesting camera permission.");
+        AppLog.d(TAG, "Requesting camera permission.");
     }
 
     private void requestLocationPermission() {
         ActivityCompat.requestPermissions(this,
                 new String[]{Manifest.permission.ACCESS_FINE_LOCATION}, LOCATION_PERMISSION_REQUEST_CODE);
-        Log.d(TAG, "Requesting location permission.");
+        AppLog.d(TAG, "Requesting location permission.");
     }
 
+    /** Starts loading the models in the background; the camera shows a loading state until they are ready. */
     private void initFaceDetectionAndRecognition() {
-        // Face Detection
+        List<ModelLoader.Model> models = new ArrayList<>();
+        models.add(new ModelLoader.Model(DETECTION_MODEL, () -> getAssets().open(DETECTION_MODEL),
+                this::InitFaceDetector, this::warmUpDetector));
+        models.add(new ModelLoader.Model(RECOGNITION_MODEL, () -> getAssets().open(RECOGNITION_MODEL),
+                this::initFaceRecognition, this::warmUpRecognizer));
+        switch (FACE_DETECTOR_BACKEND) {
+            case HAAR:
+            case CASCADE:
+                models.add(new ModelLoader.Model(HAAR_CASCADE_MODEL, () -> getAssets().open(HAAR_CASCADE_MODEL),
+                        path -> faceDetector = FACE_DETECTOR_BACKEND == FaceDetector.Backend.HAAR
+                                ? new HaarFaceDetector(path)
+                                : new CascadeFaceDetector(new HaarFaceDetector(path), yunetDetector), null));
+                break;
+            case SSD:
+                if (hasAsset(SsdFaceDetector.WEIGHTS_FILE)) {
+                    models.add(new ModelLoader.Model(SsdFaceDetector.WEIGHTS_FILE,
+                            () -> getAssets().open(SsdFaceDetector.WEIGHTS_FILE),
+                            path -> faceDetector = new SsdFaceDetector(cacheAsset(SsdFaceDetector.PROTOTXT_FILE).getPath(), path),
+                            null));
+                } else {
+                    AppLog.w(TAG, SsdFaceDetector.WEIGHTS_FILE + " is not bundled, detecting with YuNet instead of SSD.");
+                }
+                break;
+            default:
+                break;
+        }
+        if (modelLoader.load(models, this::onModelsLoaded)) {
+            AppLog.d(TAG, "Loading face models in the background.");
+        }
+    }
+
+    private boolean hasAsset(String fileName) {
         try {
-            InputStream inputStream = getAssets().open("face_detection_yunet_2023mar.onnx");
-            FileUtil fileUtil = new FileUtil();
-            java.io.File detectionModelFile = fileUtil.createTempFile(this, inputStream, "face_detection_yunet_2023mar.onnx");
-            InitFaceDetector(detectionModelFile.getAbsolutePath());
-            Log.d(TAG, "Face Detector initialized with model: " + detectionModelFile.getAbsolutePath());
+            String[] assets = getAssets().list("");
+            return assets != null && Arrays.asList(assets).contains(fileName);
         } catch (IOException e) {
-            Log.e(TAG, "Error initializing Face Detector: " + e.getMessage());
-            e.printStackTrace();
+            return false;
         }
+    }
+
+    // Blocks on the first use of each asset; never call on the UI thread
+    private File cacheAsset(String fileName) throws IOException {
+        return modelLoader.cache(fileName, () -> getAssets().open(fileName));
+    }
 
-        // Face Recognition
+    // Cached models are recopied whenever the APK, and so possibly its assets, changes
+    private String modelSourceKey() {
         try {
-            InputStream inputStream = getAssets().open("face_recognition_sface_2021dec.onnx");
-            FileUtil fileUtil = new FileUtil();
-            java.io.File recognitionModelFile = fileUtil.createTempFile(this, inputStream, "face_recognition_sface_2021dec.onnx");
-            InitFaceRecognition(recognitionModelFile.getAbsolutePath());
-            Log.d(TAG, "Face Recognition initialized with model: " + recognitionModelFile.getAbsolutePath());
-        } catch (IOException e) {
-            Log.e(TAG, "Error initializing Face Recognition: " + e.getMessage());
-            e.printStackTrace();
+            return String.valueOf(getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    private void warmUpDetector() {
+        Mat rgba = new Mat(WARM_UP_FRAME_HEIGHT, WARM_UP_FRAME_WIDTH, CvType.CV_8UC4, Scalar.all(0));
+        Mat gray = new Mat(WARM_UP_FRAME_HEIGHT, WARM_UP_FRAME_WIDTH, CvType.CV_8UC1, Scalar.all(0));
+        try {
+            detectAllFaces(gray, rgba, new float[RecognitionPipeline.FACE_STRIDE], 1);
+        } finally {
+            rgba.release();
+            gray.release();
+        }
+    }
+
+    private void initFaceRecognition(String modelPath) {
+        synchronized (recognizerLock) {
+            InitFaceRecognition(modelPath);
+        }
+    }
+
+    private void warmUpRecognizer() {
+        Mat face = new Mat(WARM_UP_FACE_SIZE, WARM_UP_FACE_SIZE, CvType.CV_8UC4, Scalar.all(128));
+        try {
+            synchronized (recognizerLock) {
+                ExtractFaceEmbedding(face.getNativeObjAddr());
+            }
+        } finally {
+            face.release();
         }
     }
 
+    // Loader thread
+    private void onModelsLoaded(ModelLoader.Report report) {
+        if (report.isSuccessful()) {
+            long readyMs = millisSinceProcessStart();
+            recognitionPipeline.getMetrics().markMilestone(PipelineMetrics.Milestone.MODELS_READY, readyMs);
+            AppLog.d(TAG, report + "; ready " + readyMs + " ms after process start.");
+        } else {
+            AppLog.e(TAG, report.toString());
+            mainHandler.post(() -> Toast.makeText(this, "Face models failed to load.", Toast.LENGTH_LONG).show());
+        }
+    }
+
+    private static long millisSinceProcessStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    private void recordAttendance(RecognitionPipeline.Annotation annotation) {
+        SiteLocation.Fix fix = siteLocation.getFix();
+        Double latitude = fix != null ? fix.getBoxedLatitude() : null;
+        Double longitude = fix != null ? fix.getBoxedLongitude() : null;
+        Boolean onSite = fix != null ? fix.getOnSite() : null;
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < annotation.getNumFaces(); i++) {
+            EmbeddingGallery.Match match = annotation.getMatch(i);
+            if (match != null) {
+                reportFirstRecognition();
+                attendanceEventWriter.record(match.getUserId(), match.getSimilarity(), timestamp,
+                        latitude, longitude, onSite);
+            }
+        }
+    }
+
+    private void reportFirstRecognition() {
+        PipelineMetrics metrics = recognitionPipeline.getMetrics();
+        if (metrics.getMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION) >= 0) return;
+        long recognizedMs = millisSinceProcessStart();
+        if (metrics.markMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION, recognizedMs)) {
+            AppLog.d(TAG, "Time to first recognition: " + recognizedMs + " ms after process start (models ready at "
+                    + metrics.getMilestone(PipelineMetrics.Milestone.MODELS_READY) + " ms, first frame at "
+                    + metrics.getMilestone(PipelineMetrics.Milestone.FIRST_FRAME) + " ms).");
+        }
+    }
+
+    private int detectAllFaces(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+        if (multiFaceNativeAvailable) {
+            try {
+                return DetectAllFaces(gray.getNativeObjAddr(), rgba.getNativeObjAddr(), faces, maxFaces);
+            } catch (UnsatisfiedLinkError e) {
+                multiFaceNativeAvailable = false;
+                AppLog.w(TAG, "Multi-face natives unavailable, falling back to single-face detection.");
+            }
+        }
+
+        // Fallback: the legacy entry point only reports the largest face, without landmarks
+        int numFaces = DetectFaces(gray.getNativeObjAddr(), rgba.getNativeObjAddr(), largestFaceRect);
+        if (numFaces <= 0) return 0;
+        Arrays.fill(faces, 0, RecognitionPipeline.FACE_STRIDE, 0f);
+        System.arraycopy(largestFaceRect, 0, faces, 0, 4);
+        return 1;
+    }
+
+    private int extractFaceEmbeddings(Mat rgba, float[] faces, int count, float[] embeddings) {
+        // Uncontended except while an enrolment runs, when a frame waits for one photo at most
+        synchronized (recognizerLock) {
+            return extractFaceEmbeddingsLocked(rgba, faces, count, embeddings);
+        }
+    }
+
+    private int extractFaceEmbeddingsLocked(Mat rgba, float[] faces, int count, float[] embeddings) {
+        if (extractIntoNativeAvailable) {
+            try {
+                return ExtractFaceEmbeddingsInto(rgba.getNativeObjAddr(), faces, count, embeddings);
+            } catch (UnsatisfiedLinkError e) {
+                extractIntoNativeAvailable = false;
+                AppLog.w(TAG, "In-place embedding native unavailable, falling back to allocating extraction.");
+            }
+        }
+
+        // Fallbacks below allocate, but only run when a track needs a fresh embedding
+        if (multiFaceNativeAvailable) {
+            try {
+                float[] extracted = ExtractFaceEmbeddings(rgba.getNativeObjAddr(),
+                        Arrays.copyOf(faces, count * RecognitionPipeline.FACE_STRIDE));
+                if (extracted == null || extracted.length == 0) return 0;
+                System.arraycopy(extracted, 0, embeddings, 0, extracted.length);
+                return extracted.length / count;
+            } catch (UnsatisfiedLinkError e) {
+                multiFaceNativeAvailable = false;
+                AppLog.w(TAG, "Batched embedding native unavailable, falling back to per-face extraction.");
+            }
+        }
+
+        // One ExtractFaceEmbedding call per face on a padded crop around its box
+        int dimension = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = i * RecognitionPipeline.FACE_STRIDE;
+            float marginX = faces[offset + 2] * 0.25f;
+            float marginY = faces[offset + 3] * 0.25f;
+            int x = Math.max(0, (int) (faces[offset] - marginX));
+            int y = Math.max(0, (int) (faces[offset + 1] - marginY));
+            int right = Math.min(rgba.cols(), (int) (faces[offset] + faces[offset + 2] + marginX));
+            int bottom = Math.min(rgba.rows(), (int) (faces[offset + 1] + faces[offset + 3] + marginY));
+            if (right <= x || bottom <= y) continue;
+
+            Mat crop = rgba.submat(new Rect(x, y, right - x, bottom - y));
+            float[] embedding = ExtractFaceEmbedding(crop.getNativeObjAddr());
+            crop.release();
+            if (embedding == null) continue;
+            if (dimension == 0) {
+                dimension = embedding.length;
+                // Faces skipped before the first success stay zero vectors
+                Arrays.fill(embeddings, 0, count * dimension, 0f);
+            }
+            System.arraycopy(embedding, 0, embeddings, i * dimension, dimension);
+        }
+        return dimension;
+    }
+
+    private boolean modelsReadyForEnrolment() {
+        if (modelLoader.isReady()) return true;
+        Toast.makeText(this, modelLoader.getState() == ModelLoader.State.FAILED
+                ? "Face models failed to load." : "Face models are still loading.", Toast.LENGTH_SHORT).show();
+        return false;
+    }
+
     private void openGallery() {
+        if (!modelsReadyForEnrolment()) return;
         // Use Storage Access Framework to pick an image without needing storage permissions
         Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
         intent.setType("image/*");
         startActivityForResult(intent, GALLERY_REQUEST_CODE);
-        Log.d(TAG, "Opening gallery for image selection.");
+        AppLog.d(TAG, "Opening gallery for image selection.");
+    }
+
+    private void openBulkEnrolment() {
+        if (!modelsReadyForEnrolment()) return;
+        new AlertDialog.Builder(this)
+                .setTitle("Import Photos")
+                .setItems(new String[]{"Folder (one subfolder per person)", "ZIP file (one folder per person)"},
+                        (dialog, which) -> {
+                            Intent intent;
+                            if (which == 0) {
+                                intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
+                                startActivityForResult(intent, BULK_FOLDER_REQUEST_CODE);
+                            } else {
+                                intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                                intent.setType("application/zip");
+                                startActivityForResult(intent, BULK_ZIP_REQUEST_CODE);
+                            }
+                        })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    private void startBulkEnrolment(BulkEnroller.Source source, String sourceName) {
+        int workers = Math.max(1, Math.min(BULK_MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        final BulkEnroller enroller = new BulkEnroller(faceMatcher, this::extractEnrolmentEmbedding, workers);
+        final AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Importing " + sourceName)
+                .setMessage("Reading photos...")
+                .setCancelable(false)
+                .show();
+        bulkEnrolBtn.setEnabled(false);
+        AppLog.d(TAG, "Bulk enrolment started from " + sourceName + " with " + workers + " workers.");
+
+        bulkEnrolExecutor.execute(() -> {
+            String summary;
+            try {
+                BulkEnroller.Report report = enroller.enroll(source, faceGallery.getSnapshot(), (done, submitted) -> {
+                    // Every few photos is enough for the dialog
+                    if (done % 5 == 0 || done == submitted) {
+                        mainHandler.post(() -> progressDialog.setMessage("Processed " + done + " of " + submitted + " photos"));
+                    }
+                });
+                commitEnrolment(report.getEnrolled());
+                summary = report.summary();
+                AppLog.d(TAG, "Bulk enrolment finished: " + summary.replace('\n', ' ')
+                        + ", peak decode memory " + photoDecoder.getPeakBytes() / 1024 + " KB");
+                for (String issue : report.getIssues()) {
+                    AppLog.w(TAG, "Bulk enrolment: " + issue);
+                }
+            } catch (IOException e) {
+                summary = "Import failed: " + e.getMessage();
+                AppLog.e(TAG, "Bulk enrolment failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                // Activity destroyed mid-import; nothing has been committed
+                return;
+            }
+            final String message = summary;
+            mainHandler.post(() -> {
+                progressDialog.dismiss();
+                bulkEnrolBtn.setEnabled(true);
+                if (isFinishing()) return;
+                new AlertDialog.Builder(this)
+                        .setTitle("Import Finished")
+                        .setMessage(message)
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        });
+    }
+
+    private void openDetectorBenchmark() {
+        final File directory = new File(getFilesDir(), DETECTOR_BENCHMARK_DIR);
+        final int recorded = new RecordedFrames(directory).size();
+        new AlertDialog.Builder(this)
+                .setTitle("Detector Benchmark")
+                .setItems(new String[]{"Record " + BENCHMARK_FRAMES + " camera frames",
+                                "Run on " + recorded + " recorded frames"},
+                        (dialog, which) -> {
+                            if (which == 0) {
+                                File[] old = directory.listFiles();
+                                if (old != null) {
+                                    for (File file : old) file.delete();
+                                }
+                                benchmarkFramesToRecord = BENCHMARK_FRAMES;
+                                Toast.makeText(this, "Recording frames; keep faces in view.", Toast.LENGTH_SHORT).show();
+                            } else if (recorded == 0) {
+                                Toast.makeText(this, "Record some frames first.", Toast.LENGTH_SHORT).show();
+                            } else if (modelsReadyForEnrolment()) {
+                                runDetectorBenchmark(directory);
+                            }
+                        })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    // Camera thread; the PNG encoding runs on the gallery thread
+    private void recordBenchmarkFrame(Mat rgba) {
+        if (benchmarkFrameCounter++ % BENCHMARK_FRAME_STRIDE != 0) return;
+        final int sequence = BENCHMARK_FRAMES - benchmarkFramesToRecord--;
+        final Mat copy = rgba.clone();
+        final File directory = new File(getFilesDir(), DETECTOR_BENCHMARK_DIR);
+        galleryExecutor.execute(() -> {
+            try {
+                RecordedFrames.save(directory, sequence, copy);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to record benchmark frame: " + e.getMessage());
+            } finally {
+                copy.release();
+            }
+        });
+        if (benchmarkFramesToRecord == 0) {
+            mainHandler.post(() -> Toast.makeText(this, "Recorded " + BENCHMARK_FRAMES + " frames.", Toast.LENGTH_SHORT).show());
+        }
+    }
+
+    /** Runs every available backend over the recorded frames with the camera stopped, so they get the natives and CPU to themselves. */
+    private void runDetectorBenchmark(File directory) {
+        final AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Detector Benchmark")
+                .setMessage("Running...")
+                .setCancelable(false)
+                .show();
+        mOpenCvCameraView.disableView();
+
+        bulkEnrolExecutor.execute(() -> {
+            String summary;
+            try {
+                // Fresh instances: the live backend belongs to the detect stage
+                Map<String, DetectorBenchmark.Detector<RecordedFrames.Frame>> candidates = new LinkedHashMap<>();
+                String haarPath = cacheAsset(HAAR_CASCADE_MODEL).getPath();
+                candidates.put(FaceDetector.Backend.HAAR.name(), RecordedFrames.adapt(new HaarFaceDetector(haarPath)));
+                candidates.put(FaceDetector.Backend.CASCADE.name(), RecordedFrames.adapt(
+                        new CascadeFaceDetector(new HaarFaceDetector(haarPath), yunetDetector)));
+                if (hasAsset(SsdFaceDetector.WEIGHTS_FILE)) {
+                    candidates.put(FaceDetector.Backend.SSD.name(), RecordedFrames.adapt(new SsdFaceDetector(
+                            cacheAsset(SsdFaceDetector.PROTOTXT_FILE).getPath(),
+                            cacheAsset(SsdFaceDetector.WEIGHTS_FILE).getPath())));
+                }
+                RecordedFrames frames = new RecordedFrames(directory);
+                List<DetectorBenchmark.Result> results = DetectorBenchmark.run(frames,
+                        FaceDetector.Backend.YUNET.name(), RecordedFrames.adapt(yunetDetector), candidates);
+                String device = Build.MANUFACTURER + " " + Build.MODEL + " (Android " + Build.VERSION.RELEASE + ")";
+                summary = frames.size() + " frames on " + device + "\n" + DetectorBenchmark.summary(results);
+                if (!candidates.containsKey(FaceDetector.Backend.SSD.name())) {
+                    summary += "SSD skipped: " + SsdFaceDetector.WEIGHTS_FILE + " is not bundled.\n";
+                }
+                // Next to the pipeline metrics, so both can be collected per device tier
+                File directory = new File(getFilesDir(), METRICS_DIR);
+                if (directory.isDirectory() || directory.mkdirs()) {
+                    PipelineMetrics.writeJson(new File(directory, "detector-benchmark-" + System.currentTimeMillis() + ".json"),
+                            DetectorBenchmark.toJson(device, frames.size(), results));
+                }
+                AppLog.d(TAG, "Detector benchmark: " + summary.replace('\n', ' '));
+            } catch (IOException | RuntimeException e) {
+                summary = "Benchmark failed: " + e.getMessage();
+                AppLog.e(TAG, "Detector benchmark failed.", e);
+            }
+            final String message = summary;
+            mainHandler.post(() -> {
+                progressDialog.dismiss();
+                if (isFinishing()) return;
+                mOpenCvCameraView.enableView();
+                new AlertDialog.Builder(this)
+                        .setTitle("Detector Benchmark")
+                        .setMessage(message)
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        });
+    }
+
+    /** Bulk worker threads: downsampled decode, then one embedding per photo. */
+    private float[] extractEnrolmentEmbedding(BulkEnroller.Photo photo) throws IOException {
+        Mat mat = photoDecoder.decode(photo);
+        try {
+            synchronized (recognizerLock) {
+                return ExtractFaceEmbedding(mat.getNativeObjAddr());
+            }
+        } finally {
+            mat.release();
+        }
+    }
+
+    /** Writes all enrolled users in one multi-path Firebase update and one gallery batch. */
+    private void commitEnrolment(List<FaceData> enrolled) {
+        if (enrolled.isEmpty()) return;
+        Map<String, Object> updates = new HashMap<>();
+        for (FaceData faceData : enrolled) {
+            EmbeddingRecord record = FaceRecords.toEmbeddingRecord(faceData, EMBEDDING_WIRE_PRECISION);
+            updates.putAll(FaceRecords.putUpdates(faceData.getUserId(), faceData.getName(), record, ServerValue.TIMESTAMP));
+            // Lets the users echo skip fetching the embedding this device already has
+            faceData.setEmbeddingHash(record.getEmbeddingHash());
+        }
+        rootRef.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> AppLog.d(TAG, "Bulk enrolment saved " + enrolled.size() + " users."))
+                .addOnFailureListener(e -> AppLog.e(TAG, "Bulk enrolment save failed: " + e.getMessage()));
+        // Visible to recognition and the local snapshot without waiting for the Firebase echo
+        faceGallery.upsertAll(enrolled);
     }
 
     @Override
@@ -233,84 +831,98 @@ public class MainActivity extends CameraActivity {
 
                 @Override
                 public void onCameraViewStarted(int width, int height) {
-                    Log.d(TAG, "Camera view started with width: " + width + " and height: " + height);
+                    AppLog.d(TAG, "Camera view started with width: " + width + " and height: " + height);
+                    recognitionPipeline.start();
+                    mainHandler.postDelayed(exportMetricsRunnable, METRICS_EXPORT_INTERVAL_MS);
                 }
 
                 @Override
                 public void onCameraViewStopped() {
-                    Log.d(TAG, "Camera view stopped.");
+                    recognitionPipeline.stop();
+                    mainHandler.removeCallbacks(exportMetricsRunnable);
+                    exportMetrics();
+                    AppLog.d(TAG, "Camera view stopped.");
                 }
 
                 @Override
                 public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
-                    long startTime = System.nanoTime();
+                    long now = System.nanoTime();
+                    PipelineMetrics metrics = recognitionPipeline.getMetrics();
+                    metrics.markPreviewFrame(now);
 
                     Mat inputRgba = inputFrame.rgba();
-                    Mat inputGray = inputFrame.gray();
-
-                    float[] largestFaceRect = new float[4];
-
-                    int numFaces = DetectFaces(inputGray.getNativeObjAddr(), inputRgba.getNativeObjAddr(), largestFaceRect);
-                    Log.d(TAG, "Detected " + numFaces + " face(s).");
-
-                    float[] cameraFrameEmbedding = ExtractFaceEmbedding(inputRgba.getNativeObjAddr());
-                    if (cameraFrameEmbedding != null) {
-                        Log.d(TAG, "Extracted face embedding from camera frame.");
-                    } else {
-                        Log.d(TAG, "No face embedding extracted from camera frame.");
+                    if (!modelLoader.isReady()) {
+                        // Nothing to detect with yet; keep the preview live and say why
+                        Imgproc.putText(inputRgba, modelLoader.getState() == ModelLoader.State.FAILED
+                                        ? OverlayText.MODELS_FAILED : OverlayText.LOADING_MODELS,
+                                previewTextOrigin, Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, statusColor, 2);
+                        return inputRgba;
                     }
+                    if (metrics.getMilestone(PipelineMetrics.Milestone.FIRST_FRAME) < 0) {
+                        metrics.markMilestone(PipelineMetrics.Milestone.FIRST_FRAME, millisSinceProcessStart());
+                    }
+                    if (benchmarkFramesToRecord > 0) {
+                        recordBenchmarkFrame(inputRgba);
+                    }
+                    Mat inputGray = inputFrame.gray();
 
-                    if (cameraFrameEmbedding != null && !faceDataList.isEmpty()) {
-                        String matchedName = null;
-                        float highestSimilarity = 0.0f;
-
-                        for (FaceData faceData : faceDataList) {
-                            if (faceData.getEmbedding() == null) continue; // Kiểm tra embedding không null
-                            float similarity = CalculateSimilarity(faceData.getEmbedding(), cameraFrameEmbedding);
-                            if (similarity > 0.5f && similarity > highestSimilarity) {
-                                highestSimilarity = similarity;
-                                matchedName = faceData.getName();
+                    // Hand the frame to the worker stages and render the latest finished result
+                    recognitionPipeline.submit(inputRgba, inputGray);
+                    long overlayStart = System.nanoTime();
+                    RecognitionPipeline.Annotation annotation = overlayAnnotation;
+
+                    if (recognitionPipeline.copyLatestAnnotation(annotation)
+                            && now - annotation.getCaptureNanos() < ANNOTATION_MAX_AGE_NANOS) {
+                        float[] faces = annotation.getFaces();
+                        for (int i = 0; i < annotation.getNumFaces(); i++) {
+                            int offset = i * RecognitionPipeline.FACE_STRIDE;
+                            float x = faces[offset];
+                            float y = faces[offset + 1];
+
+                            boxTopLeft.x = x;
+                            boxTopLeft.y = y;
+                            boxBottomRight.x = x + faces[offset + 2];
+                            boxBottomRight.y = y + faces[offset + 3];
+                            Imgproc.rectangle(inputRgba, boxTopLeft, boxBottomRight, boxColor, 2);
+
+                            if (annotation.hasIdentity(i) && !faceGallery.getSnapshot().isEmpty()) {
+                                EmbeddingGallery.Match match = annotation.getMatch(i);
+                                nameOrigin.x = x;
+                                nameOrigin.y = y - 10;
+                                if (match != null) {
+                                    Imgproc.putText(inputRgba, match.getName(), nameOrigin,
+                                            Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, knownColor, 2);
+                                } else {
+                                    Imgproc.putText(inputRgba, OverlayText.UNKNOWN_FACE, nameOrigin,
+                                            Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, unknownColor, 2);
+                                }
                             }
                         }
-
-                        float x = largestFaceRect[0];
-                        float y = largestFaceRect[1];
-
-                        if (matchedName != null) {
-                            Imgproc.putText(inputRgba, matchedName,
-                                    new Point(x, y - 10),
-                                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, new Scalar(30, 30, 220), 2);
-                            Log.d(TAG, "Matched user: " + matchedName + " with similarity: " + highestSimilarity);
-                        } else {
-                            Imgproc.putText(inputRgba, "Unknown",
-                                    new Point(x, y - 10),
-                                    Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, new Scalar(255, 50, 50), 2);
-                            Log.d(TAG, "No matching user found.");
-                        }
                     }
 
-                    long endTime = System.nanoTime();
-                    long processingTimeMs = (endTime - startTime) / 1_000_000;
-
-                    Imgproc.putText(inputRgba, "Processing Time: " + processingTimeMs + " ms",
-                            new Point(10, 30),
-                            Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, new Scalar(255, 255, 255), 2);
-
-                    if (currentLocation != null) {
-                        String gpsText = String.format("Lat: %.5f, Lon: %.5f",
-                                currentLocation.getLatitude(), currentLocation.getLongitude());
-
-                        Imgproc.putText(inputRgba, gpsText,
-                                new Point(10, 65),
-                                Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, new Scalar(240, 240, 0), 2);
+                    Imgproc.putText(inputRgba, overlayText.preview(metrics.getPreviewFps()), previewTextOrigin,
+                            Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, statusColor, 2);
+                    Imgproc.putText(inputRgba, overlayText.recognition(recognitionPipeline.getRecognitionLatencyMs(),
+                                    recognitionPipeline.getFaceRate()), recognitionTextOrigin,
+                            Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, statusColor, 2);
+                    Imgproc.putText(inputRgba, overlayText.stages(
+                                    metrics.getWindow(PipelineMetrics.Stage.DETECT).getP95Micros() / 1000f,
+                                    metrics.getWindow(PipelineMetrics.Stage.EMBED).getP95Micros() / 1000f,
+                                    metrics.getWindow(PipelineMetrics.Stage.MATCH).getP95Micros() / 1000f),
+                            stagesTextOrigin, Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, statusColor, 2);
+
+                    // Built once per fix; the fix only changes when the site check is redone
+                    SiteLocation.Fix fix = siteLocation.getFix();
+                    if (fix != null) {
+                        Imgproc.putText(inputRgba, fix.getOverlayLine(), locationTextOrigin, Imgproc.FONT_HERSHEY_SIMPLEX,
+                                1.0, Boolean.FALSE.equals(fix.getOnSite()) ? noLocationColor : locationColor, 2);
                     } else {
-                        Imgproc.putText(inputRgba, "Location unavailable",
-                                new Point(10, 65),
-                                Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, new Scalar(255, 0, 0), 2);
+                        Imgproc.putText(inputRgba, OverlayText.LOCATION_UNAVAILABLE, locationTextOrigin,
+                                Imgproc.FONT_HERSHEY_SIMPLEX, 1.0, noLocationColor, 2);
                     }
 
-                    Log.d(TAG, "Processing time per frame: " + processingTimeMs + " ms");
-
+                    long overlayEnd = System.nanoTime();
+                    metrics.record(PipelineMetrics.Stage.OVERLAY, overlayEnd - overlayStart, overlayEnd);
                     return inputRgba;
                 }
             };
@@ -320,16 +932,12 @@ public class MainActivity extends CameraActivity {
         super.onResume();
         if (mOpenCvCameraView != null)
             mOpenCvCameraView.enableView();
-        Log.d(TAG, "onResume: Camera view enabled.");
+        AppLog.d(TAG, "onResume: Camera view enabled.");
 
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 == PackageManager.PERMISSION_GRANTED) {
             startLocationUpdates();
         }
-        if (mainAdapter != null) {
-            mainAdapter.startListening();
-            Log.d(TAG, "onResume: MainAdapter started listening.");
-        }
     }
 
     @Override
@@ -337,14 +945,10 @@ public class MainActivity extends CameraActivity {
         super.onPause();
         if (mOpenCvCameraView != null)
             mOpenCvCameraView.disableView();
-        Log.d(TAG, "onPause: Camera view disabled.");
+        AppLog.d(TAG, "onPause: Camera view disabled.");
 
         fusedLocationClient.removeLocationUpdates(locationCallback);
-        Log.d(TAG, "onPause: Location updates removed.");
-        if (mainAdapter != null) {
-            mainAdapter.stopListening();
-            Log.d(TAG, "onPause: MainAdapter stopped listening.");
-        }
+        AppLog.d(TAG, "onPause: Location updates removed.");
     }
 
     @Override
@@ -352,7 +956,29 @@ public class MainActivity extends CameraActivity {
         super.onDestroy();
         if (mOpenCvCameraView != null)
             mOpenCvCameraView.disableView();
-        Log.d(TAG, "onDestroy: Camera view disabled.");
+        AppLog.d(TAG, "onDestroy: Camera view disabled.");
+
+        // Abandon a running import before its commit could reach the executor shut down below
+        bulkEnrolExecutor.shutdownNow();
+        modelExecutor.shutdownNow();
+        mainHandler.removeCallbacks(saveGallerySnapshotRunnable);
+        if (gallerySyncSource != null) gallerySyncSource.stopWatching();
+        // Applies the batch still waiting for its delay, then saves, without blocking the UI thread;
+        // shutdown() lets this last task finish
+        faceGallery.whenApplied(() -> {
+            if (gallerySnapshotDirty) {
+                gallerySnapshotDirty = false;
+                writeGallerySnapshot();
+            }
+        });
+        galleryExecutor.shutdown();
+
+        if (attendanceEventWriter != null) {
+            AppLog.d(TAG, "onDestroy: Attendance events written: " + attendanceEventWriter.getWrittenCount()
+                    + ", de-duplicated: " + attendanceEventWriter.getDeduplicatedCount());
+            // Queues the last batch without waiting for Room to commit it
+            attendanceEventWriter.close();
+        }
     }
 
     @Override
@@ -366,32 +992,31 @@ public class MainActivity extends CameraActivity {
                 if (imageUri != null) {
                     getContentResolver().takePersistableUriPermission(imageUri,
                             Intent.FLAG_GRANT_READ_URI_PERMISSION);
-                    Log.d(TAG, "Image selected: " + imageUri.toString());
+                    AppLog.d(TAG, "Image selected: " + imageUri.toString());
 
                     try {
-                        Mat imgMat = uriToMat(imageUri);
-                        float[] newEmbedding = ExtractFaceEmbedding(imgMat.getNativeObjAddr());
+                        Mat imgMat = photoDecoder.decode(() -> openInputStream(imageUri));
+                        float[] newEmbedding;
+                        try {
+                            synchronized (recognizerLock) {
+                                newEmbedding = ExtractFaceEmbedding(imgMat.getNativeObjAddr());
+                            }
+                        } finally {
+                            imgMat.release();
+                        }
 
                         if (newEmbedding == null) {
-                            Log.e(TAG, "No face detected in the selected image.");
+                            AppLog.e(TAG, "No face detected in the selected image.");
                             Toast.makeText(this, "No face detected in the selected image.", Toast.LENGTH_SHORT).show();
                         } else {
-                            Log.d(TAG, "Face embedding extracted from gallery image.");
+                            AppLog.d(TAG, "Face embedding extracted from gallery image.");
 
                             // Check for duplicates
-                            String matchedName = null;
-                            float highestSimilarity = 0.0f;
-                            for (FaceData faceData : faceDataList) {
-                                float similarity = CalculateSimilarity(faceData.getEmbedding(), newEmbedding);
-                                if (similarity > 0.8f && similarity > highestSimilarity) {
-                                    highestSimilarity = similarity;
-                                    matchedName = faceData.getName();
-                                }
-                            }
+                            EmbeddingGallery.Match duplicate = faceMatcher.findDuplicate(newEmbedding);
 
-                            if (matchedName != null) {
+                            if (duplicate != null) {
                                 // Face already exists
-                                handleDuplicateFace(matchedName, newEmbedding);
+                                handleDuplicateFace(duplicate.getUserId(), duplicate.getName(), newEmbedding);
                             } else {
                                 // No duplicate, proceed to add new face
                                 promptForName(newEmbedding);
@@ -399,50 +1024,127 @@ public class MainActivity extends CameraActivity {
                         }
 
                     } catch (IOException e) {
-                        Log.e(TAG, "Error processing selected image: " + e.getMessage());
+                        AppLog.e(TAG, "Error processing selected image: " + e.getMessage());
                         e.printStackTrace();
                     }
                 } else {
-                    Log.e(TAG, "Image URI is null");
+                    AppLog.e(TAG, "Image URI is null");
                 }
             } else {
-                Log.e(TAG, "No image selected or action canceled");
+                AppLog.e(TAG, "No image selected or action canceled");
+            }
+        } else if (requestCode == BULK_FOLDER_REQUEST_CODE || requestCode == BULK_ZIP_REQUEST_CODE) {
+            Uri uri = resultCode == RESULT_OK && data != null ? data.getData() : null;
+            if (uri == null) {
+                AppLog.e(TAG, "No import source selected or action canceled");
+                return;
+            }
+            if (requestCode == BULK_FOLDER_REQUEST_CODE) {
+                startBulkEnrolment(new DocumentTreeSource(getContentResolver(), uri), "folder");
+            } else {
+                try {
+                    InputStream in = openInputStream(uri);
+                    startBulkEnrolment(new BulkEnroller.ZipSource(in), "ZIP file");
+                } catch (IOException e) {
+                    AppLog.e(TAG, "Error opening ZIP file: " + e.getMessage());
+                    Toast.makeText(this, "Unable to open the ZIP file.", Toast.LENGTH_SHORT).show();
+                }
             }
         }
     }
 
-    private void handleDuplicateFace(String matchedName, float[] newEmbedding) {
+    private void handleDuplicateFace(String matchedUserId, String matchedName, float[] newEmbedding) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Face Already Exists");
         builder.setMessage("A face matching this one is already registered as \"" + matchedName + "\". What would you like to do?");
 
         builder.setPositiveButton("Update Entry", (dialog, which) -> {
             // Update the existing entry
-            updateFaceData(matchedName, newEmbedding);
-            Toast.makeText(this, "Face data updated.", Toast.LENGTH_SHORT).show();
-            Log.d(TAG, "Face data updated for user: " + matchedName);
+            updateFaceData(matchedUserId, newEmbedding);
         });
 
         builder.setNegativeButton("Cancel", (dialog, which) -> {
             dialog.cancel();
             Toast.makeText(this, "Operation canceled.", Toast.LENGTH_SHORT).show();
-            Log.d(TAG, "Face data update canceled.");
+            AppLog.d(TAG, "Face data update canceled.");
         });
 
         builder.show();
     }
 
-    private void updateFaceData(String name, float[] newEmbedding) {
-        for (FaceData faceData : faceDataList) {
-            if (faceData.getName().equals(name)) {
-                faceData.setEmbedding(newEmbedding);
-                saveFaceDataToFirebase(faceData);
-                Log.d(TAG, "FaceData updated: " + name + " with new embedding.");
-                break;
-            }
+    /** Hands confident matches from a frame to templatePolicy; copies only the rare candidates. */
+    private void offerTemplates(EmbeddingGallery.Match[] matches, float[] embeddings, int dimension) {
+        long now = System.currentTimeMillis();
+        GallerySnapshot snapshot = null;
+        for (int i = 0; i < matches.length; i++) {
+            EmbeddingGallery.Match match = matches[i];
+            if (match == null) continue;
+            if (snapshot == null) snapshot = faceGallery.getSnapshot();
+            FaceData faceData = snapshot.get(match.getUserId());
+            if (!templatePolicy.isCandidate(faceData, match.getSimilarity(), now)) continue;
+            final String userId = match.getUserId();
+            final float[] capture = Arrays.copyOfRange(embeddings, i * dimension, (i + 1) * dimension);
+            galleryExecutor.execute(() -> {
+                FaceData updated = templatePolicy.consider(faceGallery.getSnapshot().get(userId), capture, now);
+                if (updated != null) {
+                    // The Firebase echo puts the new template set in the gallery
+                    saveFaceDataToFirebase(updated);
+                    AppLog.d(TAG, "Added live template " + updated.getTemplateCount() + " for userId: " + userId);
+                }
+            });
         }
     }
 
+    /** Adds newEmbedding as a template of the user stored under userId; names are not unique, so never by name. */
+    private void updateFaceData(String userId, float[] newEmbedding) {
+        FaceData existing = faceGallery.getSnapshot().get(userId);
+        if (existing == null) {
+            // Removed from Firebase while the dialog was open
+            Toast.makeText(this, "This user no longer exists.", Toast.LENGTH_SHORT).show();
+            AppLog.w(TAG, "updateFaceData: userId not in gallery: " + userId);
+            return;
+        }
+        if (existing.getEmbedding() == null || existing.getEmbedding().length != newEmbedding.length) {
+            // Enrolled with another model: the face index only holds one dimension and would reject it
+            Toast.makeText(this, "This photo was processed by a different face model and cannot update this user.",
+                    Toast.LENGTH_LONG).show();
+            AppLog.w(TAG, "updateFaceData: embedding dimension " + newEmbedding.length + " does not match "
+                    + (existing.getEmbedding() != null ? existing.getEmbedding().length : 0) + " for userId: " + userId);
+            return;
+        }
+        // Snapshot entries are shared and immutable; the Firebase echo replaces this entry
+        FaceData updated = TemplatePolicy.withTemplate(existing, newEmbedding, System.currentTimeMillis(),
+                templatePolicy.getMaxTemplates());
+        saveFaceDataToFirebase(updated);
+        Toast.makeText(this, "Face data updated.", Toast.LENGTH_SHORT).show();
+        AppLog.d(TAG, "FaceData updated: " + existing.getName() + " (userId: " + userId + ") with new embedding.");
+    }
+
+    private void saveNewFaceData(String name, float[] embedding) {
+        String userId = UUID.randomUUID().toString();
+        FaceData faceData = new FaceData(userId, name, embedding);
+
+        saveFaceDataToFirebase(faceData);
+        Toast.makeText(this, "Face data saved.", Toast.LENGTH_SHORT).show();
+        AppLog.d(TAG, "FaceData saved: " + name + " with userId: " + userId);
+    }
+
+    /** Lets the user pick which of several same-named users to update. */
+    private void chooseUserToUpdate(List<FaceData> sameName, float[] embedding) {
+        final String[] userIds = new String[sameName.size()];
+        String[] labels = new String[sameName.size()];
+        for (int i = 0; i < sameName.size(); i++) {
+            FaceData faceData = sameName.get(i);
+            userIds[i] = faceData.getUserId();
+            labels[i] = faceData.getName() + " (ID: " + faceData.getUserId() + ")";
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Choose User to Update")
+                .setItems(labels, (dialog, which) -> updateFaceData(userIds[which], embedding))
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
     private void promptForName(float[] embedding) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Enter Name");
@@ -453,38 +1155,31 @@ public class MainActivity extends CameraActivity {
         builder.setPositiveButton("OK", (dialog, which) -> {
             String name = input.getText().toString().trim();
             if (!name.isEmpty()) {
-                // Check if name already exists
-                boolean nameExists = false;
-                for (FaceData faceData : faceDataList) {
-                    if (faceData.getName().equalsIgnoreCase(name)) {
-                        nameExists = true;
-                        break;
-                    }
-                }
+                // Names are not unique: offer to update one of the same-named users or add a new one
+                List<FaceData> sameName = faceGallery.getSnapshot().findByName(name);
 
-                if (nameExists) {
+                if (!sameName.isEmpty()) {
                     AlertDialog.Builder nameExistsDialog = new AlertDialog.Builder(this);
                     nameExistsDialog.setTitle("Name Already Exists");
-                    nameExistsDialog.setMessage("An entry with this name already exists. Do you want to update it?");
+                    nameExistsDialog.setMessage(sameName.size() == 1
+                            ? "An entry with this name already exists. Do you want to update it or add a new person?"
+                            : sameName.size() + " entries with this name already exist. Do you want to update one of them or add a new person?");
                     nameExistsDialog.setPositiveButton("Update", (dialog1, which1) -> {
-                        updateFaceData(name, embedding);
-                        Toast.makeText(this, "Face data updated.", Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Face data updated for user: " + name);
+                        if (sameName.size() == 1) {
+                            updateFaceData(sameName.get(0).getUserId(), embedding);
+                        } else {
+                            chooseUserToUpdate(sameName, embedding);
+                        }
                     });
+                    nameExistsDialog.setNeutralButton("Add New", (dialog1, which1) -> saveNewFaceData(name, embedding));
                     nameExistsDialog.setNegativeButton("Cancel", (dialog1, which1) -> dialog1.cancel());
                     nameExistsDialog.show();
                 } else {
-                    // Save new face data
-                    String userId = UUID.randomUUID().toString();
-                    FaceData faceData = new FaceData(userId, name, embedding);
-
-                    saveFaceDataToFirebase(faceData);
-                    Toast.makeText(this, "Face data saved.", Toast.LENGTH_SHORT).show();
-                    Log.d(TAG, "FaceData saved: " + name + " with userId: " + userId);
+                    saveNewFaceData(name, embedding);
                 }
             } else {
                 Toast.makeText(this, "Name cannot be empty.", Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "User attempted to save face data without entering a name.");
+                AppLog.e(TAG, "User attempted to save face data without entering a name.");
             }
         });
         builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
@@ -492,101 +1187,53 @@ public class MainActivity extends CameraActivity {
         builder.show();
     }
 
-    private Mat uriToMat(Uri uri) throws IOException {
+    private InputStream openInputStream(Uri uri) throws IOException {
         InputStream in = getContentResolver().openInputStream(uri);
         if (in == null) {
             throw new IOException("Unable to open input stream from URI");
         }
-        Bitmap bitmap = BitmapFactory.decodeStream(in);
-        in.close();
-        if (bitmap == null)  {
-            throw new IOException("Unable to decode bitmap from URI");
-        }
-        Mat mat = new Mat();
-        Bitmap bmp32 = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Utils.bitmapToMat(bmp32, mat);
-        return mat;
+        return in;
     }
 
     private void saveFaceDataToFirebase(FaceData faceData) {
-        // Convert embedding array to a List<Float>
-        List<Float> embeddingList = new ArrayList<>();
-        for (float val : faceData.getEmbedding()) {
-            embeddingList.add(val);
-        }
-
-        // Create a MainModel object
-        MainModel mainModel = new MainModel(faceData.getName(), embeddingList);
-
-        // Save to Firebase with unique ID
-        faceDataRef.child(faceData.getUserId()).setValue(mainModel)
+        EmbeddingRecord record = FaceRecords.toEmbeddingRecord(faceData, EMBEDDING_WIRE_PRECISION);
+        FaceData existing = faceGallery.getSnapshot().get(faceData.getUserId());
+        // An unchanged embedding is not sent again; only the metadata is written
+        Map<String, Object> updates = existing != null && record.getEmbeddingHash().equals(existing.getEmbeddingHash())
+                ? FaceRecords.userUpdates(faceData.getUserId(), faceData.getName(), record.getEmbeddingHash(), ServerValue.TIMESTAMP)
+                : FaceRecords.putUpdates(faceData.getUserId(), faceData.getName(), record, ServerValue.TIMESTAMP);
+
+        rootRef.updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Face data saved for user: " + faceData.getName() + " with userId: " + faceData.getUserId());
+                    AppLog.d(TAG, "Face data saved for user: " + faceData.getName() + " with userId: " + faceData.getUserId());
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to save face data for user: " + faceData.getName() + " Error: " + e.getMessage());
+                    AppLog.e(TAG, "Failed to save face data for user: " + faceData.getName() + " Error: " + e.getMessage());
                 });
     }
 
-    private void loadFaceDataList() {
-        faceDataRef.addChildEventListener(new ChildEventListener() {
+    /**
+     * Runs a delta sync whenever the newest users record changes: every write stamps updatedAt
+     * with the server time, so it becomes the last child of this query. A pass also runs each
+     * time the client connects, which starts the first one even while users is empty and the
+     * query has no child to report, and catches up on what was written while offline.
+     */
+    private void startGallerySync() {
+        gallerySyncSource.watchConnection(gallerySync::sync);
+        usersRef.orderByChild("updatedAt").limitToLast(1).addChildEventListener(new ChildEventListener() {
             @Override
             public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                try {
-                    MainModel mainModel = snapshot.getValue(MainModel.class);
-                    String userId = snapshot.getKey();
-                    if (mainModel != null && mainModel.getEmbedding() != null && mainModel.getEmbedding() instanceof List && userId != null) {
-                        List<Float> embeddingList = mainModel.getEmbedding();
-                        float[] embeddingArray = new float[embeddingList.size()];
-                        for (int i = 0; i < embeddingList.size(); i++) {
-                            embeddingArray[i] = embeddingList.get(i);
-                        }
-                        faceDataList.add(new FaceData(userId, mainModel.getName(), embeddingArray));
-                        Log.d(TAG, "Loaded FaceData: " + mainModel.getName() + " with userId: " + userId);
-                    } else {
-                        Log.e(TAG, "Invalid data in Firebase. userId: " + snapshot.getKey());
-                    }
-                } catch (DatabaseException e) {
-                    Log.e(TAG, "DatabaseException: " + e.getMessage());
-                }
+                gallerySync.sync();
             }
 
             @Override
             public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                try {
-                    MainModel mainModel = snapshot.getValue(MainModel.class);
-                    String userId = snapshot.getKey();
-                    if (mainModel != null && mainModel.getEmbedding() != null && mainModel.getEmbedding() instanceof List && userId != null) {
-                        List<Float> embeddingList = mainModel.getEmbedding();
-                        float[] embeddingArray = new float[embeddingList.size()];
-                        for (int i = 0; i < embeddingList.size(); i++) {
-                            embeddingArray[i] = embeddingList.get(i);
-                        }
-                        // Update data in faceDataList
-                        for (int i = 0; i < faceDataList.size(); i++) {
-                            if (faceDataList.get(i).getUserId().equals(userId)) {
-                                faceDataList.set(i, new FaceData(userId, mainModel.getName(), embeddingArray));
-                                Log.d(TAG, "Updated FaceData: " + mainModel.getName() + " with userId: " + userId);
-                                break;
-                            }
-                        }
-                    } else {
-                        Log.e(TAG, "Invalid data in Firebase onChildChanged. userId: " + snapshot.getKey());
-                    }
-                } catch (DatabaseException e) {
-                    Log.e(TAG, "DatabaseException onChildChanged: " + e.getMessage());
-                }
+                gallerySync.sync();
             }
 
             @Override
             public void onChildRemoved(@NonNull DataSnapshot snapshot) {
-                String userId = snapshot.getKey();
-                if (userId != null) {
-                    faceDataList.removeIf(faceData -> faceData.getUserId().equals(userId));
-                    Log.d(TAG, "Removed FaceData with userId: " + userId);
-                } else {
-                    Log.e(TAG, "Snapshot key (userId) is null in onChildRemoved.");
-                }
+                // Replaced as the newest record; its successor is added in the same update
             }
 
             @Override
@@ -596,28 +1243,271 @@ public class MainActivity extends CameraActivity {
 
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Failed to load face data from Firebase.", error.toException());
+                AppLog.e(TAG, "Failed to follow face data changes in Firebase.", error.toException());
+            }
+        });
+    }
+
+    // Gallery thread
+    private void onGallerySynced(SyncEngine.Report report) {
+        AppLog.i(TAG, report.toString());
+    }
+
+    // Gallery thread; the next change signal retries from the same checkpoint
+    private void onGallerySyncFailed(Exception e) {
+        AppLog.w(TAG, "Gallery sync failed: " + e.getMessage());
+    }
+
+    /**
+     * Moves records left under faceDataList into users and embeddings. Builds from before the
+     * split read only faceDataList, so update every device before the first one runs this.
+     */
+    private void migrateLegacyFaceDataList() {
+        DatabaseReference legacyRef = rootRef.child(FaceRecords.LEGACY_FACE_DATA);
+        // Costs one record once the migration is done
+        legacyRef.limitToFirst(1).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot probe) {
+                if (!probe.hasChildren()) return;
+                usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot users) {
+                        Set<String> migratedUserIds = new HashSet<>();
+                        for (DataSnapshot child : users.getChildren()) {
+                            migratedUserIds.add(child.getKey());
+                        }
+                        legacyRef.addListenerForSingleValueEvent(new ValueEventListener() {
+                            @Override
+                            public void onDataChange(@NonNull DataSnapshot legacy) {
+                                applyMigration(legacy, migratedUserIds);
+                            }
+
+                            @Override
+                            public void onCancelled(@NonNull DatabaseError error) {
+                                AppLog.e(TAG, "Failed to read legacy face data.", error.toException());
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        AppLog.e(TAG, "Failed to read users for migration.", error.toException());
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                AppLog.e(TAG, "Failed to check for legacy face data.", error.toException());
+            }
+        });
+    }
+
+    private void applyMigration(DataSnapshot legacy, Set<String> migratedUserIds) {
+        Map<String, MainModel> records = new LinkedHashMap<>();
+        for (DataSnapshot child : legacy.getChildren()) {
+            MainModel mainModel;
+            try {
+                mainModel = child.getValue(MainModel.class);
+            } catch (DatabaseException e) {
+                mainModel = null;
+            }
+            records.put(child.getKey(), mainModel);
+        }
+        FaceRecords.Migration migration = FaceRecords.migrate(records, migratedUserIds,
+                EMBEDDING_WIRE_PRECISION, ServerValue.TIMESTAMP, MIGRATION_BATCH_SIZE);
+        for (Map<String, Object> batch : migration.getBatches()) {
+            rootRef.updateChildren(batch)
+                    .addOnFailureListener(e -> AppLog.e(TAG, "Legacy face data migration batch failed: " + e.getMessage()));
+        }
+        AppLog.i(TAG, "Migrating legacy face data: " + migration.getMigrated() + " moved, "
+                + migration.getAlreadyMigrated() + " already migrated, " + migration.getInvalid() + " invalid.");
+    }
+
+    // Gallery thread: mirrors each published batch into the index and schedules a disk save
+    private void onGalleryChanged(GallerySnapshot snapshot, List<FaceData> upserted, List<String> removed) {
+        for (String userId : removed) {
+            faceIndex.remove(userId);
+        }
+        for (FaceData faceData : upserted) {
+            try {
+                faceIndex.add(faceData.getUserId(), faceData.getName(), faceData.getEmbedding());
+            } catch (IllegalArgumentException e) {
+                // Written by a kiosk running another model; it stays in the gallery but cannot be matched
+                faceIndex.remove(faceData.getUserId());
+                AppLog.w(TAG, "Not indexing userId " + faceData.getUserId() + ": " + e.getMessage());
+            }
+        }
+        gallerySnapshotDirty = true;
+        mainHandler.post(this::scheduleGallerySnapshotSave);
+        mainHandler.post(() -> {
+            if (directoryAdapter != null) directoryAdapter.setSnapshot(snapshot);
+        });
+        AppLog.d(TAG, "Gallery version " + snapshot.getVersion() + ": " + snapshot.size() + " users, "
+                + upserted.size() + " updated, " + removed.size() + " removed.");
+    }
+
+    private void loadGallerySnapshot() {
+        if (!galleryStore.exists()) {
+            AppLog.d(TAG, "No local gallery snapshot yet.");
+            return;
+        }
+        long start = System.nanoTime();
+        List<FaceData> entries;
+        try {
+            entries = galleryStore.load();
+        } catch (IOException e) {
+            AppLog.w(TAG, "Discarding unreadable gallery snapshot: " + e.getMessage());
+            galleryStore.getFile().delete();
+            return;
+        }
+        // Queued ahead of any Firebase update, so newer data is always applied on top
+        faceGallery.upsertAll(entries);
+        gallerySync.setCheckpoint(SyncEngine.checkpointOf(entries));
+        AppLog.d(TAG, "Loaded " + entries.size() + " users from local snapshot in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private void scheduleGallerySnapshotSave() {
+        mainHandler.removeCallbacks(saveGallerySnapshotRunnable);
+        mainHandler.postDelayed(saveGallerySnapshotRunnable, GALLERY_SNAPSHOT_SAVE_DELAY_MS);
+    }
+
+    private void saveGallerySnapshot() {
+        // onDestroy already queued the final save
+        if (galleryExecutor.isShutdown()) return;
+        gallerySnapshotDirty = false;
+        galleryExecutor.execute(this::writeGallerySnapshot);
+    }
+
+    // Gallery thread
+    private void writeGallerySnapshot() {
+        // Latest snapshot at write time; it is immutable, so no copy is needed
+        List<FaceData> entries = faceGallery.getSnapshot().getEntries();
+        try {
+            long start = System.nanoTime();
+            galleryStore.save(entries);
+            AppLog.d(TAG, "Saved gallery snapshot of " + entries.size() + " users in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to save gallery snapshot: " + e.getMessage());
+        }
+    }
+
+    private void exportMetrics() {
+        if (galleryExecutor.isShutdown()) return;
+        PipelineMetrics metrics = recognitionPipeline.getMetrics();
+        if (metrics.get(PipelineMetrics.Counter.FRAMES_SUBMITTED) == 0) return;
+        // Captured now so a camera restart cannot mix the next session into this snapshot
+        String json = metrics.toJson(Build.MANUFACTURER + " " + Build.MODEL + " (Android " + Build.VERSION.RELEASE + ")",
+                System.currentTimeMillis());
+        File directory = new File(getFilesDir(), METRICS_DIR);
+        File file = new File(directory, "metrics-" + metrics.getStartedAtMillis() + ".json");
+        galleryExecutor.execute(() -> {
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Unable to create " + directory);
+                }
+                PipelineMetrics.writeJson(file, json);
+                pruneMetricsFiles(directory);
+                AppLog.d(TAG, "Exported pipeline metrics to " + file);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to export pipeline metrics: " + e.getMessage());
+            }
+        });
+    }
+
+    private void dumpFrameEvents() {
+        final FrameEventRing ring = frameLog.getRing();
+        if (ring == null || ring.size() == 0) {
+            Toast.makeText(this, "No frame events recorded.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final File file = new File(new File(getFilesDir(), METRICS_DIR), "frame-events-" + System.currentTimeMillis() + ".bin");
+        galleryExecutor.execute(() -> {
+            String message;
+            try {
+                File directory = file.getParentFile();
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Unable to create " + directory);
+                }
+                FileOutputStream out = new FileOutputStream(file);
+                try {
+                    ring.dump(out);
+                } finally {
+                    out.close();
+                }
+                message = "Dumped " + ring.size() + " frame events to " + file.getName();
+                AppLog.i(TAG, message + " (" + ring.getWritten() + " recorded since start).");
+            } catch (IOException e) {
+                message = "Failed to dump frame events: " + e.getMessage();
+                AppLog.e(TAG, message);
             }
+            final String toast = message;
+            mainHandler.post(() -> Toast.makeText(this, toast, Toast.LENGTH_LONG).show());
         });
     }
 
+    private void pruneMetricsFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("metrics-") && name.endsWith(".json"));
+        if (files == null || files.length <= METRICS_FILES_KEPT) return;
+        // Names embed the session start time, so the oldest sessions sort first
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - METRICS_FILES_KEPT; i++) {
+            files[i].delete();
+        }
+    }
+
     private void startLocationUpdates() {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 != PackageManager.PERMISSION_GRANTED) {
             requestLocationPermission();
         } else {
+            SiteLocation.Mode mode = siteLocation.getMode();
             LocationRequest locationRequest = LocationRequest.create();
-            locationRequest.setInterval(10000); // 10 seconds
-            locationRequest.setFastestInterval(1000); // 1 second
-            locationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+            if (mode == SiteLocation.Mode.ACQUIRING) {
+                locationRequest.setInterval(SITE_ACQUIRE_INTERVAL_MS);
+                locationRequest.setFastestInterval(SITE_ACQUIRE_INTERVAL_MS);
+                locationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+                // A recent fix the system already has may settle the check without waiting
+                fusedLocationClient.getLastLocation().addOnSuccessListener(location -> {
+                    if (location != null && SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()
+                            < SITE_ACQUIRE_TIMEOUT_MS * 1_000_000L) {
+                        onLocation(location);
+                    }
+                });
+            } else {
+                // Also takes fixes other apps request, at no cost of its own
+                locationRequest.setInterval(LOW_POWER_LOCATION_INTERVAL_MS);
+                locationRequest.setFastestInterval(SITE_ACQUIRE_INTERVAL_MS);
+                locationRequest.setPriority(LocationRequest.PRIORITY_LOW_POWER);
+            }
 
             fusedLocationClient.requestLocationUpdates(locationRequest,
                     locationCallback,
                     Looper.getMainLooper());
-            Log.d(TAG, "Started location updates.");
+            AppLog.d(TAG, "Started location updates: " + mode);
         }
     }
 
+    // Main thread
+    private void onLocation(Location location) {
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+        if (!siteLocation.onLocation(location.getLatitude(), location.getLongitude(), accuracy,
+                SystemClock.elapsedRealtime())) {
+            return;
+        }
+        SiteLocation.Fix fix = siteLocation.getFix();
+        if (siteLocation.getMode() == SiteLocation.Mode.LOW_POWER) {
+            AppLog.i(TAG, "Site location settled: " + fix.getOverlayLine() + ", accuracy " + fix.getAccuracyMeters() + " m.");
+        } else {
+            AppLog.i(TAG, "Kiosk moved; checking the site location again.");
+        }
+        // Switch the request to the new mode
+        fusedLocationClient.removeLocationUpdates(locationCallback);
+        startLocationUpdates();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode,
                                            @NonNull String[] permissions,
@@ -627,117 +1517,155 @@ public class MainActivity extends CameraActivity {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 initFaceDetectionAndRecognition();
                 mOpenCvCameraView.enableView();
-                Log.d(TAG, "Camera permission granted.");
+                AppLog.d(TAG, "Camera permission granted.");
             } else {
                 Toast.makeText(this, "Camera permission is required for face detection.", Toast.LENGTH_LONG).show();
-                Log.e(TAG, "Camera permission denied.");
+                AppLog.e(TAG, "Camera permission denied.");
                 finish();
             }
         } else if (requestCode == LOCATION_PERMISSION_REQUEST_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 startLocationUpdates();
-                Log.d(TAG, "Location permission granted.");
+                AppLog.d(TAG, "Location permission granted.");
             } else {
                 Toast.makeText(this, "Location permission is required to display GPS coordinates.", Toast.LENGTH_LONG).show();
-                Log.e(TAG, "Location permission denied.");
+                AppLog.e(TAG, "Location permission denied.");
             }
         }
     }
 
     private void displayRegisteredFaces() {
-        if (faceDataList.isEmpty()) {
+        GallerySnapshot snapshot = faceGallery.getSnapshot();
+        if (snapshot.isEmpty()) {
             Toast.makeText(this, "No faces registered.", Toast.LENGTH_SHORT).show();
-            Log.d(TAG, "No faces registered to display.");
+            AppLog.d(TAG, "No faces registered to display.");
             return;
         }
 
-        // Use a ListView to display the faces
-        ListView listView = new ListView(this);
-
-        // Prepare data for the adapter
-        List<String> names = new ArrayList<>();
-        for (FaceData faceData : faceDataList) {
-            names.add(faceData.getName() + " (ID: " + faceData.getUserId() + ")");
-        }
+        // Search box over a paged list of names and IDs; embeddings are only read when a user is opened
+        final UserDirectoryAdapter adapter = new UserDirectoryAdapter(galleryExecutor, this::showRegisteredFace);
+        final EditText searchInput = new EditText(this);
+        searchInput.setHint("Search by name or ID");
+        searchInput.setSingleLine(true);
+        final Runnable search = () -> adapter.setQuery(searchInput.getText().toString());
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+            }
 
-        // Create an ArrayAdapter
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, names);
-        listView.setAdapter(adapter);
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {
+            }
 
-        // Set item click listener to show embeddings and delete option
-        listView.setOnItemClickListener((parent, view, position, id) -> {
-            FaceData selectedFace = faceDataList.get(position);
-            Log.d(TAG, "Selected FaceData: " + selectedFace.getName() + " with userId: " + selectedFace.getUserId());
+            @Override
+            public void afterTextChanged(Editable text) {
+                mainHandler.removeCallbacks(search);
+                mainHandler.postDelayed(search, DIRECTORY_SEARCH_DELAY_MS);
+            }
+        });
 
-            // Show embedding details
-            AlertDialog.Builder embeddingDialog = new AlertDialog.Builder(this);
-            embeddingDialog.setTitle("Embedding for " + selectedFace.getName());
+        RecyclerView recyclerView = new RecyclerView(this);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("[");
-            for (int i = 0; i < selectedFace.getEmbedding().length; i++) {
-                sb.append(String.format("%.4f", selectedFace.getEmbedding()[i]));
-                if (i < selectedFace.getEmbedding().length - 1) {
-                    sb.append(", ");
-                }
-            }
-            sb.append("]");
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(searchInput, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+        // Fixed height so the dialog does not resize as results come and go
+        layout.addView(recyclerView, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, getResources().getDisplayMetrics().heightPixels * 3 / 5));
 
-            String embeddingString = sb.toString();
+        directoryAdapter = adapter;
+        adapter.setSnapshot(snapshot);
 
-            embeddingDialog.setMessage(embeddingString);
+        // Display the list in a dialog
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Registered Faces (" + snapshot.size() + ")");
+        builder.setView(layout);
+        builder.setNegativeButton("Close", (dialog, which) -> dialog.dismiss());
+        builder.setOnDismissListener(dialog -> {
+            mainHandler.removeCallbacks(search);
+            if (directoryAdapter == adapter) directoryAdapter = null;
+        });
+        builder.show();
+        AppLog.d(TAG, "Displayed registered faces.");
+    }
 
-            // Add buttons
-            embeddingDialog.setNeutralButton("Copy Embedding", (dialogInterface, i) -> {
-                ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-                ClipData clip = ClipData.newPlainText("", embeddingString);
-                clipboard.setPrimaryClip(clip);
-                Toast.makeText(this, "Embedding copied to clipboard.", Toast.LENGTH_SHORT).show();
-                Log.d(TAG, "Embedding copied to clipboard for user: " + selectedFace.getName());
+    private void showRegisteredFace(UserDirectory.Entry entry) {
+        // The row may be older than the gallery, so look the user up again
+        final FaceData selectedFace = faceGallery.getSnapshot().get(entry.getUserId());
+        if (selectedFace == null) {
+            Toast.makeText(this, "\"" + entry.getName() + "\" is no longer registered.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        AppLog.d(TAG, "Selected FaceData: " + selectedFace.getName() + " with userId: " + selectedFace.getUserId());
+
+        AlertDialog.Builder detailsDialog = new AlertDialog.Builder(this);
+        detailsDialog.setTitle(selectedFace.getName());
+        detailsDialog.setMessage("ID: " + selectedFace.getUserId()
+                + "\nTemplates: " + selectedFace.getTemplateCount()
+                + "\nEmbedding: " + selectedFace.getEmbedding().length + " values");
+
+        // Add buttons
+        detailsDialog.setNeutralButton("Show Embedding", (dialogInterface, i) -> showEmbedding(selectedFace));
+
+        detailsDialog.setPositiveButton("Delete User", (dialogInterface, i) -> {
+            // Confirm deletion
+            AlertDialog.Builder confirmDialog = new AlertDialog.Builder(this);
+            confirmDialog.setTitle("Delete User");
+            confirmDialog.setMessage("Are you sure you want to delete \"" + selectedFace.getName() + "\"?");
+            confirmDialog.setPositiveButton("Yes", (dialog, which) -> {
+                deleteUser(selectedFace);
             });
+            confirmDialog.setNegativeButton("No", (dialog, which) -> dialog.cancel());
+            confirmDialog.show();
+        });
 
-            embeddingDialog.setPositiveButton("Delete User", (dialogInterface, i) -> {
-                // Confirm deletion
-                AlertDialog.Builder confirmDialog = new AlertDialog.Builder(this);
-                confirmDialog.setTitle("Delete User");
-                confirmDialog.setMessage("Are you sure you want to delete \"" + selectedFace.getName() + "\"?");
-                confirmDialog.setPositiveButton("Yes", (dialog, which) -> {
-                    deleteUser(selectedFace);
-                });
-                confirmDialog.setNegativeButton("No", (dialog, which) -> dialog.cancel());
-                confirmDialog.show();
-            });
+        detailsDialog.setNegativeButton("Close", (dialog, which) -> dialog.dismiss());
 
-            embeddingDialog.setNegativeButton("Close", (dialog, which) -> dialog.dismiss());
+        detailsDialog.show();
+    }
 
-            embeddingDialog.show();
+    // Formats the components on the gallery thread, only when asked to
+    private void showEmbedding(FaceData faceData) {
+        final float[] embedding = faceData.getEmbedding();
+        galleryExecutor.execute(() -> {
+            final String embeddingString = UserDirectory.formatEmbedding(embedding);
+            mainHandler.post(() -> {
+                if (isFinishing()) return;
+                AlertDialog.Builder embeddingDialog = new AlertDialog.Builder(this);
+                embeddingDialog.setTitle("Embedding for " + faceData.getName());
+                embeddingDialog.setMessage(embeddingString);
+                embeddingDialog.setNeutralButton("Copy Embedding", (dialogInterface, i) -> {
+                    ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+                    ClipData clip = ClipData.newPlainText("", embeddingString);
+                    clipboard.setPrimaryClip(clip);
+                    Toast.makeText(this, "Embedding copied to clipboard.", Toast.LENGTH_SHORT).show();
+                    AppLog.d(TAG, "Embedding copied to clipboard for user: " + faceData.getName());
+                });
+                embeddingDialog.setNegativeButton("Close", (dialog, which) -> dialog.dismiss());
+                embeddingDialog.show();
+            });
         });
-
-        // Display the ListView in a dialog
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        builder.setTitle("Registered Faces");
-        builder.setView(listView);
-        builder.setNegativeButton("Close", (dialog, which) -> dialog.dismiss());
-        builder.show();
-        Log.d(TAG, "Displayed registered faces.");
     }
 
     private void deleteUser(FaceData faceData) {
         String userId = faceData.getUserId();
         if (userId != null && !userId.isEmpty()) {
-            Log.d(TAG, "Attempting to delete user: " + faceData.getName() + " with userId: " + userId);
-            faceDataRef.child(userId).removeValue()
+            AppLog.d(TAG, "Attempting to delete user: " + faceData.getName() + " with userId: " + userId);
+            rootRef.updateChildren(FaceRecords.deleteUpdates(userId, ServerValue.TIMESTAMP))
                     .addOnSuccessListener(aVoid -> {
                         Toast.makeText(this, "User \"" + faceData.getName() + "\" deleted.", Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Successfully deleted user: " + faceData.getName() + " with userId: " + userId);
+                        AppLog.d(TAG, "Successfully deleted user: " + faceData.getName() + " with userId: " + userId);
                     })
                     .addOnFailureListener(e -> {
                         Toast.makeText(this, "Failed to delete user: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                        Log.e(TAG, "Failed to delete user: " + faceData.getName() + " with userId: " + userId, e);
+                        AppLog.e(TAG, "Failed to delete user: " + faceData.getName() + " with userId: " + userId, e);
                     });
         } else {
             Toast.makeText(this, "Invalid user ID. Cannot delete user.", Toast.LENGTH_LONG).show();
-            Log.e(TAG, "Cannot delete user. userId is null or empty for user: " + faceData.getName());
+            AppLog.e(TAG, "Cannot delete user. userId is null or empty for user: " + faceData.getName());
         }
     }
 }
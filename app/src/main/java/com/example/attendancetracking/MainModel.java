@@ -4,7 +4,13 @@ import java.util.List;
 
 public class MainModel {
     private String name;
+    // Legacy form, still read for records written before embeddingData existed
     private List<Float> embedding;
+    // EmbeddingCodec string: versioned header plus Base64 of the packed vector
+    private String embeddingData;
+    // EmbeddingCodec template set, only for users with more than one template; embeddingData
+    // then holds their centroid, which is all that older app versions read
+    private String templateData;
 
     // Constructor trống cho Firebase
     public MainModel() {
@@ -16,6 +22,11 @@ public class MainModel {
         this.embedding = embedding;
     }
 
+    public MainModel(String name, String embeddingData) {
+        this.name = name;
+        this.embeddingData = embeddingData;
+    }
+
     // Getter và Setter cho name
     public String getName() {
         return name;
@@ -33,4 +44,52 @@ public class MainModel {
     public void setEmbedding(List<Float> embedding) {
         this.embedding = embedding;
     }
+
+    // Getter và Setter cho embeddingData
+    public String getEmbeddingData() {
+        return embeddingData;
+    }
+
+    public void setEmbeddingData(String embeddingData) {
+        this.embeddingData = embeddingData;
+    }
+
+    // Getter và Setter cho templateData
+    public String getTemplateData() {
+        return templateData;
+    }
+
+    public void setTemplateData(String templateData) {
+        this.templateData = templateData;
+    }
+
+    /**
+     * FaceData for the record stored under userId, with every template when it carries
+     * templateData; null if it has no embedding. Throws IllegalArgumentException if the data
+     * is malformed.
+     */
+    public FaceData toFaceData(String userId) {
+        if (templateData != null) {
+            EmbeddingCodec.TemplateSet set = EmbeddingCodec.decodeTemplates(templateData);
+            return new FaceData(userId, name, set.templates, set.capturedAt);
+        }
+        float[] embedding = toEmbeddingArray();
+        return embedding != null ? new FaceData(userId, name, embedding) : null;
+    }
+
+    /**
+     * Embedding from whichever form the record carries, preferring the compact one; null if it
+     * has neither. Throws IllegalArgumentException if embeddingData is malformed.
+     */
+    public float[] toEmbeddingArray() {
+        if (embeddingData != null) {
+            return EmbeddingCodec.decode(embeddingData);
+        }
+        return embedding != null ? EmbeddingCodec.fromList(embedding) : null;
+    }
+
+    /** True for records that only carry the legacy List<Float> form. */
+    public boolean usesLegacyEmbedding() {
+        return embeddingData == null && embedding != null;
+    }
 }
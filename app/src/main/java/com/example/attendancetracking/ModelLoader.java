@@ -0,0 +1,379 @@
+package com.example.attendancetracking;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the bundled models to files the native code can open and initializes every network in
+ * parallel on the given executor, off the UI thread. Once all are initialized they are warmed up
+ * one after another, in list order, so no warm-up inference overlaps another network's setup.
+ *
+ * Each cached copy has a sidecar file recording its SHA-256, size and the source key (e.g. the
+ * APK install time) it was copied under. A copy is reused only if the key still matches and the
+ * file still hashes to the recorded digest, so a truncated copy or one left by an older APK is
+ * replaced instead of being handed to the native loader. Copies go to a temporary file through
+ * a large direct buffer, hashed on the way, and are renamed into place before the sidecar is
+ * written; a crash at any point leaves at worst a copy without a sidecar, which is redone.
+ */
+public class ModelLoader {
+
+    private static final int COPY_BUFFER_BYTES = 256 * 1024;
+    private static final String SIDECAR_SUFFIX = ".sha256";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public enum State {IDLE, LOADING, READY, FAILED}
+
+    /** Opens the bundled model, e.g. from the APK assets. */
+    public interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    /** Loads the network from the cached file; runs on a loader thread. */
+    public interface Initializer {
+        void initialize(String path) throws Exception;
+    }
+
+    /** One inference on a dummy input so the first real frame does not pay for lazy setup. */
+    public interface WarmUp {
+        void run() throws Exception;
+    }
+
+    public interface Listener {
+        /** Called once on a loader thread when every model has finished, successfully or not. */
+        void onFinished(Report report);
+    }
+
+    public static final class Model {
+        final String fileName;
+        final Opener opener;
+        final Initializer initializer;
+        final WarmUp warmUp;
+
+        public Model(String fileName, Opener opener, Initializer initializer, WarmUp warmUp) {
+            this.fileName = fileName;
+            this.opener = opener;
+            this.initializer = initializer;
+            this.warmUp = warmUp;
+        }
+    }
+
+    /** Timings of one model, in milliseconds. */
+    public static final class ModelReport {
+        private final String fileName;
+        private boolean cacheHit;
+        private long verifyMs;
+        private long copyMs;
+        private long initMs;
+        private long warmUpMs;
+        private Throwable error;
+
+        ModelReport(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+
+        public long getVerifyMs() {
+            return verifyMs;
+        }
+
+        public long getCopyMs() {
+            return copyMs;
+        }
+
+        public long getInitMs() {
+            return initMs;
+        }
+
+        public long getWarmUpMs() {
+            return warmUpMs;
+        }
+
+        /** Why the model could not be loaded, or null if it was. A failed warm-up is not fatal. */
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %s, verify %d ms, copy %d ms, init %d ms, warm-up %d ms%s",
+                    fileName, cacheHit ? "cached" : "copied", verifyMs, copyMs, initMs, warmUpMs,
+                    error != null ? ", failed: " + error : "");
+        }
+    }
+
+    public static final class Report {
+        private final List<ModelReport> models;
+        private final long elapsedMs;
+
+        Report(List<ModelReport> models, long elapsedMs) {
+            this.models = Collections.unmodifiableList(models);
+            this.elapsedMs = elapsedMs;
+        }
+
+        public List<ModelReport> getModels() {
+            return models;
+        }
+
+        /** Wall time from load() to the last model finishing. */
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public boolean isSuccessful() {
+            for (ModelReport model : models) {
+                if (model.error != null) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Models ").append(isSuccessful() ? "ready" : "failed").append(" in ").append(elapsedMs).append(" ms");
+            for (ModelReport model : models) {
+                sb.append("; ").append(model);
+            }
+            return sb.toString();
+        }
+    }
+
+    private final File cacheDir;
+    private final String sourceKey;
+    private final Executor executor;
+    private volatile State state = State.IDLE;
+
+    /** sourceKey changes whenever the bundled models may have, e.g. the APK install time. */
+    public ModelLoader(File cacheDir, String sourceKey, Executor executor) {
+        this.cacheDir = cacheDir;
+        this.sourceKey = sourceKey;
+        this.executor = executor;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * Starts loading the models in parallel and returns immediately; the last one to be
+     * initialized then runs every warm-up on its thread. Ignored while loading or
+     * once ready, so it can be called from every path that needs the models; retried after a
+     * failure.
+     */
+    public synchronized boolean load(final List<Model> models, final Listener listener) {
+        if (state == State.LOADING || state == State.READY) return false;
+        state = State.LOADING;
+        final long start = System.nanoTime();
+        final List<ModelReport> reports = new ArrayList<>(models.size());
+        for (Model model : models) {
+            reports.add(new ModelReport(model.fileName));
+        }
+        final AtomicInteger remaining = new AtomicInteger(models.size());
+        for (int i = 0; i < models.size(); i++) {
+            final Model model = models.get(i);
+            final ModelReport report = reports.get(i);
+            executor.execute(() -> {
+                initialize(model, report);
+                if (remaining.decrementAndGet() == 0) {
+                    for (int j = 0; j < models.size(); j++) {
+                        warmUp(models.get(j), reports.get(j));
+                    }
+                    Report result = new Report(reports, (System.nanoTime() - start) / 1_000_000L);
+                    state = result.isSuccessful() ? State.READY : State.FAILED;
+                    if (listener != null) listener.onFinished(result);
+                }
+            });
+        }
+        return true;
+    }
+
+    private void initialize(Model model, ModelReport report) {
+        try {
+            File file = ensureCached(model.fileName, model.opener, report);
+            long start = System.nanoTime();
+            model.initializer.initialize(file.getAbsolutePath());
+            report.initMs = (System.nanoTime() - start) / 1_000_000L;
+        } catch (Exception | LinkageError e) {
+            report.error = e;
+        }
+    }
+
+    private void warmUp(Model model, ModelReport report) {
+        if (model.warmUp != null && report.error == null) {
+            long start = System.nanoTime();
+            try {
+                model.warmUp.run();
+            } catch (Exception | LinkageError e) {
+                // The network is loaded; the first real frame just pays for the setup instead
+            }
+            report.warmUpMs = (System.nanoTime() - start) / 1_000_000L;
+        }
+    }
+
+    /**
+     * The verified cached copy of fileName, copying it from opener if needed. For files needed
+     * outside load(), e.g. by a backend created later; blocks, so call it off the UI thread.
+     */
+    public File cache(String fileName, Opener opener) throws IOException {
+        return ensureCached(fileName, opener, new ModelReport(fileName));
+    }
+
+    /** The verified cached copy of fileName, copying it from opener if needed. */
+    File ensureCached(String fileName, Opener opener, ModelReport report) throws IOException {
+        File file = new File(cacheDir, fileName);
+        File sidecar = new File(cacheDir, fileName + SIDECAR_SUFFIX);
+        long start = System.nanoTime();
+        boolean valid = isValid(file, sidecar);
+        report.verifyMs = (System.nanoTime() - start) / 1_000_000L;
+        if (valid) {
+            report.cacheHit = true;
+            return file;
+        }
+
+        start = System.nanoTime();
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Unable to create " + cacheDir);
+        }
+        sidecar.delete();
+        File temp = new File(cacheDir, fileName + ".tmp");
+        String digest;
+        long size;
+        InputStream in = opener.open();
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                MessageDigest sha256 = sha256();
+                ReadableByteChannel source = Channels.newChannel(in);
+                FileChannel target = out.getChannel();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_BYTES);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    sha256.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                target.force(true);
+                size = target.size();
+                digest = toHex(sha256.digest());
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace cached model " + file);
+        }
+        writeSidecar(sidecar, digest + " " + size + " " + sourceKey);
+        report.copyMs = (System.nanoTime() - start) / 1_000_000L;
+        return file;
+    }
+
+    private boolean isValid(File file, File sidecar) throws IOException {
+        if (!file.isFile() || !sidecar.isFile()) return false;
+        String[] fields = readSidecar(sidecar).trim().split(" ", 3);
+        if (fields.length != 3 || !fields[2].equals(sourceKey)) return false;
+        try {
+            if (Long.parseLong(fields[1]) != file.length()) return false;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return fields[0].equals(hash(file));
+    }
+
+    /** SHA-256 of file as lowercase hex. */
+    static String hash(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            MessageDigest sha256 = sha256();
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Integer.MAX_VALUE, size - position));
+                sha256.update(mapped);
+            }
+            return toHex(sha256.digest());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeSidecar(File sidecar, String content) throws IOException {
+        File temp = new File(sidecar.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(content.getBytes(UTF_8));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(sidecar)) {
+            temp.delete();
+            throw new IOException("Unable to write " + sidecar);
+        }
+    }
+
+    private static String readSidecar(File sidecar) throws IOException {
+        byte[] bytes = new byte[(int) Math.min(sidecar.length(), 1024)];
+        FileInputStream in = new FileInputStream(sidecar);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            return new String(bytes, 0, read, UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.attendancetracking;
+
+import java.util.Locale;
+
+/** Status lines drawn over the camera preview. */
+public final class OverlayText {
+
+    public static final String LOCATION_UNAVAILABLE = "Location unavailable";
+    public static final String UNKNOWN_FACE = "Unknown";
+    public static final String LOADING_MODELS = "Loading face models...";
+    public static final String MODELS_FAILED = "Face models failed to load";
+
+    private OverlayText() {
+    }
+
+    public static String preview(float previewFps) {
+        return "Preview: " + Math.round(previewFps) + " FPS";
+    }
+
+    public static String recognition(float latencyMs, float facesPerSecond) {
+        return "Recognition: " + Math.round(latencyMs) + " ms, " + Math.round(facesPerSecond) + " faces/s";
+    }
+
+    public static String location(double latitude, double longitude) {
+        return String.format(Locale.US, "Lat: %.5f, Lon: %.5f", latitude, longitude);
+    }
+
+    /** Location line with the site geofence result, when there is one. */
+    public static String location(double latitude, double longitude, Boolean onSite) {
+        if (onSite == null) return location(latitude, longitude);
+        return location(latitude, longitude) + (onSite ? " (on site)" : " (off site)");
+    }
+
+    /** 95th percentile stage latencies of the last metrics window. */
+    public static String stages(float detectMs, float embedMs, float matchMs) {
+        return "p95 detect " + Math.round(detectMs) + " / embed " + Math.round(embedMs)
+                + " / match " + Math.round(matchMs) + " ms";
+    }
+
+    /**
+     * Per-view cache for the preview thread: each line is rebuilt only when the value it shows
+     * changes, so a steady overlay costs no string building or formatting per frame. The
+     * location line comes with its SiteLocation.Fix instead.
+     */
+    public static final class Cache {
+        private int previewFps = -1;
+        private String previewLine;
+        private int latencyMs = -1;
+        private int facesPerSecond = -1;
+        private String recognitionLine;
+        private int detectMs = -1;
+        private int embedMs = -1;
+        private int matchMs = -1;
+        private String stagesLine;
+
+        public String preview(float fps) {
+            int rounded = Math.round(fps);
+            if (previewLine == null || rounded != previewFps) {
+                previewFps = rounded;
+                previewLine = OverlayText.preview(fps);
+            }
+            return previewLine;
+        }
+
+        public String recognition(float latency, float faceRate) {
+            int roundedLatency = Math.round(latency);
+            int roundedRate = Math.round(faceRate);
+            if (recognitionLine == null || roundedLatency != latencyMs || roundedRate != facesPerSecond) {
+                latencyMs = roundedLatency;
+                facesPerSecond = roundedRate;
+                recognitionLine = OverlayText.recognition(latency, faceRate);
+            }
+            return recognitionLine;
+        }
+
+        public String stages(float detect, float embed, float match) {
+            int roundedDetect = Math.round(detect);
+            int roundedEmbed = Math.round(embed);
+            int roundedMatch = Math.round(match);
+            if (stagesLine == null || roundedDetect != detectMs || roundedEmbed != embedMs || roundedMatch != matchMs) {
+                detectMs = roundedDetect;
+                embedMs = roundedEmbed;
+                matchMs = roundedMatch;
+                stagesLine = OverlayText.stages(detect, embed, match);
+            }
+            return stagesLine;
+        }
+    }
+}
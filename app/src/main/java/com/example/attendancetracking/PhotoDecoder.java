@@ -0,0 +1,210 @@
+package com.example.attendancetracking;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes enrolment photos into upright RGBA Mats at the resolution the detector needs, instead
+ * of decoding at full resolution and copying the bitmap. A 48 MP photo used to take a 192 MB
+ * bitmap, a second one for the ARGB_8888 copy and a third as the Mat; here it is read in three
+ * passes over the source (bounds, EXIF orientation, sampled pixels) and never exceeds twice the
+ * size of the sampled image.
+ *
+ * The caller owns the returned Mat and must release it. Thread-safe; bulk enrolment workers
+ * share one instance.
+ */
+public class PhotoDecoder {
+
+    /** Longer side the detector is given; faces in enrolment photos stay well above its minimum. */
+    public static final int DEFAULT_MAX_SIDE = 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** Opens the photo from the start; called once per pass. */
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * What one decode will do, worked out from the image bounds and EXIF orientation before any
+     * pixels are read. Orientation is applied as an optional horizontal mirror followed by a
+     * clockwise rotation.
+     */
+    static final class Plan {
+        final int sampleSize;
+        /** Size of the sampled bitmap, before orientation is applied. */
+        final int decodedWidth;
+        final int decodedHeight;
+        final boolean mirror;
+        final int rotationDegrees;
+
+        Plan(int sampleSize, int decodedWidth, int decodedHeight, boolean mirror, int rotationDegrees) {
+            this.sampleSize = sampleSize;
+            this.decodedWidth = decodedWidth;
+            this.decodedHeight = decodedHeight;
+            this.mirror = mirror;
+            this.rotationDegrees = rotationDegrees;
+        }
+
+        int getOutputWidth() {
+            return rotationDegrees % 180 == 0 ? decodedWidth : decodedHeight;
+        }
+
+        int getOutputHeight() {
+            return rotationDegrees % 180 == 0 ? decodedHeight : decodedWidth;
+        }
+
+        /**
+         * Most memory held at once: the bitmap and its Mat copy during conversion, or the Mat
+         * and its rotated copy for a quarter turn. Mirroring and half turns flip in place.
+         */
+        long getPeakBytes() {
+            return 2L * decodedWidth * decodedHeight * BYTES_PER_PIXEL;
+        }
+    }
+
+    private final int maxSide;
+    private final AtomicLong peakBytes = new AtomicLong();
+
+    public PhotoDecoder() {
+        this(DEFAULT_MAX_SIDE);
+    }
+
+    public PhotoDecoder(int maxSide) {
+        this.maxSide = maxSide;
+    }
+
+    /** Upright RGBA Mat of the photo, with its longer side between maxSide and 2 * maxSide. */
+    public Mat decode(Source source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream in = source.open();
+        try {
+            BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not a decodable image");
+        }
+        Plan plan = plan(options.outWidth, options.outHeight, readOrientation(source), maxSide);
+
+        options = new BitmapFactory.Options();
+        options.inSampleSize = plan.sampleSize;
+        // The config bitmapToMat needs, so no converted copy is made afterwards
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        in = source.open();
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+        if (bitmap == null) {
+            throw new IOException("Unable to decode bitmap");
+        }
+
+        Mat rgba = new Mat();
+        long bitmapBytes = bitmap.getAllocationByteCount();
+        try {
+            Utils.bitmapToMat(bitmap, rgba);
+        } catch (RuntimeException e) {
+            rgba.release();
+            throw e;
+        } finally {
+            bitmap.recycle();
+        }
+        long matBytes = rgba.total() * rgba.elemSize();
+        long peak = bitmapBytes + matBytes;
+        try {
+            if (plan.mirror) {
+                Core.flip(rgba, rgba, 1);
+            }
+            if (plan.rotationDegrees == 180) {
+                Core.flip(rgba, rgba, -1);
+            } else if (plan.rotationDegrees != 0) {
+                Mat rotated = new Mat();
+                Core.rotate(rgba, rotated, plan.rotationDegrees == 90
+                        ? Core.ROTATE_90_CLOCKWISE : Core.ROTATE_90_COUNTERCLOCKWISE);
+                rgba.release();
+                rgba = rotated;
+                peak = Math.max(peak, 2 * matBytes);
+            }
+        } catch (RuntimeException e) {
+            rgba.release();
+            throw e;
+        }
+        peakBytes.accumulateAndGet(peak, Math::max);
+        return rgba;
+    }
+
+    /** Largest bytes held by a single decode so far, measured from the actual allocations. */
+    public long getPeakBytes() {
+        return peakBytes.get();
+    }
+
+    /** Upper bound of getPeakBytes for this decoder whatever the photo size. */
+    public long getMaxPeakBytes() {
+        return maxPeakBytes(maxSide);
+    }
+
+    private static int readOrientation(Source source) {
+        try {
+            InputStream in = source.open();
+            try {
+                return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                        ExifInterface.ORIENTATION_NORMAL);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // No readable EXIF, e.g. a PNG: decode as stored
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    static Plan plan(int width, int height, int exifOrientation, int maxSide) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Empty image " + width + "x" + height);
+        int sampleSize = sampleSizeFor(width, height, maxSide);
+        // Decoders round sampled sizes up
+        int decodedWidth = (width + sampleSize - 1) / sampleSize;
+        int decodedHeight = (height + sampleSize - 1) / sampleSize;
+        boolean mirror;
+        int rotation;
+        switch (exifOrientation) {
+            case 2: mirror = true; rotation = 0; break;     // FLIP_HORIZONTAL
+            case 3: mirror = false; rotation = 180; break;  // ROTATE_180
+            case 4: mirror = true; rotation = 180; break;   // FLIP_VERTICAL
+            case 5: mirror = true; rotation = 270; break;   // TRANSPOSE
+            case 6: mirror = false; rotation = 90; break;   // ROTATE_90
+            case 7: mirror = true; rotation = 90; break;    // TRANSVERSE
+            case 8: mirror = false; rotation = 270; break;  // ROTATE_270
+            default: mirror = false; rotation = 0; break;
+        }
+        return new Plan(sampleSize, decodedWidth, decodedHeight, mirror, rotation);
+    }
+
+    /** Largest power of two that keeps the longer side at or above maxSide. */
+    static int sampleSizeFor(int width, int height, int maxSide) {
+        int longerSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longerSide / (sampleSize * 2) >= maxSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /** Worst case: a square image just under twice maxSide on each side, held twice. */
+    static long maxPeakBytes(int maxSide) {
+        long side = 2L * maxSide;
+        return 2L * side * side * BYTES_PER_PIXEL;
+    }
+}
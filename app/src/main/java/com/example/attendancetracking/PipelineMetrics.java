@@ -0,0 +1,307 @@
+package com.example.attendancetracking;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-stage latency histograms, frame rates and counters of the recognition pipeline.
+ *
+ * Each stage keeps a histogram since the pipeline started and rolling windows of
+ * windowMillis; the rolling percentiles are those of the last completed window, like RateMeter.
+ * Recording never blocks and only allocates a small summary once per window, so it runs on
+ * every frame from the camera and stage threads. toJson() exports everything so runs on
+ * different devices and sites can be compared stage by stage.
+ */
+public class PipelineMetrics {
+
+    /** Rolling percentile window; long enough to hold a few hundred recognitions. */
+    public static final long DEFAULT_WINDOW_MILLIS = 10_000L;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public enum Stage {
+        /** Face detection on the full frame. */
+        DETECT,
+        /** Batched embedding extraction; only frames where a track needed the recognizer. */
+        EMBED,
+        /** Gallery search; only frames that produced embeddings. */
+        MATCH,
+        /** Drawing the latest annotation and status lines on the camera thread. */
+        OVERLAY,
+        /** Frame capture to published annotation. */
+        TOTAL
+    }
+
+    public enum Counter {
+        /** Camera frames handed to the pipeline, including skipped ones. */
+        FRAMES_SUBMITTED,
+        /** Frames the adaptive controller kept out of the pipeline to match its throughput. */
+        FRAMES_SKIPPED,
+        FRAMES_COMPLETED,
+        /** Frames evicted by a newer one, refused for lack of a pooled frame, or failed. */
+        FRAMES_DROPPED,
+        FACES_DETECTED,
+        EMBEDDINGS_EXTRACTED,
+        /** Faces whose identity was taken from their track instead of the recognizer. */
+        EMBEDDINGS_SKIPPED,
+        MATCHES,
+        /** Embedded faces that matched nobody, including faces the recognizer could not embed. */
+        UNKNOWNS
+    }
+
+    /** Startup events, each recorded once per process in ms since the process started. */
+    public enum Milestone {
+        /** Every network loaded and warmed up. */
+        MODELS_READY,
+        /** First camera frame handed to the pipeline. */
+        FIRST_FRAME,
+        /** First face matched to an enrolled user. */
+        FIRST_RECOGNITION
+    }
+
+    private final long windowNanos;
+    private final StageTimer[] timers = new StageTimer[Stage.values().length];
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final AtomicLongArray milestones = new AtomicLongArray(Milestone.values().length);
+    private final RateMeter previewRate = new RateMeter(1000);
+    private final RateMeter recognitionRate = new RateMeter(1000);
+    private final RateMeter faceRate = new RateMeter(1000);
+    private volatile long startedAtMillis = System.currentTimeMillis();
+
+    public PipelineMetrics() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public PipelineMetrics(long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new StageTimer();
+        }
+        for (int i = 0; i < milestones.length(); i++) {
+            milestones.set(i, -1);
+        }
+    }
+
+    /** Records that stage took durationNanos, finishing at nowNanos (System.nanoTime()). */
+    public void record(Stage stage, long durationNanos, long nowNanos) {
+        timers[stage.ordinal()].record(durationNanos, nowNanos, windowNanos);
+    }
+
+    public void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /** Records the milestone unless it already happened; returns whether this call recorded it. */
+    public boolean markMilestone(Milestone milestone, long sinceProcessStartMillis) {
+        return milestones.compareAndSet(milestone.ordinal(), -1, sinceProcessStartMillis);
+    }
+
+    /** Ms since process start when the milestone happened, or -1 if it has not yet. */
+    public long getMilestone(Milestone milestone) {
+        return milestones.get(milestone.ordinal());
+    }
+
+    /** Camera thread only. */
+    public void markPreviewFrame(long nowNanos) {
+        previewRate.mark(nowNanos);
+    }
+
+    /** Match stage thread only. */
+    public void markRecognition(long nowNanos, int faces) {
+        recognitionRate.mark(nowNanos);
+        faceRate.mark(nowNanos, faces);
+    }
+
+    public float getPreviewFps() {
+        return previewRate.getRate();
+    }
+
+    public float getRecognitionFps() {
+        return recognitionRate.getRate();
+    }
+
+    public float getFaceRate() {
+        return faceRate.getRate();
+    }
+
+    /** Percentiles of the last completed window, or an empty snapshot before the first one. */
+    public LatencyHistogram.Snapshot getWindow(Stage stage) {
+        return timers[stage.ordinal()].completedWindow;
+    }
+
+    /** Percentiles since start() or the last reset. */
+    public LatencyHistogram.Snapshot getCumulative(Stage stage) {
+        return timers[stage.ordinal()].cumulative.snapshot();
+    }
+
+    /** Starts a new session; call while nothing is recording. Milestones are kept. */
+    public void reset() {
+        for (StageTimer timer : timers) {
+            timer.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    /** JSON snapshot of every metric; latencies are in microseconds, rates per second. */
+    public String toJson(String device, long nowMillis) {
+        StringBuilder json = new StringBuilder(2048);
+        json.append('{');
+        json.append("\"device\":");
+        appendString(json, device);
+        json.append(",\"startedAtMs\":").append(startedAtMillis);
+        json.append(",\"capturedAtMs\":").append(nowMillis);
+        json.append(",\"windowMs\":").append(windowNanos / 1_000_000L);
+
+        json.append(",\"fps\":{");
+        json.append("\"preview\":").append(format(previewRate.getRate()));
+        json.append(",\"recognition\":").append(format(recognitionRate.getRate()));
+        json.append(",\"faces\":").append(format(faceRate.getRate()));
+        json.append('}');
+
+        json.append(",\"counters\":{");
+        Counter[] allCounters = Counter.values();
+        for (int i = 0; i < allCounters.length; i++) {
+            if (i > 0) json.append(',');
+            appendString(json, allCounters[i].name().toLowerCase(Locale.US));
+            json.append(':').append(counters.get(i));
+        }
+        json.append('}');
+
+        json.append(",\"startupMs\":{");
+        Milestone[] allMilestones = Milestone.values();
+        for (int i = 0; i < allMilestones.length; i++) {
+            if (i > 0) json.append(',');
+            appendString(json, allMilestones[i].name().toLowerCase(Locale.US));
+            json.append(':').append(milestones.get(i));
+        }
+        json.append('}');
+
+        json.append(",\"stages\":{");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            if (i > 0) json.append(',');
+            appendString(json, stages[i].name().toLowerCase(Locale.US));
+            json.append(":{\"window\":");
+            appendSnapshot(json, getWindow(stages[i]));
+            json.append(",\"cumulative\":");
+            appendSnapshot(json, getCumulative(stages[i]));
+            json.append('}');
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    /**
+     * Writes a toJson() snapshot to file through a temporary file, so readers never see a
+     * partial one. Takes the string so it can be captured on one thread and written on another.
+     */
+    public static void writeJson(File file, String json) throws IOException {
+        byte[] bytes = json.getBytes(UTF_8);
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(bytes);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write metrics snapshot " + file);
+        }
+    }
+
+    private static void appendSnapshot(StringBuilder json, LatencyHistogram.Snapshot snapshot) {
+        json.append("{\"count\":").append(snapshot.getCount());
+        json.append(",\"meanUs\":").append(format(snapshot.getMeanMicros()));
+        json.append(",\"p50Us\":").append(snapshot.getP50Micros());
+        json.append(",\"p95Us\":").append(snapshot.getP95Micros());
+        json.append(",\"p99Us\":").append(snapshot.getP99Micros());
+        json.append(",\"maxUs\":").append(snapshot.getMaxMicros());
+        json.append('}');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Cumulative histogram plus a ring of three window histograms. A window is cleared only
+     * when it becomes active again, a full window after it was summarized, so a thread still
+     * recording into the previous window during a rotation never hits a cleared histogram.
+     */
+    private static final class StageTimer {
+        private static final LatencyHistogram.Snapshot EMPTY = new LatencyHistogram().snapshot();
+
+        final LatencyHistogram cumulative = new LatencyHistogram();
+        private final LatencyHistogram[] windows = {
+                new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()
+        };
+        private final AtomicLong windowStart = new AtomicLong(Long.MIN_VALUE);
+        private volatile int active;
+        volatile LatencyHistogram.Snapshot completedWindow = EMPTY;
+
+        void record(long durationNanos, long nowNanos, long windowNanos) {
+            long start = windowStart.get();
+            if (start == Long.MIN_VALUE) {
+                windowStart.compareAndSet(start, nowNanos);
+            } else if (nowNanos - start >= windowNanos && windowStart.compareAndSet(start, nowNanos)) {
+                // Only the thread that wins the rotation touches the window ring
+                int completed = active;
+                int next = (completed + 1) % windows.length;
+                windows[next].reset();
+                active = next;
+                completedWindow = windows[completed].snapshot();
+            }
+            windows[active].recordNanos(durationNanos);
+            cumulative.recordNanos(durationNanos);
+        }
+
+        void reset() {
+            cumulative.reset();
+            for (LatencyHistogram window : windows) {
+                window.reset();
+            }
+            windowStart.set(Long.MIN_VALUE);
+            completedWindow = EMPTY;
+        }
+    }
+}
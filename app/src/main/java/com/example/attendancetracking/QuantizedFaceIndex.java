@@ -0,0 +1,317 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact-scan FaceIndex over quantized embeddings, for galleries where the memory of the float32
+ * vectors matters. The modes save memory, not time: decoding the codes costs more per component
+ * than the float32 scan saves in bandwidth, so a query takes longer than with EmbeddingGallery.
+ *
+ * INT8 stores each normalized vector as signed bytes with one float scale per vector (a quarter
+ * of the float32 size) and scores with an integer dot product against a query quantized the
+ * same way. FLOAT16 stores IEEE half floats (half the size) and scores them against the float32
+ * query. With a re-rank depth above zero the best candidates by quantized score are re-scored
+ * with float32 vectors kept alongside the codes, so the reported similarity and the threshold
+ * check are exact. That copy is as large as EmbeddingGallery's, so re-ranking is off unless
+ * asked for.
+ */
+public class QuantizedFaceIndex implements FaceIndex {
+
+    public enum Quantization {
+        INT8,
+        FLOAT16
+    }
+
+    // Re-ranking keeps a float32 copy of every vector, which undoes the memory saving
+    public static final int DEFAULT_RERANK_DEPTH = 0;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Quantization quantization;
+    private final int rerankDepth;
+
+    private int dimension;
+    private int size;
+    private byte[] int8Codes = new byte[0];
+    private float[] scales = new float[0];
+    private short[] halfCodes = new short[0];
+    private float[] vectors = new float[0];
+    private String[] userIds = new String[0];
+    private String[] names = new String[0];
+    private final Map<String, Integer> slotByUserId = new HashMap<>();
+
+    public QuantizedFaceIndex(Quantization quantization) {
+        this(quantization, 0);
+    }
+
+    /** rerankDepth 0 scores with the codes only; otherwise float32 copies are kept for re-ranking. */
+    public QuantizedFaceIndex(Quantization quantization, int rerankDepth) {
+        this.quantization = quantization;
+        this.rerankDepth = rerankDepth;
+    }
+
+    public Quantization getQuantization() {
+        return quantization;
+    }
+
+    public int getRerankDepth() {
+        return rerankDepth;
+    }
+
+    /** Bytes stored per entry for scoring, excluding the optional float32 re-rank copy. */
+    public synchronized int getCodeBytesPerEntry() {
+        return quantization == Quantization.INT8 ? dimension + 4 : dimension * 2;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void add(String userId, String name, float[] embedding) {
+        if (userId == null || embedding == null || embedding.length == 0) return;
+        if (EmbeddingGallery.norm(embedding, 0, embedding.length) == 0f) return;
+        if (dimension == 0) {
+            dimension = embedding.length;
+        } else if (embedding.length != dimension) {
+            throw new IllegalArgumentException("Embedding dimension " + embedding.length
+                    + " does not match gallery dimension " + dimension);
+        }
+
+        int slot = indexOf(userId);
+        if (slot < 0) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            slotByUserId.put(userId, slot);
+        }
+        float[] normalized = new float[dimension];
+        EmbeddingGallery.normalizeInto(embedding, normalized, 0);
+        int offset = slot * dimension;
+        if (quantization == Quantization.INT8) {
+            scales[slot] = quantizeInt8(normalized, int8Codes, offset);
+        } else {
+            for (int i = 0; i < dimension; i++) {
+                halfCodes[offset + i] = (short) EmbeddingCodec.toHalf(normalized[i]);
+            }
+        }
+        if (rerankDepth > 0) {
+            System.arraycopy(normalized, 0, vectors, offset, dimension);
+        }
+        userIds[slot] = userId;
+        names[slot] = name;
+    }
+
+    @Override
+    public synchronized boolean remove(String userId) {
+        int slot = indexOf(userId);
+        if (slot < 0) return false;
+        slotByUserId.remove(userId);
+        int last = size - 1;
+        if (slot != last) {
+            if (quantization == Quantization.INT8) {
+                System.arraycopy(int8Codes, last * dimension, int8Codes, slot * dimension, dimension);
+                scales[slot] = scales[last];
+            } else {
+                System.arraycopy(halfCodes, last * dimension, halfCodes, slot * dimension, dimension);
+            }
+            if (rerankDepth > 0) {
+                System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+            }
+            userIds[slot] = userIds[last];
+            names[slot] = names[last];
+            slotByUserId.put(userIds[slot], slot);
+        }
+        userIds[last] = null;
+        names[last] = null;
+        size = last;
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(userIds, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        slotByUserId.clear();
+        size = 0;
+    }
+
+    @Override
+    public synchronized EmbeddingGallery.Match findBestMatch(float[] query, float threshold) {
+        if (rerankDepth > 0) {
+            List<EmbeddingGallery.Match> top = search(query, 1);
+            return top.isEmpty() || top.get(0).getSimilarity() <= threshold ? null : top.get(0);
+        }
+
+        Query prepared = prepare(query);
+        if (prepared == null) return null;
+        int bestSlot = -1;
+        float bestScore = threshold;
+        for (int slot = 0; slot < size; slot++) {
+            float score = approximateScore(slot, prepared);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSlot = slot;
+            }
+        }
+        return bestSlot < 0 ? null : new EmbeddingGallery.Match(bestSlot, userIds[bestSlot], names[bestSlot], bestScore);
+    }
+
+    @Override
+    public synchronized List<EmbeddingGallery.Match> search(float[] query, int k) {
+        if (k <= 0) return Collections.emptyList();
+        Query prepared = prepare(query);
+        if (prepared == null) return Collections.emptyList();
+
+        // Shortlist by quantized score, then optionally re-score the shortlist exactly
+        int limit = Math.min(Math.max(k, rerankDepth), size);
+        int[] topSlots = new int[limit];
+        float[] topScores = new float[limit];
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            count = insertTop(topSlots, topScores, count, slot, approximateScore(slot, prepared));
+        }
+        if (rerankDepth > 0) {
+            int[] candidates = Arrays.copyOf(topSlots, count);
+            int rescored = 0;
+            for (int slot : candidates) {
+                float score = EmbeddingGallery.dot(vectors, slot * dimension, prepared.normalized, dimension);
+                rescored = insertTop(topSlots, topScores, rescored, slot, score);
+            }
+            count = rescored;
+        }
+
+        int results = Math.min(k, count);
+        List<EmbeddingGallery.Match> matches = new ArrayList<>(results);
+        for (int i = 0; i < results; i++) {
+            int slot = topSlots[i];
+            matches.add(new EmbeddingGallery.Match(slot, userIds[slot], names[slot], topScores[i]));
+        }
+        return matches;
+    }
+
+    /** Keeps topSlots/topScores sorted by descending score; returns the new count. */
+    private static int insertTop(int[] topSlots, float[] topScores, int count, int slot, float score) {
+        int limit = topSlots.length;
+        if (count == limit && score <= topScores[limit - 1]) return count;
+        int pos = count < limit ? count++ : limit - 1;
+        while (pos > 0 && topScores[pos - 1] < score) {
+            topScores[pos] = topScores[pos - 1];
+            topSlots[pos] = topSlots[pos - 1];
+            pos--;
+        }
+        topScores[pos] = score;
+        topSlots[pos] = slot;
+        return count;
+    }
+
+    private float approximateScore(int slot, Query query) {
+        int offset = slot * dimension;
+        if (quantization == Quantization.INT8) {
+            return int8Dot(int8Codes, offset, query.int8Codes, dimension) * scales[slot] * query.int8Scale;
+        }
+        float[] table = HalfTable.VALUES;
+        float[] q = query.normalized;
+        float s0 = 0f, s1 = 0f;
+        int i = 0;
+        for (; i + 1 < dimension; i += 2) {
+            s0 += table[halfCodes[offset + i] & 0xFFFF] * q[i];
+            s1 += table[halfCodes[offset + i + 1] & 0xFFFF] * q[i + 1];
+        }
+        for (; i < dimension; i++) {
+            s0 += table[halfCodes[offset + i] & 0xFFFF] * q[i];
+        }
+        return s0 + s1;
+    }
+
+    private Query prepare(float[] query) {
+        if (query == null || size == 0 || query.length != dimension) return null;
+        float[] normalized = new float[dimension];
+        if (!EmbeddingGallery.normalizeInto(query, normalized, 0)) return null;
+        Query prepared = new Query(normalized);
+        if (quantization == Quantization.INT8) {
+            prepared.int8Codes = new byte[dimension];
+            prepared.int8Scale = quantizeInt8(normalized, prepared.int8Codes, 0);
+        }
+        return prepared;
+    }
+
+    /** Symmetric per-vector quantization to [-127, 127]; returns the scale back to float. */
+    static float quantizeInt8(float[] vector, byte[] codes, int offset) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        if (maxAbs == 0f) {
+            Arrays.fill(codes, offset, offset + vector.length, (byte) 0);
+            return 0f;
+        }
+        float inv = 127f / maxAbs;
+        for (int i = 0; i < vector.length; i++) {
+            codes[offset + i] = (byte) Math.round(vector[i] * inv);
+        }
+        return maxAbs / 127f;
+    }
+
+    static int int8Dot(byte[] v, int offset, byte[] q, int dim) {
+        int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dim; i += 4) {
+            s0 += v[offset + i] * q[i];
+            s1 += v[offset + i + 1] * q[i + 1];
+            s2 += v[offset + i + 2] * q[i + 2];
+            s3 += v[offset + i + 3] * q[i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += v[offset + i] * q[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private int indexOf(String userId) {
+        Integer slot = slotByUserId.get(userId);
+        return slot == null ? -1 : slot;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= userIds.length) return;
+        int capacity = Math.max(INITIAL_CAPACITY, userIds.length * 2);
+        while (capacity < required) capacity *= 2;
+        if (quantization == Quantization.INT8) {
+            int8Codes = Arrays.copyOf(int8Codes, capacity * dimension);
+            scales = Arrays.copyOf(scales, capacity);
+        } else {
+            halfCodes = Arrays.copyOf(halfCodes, capacity * dimension);
+        }
+        if (rerankDepth > 0) {
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+        }
+        userIds = Arrays.copyOf(userIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    private static final class Query {
+        final float[] normalized;
+        byte[] int8Codes;
+        float int8Scale;
+
+        Query(float[] normalized) {
+            this.normalized = normalized;
+        }
+    }
+
+    /** Every binary16 value decoded once, so FLOAT16 scoring is a table lookup per component. */
+    private static final class HalfTable {
+        static final float[] VALUES = new float[1 << 16];
+
+        static {
+            for (int i = 0; i < VALUES.length; i++) {
+                VALUES[i] = EmbeddingCodec.fromHalf(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.attendancetracking;
+
+/**
+ * Counts events over fixed windows and reports the rate of the last completed window,
+ * e.g. frames per second for the preview or recognitions per second for the pipeline.
+ */
+public class RateMeter {
+
+    private final long windowNanos;
+    private long windowStart = -1;
+    private int windowCount;
+    private volatile float rate;
+
+    public RateMeter(long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    public void mark(long nowNanos) {
+        mark(nowNanos, 1);
+    }
+
+    /** Records count events at once, e.g. the number of faces in a completed frame. */
+    public void mark(long nowNanos, int count) {
+        if (windowStart < 0) {
+            windowStart = nowNanos;
+            return;
+        }
+        windowCount += count;
+        long elapsed = nowNanos - windowStart;
+        if (elapsed >= windowNanos) {
+            rate = windowCount * 1e9f / elapsed;
+            windowStart = nowNanos;
+            windowCount = 0;
+        }
+    }
+
+    public float getRate() {
+        return rate;
+    }
+}
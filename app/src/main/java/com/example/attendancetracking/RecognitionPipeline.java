@@ -0,0 +1,439 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs recognition off the camera callback thread as a staged pipeline:
+ * capture -> detect -> embed -> match -> annotate.
+ *
+ * Each stage has its own worker and the stages are connected by DropOldestQueues, so a slow
+ * stage only ever works on the newest frame and never back-pressures the preview. The camera
+ * thread submits copies of frames and draws whatever Annotation was published last.
+ *
+ * A FaceTracker follows faces between frames, so the embed stage only runs the recognizer when
+ * a track is new, due for a refresh or has lost confidence; other frames reuse the track's
+ * voted identity.
+ *
+ * Every face in the frame is handled: all faces that need an embedding are extracted in one
+ * batched call and matched against the gallery in one call.
+ *
+ * Frames come from a fixed pool whose Mats and FrameContext buffers are reused, and results are
+ * copied into caller-owned Annotations, so a frame whose faces are all tracked allocates nothing.
+ *
+ * Stage latencies, frame rates and counters are recorded into PipelineMetrics. An
+ * AdaptiveController uses the same timings to pick how often frames are submitted, the scale
+ * detection runs at and how often tracks are re-embedded, so the pipeline holds its latency
+ * budget on a hot device and idles when nobody is in front of the camera.
+ *
+ * Completed, dropped and failed frames are reported to an optional FrameLog instead of being
+ * logged one by one.
+ */
+public class RecognitionPipeline {
+
+    private static final String TAG = "RecognitionPipeline";
+    private static final int QUEUE_CAPACITY = 1;
+    // One frame being captured, one per queue and one per stage worker, plus a spare
+    private static final int FRAME_POOL_SIZE = 8;
+    private static final float LATENCY_SMOOTHING = 0.1f;
+
+    /** Floats per detected face: x, y, w, h, five landmark (x, y) pairs, score. */
+    public static final int FACE_STRIDE = 15;
+    public static final int MAX_FACES = 16;
+
+    /** Native and gallery operations the stages delegate to. */
+    public interface Engine {
+        /** Fills faces with up to maxFaces rows of FACE_STRIDE floats and returns the count. */
+        int detectFaces(Mat gray, Mat rgba, float[] faces, int maxFaces);
+
+        /**
+         * Embeds the first count face rows of faces in one batch, writing count * dimension floats
+         * into embeddings, and returns the dimension (0 if nothing could be extracted). A face
+         * that could not be embedded is left as an all-zero vector.
+         */
+        int extractEmbeddings(Mat rgba, float[] faces, int count, float[] embeddings);
+
+        /** Matches count packed embeddings; entries are null for unknown faces. */
+        EmbeddingGallery.Match[] match(float[] embeddings, int count, int dimension);
+    }
+
+    /**
+     * Receives every completed Annotation on the match stage thread. The instance is reused for
+     * the next frame, so copy anything needed after the call returns.
+     */
+    public interface Listener {
+        void onAnnotation(Annotation annotation);
+    }
+
+    private interface Stage {
+        void process(Frame frame);
+    }
+
+    private final Engine engine;
+    private final FaceTracker tracker;
+    private final AdaptiveController controller;
+    private final DropOldestQueue<Frame> detectQueue = new DropOldestQueue<>(QUEUE_CAPACITY);
+    private final DropOldestQueue<Frame> embedQueue = new DropOldestQueue<>(QUEUE_CAPACITY);
+    private final DropOldestQueue<Frame> matchQueue = new DropOldestQueue<>(QUEUE_CAPACITY);
+    private final ArrayBlockingQueue<Frame> framePool = new ArrayBlockingQueue<>(FRAME_POOL_SIZE);
+    // Written by the match stage only; 'published' is the copy shared with readers under its lock
+    private final Annotation stageAnnotation = new Annotation();
+    private final Annotation published = new Annotation();
+    private boolean hasPublished;
+    private final PipelineMetrics metrics = new PipelineMetrics();
+
+    private ExecutorService executor;
+    private volatile boolean running;
+    private volatile Listener listener;
+    private volatile FrameLog frameLog;
+    private volatile float recognitionLatencyMs;
+
+    public RecognitionPipeline(Engine engine) {
+        this(engine, new FaceTracker());
+    }
+
+    public RecognitionPipeline(Engine engine, FaceTracker tracker) {
+        this(engine, tracker, new AdaptiveController());
+    }
+
+    public RecognitionPipeline(Engine engine, FaceTracker tracker, AdaptiveController controller) {
+        this.engine = engine;
+        this.tracker = tracker;
+        this.controller = controller;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setFrameLog(FrameLog frameLog) {
+        this.frameLog = frameLog;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        metrics.reset();
+        while (framePool.size() < FRAME_POOL_SIZE) {
+            framePool.offer(new Frame());
+        }
+        executor = Executors.newFixedThreadPool(3);
+        executor.execute(() -> runStage(detectQueue, embedQueue, this::detect));
+        executor.execute(() -> runStage(embedQueue, matchQueue, this::embed));
+        executor.execute(() -> runStage(matchQueue, null, this::matchAndAnnotate));
+        AppLog.d(TAG, "Recognition pipeline started.");
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                AppLog.w(TAG, "Pipeline workers did not stop within 1s.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        recycleAll(detectQueue);
+        recycleAll(embedQueue);
+        recycleAll(matchQueue);
+        Frame frame;
+        while ((frame = framePool.poll()) != null) {
+            frame.release();
+        }
+        synchronized (published) {
+            hasPublished = false;
+        }
+        AppLog.d(TAG, "Recognition pipeline stopped. Embeddings extracted: "
+                + metrics.get(PipelineMetrics.Counter.EMBEDDINGS_EXTRACTED)
+                + ", reused from tracks: " + metrics.get(PipelineMetrics.Counter.EMBEDDINGS_SKIPPED)
+                + ", frames dropped: " + metrics.get(PipelineMetrics.Counter.FRAMES_DROPPED));
+    }
+
+    /**
+     * Capture stage, called on the camera thread. Skips the frame if the controller wants
+     * frames spaced further apart, otherwise copies it into a pooled frame because the camera
+     * reuses its buffers, and evicts the oldest pending frame if detection has not caught up.
+     * The frame is dropped if every pooled frame is still in flight.
+     */
+    public void submit(Mat rgba, Mat gray) {
+        if (!running) return;
+        metrics.increment(PipelineMetrics.Counter.FRAMES_SUBMITTED);
+        if (!controller.shouldSubmit(System.nanoTime())) {
+            metrics.increment(PipelineMetrics.Counter.FRAMES_SKIPPED);
+            return;
+        }
+        Frame frame = framePool.poll();
+        if (frame == null) {
+            metrics.increment(PipelineMetrics.Counter.FRAMES_DROPPED);
+            FrameLog currentFrameLog = frameLog;
+            if (currentFrameLog != null) currentFrameLog.dropped(System.nanoTime());
+            return;
+        }
+        frame.context.reset(System.nanoTime());
+        // copyTo reuses the pooled Mat's buffer while the preview size stays the same
+        rgba.copyTo(frame.rgba);
+        gray.copyTo(frame.gray);
+        drop(detectQueue.offer(frame));
+    }
+
+    /**
+     * Copies the most recent completed recognition result into target. Returns false, leaving
+     * target untouched, if nothing has been published since the pipeline started.
+     */
+    public boolean copyLatestAnnotation(Annotation target) {
+        synchronized (published) {
+            if (!hasPublished) return false;
+            target.copyFrom(published);
+            return true;
+        }
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AdaptiveController getController() {
+        return controller;
+    }
+
+    /** Smoothed time from frame capture to published annotation. */
+    public float getRecognitionLatencyMs() {
+        return recognitionLatencyMs;
+    }
+
+    /** Completed recognitions per second, independent of the preview frame rate. */
+    public float getRecognitionRate() {
+        return metrics.getRecognitionFps();
+    }
+
+    /** Faces annotated per second across all completed frames. */
+    public float getFaceRate() {
+        return metrics.getFaceRate();
+    }
+
+    /** Number of faces the recognizer actually ran on. */
+    public long getEmbeddingsExtracted() {
+        return metrics.get(PipelineMetrics.Counter.EMBEDDINGS_EXTRACTED);
+    }
+
+    /** Number of faces whose identity was taken from an existing track instead. */
+    public long getEmbeddingsSkipped() {
+        return metrics.get(PipelineMetrics.Counter.EMBEDDINGS_SKIPPED);
+    }
+
+    public long getDroppedFrameCount() {
+        return metrics.get(PipelineMetrics.Counter.FRAMES_DROPPED);
+    }
+
+    private void detect(Frame frame) {
+        FrameContext context = frame.context;
+        float scale = controller.getDetectionScale();
+        long start = System.nanoTime();
+        if (scale < 1f) {
+            // Downscaled copies for the detector; embedding still crops the full-resolution frame
+            Imgproc.resize(frame.gray, frame.detectGray, frame.detectSize, scale, scale, Imgproc.INTER_AREA);
+            Imgproc.resize(frame.rgba, frame.detectRgba, frame.detectSize, scale, scale, Imgproc.INTER_AREA);
+            context.numFaces = Math.min(engine.detectFaces(frame.detectGray, frame.detectRgba, context.faces, MAX_FACES), MAX_FACES);
+            context.scaleFaces(1f / scale);
+        } else {
+            context.numFaces = Math.min(engine.detectFaces(frame.gray, frame.rgba, context.faces, MAX_FACES), MAX_FACES);
+        }
+        long end = System.nanoTime();
+        context.detectNanos = end - start;
+        metrics.record(PipelineMetrics.Stage.DETECT, end - start, end);
+        metrics.add(PipelineMetrics.Counter.FACES_DETECTED, context.numFaces);
+        controller.recordDetect(end, scale, end - start, context.numFaces);
+    }
+
+    private void embed(Frame frame) {
+        FrameContext context = frame.context;
+        // Only the faces whose track needs a fresh embedding are extracted
+        int pending = context.selectPending(tracker);
+        metrics.add(PipelineMetrics.Counter.EMBEDDINGS_SKIPPED, context.numFaces - pending);
+
+        if (pending > 0) {
+            long start = System.nanoTime();
+            int dimension = engine.extractEmbeddings(frame.rgba, context.batch, pending, context.embeddings);
+            long end = System.nanoTime();
+            context.embedNanos = end - start;
+            metrics.record(PipelineMetrics.Stage.EMBED, end - start, end);
+            metrics.add(PipelineMetrics.Counter.EMBEDDINGS_EXTRACTED, pending);
+            controller.recordEmbed(pending, end - start);
+            context.setEmbedded(dimension);
+        }
+    }
+
+    private void matchAndAnnotate(Frame frame) {
+        FrameContext context = frame.context;
+        int matched = 0;
+        if (context.embeddedCount > 0) {
+            long start = System.nanoTime();
+            EmbeddingGallery.Match[] matches = engine.match(context.embeddings, context.embeddedCount, context.dimension);
+            long end = System.nanoTime();
+            context.matchNanos = end - start;
+            metrics.record(PipelineMetrics.Stage.MATCH, end - start, end);
+            controller.recordMatch(end - start);
+            matched = context.recordMatches(matches);
+            metrics.add(PipelineMetrics.Counter.MATCHES, matched);
+            metrics.add(PipelineMetrics.Counter.UNKNOWNS, context.embeddedCount - matched);
+        }
+
+        long now = System.nanoTime();
+        context.fillAnnotation(stageAnnotation, now);
+        synchronized (published) {
+            published.copyFrom(stageAnnotation);
+            hasPublished = true;
+        }
+        Listener currentListener = listener;
+        if (currentListener != null) currentListener.onAnnotation(stageAnnotation);
+        FrameLog currentFrameLog = frameLog;
+        if (currentFrameLog != null) {
+            currentFrameLog.completed(stageAnnotation, context.embeddedCount, matched,
+                    context.detectNanos, context.embedNanos, context.matchNanos);
+        }
+
+        metrics.record(PipelineMetrics.Stage.TOTAL, now - context.captureNanos, now);
+        metrics.increment(PipelineMetrics.Counter.FRAMES_COMPLETED);
+        metrics.markRecognition(now, context.numFaces);
+        controller.recordLatency(now, now - context.captureNanos);
+        tracker.setRefreshIntervalNanos(controller.getRefreshIntervalNanos());
+        float latencyMs = (now - context.captureNanos) / 1_000_000f;
+        recognitionLatencyMs = recognitionLatencyMs == 0f
+                ? latencyMs
+                : recognitionLatencyMs + LATENCY_SMOOTHING * (latencyMs - recognitionLatencyMs);
+    }
+
+    private void runStage(DropOldestQueue<Frame> input, DropOldestQueue<Frame> output, Stage stage) {
+        while (running) {
+            Frame frame;
+            try {
+                frame = input.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                stage.process(frame);
+            } catch (RuntimeException e) {
+                AppLog.e(TAG, "Pipeline stage failed: " + e.getMessage(), e);
+                FrameLog currentFrameLog = frameLog;
+                if (currentFrameLog != null) currentFrameLog.failed(System.nanoTime());
+                drop(frame);
+                continue;
+            }
+            if (output == null || !running) {
+                recycle(frame);
+            } else {
+                Frame evicted = output.offer(frame);
+                if (evicted != null) {
+                    // Its embeddings never reach the match stage, so let the tracks retry
+                    evicted.context.invalidatePending();
+                    drop(evicted);
+                }
+            }
+        }
+    }
+
+    private void recycleAll(DropOldestQueue<Frame> queue) {
+        for (Frame frame : queue.drain()) {
+            recycle(frame);
+        }
+    }
+
+    private void recycle(Frame frame) {
+        if (frame != null) framePool.offer(frame);
+    }
+
+    private void drop(Frame frame) {
+        if (frame == null) return;
+        metrics.increment(PipelineMetrics.Counter.FRAMES_DROPPED);
+        FrameLog currentFrameLog = frameLog;
+        if (currentFrameLog != null) currentFrameLog.dropped(System.nanoTime());
+        recycle(frame);
+    }
+
+    private static final class Frame {
+        final FrameContext context = new FrameContext();
+        final Mat rgba = new Mat();
+        final Mat gray = new Mat();
+        final Mat detectRgba = new Mat();
+        final Mat detectGray = new Mat();
+        // Zero size: resize derives the output size from the scale factors
+        final Size detectSize = new Size();
+
+        void release() {
+            rgba.release();
+            gray.release();
+            detectRgba.release();
+            detectGray.release();
+        }
+    }
+
+    /**
+     * Result of one frame's trip through the pipeline, drawn by the preview. Instances are
+     * reusable buffers: the pipeline copies into them rather than allocating one per frame.
+     */
+    public static class Annotation {
+        private final float[] faces = new float[MAX_FACES * FACE_STRIDE];
+        private final boolean[] identified = new boolean[MAX_FACES];
+        private final EmbeddingGallery.Match[] matches = new EmbeddingGallery.Match[MAX_FACES];
+        private int numFaces;
+        private long captureNanos;
+        private long completedNanos;
+
+        public Annotation() {
+        }
+
+        void begin(float[] sourceFaces, int numFaces, long captureNanos, long completedNanos) {
+            System.arraycopy(sourceFaces, 0, faces, 0, numFaces * FACE_STRIDE);
+            this.numFaces = numFaces;
+            this.captureNanos = captureNanos;
+            this.completedNanos = completedNanos;
+        }
+
+        void setIdentity(int face, boolean hasIdentity, EmbeddingGallery.Match match) {
+            identified[face] = hasIdentity;
+            matches[face] = match;
+        }
+
+        void copyFrom(Annotation other) {
+            begin(other.faces, other.numFaces, other.captureNanos, other.completedNanos);
+            System.arraycopy(other.identified, 0, identified, 0, other.numFaces);
+            System.arraycopy(other.matches, 0, matches, 0, other.numFaces);
+        }
+
+        /** Face rows packed with FACE_STRIDE floats each; a row starts with x, y, w, h. */
+        public float[] getFaces() {
+            return faces;
+        }
+
+        public int getNumFaces() {
+            return numFaces;
+        }
+
+        /** True once the face's track has at least one match result to show. */
+        public boolean hasIdentity(int face) {
+            return identified[face];
+        }
+
+        /** Matched user for the face, or null when it is unknown. */
+        public EmbeddingGallery.Match getMatch(int face) {
+            return matches[face];
+        }
+
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+
+        public long getCompletedNanos() {
+            return completedNanos;
+        }
+    }
+}
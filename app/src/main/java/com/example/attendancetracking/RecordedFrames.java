@@ -0,0 +1,87 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Camera frames saved as PNG files in one directory, for DetectorBenchmark. Frames are named by
+ * sequence number, so they replay in the order they were recorded.
+ */
+public class RecordedFrames implements DetectorBenchmark.Frames<RecordedFrames.Frame> {
+
+    private static final String PREFIX = "frame-";
+    private static final String SUFFIX = ".png";
+
+    /** The grayscale and RGBA versions of one frame, as the camera delivers them. */
+    public static final class Frame {
+        public final Mat gray;
+        public final Mat rgba;
+
+        Frame(Mat gray, Mat rgba) {
+            this.gray = gray;
+            this.rgba = rgba;
+        }
+    }
+
+    private final File[] files;
+
+    public RecordedFrames(File directory) {
+        File[] found = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        files = found != null ? found : new File[0];
+        Arrays.sort(files);
+    }
+
+    /** Saves an RGBA camera frame as the sequence-th frame in directory. */
+    public static void save(File directory, int sequence, Mat rgba) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File file = new File(directory, String.format(Locale.US, "%s%05d%s", PREFIX, sequence, SUFFIX));
+        Mat bgr = new Mat();
+        try {
+            Imgproc.cvtColor(rgba, bgr, Imgproc.COLOR_RGBA2BGR);
+            if (!Imgcodecs.imwrite(file.getPath(), bgr)) {
+                throw new IOException("Unable to write " + file);
+            }
+        } finally {
+            bgr.release();
+        }
+    }
+
+    @Override
+    public int size() {
+        return files.length;
+    }
+
+    @Override
+    public Frame load(int index) throws IOException {
+        Mat bgr = Imgcodecs.imread(files[index].getPath());
+        if (bgr.empty()) {
+            bgr.release();
+            throw new IOException("Unable to read " + files[index]);
+        }
+        Mat gray = new Mat();
+        Mat rgba = new Mat();
+        Imgproc.cvtColor(bgr, gray, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.cvtColor(bgr, rgba, Imgproc.COLOR_BGR2RGBA);
+        bgr.release();
+        return new Frame(gray, rgba);
+    }
+
+    @Override
+    public void release(Frame frame) {
+        frame.gray.release();
+        frame.rgba.release();
+    }
+
+    /** Adapts a FaceDetector backend to the benchmark. */
+    public static DetectorBenchmark.Detector<Frame> adapt(final FaceDetector detector) {
+        return (frame, faces, maxFaces) -> detector.detect(frame.gray, frame.rgba, faces, maxFaces);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.attendancetracking;
+
+/**
+ * Location of a kiosk that does not move: checked against the site geofence once, then cached.
+ *
+ * While ACQUIRING the caller requests high-accuracy updates. The first fix that settles the
+ * geofence check (accurate enough, or with its whole accuracy circle on one side of the
+ * boundary) becomes the cached fix, and the mode drops to LOW_POWER. After acquireTimeoutMillis
+ * the most accurate fix so far is taken instead, as GPS may never get accurate indoors.
+ *
+ * In LOW_POWER later fixes are ignored unless they show the device has certainly moved more
+ * than recheckDistanceMeters from the cached fix, which starts a new acquisition. The cached
+ * fix, and so the overlay line and the coordinates attached to attendance events, therefore
+ * changes only when the site check is redone.
+ */
+public class SiteLocation {
+
+    public enum Mode {
+        ACQUIRING,
+        LOW_POWER
+    }
+
+    /** Circular site boundary. */
+    public static final class Geofence {
+        private final double latitude;
+        private final double longitude;
+        private final float radiusMeters;
+
+        public Geofence(double latitude, double longitude, float radiusMeters) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusMeters = radiusMeters;
+        }
+
+        public float getRadiusMeters() {
+            return radiusMeters;
+        }
+
+        public double distanceMeters(double lat, double lon) {
+            return SiteLocation.distanceMeters(latitude, longitude, lat, lon);
+        }
+    }
+
+    /** Immutable fix with everything its readers need precomputed. */
+    public static final class Fix {
+        private final double latitude;
+        private final double longitude;
+        private final float accuracyMeters;
+        // Boxed once, as stored with every attendance event
+        private final Double boxedLatitude;
+        private final Double boxedLongitude;
+        // Null when no geofence is configured or the check is not settled
+        private final Boolean onSite;
+        private final String overlayLine;
+
+        Fix(double latitude, double longitude, float accuracyMeters, Boolean onSite) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracyMeters = accuracyMeters;
+            this.boxedLatitude = latitude;
+            this.boxedLongitude = longitude;
+            this.onSite = onSite;
+            this.overlayLine = OverlayText.location(latitude, longitude, onSite);
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public float getAccuracyMeters() {
+            return accuracyMeters;
+        }
+
+        public Double getBoxedLatitude() {
+            return boxedLatitude;
+        }
+
+        public Double getBoxedLongitude() {
+            return boxedLongitude;
+        }
+
+        public Boolean getOnSite() {
+            return onSite;
+        }
+
+        public String getOverlayLine() {
+            return overlayLine;
+        }
+    }
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final Geofence site;
+    private final float requiredAccuracyMeters;
+    private final long acquireTimeoutMillis;
+    private final float recheckDistanceMeters;
+
+    private Mode mode = Mode.ACQUIRING;
+    private long acquireStartMillis = -1;
+    private Fix best;
+    // Read without locking by the preview and pipeline threads
+    private volatile Fix fix;
+
+    /** site may be null, in which case only the fix is cached and onSite stays null. */
+    public SiteLocation(Geofence site, float requiredAccuracyMeters, long acquireTimeoutMillis,
+                        float recheckDistanceMeters) {
+        this.site = site;
+        this.requiredAccuracyMeters = requiredAccuracyMeters;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.recheckDistanceMeters = recheckDistanceMeters;
+    }
+
+    /** Cached fix; while ACQUIRING, the best fix so far with onSite null. Null before any fix. */
+    public Fix getFix() {
+        return fix;
+    }
+
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Feeds one location update; nowMillis is a monotonic clock. accuracyMeters is 0 when the
+     * provider gave none. Returns true if the mode changed, i.e. the request must change too.
+     */
+    public synchronized boolean onLocation(double latitude, double longitude, float accuracyMeters, long nowMillis) {
+        if (accuracyMeters <= 0f) accuracyMeters = Float.MAX_VALUE;
+        if (mode == Mode.LOW_POWER) {
+            Fix cached = fix;
+            double moved = distanceMeters(cached.getLatitude(), cached.getLongitude(), latitude, longitude);
+            // Coarse low-power fixes scatter by hundreds of meters; only a certain move counts
+            if (moved - accuracyMeters - cached.getAccuracyMeters() <= recheckDistanceMeters) return false;
+            mode = Mode.ACQUIRING;
+            acquireStartMillis = nowMillis;
+            best = null;
+            return true;
+        }
+
+        if (acquireStartMillis < 0) acquireStartMillis = nowMillis;
+        Boolean onSite = check(latitude, longitude, accuracyMeters);
+        if (onSite != null || (site == null && accuracyMeters <= requiredAccuracyMeters)) {
+            settle(new Fix(latitude, longitude, accuracyMeters, onSite));
+            return true;
+        }
+        if (best == null || accuracyMeters < best.getAccuracyMeters()) {
+            best = new Fix(latitude, longitude, accuracyMeters, null);
+            fix = best;
+        }
+        if (nowMillis - acquireStartMillis >= acquireTimeoutMillis) {
+            // Judged by the center of the best fix, which is all there will be
+            Boolean bestGuess = site != null
+                    ? site.distanceMeters(best.getLatitude(), best.getLongitude()) <= site.getRadiusMeters() : null;
+            settle(new Fix(best.getLatitude(), best.getLongitude(), best.getAccuracyMeters(), bestGuess));
+            return true;
+        }
+        return false;
+    }
+
+    /** True or false once the fix settles the geofence check, else null. */
+    private Boolean check(double latitude, double longitude, float accuracyMeters) {
+        if (site == null) return null;
+        double distance = site.distanceMeters(latitude, longitude);
+        float radius = site.getRadiusMeters();
+        if (accuracyMeters <= requiredAccuracyMeters) return distance <= radius;
+        if (distance + accuracyMeters <= radius) return true;
+        if (distance - accuracyMeters > radius) return false;
+        return null;
+    }
+
+    private void settle(Fix settled) {
+        fix = settled;
+        best = null;
+        mode = Mode.LOW_POWER;
+        acquireStartMillis = -1;
+    }
+
+    /** Great-circle distance by the haversine formula. */
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
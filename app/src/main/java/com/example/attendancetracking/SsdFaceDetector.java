@@ -0,0 +1,90 @@
+package com.example.attendancetracking;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * FaceDetector on the OpenCV ResNet-10 SSD (deploy.prototxt.txt plus its Caffe weights). The
+ * frame is resized to the 300x300 network input, so small faces in a wide frame are missed more
+ * often than with YuNet; there are no landmarks.
+ */
+public class SsdFaceDetector implements FaceDetector {
+
+    /** Weights matching the bundled prototxt; not shipped in the APK by default. */
+    public static final String WEIGHTS_FILE = "res10_300x300_ssd_iter_140000.caffemodel";
+    public static final String PROTOTXT_FILE = "deploy.prototxt.txt";
+
+    private static final int INPUT_SIZE = 300;
+    private static final float MIN_CONFIDENCE = 0.5f;
+    // Each detection row: image id, class id, confidence, then x1, y1, x2, y2 relative to the input
+    private static final int ROW = 7;
+    private static final int MAX_ROWS = 200;
+
+    private final Net net;
+    private final Size inputSize = new Size(INPUT_SIZE, INPUT_SIZE);
+    private final Scalar mean = new Scalar(104.0, 177.0, 123.0);
+    private final Mat bgr = new Mat();
+    private final float[] rows = new float[MAX_ROWS * ROW];
+
+    public SsdFaceDetector(String prototxtPath, String weightsPath) {
+        net = Dnn.readNetFromCaffe(prototxtPath, weightsPath);
+        if (net.empty()) {
+            throw new IllegalArgumentException("Unable to load SSD face detector " + weightsPath);
+        }
+    }
+
+    @Override
+    public int detect(Mat gray, Mat rgba, float[] faces, int maxFaces) {
+        int width = rgba.cols();
+        int height = rgba.rows();
+        Imgproc.cvtColor(rgba, bgr, Imgproc.COLOR_RGBA2BGR);
+        Mat blob = Dnn.blobFromImage(bgr, 1.0, inputSize, mean, false, false);
+        Mat output = null;
+        Mat detections = null;
+        try {
+            net.setInput(blob);
+            output = net.forward();
+            // 1 x 1 x N x 7 to N x 7
+            detections = output.reshape(1, (int) (output.total() / ROW));
+            int available = Math.min(detections.rows(), MAX_ROWS);
+            if (available == 0) return 0;
+            detections.get(0, 0, rows);
+
+            int count = 0;
+            for (int i = 0; i < available && count < maxFaces; i++) {
+                int row = i * ROW;
+                float confidence = rows[row + 2];
+                if (confidence < MIN_CONFIDENCE) continue;
+                float x1 = clamp(rows[row + 3]) * width;
+                float y1 = clamp(rows[row + 4]) * height;
+                float x2 = clamp(rows[row + 5]) * width;
+                float y2 = clamp(rows[row + 6]) * height;
+                if (x2 <= x1 || y2 <= y1) continue;
+
+                int offset = count * RecognitionPipeline.FACE_STRIDE;
+                Arrays.fill(faces, offset, offset + RecognitionPipeline.FACE_STRIDE, 0f);
+                faces[offset + BOX] = x1;
+                faces[offset + BOX + 1] = y1;
+                faces[offset + BOX + 2] = x2 - x1;
+                faces[offset + BOX + 3] = y2 - y1;
+                faces[offset + SCORE] = confidence;
+                count++;
+            }
+            return count;
+        } finally {
+            blob.release();
+            if (output != null) output.release();
+            if (detections != null) detections.release();
+        }
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0f, Math.min(1f, value));
+    }
+}
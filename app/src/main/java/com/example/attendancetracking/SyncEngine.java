@@ -0,0 +1,344 @@
+package com.example.attendancetracking;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brings a FaceGallery up to date with the users and embeddings nodes in delta passes.
+ *
+ * Each pass reads only the users records updated at or after the checkpoint, which is the
+ * newest updatedAt applied so far, and fetches the embeddings of those whose hash differs from
+ * the local entry. Records are decoded on the executor and the pass is applied to the gallery
+ * as one update, after which the checkpoint moves forward. A pass that fails to fetch anything,
+ * or fetches an embedding whose hash is not the one its users record names, applies nothing and
+ * leaves the checkpoint where it was, so the next pass retries it.
+ *
+ * A checkpoint of 0 means a full sync, which reads every record and also drops local entries
+ * that are no longer in users. The checkpoint survives restarts through the updatedAt of the
+ * entries in the local gallery snapshot; see checkpointOf.
+ *
+ * sync() may be called from any thread as often as changes are signalled: a call made while a
+ * pass runs starts one more pass after it.
+ */
+public class SyncEngine {
+
+    /**
+     * Where records come from; Firebase in the app, an in-memory map in tests. Reads must reflect
+     * the server, not a local cache, or report an error: a pass moves the checkpoint past every
+     * users record it is given, so records missing from a stale answer would never be read.
+     */
+    public interface Source {
+        /** Every users record when since is 0, else those with updatedAt at or after since. */
+        void readUsers(long since, Callback<Map<String, UserRecord>> callback);
+
+        /** The embedding of userId; delivers null if there is none. */
+        void readEmbedding(String userId, Callback<EmbeddingRecord> callback);
+    }
+
+    /** Result of a Source read, on any thread. bytes is the approximate payload size. */
+    public interface Callback<T> {
+        void onResult(T result, long bytes);
+
+        void onError(Exception e);
+    }
+
+    /** Called on the executor after each pass. */
+    public interface Listener {
+        void onSynced(Report report);
+
+        void onSyncFailed(Exception e);
+    }
+
+    /** What one pass read and applied. */
+    public static final class Report {
+        private final boolean full;
+        private final long since;
+        private final int records;
+        private final int fetched;
+        private final int upserted;
+        private final int removed;
+        private final int invalid;
+        private final long bytes;
+        private final long durationNanos;
+
+        Report(boolean full, long since, int records, int fetched, int upserted, int removed, int invalid,
+               long bytes, long durationNanos) {
+            this.full = full;
+            this.since = since;
+            this.records = records;
+            this.fetched = fetched;
+            this.upserted = upserted;
+            this.removed = removed;
+            this.invalid = invalid;
+            this.bytes = bytes;
+            this.durationNanos = durationNanos;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        /** Checkpoint the pass started from. */
+        public long getSince() {
+            return since;
+        }
+
+        /** users records read. */
+        public int getRecords() {
+            return records;
+        }
+
+        /** Embeddings fetched because their hash changed. */
+        public int getFetched() {
+            return fetched;
+        }
+
+        public int getUpserted() {
+            return upserted;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        /** Records skipped because their embedding was missing or malformed. */
+        public int getInvalid() {
+            return invalid;
+        }
+
+        /** Approximate payload bytes of both reads, as reported by the Source. */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public double getRecordsPerSecond() {
+            return durationNanos > 0 ? records * 1e9 / durationNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s sync: %d records (%d embeddings fetched, %d updated, %d removed, %d invalid) in %.1f ms, %.0f records/s, %.1f KB",
+                    full ? "Full" : "Delta since " + since, records, fetched, upserted, removed, invalid,
+                    durationNanos / 1e6, getRecordsPerSecond(), bytes / 1024.0);
+        }
+    }
+
+    private final Source source;
+    private final FaceGallery gallery;
+    private final Executor executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private volatile Listener listener;
+    private volatile long checkpoint;
+
+    public SyncEngine(Source source, FaceGallery gallery, Executor executor) {
+        this.source = source;
+        this.gallery = gallery;
+        this.executor = executor;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Starting point of the next pass; call before the first sync(), e.g. with checkpointOf. */
+    public void setCheckpoint(long checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Checkpoint to resume from with entries restored from disk: the newest updatedAt, or 0 if
+     * no entry was ever synced. Entries enrolled on this device carry 0 until a pass reads them
+     * back, and are skipped: their records were written with the server time, after every
+     * record the synced entries came from, so a delta pass reads them anyway.
+     */
+    public static long checkpointOf(Collection<FaceData> entries) {
+        long newest = 0;
+        for (FaceData faceData : entries) {
+            newest = Math.max(newest, faceData.getUpdatedAt());
+        }
+        return newest;
+    }
+
+    /**
+     * Starts a pass, or one more after the running pass. The request is recorded before the
+     * pass is claimed, so a call that loses the claim to a finishing pass is still seen by it.
+     */
+    public void sync() {
+        requested.set(true);
+        if (!running.compareAndSet(false, true)) return;
+        requested.set(false);
+        final long since = checkpoint;
+        final long start = System.nanoTime();
+        source.readUsers(since, new Callback<Map<String, UserRecord>>() {
+            @Override
+            public void onResult(Map<String, UserRecord> users, long bytes) {
+                // Compared with a snapshot that holds everything queued before, e.g. the local snapshot
+                gallery.whenApplied(() -> new Pass(since, start, users, bytes).plan());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                executor.execute(() -> finish(null, e));
+            }
+        });
+    }
+
+    private void finish(Report report, Exception error) {
+        Listener current = listener;
+        if (current != null) {
+            if (report != null) {
+                current.onSynced(report);
+            } else {
+                current.onSyncFailed(error);
+            }
+        }
+        running.set(false);
+        if (requested.get()) sync();
+    }
+
+    private final class Pass {
+        private final long since;
+        private final long start;
+        private final Map<String, UserRecord> users;
+        private final AtomicLong bytes;
+        // Filled on the executor only
+        private final List<FaceData> upserts = new ArrayList<>();
+        private final List<String> removals = new ArrayList<>();
+        private final AtomicInteger invalid = new AtomicInteger();
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile Exception error;
+        private long newest;
+        private int fetched;
+
+        Pass(long since, long start, Map<String, UserRecord> users, long bytes) {
+            this.since = since;
+            this.start = start;
+            this.users = users;
+            this.bytes = new AtomicLong(bytes);
+            this.newest = since;
+        }
+
+        /** Executor thread: applies what the local entries already hold and fetches the rest. */
+        void plan() {
+            GallerySnapshot snapshot = gallery.getSnapshot();
+            List<String> toFetch = new ArrayList<>();
+            for (Map.Entry<String, UserRecord> entry : users.entrySet()) {
+                String userId = entry.getKey();
+                UserRecord record = entry.getValue();
+                if (userId == null || record == null) continue;
+                long updatedAt = updatedAt(record);
+                newest = Math.max(newest, updatedAt);
+                FaceData local = snapshot.get(userId);
+                if (record.isDeleted()) {
+                    if (local != null) removals.add(userId);
+                } else if (!FaceRecords.needsEmbedding(local, record)) {
+                    // Same embedding: only the name or the sync state can have changed
+                    String name = record.getName() != null ? record.getName() : local.getName();
+                    if ((name != null && !name.equals(local.getName())) || local.getUpdatedAt() != updatedAt) {
+                        FaceData renamed = FaceRecords.renamed(local, name);
+                        renamed.setUpdatedAt(updatedAt);
+                        upserts.add(renamed);
+                    }
+                } else {
+                    toFetch.add(userId);
+                }
+            }
+            if (since == 0) {
+                // A full read is authoritative: whatever it does not list was deleted
+                Set<String> listed = new HashSet<>(users.keySet());
+                for (FaceData faceData : snapshot.getEntries()) {
+                    if (!listed.contains(faceData.getUserId())) removals.add(faceData.getUserId());
+                }
+            }
+
+            fetched = toFetch.size();
+            if (toFetch.isEmpty()) {
+                commit();
+                return;
+            }
+            remaining.set(toFetch.size());
+            for (final String userId : toFetch) {
+                source.readEmbedding(userId, new Callback<EmbeddingRecord>() {
+                    @Override
+                    public void onResult(EmbeddingRecord record, long size) {
+                        bytes.addAndGet(size);
+                        executor.execute(() -> {
+                            decode(userId, record);
+                            if (remaining.decrementAndGet() == 0) commit();
+                        });
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        error = e;
+                        executor.execute(() -> {
+                            if (remaining.decrementAndGet() == 0) commit();
+                        });
+                    }
+                });
+            }
+        }
+
+        /** Executor thread. */
+        private void decode(String userId, EmbeddingRecord record) {
+            UserRecord user = users.get(userId);
+            if (record != null && record.getEmbeddingHash() != null && user.getEmbeddingHash() != null
+                    && !record.getEmbeddingHash().equals(user.getEmbeddingHash())) {
+                // A stale copy, or one written after the users read; the retry reads both again
+                error = new IOException("Embedding of " + userId + " does not match its users record");
+                return;
+            }
+            FaceData faceData;
+            try {
+                faceData = record != null ? record.toFaceData(userId, user.getName()) : null;
+            } catch (IllegalArgumentException e) {
+                faceData = null;
+            }
+            if (faceData == null) {
+                // Retrying would not help; the next write to this user brings it in
+                invalid.incrementAndGet();
+                return;
+            }
+            faceData.setUpdatedAt(updatedAt(user));
+            upserts.add(faceData);
+        }
+
+        /** Executor thread, once every fetch has answered. */
+        private void commit() {
+            if (error != null) {
+                finish(null, error);
+                return;
+            }
+            if (!upserts.isEmpty() || !removals.isEmpty()) {
+                gallery.apply(upserts, removals);
+            }
+            checkpoint = Math.max(checkpoint, newest);
+            finish(new Report(since == 0, since, users.size(), fetched, upserts.size(), removals.size(),
+                    invalid.get(), bytes.get(), System.nanoTime() - start), null);
+        }
+    }
+
+    private static long updatedAt(UserRecord record) {
+        return record.getUpdatedAt() != null ? record.getUpdatedAt() : 0L;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.attendancetracking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when a live capture becomes a new template of an identity, so recognition keeps up
+ * with lighting, glasses and ageing instead of relying on the enrolment photo alone.
+ *
+ * A capture is added only when it is a confident match (so it is the right person) yet not
+ * nearly identical to an existing template (so it adds variety), and at most once per
+ * MIN_AUTO_ADD_INTERVAL_MS per identity. When an identity already has maxTemplates, the oldest
+ * template other than the enrolment one at index 0 is evicted, so the set drifts with the
+ * person's current appearance while the enrolment anchor keeps it from drifting to someone else.
+ */
+public class TemplatePolicy {
+
+    public static final int DEFAULT_MAX_TEMPLATES = 5;
+    /** Live captures below this similarity to the identity are never added. */
+    static final float AUTO_ADD_MIN_SIMILARITY = 0.7f;
+    /** Captures this close to an existing template add nothing new. */
+    static final float REDUNDANT_SIMILARITY = 0.93f;
+    static final long MIN_AUTO_ADD_INTERVAL_MS = 6 * 60 * 60 * 1000L;
+
+    private final int maxTemplates;
+    // Last capture considered per user, so frames queued before the gallery catches up are ignored
+    private final Map<String, Long> lastConsideredAt = new ConcurrentHashMap<>();
+
+    public TemplatePolicy() {
+        this(DEFAULT_MAX_TEMPLATES);
+    }
+
+    public TemplatePolicy(int maxTemplates) {
+        if (maxTemplates < 1) throw new IllegalArgumentException("maxTemplates must be at least 1");
+        this.maxTemplates = maxTemplates;
+    }
+
+    public int getMaxTemplates() {
+        return maxTemplates;
+    }
+
+    /**
+     * Cheap check on the match thread before the capture is copied: confident, and the identity
+     * has not gained or been offered a template recently.
+     */
+    public boolean isCandidate(FaceData faceData, float similarity, long nowMillis) {
+        if (faceData == null || similarity < AUTO_ADD_MIN_SIMILARITY) return false;
+        if (nowMillis - faceData.getLastCapturedAt() < MIN_AUTO_ADD_INTERVAL_MS) return false;
+        Long considered = lastConsideredAt.get(faceData.getUserId());
+        return considered == null || nowMillis - considered >= MIN_AUTO_ADD_INTERVAL_MS;
+    }
+
+    /**
+     * The identity with capture added as a template, or null if the capture is rejected. The
+     * capture is re-scored against the current templates, so a stale similarity cannot slip in.
+     */
+    public FaceData consider(FaceData faceData, float[] capture, long nowMillis) {
+        if (!isCandidate(faceData, AUTO_ADD_MIN_SIMILARITY, nowMillis)) return null;
+        lastConsideredAt.put(faceData.getUserId(), nowMillis);
+        float norm = EmbeddingGallery.norm(capture, 0, capture.length);
+        if (norm == 0f || capture.length != faceData.getEmbedding().length) return null;
+        float similarity = faceData.maxTemplateSimilarity(capture, 0, 1f / norm);
+        if (similarity < AUTO_ADD_MIN_SIMILARITY || similarity >= REDUNDANT_SIMILARITY) return null;
+        return withTemplate(faceData, capture, nowMillis, maxTemplates);
+    }
+
+    /**
+     * The identity with template added, evicting the oldest template after the enrolment one
+     * when it already has maxTemplates. Used for confirmed re-enrolments as well as live captures.
+     */
+    public static FaceData withTemplate(FaceData faceData, float[] template, long nowMillis, int maxTemplates) {
+        int dimension = faceData.getEmbedding().length;
+        if (template.length != dimension) {
+            throw new IllegalArgumentException("Template dimension " + template.length
+                    + " does not match identity dimension " + dimension);
+        }
+        int count = faceData.getTemplateCount();
+        float[] packed = faceData.getTemplates();
+        long[] capturedAt = faceData.getCapturedAt();
+
+        int evict = -1;
+        if (count >= maxTemplates) {
+            // Oldest after the anchor; with a single slot the anchor itself is replaced
+            evict = count == 1 ? 0 : 1;
+            for (int i = 2; i < count; i++) {
+                if (timeOf(capturedAt, i) < timeOf(capturedAt, evict)) evict = i;
+            }
+        }
+        int newCount = evict >= 0 ? count : count + 1;
+        float[] newTemplates = new float[newCount * dimension];
+        long[] newCapturedAt = new long[newCount];
+        int t = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == evict) continue;
+            EmbeddingGallery.normalizeInto(slice(packed, i, dimension), newTemplates, t * dimension);
+            newCapturedAt[t++] = timeOf(capturedAt, i);
+        }
+        EmbeddingGallery.normalizeInto(template, newTemplates, t * dimension);
+        newCapturedAt[t] = nowMillis;
+        return new FaceData(faceData.getUserId(), faceData.getName(), newTemplates, newCapturedAt);
+    }
+
+    private static long timeOf(long[] capturedAt, int index) {
+        return capturedAt == null ? 0L : capturedAt[index];
+    }
+
+    private static float[] slice(float[] packed, int index, int dimension) {
+        float[] template = new float[dimension];
+        System.arraycopy(packed, index * dimension, template, 0, dimension);
+        return template;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Name and userId projection of a GallerySnapshot, sorted by name, behind the registered-users
+ * screen. It holds no embeddings, so building, searching and diffing it stays cheap with tens
+ * of thousands of users; the embedding of one user is looked up and formatted only on request.
+ */
+public final class UserDirectory {
+
+    public static final UserDirectory EMPTY = new UserDirectory(new ArrayList<Entry>(), -1L);
+
+    private static final Comparator<Entry> BY_NAME = (a, b) -> {
+        int byName = a.key.compareTo(b.key);
+        return byName != 0 ? byName : a.userId.compareTo(b.userId);
+    };
+
+    /** One row of the directory. Equal entries render identically, which is what diffing needs. */
+    public static final class Entry {
+        private final String userId;
+        private final String name;
+        private final int templateCount;
+        // Normalized name, for sorting and searching
+        private final String key;
+
+        Entry(String userId, String name, int templateCount) {
+            this.userId = userId;
+            this.name = name != null ? name : "";
+            this.templateCount = templateCount;
+            this.key = GallerySnapshot.normalizeName(this.name);
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTemplateCount() {
+            return templateCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            Entry other = (Entry) o;
+            return templateCount == other.templateCount && userId.equals(other.userId) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * userId.hashCode() + name.hashCode()) + templateCount;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final long version;
+
+    private UserDirectory(List<Entry> entries, long version) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.version = version;
+    }
+
+    public static UserDirectory from(GallerySnapshot snapshot) {
+        List<Entry> entries = new ArrayList<>(snapshot.size());
+        for (FaceData faceData : snapshot.getEntries()) {
+            if (faceData.getUserId() == null) continue;
+            entries.add(new Entry(faceData.getUserId(), faceData.getName(), faceData.getTemplateCount()));
+        }
+        Collections.sort(entries, BY_NAME);
+        return new UserDirectory(entries, snapshot.getVersion());
+    }
+
+    /** Version of the snapshot this was built from. */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Entries whose name contains the query, compared as GallerySnapshot normalizes names, or
+     * whose userId starts with it; all entries for a blank query. Keeps the name order.
+     */
+    public List<Entry> search(String query) {
+        String key = query != null ? GallerySnapshot.normalizeName(query) : "";
+        if (key.isEmpty()) return entries;
+        String trimmed = query.trim();
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.key.contains(key) || entry.userId.startsWith(trimmed)) {
+                matches.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    /** The first pages of pageSize entries of matches. */
+    public static List<Entry> page(List<Entry> matches, int pages, int pageSize) {
+        long shown = (long) pages * pageSize;
+        return shown >= matches.size() ? matches : matches.subList(0, (int) shown);
+    }
+
+    /**
+     * The embedding as "[a, b, ...]" with four decimals, like String.format("%.4f") with a
+     * '.' separator whatever the device locale, without a Formatter per component.
+     */
+    public static String formatEmbedding(float[] embedding) {
+        StringBuilder sb = new StringBuilder(embedding.length * 9 + 2);
+        sb.append('[');
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) sb.append(", ");
+            appendFourDecimals(sb, embedding[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void appendFourDecimals(StringBuilder sb, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            sb.append(value);
+            return;
+        }
+        long scaled = Math.round(Math.abs((double) value) * 10_000d);
+        if (value < 0f) sb.append('-');
+        sb.append(scaled / 10_000).append('.');
+        long fraction = scaled % 10_000;
+        for (long digit = 1_000; digit > fraction && digit > 1; digit /= 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
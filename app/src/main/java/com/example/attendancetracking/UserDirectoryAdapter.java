@@ -0,0 +1,166 @@
+package com.example.attendancetracking;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Paged, searchable list of a UserDirectory. The directory is built and searched on the given
+ * executor, and ListAdapter diffs each new page against the shown one off the main thread too,
+ * so a gallery change or another typed letter only rebinds the rows that changed. Pages of
+ * PAGE_SIZE rows are added as the list is scrolled towards its end.
+ *
+ * Main thread only, apart from the work handed to the executor, which must run tasks in order.
+ */
+public class UserDirectoryAdapter extends ListAdapter<UserDirectory.Entry, UserDirectoryAdapter.ViewHolder> {
+
+    static final int PAGE_SIZE = 50;
+    // Rows from the end of the list at which the next page is added
+    private static final int PREFETCH_ROWS = PAGE_SIZE / 2;
+
+    public interface OnEntryClickListener {
+        void onEntryClick(UserDirectory.Entry entry);
+    }
+
+    private static final DiffUtil.ItemCallback<UserDirectory.Entry> DIFF = new DiffUtil.ItemCallback<UserDirectory.Entry>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull UserDirectory.Entry oldItem, @NonNull UserDirectory.Entry newItem) {
+            return oldItem.getUserId().equals(newItem.getUserId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull UserDirectory.Entry oldItem, @NonNull UserDirectory.Entry newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final Executor executor;
+    private final OnEntryClickListener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RecyclerView.OnScrollListener pager = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (dy > 0 && layoutManager instanceof LinearLayoutManager
+                    && ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition() >= getItemCount() - PREFETCH_ROWS) {
+                loadNextPage();
+            }
+        }
+    };
+
+    // Executor only: the directory of the newest snapshot searched so far
+    private UserDirectory directory = UserDirectory.EMPTY;
+
+    private GallerySnapshot snapshot = GallerySnapshot.EMPTY;
+    private String query = "";
+    private List<UserDirectory.Entry> matches = Collections.emptyList();
+    private int pages = 1;
+    // Discards search results overtaken by a newer snapshot or query
+    private int generation;
+
+    public UserDirectoryAdapter(Executor executor, OnEntryClickListener listener) {
+        super(DIFF);
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /** Shows snapshot, keeping the query and the pages loaded so far. */
+    public void setSnapshot(GallerySnapshot snapshot) {
+        this.snapshot = snapshot;
+        search();
+    }
+
+    /** Filters by name or userId and goes back to the first page. */
+    public void setQuery(String query) {
+        this.query = query != null ? query : "";
+        pages = 1;
+        search();
+    }
+
+    /** Number of users matching the query, including those on pages not loaded yet. */
+    public int getMatchCount() {
+        return matches.size();
+    }
+
+    public void loadNextPage() {
+        if ((long) pages * PAGE_SIZE >= matches.size()) return;
+        pages++;
+        submitList(UserDirectory.page(matches, pages, PAGE_SIZE));
+    }
+
+    private void search() {
+        final int searchGeneration = ++generation;
+        final GallerySnapshot searchSnapshot = snapshot;
+        final String searchQuery = query;
+        executor.execute(() -> {
+            if (directory.getVersion() != searchSnapshot.getVersion()) {
+                directory = UserDirectory.from(searchSnapshot);
+            }
+            final List<UserDirectory.Entry> found = directory.search(searchQuery);
+            mainHandler.post(() -> {
+                if (searchGeneration != generation) return;
+                matches = found;
+                submitList(UserDirectory.page(found, pages, PAGE_SIZE));
+            });
+        });
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(pager);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(pager);
+        super.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.list_user, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        UserDirectory.Entry entry = getItem(position);
+        holder.entry = entry;
+        holder.name.setText(entry.getName());
+        holder.details.setText(entry.getTemplateCount() > 1
+                ? "ID: " + entry.getUserId() + ", " + entry.getTemplateCount() + " templates"
+                : "ID: " + entry.getUserId());
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView name;
+        final TextView details;
+        UserDirectory.Entry entry;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            name = itemView.findViewById(R.id.name);
+            details = itemView.findViewById(R.id.details);
+            itemView.setOnClickListener(view -> {
+                if (entry != null) listener.onEntryClick(entry);
+            });
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.attendancetracking;
+
+/**
+ * Metadata of one enrolled user, stored under users/userId. Small enough that every kiosk can
+ * follow the whole node; the embedding lives under embeddings/userId and is fetched only when
+ * embeddingHash differs from the one the kiosk already has.
+ */
+public class UserRecord {
+    private String name;
+    // FaceRecords.embeddingHash of the record under embeddings/userId
+    private String embeddingHash;
+    // Server time of the last write to this user, ms since epoch
+    private Long updatedAt;
+    // Tombstone of a deleted user; kept so delta syncs see the deletion
+    private boolean deleted;
+
+    // Constructor trống cho Firebase
+    public UserRecord() {
+    }
+
+    public UserRecord(String name, String embeddingHash, Long updatedAt) {
+        this.name = name;
+        this.embeddingHash = embeddingHash;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmbeddingHash() {
+        return embeddingHash;
+    }
+
+    public void setEmbeddingHash(String embeddingHash) {
+        this.embeddingHash = embeddingHash;
+    }
+
+    public Long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveControllerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long CAMERA_FRAME = 33 * MS;
+
+    /** Camera at 30 FPS feeding a simulated device whose stage costs the test can change. */
+    private static final class Device {
+        final AdaptiveController controller = new AdaptiveController(150, 2000, 10_000, 500);
+        long now;
+        long submitted;
+        /** Detection time of a full-resolution frame; scales with pixel count. */
+        long detectFullFrame = 20 * MS;
+        long embedPerFace = 20 * MS;
+        long match = 1 * MS;
+        int faces = 2;
+
+        void run(long durationNanos) {
+            long end = now + durationNanos;
+            for (; now < end; now += CAMERA_FRAME) {
+                if (!controller.shouldSubmit(now)) continue;
+                submitted++;
+                float scale = controller.getDetectionScale();
+                long detect = (long) (detectFullFrame * scale * scale);
+                controller.recordDetect(now + detect, scale, detect, faces);
+                long embed = 0;
+                if (faces > 0) {
+                    // One face refreshed per frame on average keeps the model simple
+                    embed = embedPerFace;
+                    controller.recordEmbed(1, embed);
+                    controller.recordMatch(match);
+                }
+                long latency = detect + embed + match;
+                controller.recordLatency(now + latency, latency);
+            }
+        }
+    }
+
+    @Test
+    public void fastDevice_keepsFullScaleAndEveryFrame() {
+        Device device = new Device();
+        device.run(10_000 * MS);
+
+        assertEquals(1f, device.controller.getDetectionScale(), 0f);
+        assertFalse(device.controller.isIdle());
+        // 20 ms detection fits in one camera frame, so nothing is skipped
+        assertEquals(10_000 / 33 + 1, device.submitted, 1);
+        assertEquals(2000 * MS, device.controller.getRefreshIntervalNanos());
+    }
+
+    @Test
+    public void hotDevice_lowersScaleToFitBudget_andRecoversWhenCool() {
+        Device device = new Device();
+        device.run(2_000 * MS);
+        device.detectFullFrame = 300 * MS;
+        device.run(10_000 * MS);
+
+        // Half of the 150 ms budget for detection: sqrt(75 / 300) = 0.5
+        float scale = device.controller.getDetectionScale();
+        assertEquals(0.5f, scale, AdaptiveController.SCALE_STEP);
+        assertTrue(device.detectFullFrame * scale * scale <= 80 * MS);
+
+        device.detectFullFrame = 40 * MS;
+        device.run(10_000 * MS);
+        assertEquals(1f, device.controller.getDetectionScale(), 1e-6f);
+    }
+
+    @Test
+    public void scaleNeverDropsBelowMinimum() {
+        Device device = new Device();
+        device.detectFullFrame = 3_000 * MS;
+        device.run(10_000 * MS);
+        assertEquals(AdaptiveController.MIN_SCALE, device.controller.getDetectionScale(), 1e-6f);
+    }
+
+    @Test
+    public void slowDetection_spacesSubmittedFrames() {
+        Device device = new Device();
+        device.detectFullFrame = 100 * MS;
+        device.run(2_000 * MS);
+        // At scale 0.85 detection takes ~72 ms, so about every other camera frame is submitted
+        long submittedBefore = device.submitted;
+        device.run(3_300 * MS);
+        long perSecond = (device.submitted - submittedBefore) * 1000 / 3_300;
+        long expected = 1000 * MS / device.controller.getSubmitIntervalNanos();
+        assertTrue(device.controller.getSubmitIntervalNanos() > CAMERA_FRAME);
+        assertEquals(expected, perSecond, 3);
+        assertTrue(perSecond < 30);
+    }
+
+    @Test
+    public void slowRecognizer_stretchesRefreshInterval() {
+        Device device = new Device();
+        device.faces = 5;
+        device.embedPerFace = 200 * MS;
+        device.run(5_000 * MS);
+        // 200 ms per face x 5 faces at a 25% duty cycle
+        assertEquals(4_000 * MS, device.controller.getRefreshIntervalNanos(), 200 * MS);
+
+        device.embedPerFace = 500 * MS;
+        device.run(5_000 * MS);
+        assertEquals(8_000 * MS, device.controller.getRefreshIntervalNanos());
+    }
+
+    @Test
+    public void noFaces_entersIdle_andFirstFaceWakesItUp() {
+        Device device = new Device();
+        device.run(2_000 * MS);
+        device.faces = 0;
+        device.run(9_000 * MS);
+        assertFalse(device.controller.isIdle());
+        device.run(2_000 * MS);
+        assertTrue(device.controller.isIdle());
+        assertEquals(0.5f, device.controller.getDetectionScale(), 0f);
+
+        long submittedBefore = device.submitted;
+        device.run(5_000 * MS);
+        // One detection every 500 ms instead of every camera frame
+        assertEquals(10, device.submitted - submittedBefore, 1);
+
+        device.faces = 1;
+        device.run(1_000 * MS);
+        assertFalse(device.controller.isIdle());
+        assertEquals(1f, device.controller.getDetectionScale(), 0f);
+        submittedBefore = device.submitted;
+        device.run(1_000 * MS);
+        assertTrue(device.submitted - submittedBefore >= 29);
+    }
+
+    @Test
+    public void scaleFaces_mapsCoordinatesButNotScore() {
+        FrameContext context = new FrameContext();
+        context.numFaces = 1;
+        for (int k = 0; k < RecognitionPipeline.FACE_STRIDE; k++) {
+            context.faces[k] = 10f;
+        }
+        context.faces[RecognitionPipeline.FACE_STRIDE - 1] = 0.9f;
+        context.scaleFaces(2f);
+        for (int k = 0; k < RecognitionPipeline.FACE_STRIDE - 1; k++) {
+            assertEquals(20f, context.faces[k], 0f);
+        }
+        assertEquals(0.9f, context.faces[RecognitionPipeline.FACE_STRIDE - 1], 0f);
+    }
+}
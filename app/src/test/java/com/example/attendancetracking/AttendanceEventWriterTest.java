@@ -0,0 +1,140 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AttendanceEventWriterTest {
+
+    @Test
+    public void repeatedSightingsWithinWindow_produceOneEvent() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceEventWriter writer = new AttendanceEventWriter(dao, 60_000, 64, 1024, 60_000);
+
+        // 10 s at 30 FPS of the same person, then a second person
+        for (int frame = 0; frame < 300; frame++) {
+            writer.record("u1", 0.8f, 1_000L + frame * 33L, 10.0, 106.0, true);
+        }
+        writer.record("u2", 0.7f, 5_000L, null, null);
+        writer.flushNow();
+
+        assertEquals(2, dao.events.size());
+        assertEquals("u1", dao.events.get(0).getUserId());
+        assertEquals(Double.valueOf(10.0), dao.events.get(0).getLatitude());
+        assertEquals(Boolean.TRUE, dao.events.get(0).getOnSite());
+        assertEquals("u2", dao.events.get(1).getUserId());
+        assertNull(dao.events.get(1).getLatitude());
+        assertNull(dao.events.get(1).getOnSite());
+        assertEquals(299, writer.getDeduplicatedCount());
+        writer.close();
+    }
+
+    @Test
+    public void sightingAfterWindow_isRecordedAgain() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceEventWriter writer = new AttendanceEventWriter(dao, 1_000, 64, 1024, 60_000);
+
+        assertTrue(writer.record("u1", 0.9f, 0L, null, null));
+        assertFalse(writer.record("u1", 0.9f, 999L, null, null));
+        assertTrue(writer.record("u1", 0.9f, 1_000L, null, null));
+        writer.flushNow();
+
+        assertEquals(2, dao.events.size());
+        writer.close();
+    }
+
+    @Test
+    public void inserts_areCoalescedIntoBatches() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceEventWriter writer = new AttendanceEventWriter(dao, 0, 50, 1024, 60_000);
+
+        for (int i = 0; i < 120; i++) {
+            writer.record("user-" + i, 0.9f, i, null, null);
+        }
+        writer.close();
+        assertTrue(writer.awaitClosed(5, TimeUnit.SECONDS));
+
+        assertEquals(120, dao.events.size());
+        assertEquals(120, writer.getWrittenCount());
+        // 120 events with batches of at most 50 need at least 3 transactions, far fewer than 120
+        assertTrue(dao.insertCalls >= 3 && dao.insertCalls <= 10);
+        for (int size : dao.batchSizes) {
+            assertTrue(size <= 50);
+        }
+    }
+
+    @Test
+    public void close_returnsBeforeTheLastBatchIsWritten() throws Exception {
+        final CountDownLatch insertStarted = new CountDownLatch(1);
+        final CountDownLatch releaseInsert = new CountDownLatch(1);
+        RecordingDao dao = new RecordingDao() {
+            @Override
+            public void insertAll(List<AttendanceEvent> events) {
+                insertStarted.countDown();
+                try {
+                    releaseInsert.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.insertAll(events);
+            }
+        };
+        AttendanceEventWriter writer = new AttendanceEventWriter(dao, 0, 64, 1024, 60_000);
+        writer.record("u1", 0.9f, 0L, null, null);
+
+        writer.close();
+        assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, writer.getWrittenCount());
+
+        releaseInsert.countDown();
+        assertTrue(writer.awaitClosed(5, TimeUnit.SECONDS));
+        assertEquals(1, writer.getWrittenCount());
+    }
+
+    @Test
+    public void fullQueue_dropsInsteadOfBlocking() {
+        RecordingDao dao = new RecordingDao();
+        AttendanceEventWriter writer = new AttendanceEventWriter(dao, 0, 1_000, 4, 60_000);
+
+        int queued = 0;
+        for (int i = 0; i < 10; i++) {
+            if (writer.record("user-" + i, 0.9f, i, null, null)) queued++;
+        }
+        assertEquals(4, queued);
+        assertEquals(6, writer.getDroppedCount());
+        writer.close();
+    }
+
+    private static class RecordingDao implements AttendanceEventDao {
+        final List<AttendanceEvent> events = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        int insertCalls;
+
+        @Override
+        public synchronized void insertAll(List<AttendanceEvent> batch) {
+            insertCalls++;
+            batchSizes.add(batch.size());
+            events.addAll(batch);
+        }
+
+        @Override
+        public List<AttendanceEvent> getRecent(int limit) {
+            return events;
+        }
+
+        @Override
+        public List<AttendanceEvent> getForUserSince(String userId, long sinceMillis) {
+            return events;
+        }
+
+        @Override
+        public int count() {
+            return events.size();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class BulkEnrollerTest {
+
+    /** Photo bytes are the photo's label; the embedder looks its vector up by label. */
+    private final Map<String, float[]> vectors = new HashMap<>();
+    private final Random random = new Random(17);
+
+    private BulkEnroller.Embedder embedder() {
+        return photo -> {
+            InputStream in = photo.open();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) out.write(b);
+            in.close();
+            String key = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            if (key.startsWith("broken")) throw new IOException("corrupt");
+            return vectors.get(key);
+        };
+    }
+
+    @Test
+    public void zip_groupsPhotosByFolder_andAveragesEachPerson() throws Exception {
+        float[] an = EmbeddingGalleryTest.randomVector(random);
+        float[] binh = EmbeddingGalleryTest.randomVector(random);
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            entries.put("staff/Nguyen Van An/" + i + ".jpg", photo("an" + i, noisy(an, 0.1f)));
+            entries.put("staff/Tran Thi Binh/" + i + ".JPG", photo("binh" + i, noisy(binh, 0.1f)));
+        }
+        entries.put("staff/Tran Thi Binh/notes.txt", "ignored");
+        entries.put("__MACOSX/staff/Tran Thi Binh/._0.jpg", "ignored");
+        entries.put("loose.jpg", photo("loose", EmbeddingGalleryTest.randomVector(random)));
+        entries.put("staff/Le Van Cuong/empty.png", photo("empty", null));
+
+        BulkEnroller enroller = new BulkEnroller(new FaceMatcher(new EmbeddingGallery()), embedder(), 3);
+        BulkEnroller.Report report = enroller.enroll(zip(entries), GallerySnapshot.EMPTY, null);
+
+        assertEquals(7, report.getPhotos());
+        assertEquals(1, report.getSkipped());
+        assertEquals(1, report.getNoFace());
+        assertEquals(1, report.getWithoutTemplate());
+        assertEquals(2, report.getAdded());
+        List<FaceData> enrolled = report.getEnrolled();
+        assertEquals("Nguyen Van An", enrolled.get(0).getName());
+        assertEquals("Tran Thi Binh", enrolled.get(1).getName());
+        // The average of noisy photos is closer to the person than any single photo
+        assertTrue(cosine(an, enrolled.get(0).getEmbedding()) > 0.95f);
+        assertTrue(cosine(binh, enrolled.get(1).getEmbedding()) > 0.95f);
+        assertNotEquals(enrolled.get(0).getUserId(), enrolled.get(1).getUserId());
+    }
+
+    @Test
+    public void averageTemplate_dropsPhotoOfSomeoneElse() {
+        float[] person = EmbeddingGalleryTest.randomVector(random);
+        List<float[]> photos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            photos.add(noisy(person, 0.05f));
+        }
+        photos.add(EmbeddingGalleryTest.randomVector(random));
+
+        BulkEnroller.Template template = BulkEnroller.averageTemplate(photos);
+        assertEquals(4, template.photos);
+        assertTrue(cosine(person, template.vector) > 0.99f);
+        assertEquals(1f, EmbeddingGallery.norm(template.vector, 0, template.vector.length), 1e-5f);
+
+        // Two photos give no majority, so both are kept
+        List<float[]> pair = Arrays.asList(person, EmbeddingGalleryTest.randomVector(random));
+        assertEquals(2, BulkEnroller.averageTemplate(pair).photos);
+    }
+
+    @Test
+    public void duplicates_resolvedAgainstGalleryAndBatch() throws Exception {
+        float[] enrolledAn = EmbeddingGalleryTest.randomVector(random);
+        float[] enrolledBinh = EmbeddingGalleryTest.randomVector(random);
+        float[] newcomer = EmbeddingGalleryTest.randomVector(random);
+        LinkedHashMap<String, FaceData> gallery = new LinkedHashMap<>();
+        gallery.put("id-an", new FaceData("id-an", "Nguyen Van An", enrolledAn));
+        gallery.put("id-binh", new FaceData("id-binh", "Tran Thi Binh", enrolledBinh));
+        GallerySnapshot snapshot = new GallerySnapshot(gallery, 1);
+        EmbeddingGallery index = new EmbeddingGallery(snapshot.getEntries());
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        // Re-enrolment of An under a differently spaced and cased name updates An
+        entries.put("nguyen  van AN/1.jpg", photo("an", noisy(enrolledAn, 0.05f)));
+        // Binh's face under another name is a conflict
+        entries.put("Someone Else/1.jpg", photo("binh", noisy(enrolledBinh, 0.05f)));
+        entries.put("Newcomer/1.jpg", photo("new1", noisy(newcomer, 0.05f)));
+        // The newcomer again in a second folder of the same import
+        entries.put("Newcomer Copy/1.jpg", photo("new2", noisy(newcomer, 0.05f)));
+        entries.put("Newcomer Copy/2.jpg", photo("broken", null));
+
+        BulkEnroller enroller = new BulkEnroller(new FaceMatcher(index), embedder(), 2);
+        BulkEnroller.Report report = enroller.enroll(zip(entries), snapshot, null);
+
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getAdded());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getConflicts().size());
+        assertTrue(report.getConflicts().get(0).contains("Tran Thi Binh"));
+        assertTrue(report.getConflicts().get(1).contains("in this import"));
+        FaceData updated = report.getEnrolled().get(0);
+        assertEquals("id-an", updated.getUserId());
+        assertEquals("Nguyen Van An", updated.getName());
+        assertEquals("Newcomer", report.getEnrolled().get(1).getName());
+        assertTrue(report.summary().startsWith("Added 1, updated 1, conflicts 2"));
+    }
+
+    @Test
+    public void workers_areBounded_andProgressReachesTotal() throws Exception {
+        final int workers = 3;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final float[] face = EmbeddingGalleryTest.randomVector(random);
+        BulkEnroller.Embedder slow = photo -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return face;
+        };
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        BulkEnroller.Source source = consumer -> {
+            for (int i = 0; i < 200; i++) {
+                opened.incrementAndGet();
+                maxOutstanding.accumulateAndGet(opened.get() - finished.get(), Math::max);
+                consumer.accept(new BulkEnroller.Photo("Person " + (i % 10), i + ".jpg",
+                        () -> new ByteArrayInputStream(new byte[0])));
+            }
+        };
+        final AtomicInteger lastDone = new AtomicInteger();
+        final AtomicBoolean doneAheadOfSubmitted = new AtomicBoolean();
+        BulkEnroller enroller = new BulkEnroller(new FaceMatcher(new EmbeddingGallery()), slow, workers);
+        BulkEnroller.Report report = enroller.enroll(source, GallerySnapshot.EMPTY, (done, submitted) -> {
+            finished.incrementAndGet();
+            lastDone.accumulateAndGet(done, Math::max);
+            if (done > submitted) doneAheadOfSubmitted.set(true);
+        });
+
+        assertEquals(200, report.getPhotos());
+        assertEquals(200, lastDone.get());
+        assertFalse(doneAheadOfSubmitted.get());
+        assertTrue(maxRunning.get() <= workers);
+        // The walker never runs further ahead than the in-flight limit
+        assertTrue(maxOutstanding.get() <= workers * 2 + 1);
+        // Same face in every folder: the first is added, the other nine conflict
+        assertEquals(1, report.getAdded());
+        assertEquals(9, report.getConflicts().size());
+        assertTrue(report.getPhotosPerSecond() > 0f);
+    }
+
+    @Test
+    public void zipSource_skipsHiddenAndNonImageEntries() {
+        assertTrue(BulkEnroller.ZipSource.isPhoto("a/b/photo.jpeg"));
+        assertTrue(BulkEnroller.ZipSource.isPhoto("a/photo.PNG"));
+        assertFalse(BulkEnroller.ZipSource.isPhoto("a/.hidden.jpg"));
+        assertFalse(BulkEnroller.ZipSource.isPhoto("__MACOSX/a/photo.jpg"));
+        assertFalse(BulkEnroller.ZipSource.isPhoto("a/readme.txt"));
+    }
+
+    private String photo(String key, float[] vector) {
+        vectors.put(key, vector);
+        return key;
+    }
+
+    private float[] noisy(float[] base, float amount) {
+        float[] v = base.clone();
+        for (int i = 0; i < v.length; i++) {
+            v[i] += (float) random.nextGaussian() * amount;
+        }
+        return v;
+    }
+
+    private static BulkEnroller.ZipSource zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            out.putNextEntry(new ZipEntry(entry.getKey()));
+            out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        out.close();
+        return new BulkEnroller.ZipSource(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static float cosine(float[] a, float[] b) {
+        return EmbeddingGallery.dot(a, 0, b, a.length)
+                / (EmbeddingGallery.norm(a, 0, a.length) * EmbeddingGallery.norm(b, 0, b.length));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CascadeFaceDetectorTest {
+
+    private static final int STRIDE = RecognitionPipeline.FACE_STRIDE;
+
+    @Test
+    public void candidateRegion_growsEachCandidateByTheMarginAndClipsToTheFrame() {
+        float[] faces = new float[2 * STRIDE];
+        box(faces, 0, 100, 100, 40, 40);
+        box(faces, 1, 620, 10, 20, 20);
+        int[] region = new int[4];
+
+        assertTrue(CascadeFaceDetector.candidateRegion(faces, 1, 640, 480, 0.5f, region));
+        assertArrayEquals(new int[]{80, 80, 80, 80}, region);
+
+        // Union of both; the second one pokes out of the top and right edges
+        assertTrue(CascadeFaceDetector.candidateRegion(faces, 2, 640, 480, 0.5f, region));
+        assertArrayEquals(new int[]{80, 0, 560, 160}, region);
+    }
+
+    @Test
+    public void candidateRegion_isEmptyWithoutUsableCandidates() {
+        float[] faces = new float[STRIDE];
+        int[] region = new int[4];
+        assertFalse(CascadeFaceDetector.candidateRegion(faces, 0, 640, 480, 0.5f, region));
+        // Zero-sized rows, e.g. a legacy detector that found nothing
+        assertFalse(CascadeFaceDetector.candidateRegion(faces, 1, 640, 480, 0.5f, region));
+        // Entirely outside the frame
+        box(faces, 0, 700, 500, 20, 20);
+        assertFalse(CascadeFaceDetector.candidateRegion(faces, 1, 640, 480, 0.5f, region));
+    }
+
+    @Test
+    public void offsetFaces_movesBoxesAndPresentLandmarksOnly() {
+        float[] faces = new float[2 * STRIDE];
+        box(faces, 0, 10, 20, 30, 30);
+        for (int k = FaceDetector.LANDMARKS; k < FaceDetector.SCORE; k++) {
+            faces[k] = k;
+        }
+        faces[FaceDetector.SCORE] = 0.8f;
+        box(faces, 1, 5, 5, 10, 10);
+
+        CascadeFaceDetector.offsetFaces(faces, 2, 100, 200);
+
+        assertEquals(110f, faces[0], 0f);
+        assertEquals(220f, faces[1], 0f);
+        assertEquals(30f, faces[2], 0f);
+        assertEquals(FaceDetector.LANDMARKS + 100f, faces[FaceDetector.LANDMARKS], 0f);
+        assertEquals(FaceDetector.LANDMARKS + 1 + 200f, faces[FaceDetector.LANDMARKS + 1], 0f);
+        assertEquals(0.8f, faces[FaceDetector.SCORE], 0f);
+        // Second face has no landmarks; they stay absent
+        assertEquals(105f, faces[STRIDE], 0f);
+        assertEquals(0f, faces[STRIDE + FaceDetector.LANDMARKS], 0f);
+    }
+
+    private static void box(float[] faces, int index, float x, float y, float w, float h) {
+        int offset = index * STRIDE;
+        faces[offset] = x;
+        faces[offset + 1] = y;
+        faces[offset + 2] = w;
+        faces[offset + 3] = h;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DetectorBenchmarkTest {
+
+    private static final int STRIDE = RecognitionPipeline.FACE_STRIDE;
+
+    @Test
+    public void iou_ofIdenticalDisjointAndHalfOverlappingBoxes() {
+        float[] a = row(0, 0, 10, 10);
+        assertEquals(1f, DetectorBenchmark.iou(a, 0, row(0, 0, 10, 10), 0), 1e-6f);
+        assertEquals(0f, DetectorBenchmark.iou(a, 0, row(20, 20, 10, 10), 0), 1e-6f);
+        // 50 shared of 150 covered
+        assertEquals(1f / 3f, DetectorBenchmark.iou(a, 0, row(5, 0, 10, 10), 0), 1e-6f);
+    }
+
+    @Test
+    public void countMatches_pairsEachFaceAtMostOnce() {
+        float[] reference = rows(new float[]{0, 0, 100, 100}, new float[]{200, 0, 100, 100});
+        // Two boxes on the first face, none on the second, one false positive
+        float[] candidate = rows(new float[]{2, 2, 100, 100}, new float[]{5, 5, 95, 95}, new float[]{400, 400, 50, 50});
+
+        assertEquals(1, DetectorBenchmark.countMatches(candidate, 3, reference, 2, DetectorBenchmark.MATCH_IOU));
+        assertEquals(2, DetectorBenchmark.countMatches(reference, 2, reference, 2, DetectorBenchmark.MATCH_IOU));
+        assertEquals(0, DetectorBenchmark.countMatches(candidate, 3, reference, 0, DetectorBenchmark.MATCH_IOU));
+    }
+
+    @Test
+    public void run_reportsAgreementWithTheReference() throws IOException {
+        // Each frame holds one face at x = 100 * index; every third frame has a second face
+        final int frameCount = 30;
+        DetectorBenchmark.Frames<Integer> frames = new DetectorBenchmark.Frames<Integer>() {
+            @Override
+            public int size() {
+                return frameCount;
+            }
+
+            @Override
+            public Integer load(int index) {
+                return index;
+            }
+
+            @Override
+            public void release(Integer frame) {
+            }
+        };
+        DetectorBenchmark.Detector<Integer> reference = (frame, faces, maxFaces) -> {
+            put(faces, 0, 100 * frame, 50, 80, 80);
+            if (frame % 3 != 0) return 1;
+            put(faces, 1, 100 * frame, 300, 80, 80);
+            return 2;
+        };
+        Map<String, DetectorBenchmark.Detector<Integer>> candidates = new LinkedHashMap<>();
+        // Finds the first face only, slightly shifted
+        candidates.put("first-only", (frame, faces, maxFaces) -> {
+            put(faces, 0, 100 * frame + 4, 54, 80, 80);
+            return 1;
+        });
+        // Finds nothing on odd frames and adds a false positive on even ones
+        candidates.put("noisy", (frame, faces, maxFaces) -> {
+            if (frame % 2 == 1) return 0;
+            put(faces, 0, 100 * frame, 50, 80, 80);
+            put(faces, 1, 5000, 5000, 10, 10);
+            return 2;
+        });
+
+        List<DetectorBenchmark.Result> results = DetectorBenchmark.run(frames, "YUNET", reference, candidates);
+
+        assertEquals(3, results.size());
+        DetectorBenchmark.Result yunet = results.get(0);
+        assertEquals("YUNET", yunet.getName());
+        assertEquals(1f, yunet.getAgreement(), 0f);
+
+        DetectorBenchmark.Result firstOnly = results.get(1);
+        assertEquals(1f, firstOnly.getPrecision(), 1e-6f);
+        assertEquals(30f / 40f, firstOnly.getRecall(), 1e-6f);
+
+        DetectorBenchmark.Result noisy = results.get(2);
+        assertEquals(0.5f, noisy.getPrecision(), 1e-6f);
+        assertEquals(15f / 40f, noisy.getRecall(), 1e-6f);
+        assertTrue(noisy.getAgreement() < firstOnly.getAgreement());
+        String summary = DetectorBenchmark.summary(results);
+        assertEquals(summary, 3, summary.split("\n").length);
+        assertTrue(summary, summary.startsWith("YUNET: "));
+        assertTrue(summary, summary.contains("(precision 1.000, recall 0.750)\nnoisy: "));
+
+        String json = DetectorBenchmark.toJson("Pixel \"7\"", frameCount, results);
+        assertTrue(json, json.startsWith("{\"device\":\"Pixel \\\"7\\\"\",\"frames\":30,"));
+        assertTrue(json, json.contains("\"first-only\":{\"fps\":"));
+        assertTrue(json, json.contains("\"precision\":1.0000,\"recall\":0.7500,\"faces\":30,\"referenceFaces\":40}"));
+    }
+
+    private static float[] row(float x, float y, float w, float h) {
+        return rows(new float[]{x, y, w, h});
+    }
+
+    private static float[] rows(float[]... boxes) {
+        float[] faces = new float[boxes.length * STRIDE];
+        for (int i = 0; i < boxes.length; i++) {
+            put(faces, i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+        return faces;
+    }
+
+    private static void put(float[] faces, int index, float x, float y, float w, float h) {
+        int offset = index * STRIDE;
+        faces[offset] = x;
+        faces[offset + 1] = y;
+        faces[offset + 2] = w;
+        faces[offset + 3] = h;
+        faces[offset + FaceDetector.SCORE] = 0.9f;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DropOldestQueueTest {
+
+    @Test
+    public void offer_whenFull_evictsOldest() {
+        DropOldestQueue<String> queue = new DropOldestQueue<>(2);
+        assertNull(queue.offer("a"));
+        assertNull(queue.offer("b"));
+        assertEquals("a", queue.offer("c"));
+        assertEquals("b", queue.offer("d"));
+
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(Arrays.asList("c", "d"), queue.drain());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void take_blocksUntilOffered() throws Exception {
+        DropOldestQueue<Integer> queue = new DropOldestQueue<>(1);
+        Integer[] taken = new Integer[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                taken[0] = queue.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        queue.offer(7);
+        consumer.join(1000);
+
+        assertFalse(consumer.isAlive());
+        assertEquals(Integer.valueOf(7), taken[0]);
+    }
+}
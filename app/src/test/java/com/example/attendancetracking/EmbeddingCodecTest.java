@@ -0,0 +1,154 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingCodecTest {
+
+    @Test
+    public void float32_roundTripsExactly() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            float[] embedding = EmbeddingGalleryTest.randomVector(random);
+            String data = EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT32);
+            assertArrayEquals(embedding, EmbeddingCodec.decode(data), 0f);
+        }
+    }
+
+    @Test
+    public void float16_keepsCosineSimilarity() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            float[] embedding = EmbeddingGalleryTest.randomVector(random);
+            float[] decoded = EmbeddingCodec.decode(EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT16));
+            assertEquals(embedding.length, decoded.length);
+            assertEquals(1f, EmbeddingGalleryTest.cosine(embedding, decoded), 1e-5f);
+        }
+    }
+
+    @Test
+    public void half_conversionHandlesSpecialValues() {
+        float[] exact = {0f, -0f, 1f, -2f, 0.5f, 65504f, 6.1035156e-5f, 5.9604645e-8f, -1.5f};
+        for (float value : exact) {
+            assertEquals(Float.floatToIntBits(value),
+                    Float.floatToIntBits(EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(value))));
+        }
+        assertEquals(Float.POSITIVE_INFINITY, EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(1e6f)), 0f);
+        assertEquals(Float.NEGATIVE_INFINITY, EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(Float.NEGATIVE_INFINITY)), 0f);
+        assertTrue(Float.isNaN(EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(Float.NaN))));
+        assertEquals(0f, EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(1e-10f)), 0f);
+        // 1 + 2^-11 is halfway between two halves and rounds to the even one
+        assertEquals(1f, EmbeddingCodec.fromHalf(EmbeddingCodec.toHalf(1f + 1f / 2048)), 0f);
+    }
+
+    @Test
+    public void everyLength_survivesBase64Padding() {
+        for (int dimension = 0; dimension < 8; dimension++) {
+            float[] embedding = new float[dimension];
+            for (int i = 0; i < dimension; i++) embedding[i] = i * 0.25f - 1f;
+            assertArrayEquals(embedding,
+                    EmbeddingCodec.decode(EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT16)), 0f);
+        }
+    }
+
+    @Test
+    public void mainModel_readsBothLegacyAndCompactForms() {
+        float[] embedding = {0.25f, -0.5f, 0.125f};
+        List<Float> legacy = new ArrayList<>();
+        for (float value : embedding) legacy.add(value);
+
+        MainModel legacyModel = new MainModel("Alice", legacy);
+        assertTrue(legacyModel.usesLegacyEmbedding());
+        assertArrayEquals(embedding, legacyModel.toEmbeddingArray(), 0f);
+
+        MainModel compactModel = new MainModel("Alice", EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT32));
+        assertFalse(compactModel.usesLegacyEmbedding());
+        assertArrayEquals(embedding, compactModel.toEmbeddingArray(), 0f);
+
+        assertNull(new MainModel().toEmbeddingArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedBase64_isRejected() {
+        EmbeddingCodec.decode("not base64!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVersion_isRejected() {
+        // Header bytes 02 00 01 00: version 2, FLOAT32, dimension 1
+        EmbeddingCodec.decode("AgABAAAAgD8=");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthNotMatchingDimension_isRejected() {
+        // Header claims dimension 3 but only two floats follow
+        EmbeddingCodec.decode("AQADAAAAgD8AAABA");
+    }
+
+    @Test
+    public void compactFormats_areSmallerThanLegacyJson() {
+        Random random = new Random(4);
+        for (int i = 0; i < 100; i++) {
+            float[] embedding = EmbeddingGalleryTest.randomVector(random);
+            // JSON string quotes around the Base64 payload
+            int float32 = EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT32).length() + 2;
+            int float16 = EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT16).length() + 2;
+
+            // 128 floats: 4-byte header + 512 bytes -> 688 Base64 chars, 260 bytes -> 348 chars
+            assertEquals(690, float32);
+            assertEquals(350, float16);
+            assertTrue(legacyJsonLength(embedding) > 3 * float32);
+        }
+    }
+
+    @Test
+    public void templates_roundTripThroughMainModel() {
+        Random random = new Random(15);
+        FaceData faceData = new FaceData("u1", "An", EmbeddingGalleryTest.randomVector(random));
+        for (int i = 1; i <= 3; i++) {
+            faceData = TemplatePolicy.withTemplate(faceData, EmbeddingGalleryTest.randomVector(random), 1_700_000_000_000L + i, 5);
+        }
+        String data = EmbeddingCodec.encodeTemplates(faceData.getTemplates(), faceData.getCapturedAt(),
+                EmbeddingCodec.Precision.FLOAT32);
+        MainModel model = new MainModel("An", EmbeddingCodec.encode(faceData.getEmbedding(), EmbeddingCodec.Precision.FLOAT32));
+        model.setTemplateData(data);
+
+        FaceData decoded = model.toFaceData("u1");
+        assertEquals(4, decoded.getTemplateCount());
+        assertArrayEquals(faceData.getTemplates(), decoded.getTemplates(), 0f);
+        assertArrayEquals(faceData.getCapturedAt(), decoded.getCapturedAt());
+        assertArrayEquals(faceData.getEmbedding(), decoded.getEmbedding(), 0f);
+        // Older app versions read only the centroid
+        assertArrayEquals(faceData.getEmbedding(), model.toEmbeddingArray(), 0f);
+
+        String half = EmbeddingCodec.encodeTemplates(faceData.getTemplates(), faceData.getCapturedAt(),
+                EmbeddingCodec.Precision.FLOAT16);
+        assertTrue(half.length() < data.length() * 0.6);
+        EmbeddingCodec.TemplateSet set = EmbeddingCodec.decodeTemplates(half);
+        assertArrayEquals(faceData.getTemplates(), set.templates, 2e-3f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void templatesNotFillingTheirCount_areRejected() {
+        EmbeddingCodec.encodeTemplates(new float[5], new long[2], EmbeddingCodec.Precision.FLOAT32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void singleEmbedding_isNotATemplateSet() {
+        EmbeddingCodec.decodeTemplates(EmbeddingCodec.encode(new float[]{1f, 0f}, EmbeddingCodec.Precision.FLOAT32));
+    }
+
+    /** Length of the legacy List<Float> as Firebase writes it: each value widened to a Double, in a JSON array. */
+    private static int legacyJsonLength(float[] embedding) {
+        int length = 2 + embedding.length - 1;
+        for (float value : embedding) {
+            length += String.valueOf((double) value).length();
+        }
+        return length;
+    }
+}
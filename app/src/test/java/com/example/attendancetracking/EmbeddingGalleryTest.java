@@ -0,0 +1,197 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingGalleryTest {
+
+    private static final int DIM = 128;
+
+    @Test
+    public void findBestMatch_agreesWithPerEntryLoop() {
+        Random random = new Random(42);
+        List<FaceData> faceDataList = randomFaces(random, 500);
+        EmbeddingGallery gallery = new EmbeddingGallery(faceDataList);
+
+        for (int q = 0; q < 200; q++) {
+            // Half the queries are noisy copies of an enrolled face, half are random
+            float[] query = q % 2 == 0
+                    ? perturb(random, faceDataList.get(random.nextInt(faceDataList.size())).getEmbedding(), 0.3f)
+                    : randomVector(random);
+            for (float threshold : new float[]{0.5f, 0.8f}) {
+                FaceData expected = null;
+                float highestSimilarity = 0.0f;
+                for (FaceData faceData : faceDataList) {
+                    float similarity = cosine(faceData.getEmbedding(), query);
+                    if (similarity > threshold && similarity > highestSimilarity) {
+                        highestSimilarity = similarity;
+                        expected = faceData;
+                    }
+                }
+
+                EmbeddingGallery.Match match = gallery.findBestMatch(query, threshold);
+                if (expected == null) {
+                    assertNull(match);
+                } else {
+                    assertNotNull(match);
+                    assertEquals(expected.getUserId(), match.getUserId());
+                    assertEquals(expected.getName(), match.getName());
+                    assertEquals(highestSimilarity, match.getSimilarity(), 1e-5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findBestMatches_agreesWithSingleQueries() {
+        Random random = new Random(9);
+        List<FaceData> faceDataList = randomFaces(random, 300);
+        EmbeddingGallery gallery = new EmbeddingGallery(faceDataList);
+
+        int count = 6;
+        float[] queries = new float[count * DIM];
+        for (int q = 0; q < count; q++) {
+            // One zero vector stands for a face whose extraction failed
+            float[] query = q == 3 ? new float[DIM]
+                    : perturb(random, faceDataList.get(random.nextInt(faceDataList.size())).getEmbedding(), 0.4f);
+            System.arraycopy(query, 0, queries, q * DIM, DIM);
+        }
+
+        EmbeddingGallery.Match[] batched = gallery.findBestMatches(queries, count, 0.5f);
+        assertEquals(count, batched.length);
+        assertNull(batched[3]);
+        for (int q = 0; q < count; q++) {
+            float[] query = new float[DIM];
+            System.arraycopy(queries, q * DIM, query, 0, DIM);
+            EmbeddingGallery.Match single = gallery.findBestMatch(query, 0.5f);
+            if (single == null) {
+                assertNull(batched[q]);
+            } else {
+                assertEquals(single.getUserId(), batched[q].getUserId());
+                assertEquals(single.getSimilarity(), batched[q].getSimilarity(), 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void addExistingUserId_replacesEmbedding() {
+        Random random = new Random(1);
+        float[] first = randomVector(random);
+        float[] second = randomVector(random);
+        EmbeddingGallery gallery = new EmbeddingGallery();
+        gallery.add("u1", "Alice", first);
+        gallery.add("u1", "Alice B", second);
+
+        assertEquals(1, gallery.size());
+        EmbeddingGallery.Match match = gallery.findBestMatch(second, 0.5f);
+        assertNotNull(match);
+        assertEquals("Alice B", match.getName());
+        assertNull(gallery.findBestMatch(first, 0.5f));
+    }
+
+    @Test
+    public void remove_keepsRemainingEntriesSearchable() {
+        Random random = new Random(7);
+        List<FaceData> faceDataList = randomFaces(random, 10);
+        EmbeddingGallery gallery = new EmbeddingGallery(faceDataList);
+
+        assertTrue(gallery.remove(faceDataList.get(3).getUserId()));
+        assertFalse(gallery.remove(faceDataList.get(3).getUserId()));
+        assertEquals(9, gallery.size());
+        assertNull(gallery.findBestMatch(faceDataList.get(3).getEmbedding(), 0.5f));
+        for (int i = 0; i < faceDataList.size(); i++) {
+            if (i == 3) continue;
+            EmbeddingGallery.Match match = gallery.findBestMatch(faceDataList.get(i).getEmbedding(), 0.5f);
+            assertEquals(faceDataList.get(i).getUserId(), match.getUserId());
+            assertEquals(1.0f, match.getSimilarity(), 1e-5f);
+        }
+    }
+
+    @Test
+    public void bulkAddAndRemove_keepSlotIndexConsistent() {
+        Random random = new Random(11);
+        List<FaceData> faceDataList = randomFaces(random, 10_000);
+        EmbeddingGallery gallery = new EmbeddingGallery(faceDataList);
+        assertEquals(10_000, gallery.size());
+
+        // Removing from the front moves the last entries into the freed slots
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(gallery.remove(faceDataList.get(i).getUserId()));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertFalse(gallery.remove(faceDataList.get(i).getUserId()));
+        }
+        // Re-adding a moved entry must replace it in its new slot, not append a duplicate
+        for (int i = 5_000; i < 10_000; i++) {
+            FaceData faceData = faceDataList.get(i);
+            gallery.add(faceData.getUserId(), faceData.getName(), faceData.getEmbedding());
+        }
+        assertEquals(5_000, gallery.size());
+
+        for (int i = 5_000; i < 10_000; i += 50) {
+            EmbeddingGallery.Match match = gallery.findBestMatch(faceDataList.get(i).getEmbedding(), 0.5f);
+            assertEquals(faceDataList.get(i).getUserId(), match.getUserId());
+            assertEquals(1.0f, match.getSimilarity(), 1e-5f);
+        }
+        for (int i = 0; i < 5_000; i += 50) {
+            EmbeddingGallery.Match match = gallery.findBestMatch(faceDataList.get(i).getEmbedding(), 0.5f);
+            assertTrue(match == null || !match.getUserId().equals(faceDataList.get(i).getUserId()));
+        }
+    }
+
+    @Test
+    public void nullAndZeroEmbeddings_areSkipped() {
+        EmbeddingGallery gallery = new EmbeddingGallery();
+        gallery.add("u1", "Null", null);
+        gallery.add("u2", "Zero", new float[DIM]);
+        assertEquals(0, gallery.size());
+        assertNull(gallery.findBestMatch(randomVector(new Random(3)), 0.0f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsMismatchedDimension() {
+        EmbeddingGallery gallery = new EmbeddingGallery();
+        gallery.add("u1", "A", randomVector(new Random(5)));
+        gallery.add("u2", "B", new float[]{1f, 2f, 3f});
+    }
+
+    static List<FaceData> randomFaces(Random random, int count) {
+        List<FaceData> faces = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            faces.add(new FaceData("user-" + i, "Name " + i, randomVector(random)));
+        }
+        return faces;
+    }
+
+    static float[] randomVector(Random random) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    static float[] perturb(Random random, float[] base, float noise) {
+        float[] v = new float[base.length];
+        for (int i = 0; i < base.length; i++) {
+            v[i] = base[i] + (float) random.nextGaussian() * noise;
+        }
+        return v;
+    }
+
+    // Reference cosine similarity, equivalent to the native CalculateSimilarity
+    static float cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return (float) (dot / (Math.sqrt(na) * Math.sqrt(nb)));
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.attendancetracking;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FaceGalleryTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void burstOfChildEvents_rebuildsOnce() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 200);
+        final List<Integer> batchSizes = new ArrayList<>();
+        gallery.addListener((snapshot, upserted, removed) -> batchSizes.add(upserted.size()));
+
+        for (int i = 0; i < 1000; i++) {
+            gallery.upsert(face("user-" + i, "Name " + i, i));
+        }
+        assertTrue(gallery.getSnapshot().isEmpty());
+        gallery.flush();
+
+        assertEquals(1, gallery.getRebuildCount());
+        assertEquals(Arrays.asList(1000), batchSizes);
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertEquals(1000, snapshot.size());
+        assertEquals(1, snapshot.getVersion());
+        assertEquals("user-0", snapshot.getEntries().get(0).getUserId());
+        assertEquals("Name 999", snapshot.get("user-999").getName());
+    }
+
+    @Test
+    public void batch_reportsNetChange() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 1000);
+        final AtomicReference<List<FaceData>> upserted = new AtomicReference<>();
+        final AtomicReference<List<String>> removed = new AtomicReference<>();
+        gallery.addListener((snapshot, up, rm) -> {
+            upserted.set(up);
+            removed.set(rm);
+        });
+        gallery.upsert(face("a", "A", 1));
+        gallery.upsert(face("b", "B", 2));
+        gallery.flush();
+
+        FaceData renamed = face("a", "Anna", 1);
+        gallery.upsert(renamed);
+        gallery.remove("b");
+        gallery.upsert(face("c", "C", 3));
+        gallery.remove("c");
+        gallery.flush();
+
+        assertEquals(Arrays.asList(renamed), upserted.get());
+        assertEquals(Arrays.asList("b"), removed.get());
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(Arrays.asList(renamed), snapshot.findByName("anna"));
+        assertEquals(2, snapshot.getVersion());
+    }
+
+    @Test
+    public void identicalReplay_publishesNothing() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 1000);
+        List<FaceData> local = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            local.add(face("user-" + i, "Name " + i, i));
+        }
+        gallery.upsertAll(local);
+        gallery.flush();
+        GallerySnapshot loaded = gallery.getSnapshot();
+
+        // Firebase sends the same users again as new objects
+        for (int i = 0; i < 10; i++) {
+            gallery.upsert(face("user-" + i, "Name " + i, i));
+        }
+        gallery.flush();
+        assertSame(loaded, gallery.getSnapshot());
+        assertEquals(1, gallery.getRebuildCount());
+    }
+
+    @Test
+    public void retainOnly_appliesInOrder() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 1000);
+        gallery.upsert(face("stale", "Old", 1));
+        gallery.upsert(face("kept", "Kept", 2));
+        gallery.retainOnly(new HashSet<>(Arrays.asList("kept")));
+        gallery.upsert(face("new", "New", 3));
+        gallery.flush();
+
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertFalse(snapshot.contains("stale"));
+        assertTrue(snapshot.contains("kept"));
+        assertTrue(snapshot.contains("new"));
+    }
+
+    @Test
+    public void findByName_returnsEverySameNamedUser() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 1000);
+        FaceData first = face("a", "Nguyễn Văn An", 1);
+        // Same name typed with decomposed diacritics, other case and extra spaces
+        FaceData second = face("b", "  nguye\u0302\u0303n  VA\u0306N an ", 2);
+        gallery.upsert(first);
+        gallery.upsert(second);
+        gallery.upsert(face("c", "Nguyễn Văn Anh", 3));
+        gallery.flush();
+
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertEquals(Arrays.asList(first, second), snapshot.findByName("nguyễn văn an"));
+        assertTrue(snapshot.findByName("Nobody").isEmpty());
+        assertTrue(snapshot.findByName(null).isEmpty());
+
+        // Updating one of them by userId leaves the other untouched
+        FaceData updated = face("b", second.getName(), 4);
+        gallery.upsert(updated);
+        gallery.flush();
+        assertEquals(Arrays.asList(first, updated), gallery.getSnapshot().findByName("Nguyễn Văn An"));
+        assertSame(first, gallery.getSnapshot().get("a"));
+    }
+
+    @Test
+    public void bulkSyncOfTenThousandUsers_indexesByIdAndName() throws Exception {
+        FaceGallery gallery = new FaceGallery(executor, 1000);
+        List<FaceData> users = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            // 1000 distinct names, each shared by ten users of the same parity
+            users.add(face("user-" + i, "Name " + (i % 1000), i));
+        }
+        gallery.upsertAll(users);
+        gallery.flush();
+        for (int i = 0; i < 10_000; i += 2) {
+            gallery.remove("user-" + i);
+        }
+        gallery.flush();
+
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertEquals(5_000, snapshot.size());
+        assertEquals(2, gallery.getRebuildCount());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i % 2 == 1, snapshot.contains("user-" + i));
+        }
+        List<FaceData> sameName = snapshot.findByName("name 7");
+        assertEquals(10, sameName.size());
+        for (FaceData faceData : sameName) {
+            assertEquals("Name 7", faceData.getName());
+        }
+        assertTrue(snapshot.findByName("Name 8").isEmpty());
+    }
+
+    @Test
+    public void concurrentReadersAndWriters_alwaysSeeConsistentSnapshots() throws Exception {
+        final FaceGallery gallery = new FaceGallery(executor, 1);
+        final int writers = 4;
+        final int readers = 4;
+        final int operations = 20_000;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Map<String, FaceData>> expected = new ArrayList<>();
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            final Map<String, FaceData> model = new HashMap<>();
+            expected.add(model);
+            threads.add(new Thread(() -> {
+                Random random = new Random(writer);
+                for (int i = 0; i < operations; i++) {
+                    // Each writer owns its userIds, so its own order decides their final state
+                    String userId = "w" + writer + "-" + random.nextInt(50);
+                    if (random.nextInt(4) == 0) {
+                        gallery.remove(userId);
+                        model.remove(userId);
+                    } else {
+                        FaceData faceData = face(userId, "Name " + i, i);
+                        gallery.upsert(faceData);
+                        model.put(userId, faceData);
+                    }
+                }
+                writersDone.countDown();
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                long lastVersion = -1;
+                try {
+                    while (writing.get()) {
+                        GallerySnapshot snapshot = gallery.getSnapshot();
+                        assertTrue(snapshot.getVersion() >= lastVersion);
+                        lastVersion = snapshot.getVersion();
+                        int count = 0;
+                        for (FaceData faceData : snapshot.getEntries()) {
+                            assertSame(faceData, snapshot.get(faceData.getUserId()));
+                            count++;
+                        }
+                        assertEquals(snapshot.size(), count);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        writersDone.await();
+        gallery.flush();
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        int expectedSize = 0;
+        for (Map<String, FaceData> model : expected) {
+            expectedSize += model.size();
+            for (FaceData faceData : model.values()) {
+                assertSame(faceData, snapshot.get(faceData.getUserId()));
+            }
+        }
+        assertEquals(expectedSize, snapshot.size());
+        // How many batches the updates fall into depends on scheduling, but they are batched
+        assertTrue(gallery.getRebuildCount() >= 1);
+        assertTrue(gallery.getRebuildCount() < writers * operations);
+    }
+
+    private static FaceData face(String userId, String name, int seed) {
+        return new FaceData(userId, name, new float[]{seed, 1f, 2f});
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaceMatcherTest {
+
+    @Test
+    public void match_appliesRecognitionThresholdPerFace() {
+        Random random = new Random(8);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 50);
+        FaceMatcher matcher = new FaceMatcher(new EmbeddingGallery(faces));
+
+        float[] known = EmbeddingGalleryTest.perturb(random, faces.get(9).getEmbedding(), 0.3f);
+        float[] stranger = EmbeddingGalleryTest.randomVector(random);
+        float[] packed = new float[2 * known.length];
+        System.arraycopy(known, 0, packed, 0, known.length);
+        System.arraycopy(stranger, 0, packed, known.length, stranger.length);
+
+        EmbeddingGallery.Match[] matches = matcher.match(packed, 2);
+        assertEquals("user-9", matches[0].getUserId());
+        assertTrue(matches[0].getSimilarity() > FaceMatcher.RECOGNITION_THRESHOLD);
+        assertNull(matches[1]);
+    }
+
+    @Test
+    public void findDuplicate_onlyFlagsNearIdenticalFaces() {
+        Random random = new Random(12);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 50);
+        FaceMatcher matcher = new FaceMatcher(new EmbeddingGallery(faces));
+
+        float[] samePhoto = EmbeddingGalleryTest.perturb(random, faces.get(3).getEmbedding(), 0.1f);
+        assertEquals("user-3", matcher.findDuplicate(samePhoto).getUserId());
+        // Similar enough to recognise, but not a duplicate enrolment
+        float[] lookalike = EmbeddingGalleryTest.perturb(random, faces.get(3).getEmbedding(), 1.0f);
+        float similarity = EmbeddingGalleryTest.cosine(lookalike, faces.get(3).getEmbedding());
+        assertTrue(similarity > FaceMatcher.RECOGNITION_THRESHOLD && similarity <= FaceMatcher.DUPLICATE_THRESHOLD);
+        assertNull(matcher.findDuplicate(lookalike));
+    }
+
+    @Test
+    public void templates_matchAppearanceTheCentroidAveragesAway() {
+        Random random = new Random(21);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 50);
+        float[] glasses = TemplatePolicyTest.normalized(EmbeddingGalleryTest.randomVector(random));
+        float[] noGlasses = TemplatePolicyTest.normalized(EmbeddingGalleryTest.randomVector(random));
+        float[] packed = new float[2 * glasses.length];
+        System.arraycopy(glasses, 0, packed, 0, glasses.length);
+        System.arraycopy(noGlasses, 0, packed, glasses.length, noGlasses.length);
+        faces.set(7, new FaceData("user-7", "Name 7", packed, new long[]{1L, 2L}));
+        final Map<String, FaceData> byUserId = new HashMap<>();
+        for (FaceData faceData : faces) byUserId.put(faceData.getUserId(), faceData);
+
+        FaceMatcher centroidOnly = new FaceMatcher(new EmbeddingGallery(faces));
+        FaceMatcher withTemplates = new FaceMatcher(new EmbeddingGallery(faces), () -> byUserId::get);
+
+        float[] query = EmbeddingGalleryTest.perturb(random, noGlasses, 0.02f);
+        EmbeddingGallery.Match centroid = centroidOnly.match(query, 1)[0];
+        EmbeddingGallery.Match template = withTemplates.match(query, 1)[0];
+        assertEquals("user-7", centroid.getUserId());
+        assertEquals("user-7", template.getUserId());
+        assertEquals(EmbeddingGalleryTest.cosine(query, noGlasses), template.getSimilarity(), 1e-5f);
+        assertTrue(template.getSimilarity() > centroid.getSimilarity() + 0.2f);
+
+        // Re-enrolling the same look is a duplicate only when templates are compared
+        assertNull(centroidOnly.findDuplicate(query));
+        assertEquals("user-7", withTemplates.findDuplicate(query).getUserId());
+
+        // Identities missing from the templates fall back to their centroid score
+        FaceMatcher noTemplates = new FaceMatcher(new EmbeddingGallery(faces), () -> userId -> null);
+        assertEquals(centroid.getSimilarity(), noTemplates.match(query, 1)[0].getSimilarity(), 1e-5f);
+    }
+}
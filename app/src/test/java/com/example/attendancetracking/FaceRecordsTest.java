@@ -0,0 +1,109 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaceRecordsTest {
+
+    private static final EmbeddingCodec.Precision PRECISION = EmbeddingCodec.Precision.FLOAT32;
+
+    @Test
+    public void embeddingHash_isStableAndSeparatesFields() {
+        String hash = FaceRecords.embeddingHash("abc", null);
+        assertEquals(32, hash.length());
+        assertEquals(hash, FaceRecords.embeddingHash("abc", null));
+        assertNotEquals(hash, FaceRecords.embeddingHash("abd", null));
+        assertNotEquals(FaceRecords.embeddingHash("ab", "c"), FaceRecords.embeddingHash("a", "bc"));
+    }
+
+    @Test
+    public void embeddingRecord_roundTripsTemplatesAndHash() {
+        Random random = new Random(5);
+        FaceData faceData = new FaceData("u1", "An", EmbeddingGalleryTest.randomVector(random));
+        faceData = TemplatePolicy.withTemplate(faceData, EmbeddingGalleryTest.randomVector(random), 1000L, 5);
+
+        EmbeddingRecord record = FaceRecords.toEmbeddingRecord(faceData, PRECISION);
+        FaceData decoded = record.toFaceData("u1", "An");
+
+        assertNotNull(record.getTemplateData());
+        assertEquals(record.getEmbeddingHash(), decoded.getEmbeddingHash());
+        assertArrayEquals(faceData.getTemplates(), decoded.getTemplates(), 0f);
+        assertArrayEquals(faceData.getCapturedAt(), decoded.getCapturedAt());
+        assertNull(new EmbeddingRecord().toFaceData("u1", "An"));
+    }
+
+    @Test
+    public void putUpdates_writesBothNodesWithTheSameHash() {
+        EmbeddingRecord record = FaceRecords.toEmbeddingRecord(new FaceData("u1", "An", new float[]{0.6f, 0.8f}), PRECISION);
+        Map<String, Object> updates = FaceRecords.putUpdates("u1", "An", record, 42L);
+
+        assertEquals(new HashSet<>(Arrays.asList("users/u1", "embeddings/u1")), updates.keySet());
+        Map<?, ?> user = (Map<?, ?>) updates.get("users/u1");
+        Map<?, ?> embedding = (Map<?, ?>) updates.get("embeddings/u1");
+        assertEquals("An", user.get("name"));
+        assertEquals(42L, user.get("updatedAt"));
+        assertEquals(record.getEmbeddingHash(), user.get("embeddingHash"));
+        assertEquals(record.getEmbeddingHash(), embedding.get("embeddingHash"));
+        assertEquals(record.getEmbeddingData(), embedding.get("embeddingData"));
+
+        Map<String, Object> delete = FaceRecords.deleteUpdates("u1", 43L);
+        assertEquals(updates.keySet(), delete.keySet());
+        Map<?, ?> tombstone = (Map<?, ?>) delete.get("users/u1");
+        assertEquals(true, tombstone.get("deleted"));
+        assertEquals(43L, tombstone.get("updatedAt"));
+        assertNull(delete.get("embeddings/u1"));
+    }
+
+    @Test
+    public void needsEmbedding_onlyWhenTheHashDiffers() {
+        FaceData local = new FaceData("u1", "An", new float[]{1f});
+        local.setEmbeddingHash("h1");
+
+        assertFalse(FaceRecords.needsEmbedding(local, new UserRecord("Anh", "h1", 1L)));
+        assertTrue(FaceRecords.needsEmbedding(local, new UserRecord("An", "h2", 1L)));
+        assertTrue(FaceRecords.needsEmbedding(null, new UserRecord("An", "h1", 1L)));
+        assertTrue(FaceRecords.needsEmbedding(new FaceData("u1", "An", new float[]{1f}), new UserRecord("An", "h1", 1L)));
+
+        FaceData renamed = FaceRecords.renamed(local, "Anh");
+        assertEquals("Anh", renamed.getName());
+        assertEquals("h1", renamed.getEmbeddingHash());
+        assertSame(local.getEmbedding(), renamed.getEmbedding());
+    }
+
+    @Test
+    public void migrate_batchesUsersAndSkipsInvalidRecords() {
+        Map<String, MainModel> legacy = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            legacy.put("u" + i, new MainModel("User " + i, EmbeddingCodec.encode(new float[]{i, 1f}, PRECISION)));
+        }
+        legacy.put("old", new MainModel("Old", Arrays.asList(0.6f, 0.8f)));
+        legacy.put("empty", new MainModel("Empty", (String) null));
+        legacy.put("done", new MainModel("Done", EmbeddingCodec.encode(new float[]{1f, 0f}, PRECISION)));
+
+        FaceRecords.Migration migration = FaceRecords.migrate(legacy, Collections.singleton("done"),
+                PRECISION, 7L, 3);
+
+        assertEquals(6, migration.getMigrated());
+        assertEquals(1, migration.getAlreadyMigrated());
+        assertEquals(1, migration.getInvalid());
+        assertEquals(3, migration.getBatches().size());
+        // Each batch moves at most 3 users: two nodes written and the legacy record removed
+        assertEquals(9, migration.getBatches().get(0).size());
+        Map<String, Object> last = migration.getBatches().get(2);
+        assertTrue(last.containsKey("faceDataList/done"));
+        assertFalse(last.containsKey("users/done"));
+        for (Map<String, Object> batch : migration.getBatches()) {
+            assertFalse(batch.containsKey("faceDataList/empty"));
+        }
+        Map<?, ?> old = (Map<?, ?>) migration.getBatches().get(1).get("embeddings/old");
+        assertArrayEquals(new float[]{0.6f, 0.8f}, EmbeddingCodec.decode((String) old.get("embeddingData")), 0f);
+    }
+}
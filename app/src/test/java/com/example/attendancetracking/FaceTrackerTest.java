@@ -0,0 +1,94 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackerTest {
+
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    @Test
+    public void stationaryFace_isEmbeddedOncePerRefreshInterval() {
+        FaceTracker tracker = new FaceTracker(0.3f, 2000, 0.5f, 0.25f, 5, 500);
+        int embeddings = 0;
+        int frames = 300; // ~10 s at 30 FPS
+        FaceTracker.Track first = null;
+        for (int i = 0; i < frames; i++) {
+            long now = i * FRAME_NANOS;
+            // Small detector jitter around the same position
+            float jitter = (i % 3) - 1;
+            FaceTracker.Track track = tracker.update(new float[]{100 + jitter, 80, 120, 120}, 1, now)[0];
+            if (first == null) first = track;
+            assertSame(first, track);
+            if (track.needsEmbedding(now)) {
+                track.markEmbedded(now);
+                embeddings++;
+            }
+        }
+        assertEquals(1, tracker.getTrackCount());
+        assertTrue("embeddings=" + embeddings, embeddings <= frames / 10);
+    }
+
+    @Test
+    public void largeMotion_decaysConfidenceAndTriggersReembedding() {
+        FaceTracker tracker = new FaceTracker(0.3f, 10_000, 0.5f, 0.5f, 5, 500);
+        FaceTracker.Track track = tracker.update(new float[]{0, 0, 100, 100}, 1, 0)[0];
+        track.markEmbedded(0);
+
+        float x = 0;
+        boolean reembed = false;
+        for (int i = 1; i < 10 && !reembed; i++) {
+            x += 30;
+            FaceTracker.Track same = tracker.update(new float[]{x, 0, 100, 100}, 1, i * FRAME_NANOS)[0];
+            assertSame(track, same);
+            reembed = same.needsEmbedding(i * FRAME_NANOS);
+        }
+        assertTrue(reembed);
+    }
+
+    @Test
+    public void disjointDetections_startSeparateTracksAndLostTracksExpire() {
+        FaceTracker tracker = new FaceTracker(0.3f, 2000, 0.5f, 0.25f, 5, 500);
+        FaceTracker.Track[] tracks = tracker.update(new float[]{0, 0, 50, 50, 200, 0, 50, 50}, 2, 0);
+        assertNotSame(tracks[0], tracks[1]);
+        assertTrue(tracks[0].needsEmbedding(0));
+
+        FaceTracker.Track[] swapped = tracker.update(new float[]{202, 0, 50, 50, 2, 0, 50, 50}, 2, FRAME_NANOS);
+        assertSame(tracks[1], swapped[0]);
+        assertSame(tracks[0], swapped[1]);
+
+        tracker.update(new float[0], 0, 600_000_000L);
+        assertEquals(0, tracker.getTrackCount());
+    }
+
+    @Test
+    public void votedMatch_followsMajorityOverWindow() {
+        FaceTracker tracker = new FaceTracker(0.3f, 2000, 0.5f, 0.25f, 3, 500);
+        FaceTracker.Track track = tracker.update(new float[]{0, 0, 50, 50}, 1, 0)[0];
+        EmbeddingGallery.Match alice = new EmbeddingGallery.Match(0, "u1", "Alice", 0.7f);
+        EmbeddingGallery.Match bob = new EmbeddingGallery.Match(1, "u2", "Bob", 0.9f);
+
+        assertFalse(track.hasIdentity());
+        track.recordMatch(alice);
+        track.recordMatch(bob);
+        track.recordMatch(alice);
+        assertEquals("u1", track.getVotedMatch().getUserId());
+
+        // Window of 3: the two older Alice votes age out
+        track.recordMatch(bob);
+        track.recordMatch(null);
+        assertEquals("u2", track.getVotedMatch().getUserId());
+
+        track.recordMatch(null);
+        assertNull(track.getVotedMatch());
+    }
+
+    @Test
+    public void iou_ofIdenticalAndDisjointBoxes() {
+        float[] a = {10, 10, 20, 20};
+        assertEquals(1f, FaceTracker.iou(a, 0, a, 0), 1e-6f);
+        assertEquals(0f, FaceTracker.iou(a, 0, new float[]{40, 40, 5, 5}, 0), 1e-6f);
+        assertEquals(1f / 3f, FaceTracker.iou(a, 0, new float[]{20, 10, 20, 20}, 0), 1e-6f);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameEventRingTest {
+
+    @Test
+    public void dump_roundTripsEventsOldestFirst() throws IOException {
+        FrameEventRing ring = new FrameEventRing(8);
+        ring.completed(1_000L, 2, 1, 1, 0.75f, 12_000_000L, 20_000_000L, 300_000L, 40_000_000L);
+        ring.dropped(2_000L);
+        ring.failed(3_000L);
+
+        FrameEventRing.Dump dump = dumpAndRead(ring);
+        List<FrameEventRing.Event> events = dump.getEvents();
+        assertEquals(3, events.size());
+
+        FrameEventRing.Event frame = events.get(0);
+        assertEquals(1_000L, frame.getTimeNanos());
+        assertEquals(FrameEventRing.Type.COMPLETED, frame.getType());
+        assertEquals(2, frame.getFaces());
+        assertEquals(1, frame.getEmbedded());
+        assertEquals(1, frame.getMatched());
+        assertEquals(0.75f, frame.getBestSimilarity(), 0f);
+        assertEquals(12_000, frame.getDetectMicros());
+        assertEquals(20_000, frame.getEmbedMicros());
+        assertEquals(300, frame.getMatchMicros());
+        assertEquals(40_000, frame.getTotalMicros());
+
+        assertEquals(FrameEventRing.Type.DROPPED, events.get(1).getType());
+        assertEquals(FrameEventRing.Type.FAILED, events.get(2).getType());
+        assertEquals(3_000L, events.get(2).getTimeNanos());
+        assertTrue(dump.toString().contains("COMPLETED faces 2"));
+    }
+
+    @Test
+    public void full_ring_keepsTheNewestEvents() throws IOException {
+        FrameEventRing ring = new FrameEventRing(4);
+        for (int i = 0; i < 10; i++) {
+            ring.completed(i, i, 0, 0, 0f, 0L, 0L, 0L, 0L);
+        }
+        assertEquals(10, ring.getWritten());
+        assertEquals(4, ring.size());
+
+        List<FrameEventRing.Event> events = dumpAndRead(ring).getEvents();
+        assertEquals(4, events.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, events.get(i).getTimeNanos());
+            assertEquals(6 + i, events.get(i).getFaces());
+        }
+    }
+
+    @Test
+    public void outOfRangeValues_areClampedToTheirFields() throws IOException {
+        FrameEventRing ring = new FrameEventRing(2);
+        ring.completed(0L, 1000, -1, 7, 0.5f, Long.MAX_VALUE, -5L, 999L, 0L);
+
+        FrameEventRing.Event event = dumpAndRead(ring).getEvents().get(0);
+        assertEquals(255, event.getFaces());
+        assertEquals(0, event.getEmbedded());
+        assertEquals(7, event.getMatched());
+        assertEquals(Integer.MAX_VALUE, event.getDetectMicros());
+        assertEquals(0, event.getEmbedMicros());
+        assertEquals(0, event.getMatchMicros());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        FrameEventRing.read(new ByteArrayInputStream(new byte[64]));
+    }
+
+    private static FrameEventRing.Dump dumpAndRead(FrameEventRing ring) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ring.dump(out);
+        return FrameEventRing.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.attendancetracking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameLogTest {
+
+    private static final long FRAME_NANOS = 33_000_000L;
+    private static final long INTERVAL_NANOS = 1_000_000_000L;
+
+    private final List<String> lines = new ArrayList<>();
+    private final List<Integer> levels = new ArrayList<>();
+    private final RecognitionPipeline.Annotation annotation = new RecognitionPipeline.Annotation();
+    private final float[] faces = new float[RecognitionPipeline.MAX_FACES * RecognitionPipeline.FACE_STRIDE];
+    private int previousLevel;
+
+    @Before
+    public void setUp() {
+        previousLevel = AppLog.getMinLevel();
+        AppLog.setSink((level, tag, message, error) -> {
+            levels.add(level);
+            lines.add(message);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.setMinLevel(previousLevel);
+        AppLog.setSink(null);
+    }
+
+    @Test
+    public void frames_areSummarizedOncePerInterval() {
+        AppLog.setMinLevel(AppLog.DEBUG);
+        FrameLog frameLog = new FrameLog("test", INTERVAL_NANOS, 0, null);
+
+        // 31 frames at 33 ms span 990 ms, the 32nd reaches the interval
+        for (int i = 0; i < 31; i++) {
+            complete(frameLog, i * FRAME_NANOS, 0.6f);
+        }
+        assertTrue(lines.isEmpty());
+        frameLog.dropped(0L);
+        complete(frameLog, 31 * FRAME_NANOS, 0.8f);
+
+        assertEquals(1, lines.size());
+        assertEquals(AppLog.DEBUG, (int) levels.get(0));
+        String summary = lines.get(0);
+        assertTrue(summary, summary.contains("32 completed, 1 dropped, 0 failed"));
+        assertTrue(summary, summary.contains("64 face(s), 32 embedded, 32 matched, 0 unknown"));
+        assertTrue(summary, summary.contains("latency mean 20.0 ms, max 20.0 ms"));
+        assertTrue(summary, summary.contains("best similarity 0.800"));
+
+        // The next window starts from zero
+        for (int i = 32; i < 62; i++) {
+            complete(frameLog, i * FRAME_NANOS, 0.6f);
+        }
+        assertEquals(1, lines.size());
+    }
+
+    @Test
+    public void detailedLines_areSampled() {
+        AppLog.setMinLevel(AppLog.VERBOSE);
+        FrameLog frameLog = new FrameLog("test", Long.MAX_VALUE, 10, null);
+        for (int i = 0; i < 25; i++) {
+            complete(frameLog, i * FRAME_NANOS, 0.7f);
+        }
+
+        // Frames 0, 10 and 20
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(AppLog.VERBOSE, (int) levels.get(i));
+        }
+        assertEquals("Frame: 2 face(s), 1 embedded, 1 matched; Alice 0.700, unknown; "
+                + "20.0 ms (detect 5.0, embed 12.0, match 0.5)", lines.get(0));
+    }
+
+    @Test
+    public void disabledLevels_logNothingButTheRingStillRecords() {
+        AppLog.setMinLevel(AppLog.INFO);
+        FrameEventRing ring = new FrameEventRing(16);
+        FrameLog frameLog = new FrameLog("test", FRAME_NANOS, 1, ring);
+        for (int i = 0; i < 10; i++) {
+            complete(frameLog, i * FRAME_NANOS, 0.7f);
+        }
+        frameLog.failed(10 * FRAME_NANOS);
+
+        assertTrue(lines.isEmpty());
+        assertEquals(11, ring.getWritten());
+    }
+
+    private void complete(FrameLog frameLog, long completedNanos, float similarity) {
+        annotation.begin(faces, 2, completedNanos - 20_000_000L, completedNanos);
+        annotation.setIdentity(0, true, new EmbeddingGallery.Match(0, "u1", "Alice", similarity));
+        annotation.setIdentity(1, true, null);
+        frameLog.completed(annotation, 1, 1, 5_000_000L, 12_000_000L, 500_000L);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.attendancetracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GalleryStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("gallery", ".bin");
+        file.deleteOnExit();
+    }
+
+    @Test
+    public void saveThenLoad_roundTripsEveryEntry() throws IOException {
+        Random random = new Random(3);
+        List<FaceData> faces = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            faces.add(new FaceData("user-" + i, "Nguyễn Văn " + i, EmbeddingGalleryTest.randomVector(random)));
+        }
+
+        GalleryStore store = new GalleryStore(file);
+        store.save(faces);
+        List<FaceData> loaded = store.load();
+
+        assertEquals(faces.size(), loaded.size());
+        for (int i = 0; i < faces.size(); i++) {
+            assertEquals(faces.get(i).getUserId(), loaded.get(i).getUserId());
+            assertEquals(faces.get(i).getName(), loaded.get(i).getName());
+            assertArrayEquals(faces.get(i).getEmbedding(), loaded.get(i).getEmbedding(), 0f);
+        }
+    }
+
+    @Test
+    public void emptyGallery_roundTrips() throws IOException {
+        GalleryStore store = new GalleryStore(file);
+        store.save(new ArrayList<FaceData>());
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void entriesWithoutEmbedding_areSkipped() throws IOException {
+        List<FaceData> faces = new ArrayList<>();
+        faces.add(new FaceData("a", "A", new float[]{1f, 0f}));
+        faces.add(new FaceData("b", "B", null));
+        faces.add(new FaceData("c", "C", new float[]{0f, 1f}));
+
+        GalleryStore store = new GalleryStore(file);
+        store.save(faces);
+        List<FaceData> loaded = store.load();
+
+        assertEquals(2, loaded.size());
+        assertEquals("a", loaded.get(0).getUserId());
+        assertEquals("c", loaded.get(1).getUserId());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFormatVersion_isRejected() throws IOException {
+        GalleryStore store = new GalleryStore(file);
+        List<FaceData> faces = new ArrayList<>();
+        faces.add(new FaceData("a", "A", new float[]{1f, 0f}));
+        store.save(faces);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(4);
+        raf.writeInt(Integer.reverseBytes(GalleryStore.FORMAT_VERSION + 1));
+        raf.close();
+
+        store.load();
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFile_isRejected() throws IOException {
+        GalleryStore store = new GalleryStore(file);
+        List<FaceData> faces = new ArrayList<>();
+        faces.add(new FaceData("a", "Alice", new float[]{1f, 0f}));
+        store.save(faces);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        store.load();
+    }
+
+    @Test
+    public void templatesAndCaptureTimes_roundTrip() throws IOException {
+        Random random = new Random(9);
+        List<FaceData> faces = new ArrayList<>();
+        faces.add(new FaceData("plain", "Plain", EmbeddingGalleryTest.randomVector(random)));
+        FaceData several = new FaceData("several", "Several", EmbeddingGalleryTest.randomVector(random));
+        for (int i = 1; i <= 4; i++) {
+            several = TemplatePolicy.withTemplate(several, EmbeddingGalleryTest.randomVector(random), 1000L * i, 5);
+        }
+        faces.add(several);
+        faces.add(TemplatePolicy.withTemplate(new FaceData("one", "One", EmbeddingGalleryTest.randomVector(random)),
+                EmbeddingGalleryTest.randomVector(random), 77L, 1));
+        faces.add(TemplatePolicy.withTemplate(new FaceData("two", "Two", EmbeddingGalleryTest.randomVector(random)),
+                EmbeddingGalleryTest.randomVector(random), 88L, 5));
+
+        GalleryStore store = new GalleryStore(file);
+        store.save(faces);
+        List<FaceData> loaded = store.load();
+
+        assertEquals(faces.size(), loaded.size());
+        for (int i = 0; i < faces.size(); i++) {
+            FaceData expected = faces.get(i);
+            FaceData actual = loaded.get(i);
+            assertEquals(expected.getUserId(), actual.getUserId());
+            assertEquals(expected.getTemplateCount(), actual.getTemplateCount());
+            assertArrayEquals(expected.getTemplates(), actual.getTemplates(), 0f);
+            assertArrayEquals(expected.getEmbedding(), actual.getEmbedding(), 0f);
+            assertArrayEquals(expected.getCapturedAt(), actual.getCapturedAt());
+        }
+    }
+
+    @Test
+    public void syncState_roundTrips() throws IOException {
+        FaceData synced = new FaceData("synced", "Synced", new float[]{0.6f, 0.8f});
+        synced.setEmbeddingHash("0123456789abcdef0123456789abcdef");
+        synced.setUpdatedAt(1_700_000_000_123L);
+        FaceData local = new FaceData("local", "Local", new float[]{0.8f, 0.6f});
+
+        GalleryStore store = new GalleryStore(file);
+        store.save(Arrays.asList(synced, local));
+        List<FaceData> loaded = store.load();
+
+        assertEquals("0123456789abcdef0123456789abcdef", loaded.get(0).getEmbeddingHash());
+        assertEquals(1_700_000_000_123L, loaded.get(0).getUpdatedAt());
+        assertNull(loaded.get(1).getEmbeddingHash());
+        assertEquals(0L, loaded.get(1).getUpdatedAt());
+    }
+
+    @Test
+    public void versionOneSnapshot_isStillRead() throws IOException {
+        byte[] userId = "a".getBytes("UTF-8");
+        byte[] name = "Ánh".getBytes("UTF-8");
+        ByteBuffer buffer = ByteBuffer.allocate(24 + 2 * 4 + 8 + userId.length + name.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x4C414746).putInt(1).putInt(2).putInt(1).putLong(123L);
+        buffer.putFloat(0.6f).putFloat(0.8f);
+        buffer.putInt(userId.length).put(userId).putInt(name.length).put(name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(buffer.array());
+        out.close();
+
+        List<FaceData> loaded = new GalleryStore(file).load();
+
+        assertEquals(1, loaded.size());
+        assertEquals("a", loaded.get(0).getUserId());
+        assertEquals("Ánh", loaded.get(0).getName());
+        assertArrayEquals(new float[]{0.6f, 0.8f}, loaded.get(0).getEmbedding(), 0f);
+        assertEquals(1, loaded.get(0).getTemplateCount());
+        assertNull(loaded.get(0).getCapturedAt());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HnswFaceIndexTest {
+
+    @Test
+    public void recallAt1_againstBruteForce() {
+        Random random = new Random(11);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 5000);
+        FaceIndex reference = FaceIndex.create(FaceIndex.Type.BRUTE_FORCE);
+        FaceIndex hnsw = FaceIndex.create(FaceIndex.Type.HNSW);
+        for (FaceData face : faces) {
+            reference.add(face.getUserId(), face.getName(), face.getEmbedding());
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+
+        IndexRecall.Report report = IndexRecall.measure(hnsw, reference, noisyQueries(random, faces, 500));
+        assertTrue(report.toString(), report.getRecallAt1() >= 0.95f);
+    }
+
+    @Test
+    public void searchCost_growsFarSlowerThanTheGallery() {
+        Random random = new Random(13);
+        double smallCost = scoresPerSearch(random, 1_000);
+        double largeCost = scoresPerSearch(random, 10_000);
+
+        // Ten times the faces: a linear scan reads ten times as many vectors, the graph under three times
+        assertTrue(smallCost + " -> " + largeCost, largeCost < 3 * smallCost);
+        assertTrue(largeCost + " of 10000", largeCost < 10_000 / 4);
+    }
+
+    @Test
+    public void incrementalUpdatesAndDeletes_stayConsistentWithBruteForce() {
+        Random random = new Random(23);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 1000);
+        FaceIndex reference = new EmbeddingGallery();
+        FaceIndex hnsw = new HnswFaceIndex();
+        for (FaceData face : faces) {
+            reference.add(face.getUserId(), face.getName(), face.getEmbedding());
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+
+        // onChildChanged: new embeddings for a tenth of the users, renames for another tenth
+        for (int i = 0; i < 100; i++) {
+            FaceData face = faces.get(i);
+            face.setEmbedding(EmbeddingGalleryTest.randomVector(random));
+            reference.add(face.getUserId(), face.getName(), face.getEmbedding());
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        for (int i = 100; i < 200; i++) {
+            FaceData face = faces.get(i);
+            face.setName("Renamed " + i);
+            reference.add(face.getUserId(), face.getName(), face.getEmbedding());
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        // onChildRemoved: enough deletes to force a rebuild
+        List<FaceData> remaining = new ArrayList<>();
+        for (int i = 0; i < faces.size(); i++) {
+            FaceData face = faces.get(i);
+            if (i % 2 == 1) {
+                assertTrue(hnsw.remove(face.getUserId()));
+                reference.remove(face.getUserId());
+            } else {
+                remaining.add(face);
+            }
+        }
+
+        assertEquals(reference.size(), hnsw.size());
+        for (FaceData face : remaining) {
+            EmbeddingGallery.Match match = hnsw.findBestMatch(face.getEmbedding(), 0.5f);
+            assertNotNull(match);
+            assertEquals(face.getUserId(), match.getUserId());
+            assertEquals(face.getName(), match.getName());
+        }
+        IndexRecall.Report report = IndexRecall.measure(hnsw, reference, noisyQueries(random, remaining, 300));
+        assertTrue(report.toString(), report.getRecallAt1() >= 0.95f);
+    }
+
+    @Test
+    public void search_returnsDescendingScoresWithoutRemovedEntries() {
+        Random random = new Random(5);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 200);
+        HnswFaceIndex hnsw = new HnswFaceIndex();
+        for (FaceData face : faces) {
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        hnsw.remove(faces.get(0).getUserId());
+
+        List<EmbeddingGallery.Match> matches = hnsw.search(faces.get(0).getEmbedding(), 10);
+        assertEquals(10, matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            assertFalse(faces.get(0).getUserId().equals(matches.get(i).getUserId()));
+            if (i > 0) assertTrue(matches.get(i - 1).getSimilarity() >= matches.get(i).getSimilarity());
+        }
+    }
+
+    @Test
+    public void emptyIndex_returnsNoMatch() {
+        HnswFaceIndex hnsw = new HnswFaceIndex();
+        assertNull(hnsw.findBestMatch(EmbeddingGalleryTest.randomVector(new Random(1)), 0f));
+        assertTrue(hnsw.search(EmbeddingGalleryTest.randomVector(new Random(1)), 5).isEmpty());
+    }
+
+    /** Vectors scored per search, averaged over noisy queries; deterministic unlike timings. */
+    private static double scoresPerSearch(Random random, int size) {
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, size);
+        HnswFaceIndex hnsw = new HnswFaceIndex();
+        for (FaceData face : faces) {
+            hnsw.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        List<float[]> queries = noisyQueries(random, faces, 200);
+        long before = hnsw.getScoreCount();
+        for (float[] query : queries) {
+            hnsw.search(query, 1);
+        }
+        return (double) (hnsw.getScoreCount() - before) / queries.size();
+    }
+
+    private static List<float[]> noisyQueries(Random random, List<FaceData> faces, int count) {
+        List<float[]> queries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] base = faces.get(random.nextInt(faces.size())).getEmbedding();
+            queries.add(EmbeddingGalleryTest.perturb(random, base, 0.5f));
+        }
+        return queries;
+    }
+}
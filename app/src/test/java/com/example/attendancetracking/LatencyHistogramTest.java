@@ -0,0 +1,99 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds_coverEveryValueOnce() {
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.highestValueInBucket(index));
+            if (index > 0) assertTrue(value > LatencyHistogram.highestValueInBucket(index - 1));
+        }
+        int last = LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE_MICROS);
+        assertEquals(LatencyHistogram.MAX_VALUE_MICROS, LatencyHistogram.highestValueInBucket(last));
+    }
+
+    @Test
+    public void percentiles_withinThreePercentOfExact() {
+        Random random = new Random(7);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[20_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish latencies between roughly 1 ms and 200 ms
+            values[i] = (long) Math.exp(7 + random.nextGaussian() * 1.2);
+            histogram.recordMicros(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertClose(exact(values, 0.50), snapshot.getP50Micros());
+        assertClose(exact(values, 0.95), snapshot.getP95Micros());
+        assertClose(exact(values, 0.99), snapshot.getP99Micros());
+        assertEquals(values[values.length - 1], snapshot.getMaxMicros());
+        double mean = 0;
+        for (long value : values) mean += value;
+        assertEquals(mean / values.length, snapshot.getMeanMicros(), 1e-6);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.recordNanos(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(25, snapshot.getP50Micros());
+        assertEquals(48, snapshot.getP95Micros());
+        assertEquals(50, snapshot.getP99Micros());
+    }
+
+    @Test
+    public void emptyAndReset_reportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getCount());
+        histogram.recordMicros(-5);
+        histogram.recordMicros(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.MAX_VALUE_MICROS, histogram.snapshot().getMaxMicros());
+        histogram.reset();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99Micros());
+    }
+
+    @Test
+    public void concurrentRecording_losesNothing() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.recordMicros(offset * 1000 + i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(400_000, snapshot.getCount());
+        assertEquals(3999, snapshot.getMaxMicros());
+    }
+
+    private static long exact(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(sorted.length * quantile) - 1];
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.03 + 1);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.attendancetracking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ModelLoaderTest {
+
+    private File cacheDir;
+    private ExecutorService executor;
+    private byte[] model;
+    private final AtomicInteger opens = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("models").toFile();
+        executor = Executors.newFixedThreadPool(2);
+        model = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(model);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void ensureCached_copiesOnceThenReusesVerifiedCopy() throws IOException {
+        ModelLoader loader = new ModelLoader(cacheDir, "v1", executor);
+
+        ModelLoader.ModelReport first = new ModelLoader.ModelReport("net.onnx");
+        File file = loader.ensureCached("net.onnx", this::open, first);
+        assertFalse(first.isCacheHit());
+        assertArrayEquals(model, Files.readAllBytes(file.toPath()));
+        assertFalse(new File(cacheDir, "net.onnx.tmp").exists());
+
+        ModelLoader.ModelReport second = new ModelLoader.ModelReport("net.onnx");
+        assertEquals(file, loader.ensureCached("net.onnx", this::open, second));
+        assertTrue(second.isCacheHit());
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    public void truncatedOrCorruptCopy_isReplaced() throws IOException {
+        ModelLoader loader = new ModelLoader(cacheDir, "v1", executor);
+        File file = loader.ensureCached("net.onnx", this::open, new ModelLoader.ModelReport("net.onnx"));
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 1000);
+        raf.close();
+        ModelLoader.ModelReport truncated = new ModelLoader.ModelReport("net.onnx");
+        loader.ensureCached("net.onnx", this::open, truncated);
+        assertFalse(truncated.isCacheHit());
+        assertArrayEquals(model, Files.readAllBytes(file.toPath()));
+
+        // Same size, one flipped byte
+        raf = new RandomAccessFile(file, "rw");
+        raf.seek(12345);
+        raf.write(model[12345] ^ 1);
+        raf.close();
+        ModelLoader.ModelReport corrupt = new ModelLoader.ModelReport("net.onnx");
+        loader.ensureCached("net.onnx", this::open, corrupt);
+        assertFalse(corrupt.isCacheHit());
+        assertArrayEquals(model, Files.readAllBytes(file.toPath()));
+        assertEquals(3, opens.get());
+    }
+
+    @Test
+    public void copyFromAnotherApkVersion_isReplaced() throws IOException {
+        new ModelLoader(cacheDir, "v1", executor).ensureCached("net.onnx", this::open,
+                new ModelLoader.ModelReport("net.onnx"));
+        model[0] ^= 1;
+
+        ModelLoader.ModelReport report = new ModelLoader.ModelReport("net.onnx");
+        File file = new ModelLoader(cacheDir, "v2", executor).ensureCached("net.onnx", this::open, report);
+
+        assertFalse(report.isCacheHit());
+        assertArrayEquals(model, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void load_initializesModelsInParallelThenWarmsThemUpInOrder() throws Exception {
+        ModelLoader loader = new ModelLoader(cacheDir, "v1", executor);
+        // Both initializers must be running at once to get past the barrier
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final List<String> events = new ArrayList<>();
+        ModelLoader.Initializer initializer = path -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("not parallel");
+            assertTrue(new File(path).isFile());
+            // Give a warm-up started on the faster thread the chance to overtake this one
+            Thread.sleep(50);
+            synchronized (events) {
+                events.add("initialized");
+            }
+        };
+        List<ModelLoader.Model> models = Arrays.asList(
+                new ModelLoader.Model("detector.onnx", this::open, initializer, () -> {
+                    synchronized (events) {
+                        events.add("detector");
+                    }
+                }),
+                new ModelLoader.Model("recognizer.onnx", this::open, initializer, () -> {
+                    synchronized (events) {
+                        events.add("recognizer");
+                    }
+                    throw new IllegalStateException("warm-up failures are not fatal");
+                }));
+
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicReference<ModelLoader.Report> result = new AtomicReference<>();
+        assertTrue(loader.load(models, report -> {
+            result.set(report);
+            finished.countDown();
+        }));
+        assertFalse(loader.load(models, null));
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        ModelLoader.Report report = result.get();
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(ModelLoader.State.READY, loader.getState());
+        assertEquals(Arrays.asList("initialized", "initialized", "detector", "recognizer"), events);
+        assertEquals("recognizer.onnx", report.getModels().get(1).getFileName());
+    }
+
+    @Test
+    public void failedInitialization_canBeRetried() throws Exception {
+        ModelLoader loader = new ModelLoader(cacheDir, "v1", executor);
+        final AtomicInteger attempts = new AtomicInteger();
+        List<ModelLoader.Model> models = Arrays.asList(new ModelLoader.Model("net.onnx", this::open, path -> {
+            if (attempts.incrementAndGet() == 1) throw new UnsatisfiedLinkError("InitFaceDetector");
+        }, null));
+
+        for (int i = 0; i < 2; i++) {
+            final CountDownLatch finished = new CountDownLatch(1);
+            final AtomicReference<ModelLoader.Report> result = new AtomicReference<>();
+            assertTrue(loader.load(models, report -> {
+                result.set(report);
+                finished.countDown();
+            }));
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            assertEquals(i == 1, result.get().isSuccessful());
+        }
+        assertTrue(loader.isReady());
+        // The second attempt reused the copy made by the first
+        assertEquals(1, opens.get());
+    }
+
+    private InputStream open() {
+        opens.incrementAndGet();
+        return new ByteArrayInputStream(model);
+    }
+}
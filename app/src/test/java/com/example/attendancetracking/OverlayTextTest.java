@@ -0,0 +1,37 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class OverlayTextTest {
+
+    @Test
+    public void statusLines_areRoundedForDisplay() {
+        assertEquals("Preview: 30 FPS", OverlayText.preview(29.6f));
+        assertEquals("Recognition: 43 ms, 11 faces/s", OverlayText.recognition(43.2f, 11.4f));
+        assertEquals("p95 detect 12 / embed 31 / match 2 ms", OverlayText.stages(12.4f, 30.6f, 1.5f));
+    }
+
+    @Test
+    public void cache_rebuildsOnlyWhenTheShownValueChanges() {
+        OverlayText.Cache cache = new OverlayText.Cache();
+        String stages = cache.stages(12.4f, 30.6f, 1.5f);
+        assertSame(stages, cache.stages(12.1f, 30.9f, 2.4f));
+        assertEquals("p95 detect 13 / embed 31 / match 2 ms", cache.stages(12.6f, 30.9f, 2.4f));
+    }
+
+    @Test
+    public void location_usesDotDecimalsInEveryLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(new Locale("vi", "VN"));
+        try {
+            assertEquals("Lat: 10.76262, Lon: 106.66017", OverlayText.location(10.762622, 106.660172));
+            assertEquals("Lat: 10.76262, Lon: 106.66017 (off site)", OverlayText.location(10.762622, 106.660172, false));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the arithmetic of PhotoDecoder.Plan, which fixes the sizes decode() allocates. The
+ * bytes actually allocated need BitmapFactory and OpenCV, so they are measured on the device
+ * instead, by getPeakBytes in the bulk enrolment summary.
+ */
+public class PhotoDecoderTest {
+
+    private static final int MAX_SIDE = PhotoDecoder.DEFAULT_MAX_SIDE;
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void fortyEightMegapixelPhoto_isPlannedAtTwiceTheSampledImage() {
+        PhotoDecoder.Plan plan = PhotoDecoder.plan(8000, 6000, 1, MAX_SIDE);
+
+        assertEquals(4, plan.sampleSize);
+        assertEquals(2000, plan.decodedWidth);
+        assertEquals(1500, plan.decodedHeight);
+        // Sampled bitmap plus its Mat copy: 2 x 12 MB
+        assertEquals(24_000_000L, plan.getPeakBytes());
+
+        // Full decode, ARGB_8888 copy and Mat, all alive at once in the old path
+        long fullDecodePeak = 3L * 8000 * 6000 * 4;
+        assertTrue(plan.getPeakBytes() * 20 < fullDecodePeak);
+    }
+
+    @Test
+    public void plannedPeak_isBoundedWhateverThePhotoSize() {
+        Random random = new Random(5);
+        long bound = PhotoDecoder.maxPeakBytes(MAX_SIDE);
+        assertEquals(32 * MB, bound);
+        for (int i = 0; i < 10_000; i++) {
+            int width = 1 + random.nextInt(16_000);
+            int height = 1 + random.nextInt(16_000);
+            PhotoDecoder.Plan plan = PhotoDecoder.plan(width, height, 1 + random.nextInt(8), MAX_SIDE);
+            int longerSide = Math.max(plan.getOutputWidth(), plan.getOutputHeight());
+
+            assertTrue(plan.getPeakBytes() <= bound);
+            assertTrue(longerSide <= 2 * MAX_SIDE);
+            // Never smaller than the detector needs, unless the photo itself is
+            assertTrue(longerSide >= Math.min(MAX_SIDE, Math.max(width, height)));
+        }
+    }
+
+    @Test
+    public void smallPhoto_isDecodedAsIs() {
+        PhotoDecoder.Plan plan = PhotoDecoder.plan(640, 480, 1, MAX_SIDE);
+        assertEquals(1, plan.sampleSize);
+        assertEquals(640, plan.getOutputWidth());
+        assertEquals(480, plan.getOutputHeight());
+    }
+
+    @Test
+    public void sampledSize_roundsUp() {
+        PhotoDecoder.Plan plan = PhotoDecoder.plan(4033, 3025, 1, MAX_SIDE);
+        assertEquals(2, plan.sampleSize);
+        assertEquals(2017, plan.decodedWidth);
+        assertEquals(1513, plan.decodedHeight);
+    }
+
+    @Test
+    public void exifOrientation_mapsToMirrorThenClockwiseRotation() {
+        int[] rotations = {0, 0, 180, 180, 270, 90, 90, 270};
+        boolean[] mirrors = {false, true, false, true, true, false, true, false};
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            PhotoDecoder.Plan plan = PhotoDecoder.plan(4000, 3000, orientation, MAX_SIDE);
+            assertEquals("orientation " + orientation, rotations[orientation - 1], plan.rotationDegrees);
+            assertEquals("orientation " + orientation, mirrors[orientation - 1], plan.mirror);
+        }
+        // Unknown or missing orientation decodes as stored
+        PhotoDecoder.Plan undefined = PhotoDecoder.plan(4000, 3000, 0, MAX_SIDE);
+        assertEquals(0, undefined.rotationDegrees);
+        assertFalse(undefined.mirror);
+    }
+
+    @Test
+    public void portraitPhoto_swapsOutputSides() {
+        // Phone camera in portrait: stored landscape, EXIF ROTATE_90
+        PhotoDecoder.Plan plan = PhotoDecoder.plan(4000, 3000, 6, MAX_SIDE);
+        assertEquals(2000, plan.decodedWidth);
+        assertEquals(1500, plan.getOutputWidth());
+        assertEquals(2000, plan.getOutputHeight());
+        // A quarter turn needs a second Mat, which the peak already allows for
+        assertEquals(2L * 2000 * 1500 * 4, plan.getPeakBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBounds_areRejected() {
+        PhotoDecoder.plan(0, 100, 1, MAX_SIDE);
+    }
+}
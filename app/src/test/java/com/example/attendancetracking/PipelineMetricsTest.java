@@ -0,0 +1,100 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void windowPercentiles_comeFromLastCompletedWindow() {
+        PipelineMetrics metrics = new PipelineMetrics(1000);
+        long now = 0;
+        // First second: detection takes 10 ms
+        for (int i = 0; i < 30; i++, now += 33 * MS) {
+            metrics.record(PipelineMetrics.Stage.DETECT, 10 * MS, now);
+        }
+        assertEquals(0, metrics.getWindow(PipelineMetrics.Stage.DETECT).getCount());
+
+        // Then it regresses to 40 ms
+        for (int i = 0; i < 30; i++, now += 33 * MS) {
+            metrics.record(PipelineMetrics.Stage.DETECT, 40 * MS, now);
+        }
+        LatencyHistogram.Snapshot window = metrics.getWindow(PipelineMetrics.Stage.DETECT);
+        assertEquals(31, window.getCount());
+        assertEquals(10_000, window.getP50Micros(), 300);
+
+        for (int i = 0; i < 30; i++, now += 33 * MS) {
+            metrics.record(PipelineMetrics.Stage.DETECT, 40 * MS, now);
+        }
+        window = metrics.getWindow(PipelineMetrics.Stage.DETECT);
+        assertEquals(40_000, window.getP50Micros(), 1200);
+        assertEquals(40_000, window.getP99Micros(), 1200);
+
+        LatencyHistogram.Snapshot cumulative = metrics.getCumulative(PipelineMetrics.Stage.DETECT);
+        assertEquals(90, cumulative.getCount());
+        assertEquals(40_000, cumulative.getP95Micros(), 1200);
+        assertEquals(0, metrics.getCumulative(PipelineMetrics.Stage.EMBED).getCount());
+    }
+
+    @Test
+    public void json_containsEveryStageAndCounter() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.MATCH, 2 * MS, 0);
+        metrics.add(PipelineMetrics.Counter.FACES_DETECTED, 3);
+        metrics.increment(PipelineMetrics.Counter.UNKNOWNS);
+
+        String json = metrics.toJson("Pixel \"7\"", 1234L);
+        assertTrue(json, json.startsWith("{\"device\":\"Pixel \\\"7\\\"\",\"startedAtMs\":"));
+        assertTrue(json, json.contains("\"capturedAtMs\":1234,\"windowMs\":10000"));
+        assertTrue(json, json.contains("\"faces_detected\":3"));
+        assertTrue(json, json.contains("\"unknowns\":1"));
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            assertTrue(json, json.contains("\"" + stage.name().toLowerCase() + "\":{\"window\":{\"count\":"));
+        }
+        assertTrue(json, json.contains("\"match\":{\"window\":{\"count\":0,\"meanUs\":0.0,\"p50Us\":0,"
+                + "\"p95Us\":0,\"p99Us\":0,\"maxUs\":0},\"cumulative\":{\"count\":1,\"meanUs\":2000.0,"
+                + "\"p50Us\":2000,\"p95Us\":2000,\"p99Us\":2000,\"maxUs\":2000}}"));
+        assertTrue(json.endsWith("}}"));
+
+        File file = File.createTempFile("metrics", ".json");
+        file.deleteOnExit();
+        PipelineMetrics.writeJson(file, json);
+        assertEquals(json, new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void milestones_keepTheirFirstTimeAcrossSessions() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        assertEquals(-1, metrics.getMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION));
+
+        assertTrue(metrics.markMilestone(PipelineMetrics.Milestone.MODELS_READY, 850));
+        assertTrue(metrics.markMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION, 1400));
+        assertFalse(metrics.markMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION, 9000));
+        metrics.reset();
+
+        assertEquals(1400, metrics.getMilestone(PipelineMetrics.Milestone.FIRST_RECOGNITION));
+        String json = metrics.toJson("Pixel", 0L);
+        assertTrue(json, json.contains("\"startupMs\":{\"models_ready\":850,\"first_frame\":-1,\"first_recognition\":1400}"));
+    }
+
+    @Test
+    public void reset_startsANewSession() {
+        PipelineMetrics metrics = new PipelineMetrics(1000);
+        for (long now = 0; now < 3000 * MS; now += 100 * MS) {
+            metrics.record(PipelineMetrics.Stage.TOTAL, 50 * MS, now);
+        }
+        metrics.increment(PipelineMetrics.Counter.FRAMES_DROPPED);
+        metrics.reset();
+
+        assertEquals(0, metrics.get(PipelineMetrics.Counter.FRAMES_DROPPED));
+        assertEquals(0, metrics.getWindow(PipelineMetrics.Stage.TOTAL).getCount());
+        assertEquals(0, metrics.getCumulative(PipelineMetrics.Stage.TOTAL).getCount());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantizedFaceIndexTest {
+
+    @Test
+    public void top1Agreement_againstFloat32() {
+        Random random = new Random(17);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 2000);
+        FaceIndex reference = FaceIndex.create(FaceIndex.Type.BRUTE_FORCE);
+        FaceIndex int8 = FaceIndex.create(FaceIndex.Type.INT8, 0);
+        FaceIndex float16 = FaceIndex.create(FaceIndex.Type.FLOAT16, 0);
+        FaceIndex int8Reranked = FaceIndex.create(FaceIndex.Type.INT8, 8);
+        for (FaceData face : faces) {
+            reference.add(face.getUserId(), face.getName(), face.getEmbedding());
+            int8.add(face.getUserId(), face.getName(), face.getEmbedding());
+            float16.add(face.getUserId(), face.getName(), face.getEmbedding());
+            int8Reranked.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+
+        List<float[]> queries = noisyQueries(random, faces, 500);
+        IndexRecall.Report int8Report = IndexRecall.measure(int8, reference, queries);
+        IndexRecall.Report float16Report = IndexRecall.measure(float16, reference, queries);
+        IndexRecall.Report rerankedReport = IndexRecall.measure(int8Reranked, reference, queries);
+        assertTrue(int8Report.toString(), int8Report.getRecallAt1() >= 0.97f);
+        assertTrue(float16Report.toString(), float16Report.getRecallAt1() >= 0.99f);
+        assertEquals(rerankedReport.toString(), 1f, rerankedReport.getRecallAt1(), 0f);
+    }
+
+    @Test
+    public void rerankedScores_areExactFloat32Cosine() {
+        Random random = new Random(19);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 300);
+        QuantizedFaceIndex index = new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.INT8, 8);
+        for (FaceData face : faces) {
+            index.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+
+        float[] query = EmbeddingGalleryTest.perturb(random, faces.get(42).getEmbedding(), 0.3f);
+        EmbeddingGallery.Match match = index.findBestMatch(query, 0.5f);
+        assertNotNull(match);
+        assertEquals("user-42", match.getUserId());
+        assertEquals(EmbeddingGalleryTest.cosine(query, faces.get(42).getEmbedding()), match.getSimilarity(), 1e-5f);
+
+        List<EmbeddingGallery.Match> top = index.search(query, 5);
+        assertEquals(5, top.size());
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getSimilarity() >= top.get(i).getSimilarity());
+        }
+    }
+
+    @Test
+    public void quantizedScores_approximateCosine() {
+        Random random = new Random(29);
+        for (QuantizedFaceIndex.Quantization quantization : QuantizedFaceIndex.Quantization.values()) {
+            QuantizedFaceIndex index = new QuantizedFaceIndex(quantization);
+            float[] stored = EmbeddingGalleryTest.randomVector(random);
+            index.add("u1", "A", stored);
+            for (int i = 0; i < 50; i++) {
+                float[] query = EmbeddingGalleryTest.perturb(random, stored, 1f);
+                EmbeddingGallery.Match match = index.findBestMatch(query, -1f);
+                assertEquals(quantization.toString(),
+                        EmbeddingGalleryTest.cosine(query, stored), match.getSimilarity(), 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void updatesAndRemovals_keepCodesConsistent() {
+        Random random = new Random(31);
+        List<FaceData> faces = EmbeddingGalleryTest.randomFaces(random, 100);
+        QuantizedFaceIndex index = new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.FLOAT16, 4);
+        for (FaceData face : faces) {
+            index.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        for (int i = 0; i < 50; i++) {
+            assertTrue(index.remove("user-" + i));
+        }
+        float[] replacement = EmbeddingGalleryTest.randomVector(random);
+        index.add("user-99", "Renamed", replacement);
+
+        assertEquals(50, index.size());
+        assertNull(index.findBestMatch(faces.get(3).getEmbedding(), 0.9f));
+        assertEquals("user-70", index.findBestMatch(faces.get(70).getEmbedding(), 0.9f).getUserId());
+        EmbeddingGallery.Match renamed = index.findBestMatch(replacement, 0.9f);
+        assertEquals("Renamed", renamed.getName());
+        assertFalse(index.remove("user-3"));
+    }
+
+    @Test
+    public void codeBytesPerEntry_coverScaleAndHalves() {
+        float[] embedding = EmbeddingGalleryTest.randomVector(new Random(37));
+        QuantizedFaceIndex int8 = new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.INT8, 0);
+        QuantizedFaceIndex float16 = new QuantizedFaceIndex(QuantizedFaceIndex.Quantization.FLOAT16, 8);
+        int8.add("u1", "An", embedding);
+        float16.add("u1", "An", embedding);
+
+        // 128 codes plus a float scale; 128 halves, the float32 re-rank copy is not a code
+        assertEquals(132, int8.getCodeBytesPerEntry());
+        assertEquals(256, float16.getCodeBytesPerEntry());
+    }
+
+    private static List<float[]> noisyQueries(Random random, List<FaceData> faces, int count) {
+        List<float[]> queries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] base = faces.get(random.nextInt(faces.size())).getEmbedding();
+            queries.add(EmbeddingGalleryTest.perturb(random, base, 0.5f));
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SiteLocationTest {
+
+    private static final double SITE_LAT = 10.762622;
+    private static final double SITE_LON = 106.660172;
+    // About 111 m per 0.001 degree of latitude
+    private static final double DEGREES_PER_100_M = 0.0009;
+
+    private final SiteLocation location = new SiteLocation(
+            new SiteLocation.Geofence(SITE_LAT, SITE_LON, 150f), 50f, 120_000L, 200f);
+
+    @Test
+    public void distance_matchesKnownValues() {
+        assertEquals(0.0, SiteLocation.distanceMeters(SITE_LAT, SITE_LON, SITE_LAT, SITE_LON), 1e-6);
+        assertEquals(111_195, SiteLocation.distanceMeters(0, 0, 1, 0), 1);
+        assertEquals(100, SiteLocation.distanceMeters(SITE_LAT, SITE_LON, SITE_LAT + DEGREES_PER_100_M, SITE_LON), 1);
+    }
+
+    @Test
+    public void accurateFix_settlesTheCheckAndDropsToLowPower() {
+        assertEquals(SiteLocation.Mode.ACQUIRING, location.getMode());
+        assertNull(location.getFix());
+
+        // Coarse and straddling the boundary: keep acquiring, but show it
+        assertFalse(location.onLocation(SITE_LAT + DEGREES_PER_100_M, SITE_LON, 300f, 0L));
+        assertEquals(SiteLocation.Mode.ACQUIRING, location.getMode());
+        assertNull(location.getFix().getOnSite());
+
+        assertTrue(location.onLocation(SITE_LAT + DEGREES_PER_100_M, SITE_LON, 20f, 5_000L));
+        assertEquals(SiteLocation.Mode.LOW_POWER, location.getMode());
+        SiteLocation.Fix fix = location.getFix();
+        assertEquals(Boolean.TRUE, fix.getOnSite());
+        assertEquals("Lat: 10.76352, Lon: 106.66017 (on site)", fix.getOverlayLine());
+        assertSame(fix.getBoxedLatitude(), location.getFix().getBoxedLatitude());
+    }
+
+    @Test
+    public void coarseFixClearlyOnOneSide_settlesTheCheck() {
+        assertTrue(location.onLocation(SITE_LAT + 10 * DEGREES_PER_100_M, SITE_LON, 300f, 0L));
+        assertEquals(Boolean.FALSE, location.getFix().getOnSite());
+    }
+
+    @Test
+    public void lowPowerFixes_changeNothingUnlessTheKioskMoved() {
+        location.onLocation(SITE_LAT, SITE_LON, 10f, 0L);
+        SiteLocation.Fix settled = location.getFix();
+
+        // Cell-level fixes scattered around the site
+        assertFalse(location.onLocation(SITE_LAT + 3 * DEGREES_PER_100_M, SITE_LON, 500f, 60_000L));
+        assertFalse(location.onLocation(SITE_LAT, SITE_LON + 0.0001, 10f, 120_000L));
+        assertSame(settled, location.getFix());
+
+        assertTrue(location.onLocation(SITE_LAT + 50 * DEGREES_PER_100_M, SITE_LON, 100f, 180_000L));
+        assertEquals(SiteLocation.Mode.ACQUIRING, location.getMode());
+        assertTrue(location.onLocation(SITE_LAT + 50 * DEGREES_PER_100_M, SITE_LON, 10f, 185_000L));
+        assertEquals(Boolean.FALSE, location.getFix().getOnSite());
+    }
+
+    @Test
+    public void timeout_settlesOnTheMostAccurateFix() {
+        location.onLocation(SITE_LAT + DEGREES_PER_100_M, SITE_LON, 120f, 0L);
+        location.onLocation(SITE_LAT + 2 * DEGREES_PER_100_M, SITE_LON, 300f, 60_000L);
+        assertEquals(SiteLocation.Mode.ACQUIRING, location.getMode());
+
+        assertTrue(location.onLocation(SITE_LAT + 2 * DEGREES_PER_100_M, SITE_LON, 300f, 120_000L));
+        assertEquals(SiteLocation.Mode.LOW_POWER, location.getMode());
+        assertEquals(120f, location.getFix().getAccuracyMeters(), 0f);
+        assertEquals(Boolean.TRUE, location.getFix().getOnSite());
+    }
+
+    @Test
+    public void withoutGeofence_onlyCachesTheFix() {
+        SiteLocation noSite = new SiteLocation(null, 50f, 120_000L, 200f);
+        assertFalse(noSite.onLocation(SITE_LAT, SITE_LON, 0f, 0L));
+        assertTrue(noSite.onLocation(SITE_LAT, SITE_LON, 30f, 1_000L));
+        assertNull(noSite.getFix().getOnSite());
+        assertEquals("Lat: 10.76262, Lon: 106.66017", noSite.getFix().getOverlayLine());
+    }
+}
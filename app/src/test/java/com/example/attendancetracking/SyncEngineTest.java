@@ -0,0 +1,296 @@
+package com.example.attendancetracking;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SyncEngineTest {
+
+    private static final EmbeddingCodec.Precision PRECISION = EmbeddingCodec.Precision.FLOAT32;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final FaceGallery gallery = new FaceGallery(executor, 10);
+    private final FakeSource source = new FakeSource();
+    private final SyncEngine engine = new SyncEngine(source, gallery, executor);
+    private final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+
+    {
+        engine.setListener(new SyncEngine.Listener() {
+            @Override
+            public void onSynced(SyncEngine.Report report) {
+                results.add(report);
+            }
+
+            @Override
+            public void onSyncFailed(Exception e) {
+                results.add(e);
+            }
+        });
+    }
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void deltaSync_readsNewerRecordsAndFetchesOnlyChangedEmbeddings() throws Exception {
+        source.put("u1", "An", new float[]{1f, 0f}, 10);
+        source.put("u2", "Bình", new float[]{0f, 1f}, 11);
+        source.put("u3", "Cường", new float[]{0.6f, 0.8f}, 12);
+
+        SyncEngine.Report full = syncOnce();
+        assertTrue(full.isFull());
+        assertEquals(3, full.getRecords());
+        assertEquals(3, full.getFetched());
+        assertEquals(12L, engine.getCheckpoint());
+        assertEquals(3, gallery.getSnapshot().size());
+        assertEquals(11L, gallery.getSnapshot().get("u2").getUpdatedAt());
+
+        source.rename("u1", "Ân", 20);
+        source.put("u2", "Bình", new float[]{0.8f, 0.6f}, 21);
+        source.delete("u3", 22);
+        source.embeddingReads = 0;
+
+        SyncEngine.Report delta = syncOnce();
+        assertFalse(delta.isFull());
+        assertEquals(12L, delta.getSince());
+        assertEquals(3, delta.getRecords());
+        assertEquals(1, delta.getFetched());
+        assertEquals(1, source.embeddingReads);
+        assertEquals(2, delta.getUpserted());
+        assertEquals(1, delta.getRemoved());
+        assertTrue(delta.getBytes() > 0);
+        assertEquals(22L, engine.getCheckpoint());
+
+        GallerySnapshot snapshot = gallery.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals("Ân", snapshot.get("u1").getName());
+        assertEquals(20L, snapshot.get("u1").getUpdatedAt());
+        assertArrayEquals(new float[]{0.8f, 0.6f}, snapshot.get("u2").getEmbedding(), 0f);
+        assertNull(snapshot.get("u3"));
+    }
+
+    @Test
+    public void restoredSnapshot_resumesFromItsCheckpoint() throws Exception {
+        source.put("u1", "An", new float[]{1f, 0f}, 10);
+        source.put("u2", "Bình", new float[]{0f, 1f}, 11);
+        syncOnce();
+        List<FaceData> restored = gallery.getSnapshot().getEntries();
+
+        FaceGallery restarted = new FaceGallery(executor, 10);
+        SyncEngine engine = new SyncEngine(source, restarted, executor);
+        restarted.upsertAll(restored);
+        engine.setCheckpoint(SyncEngine.checkpointOf(restored));
+        engine.setListener(new SyncEngine.Listener() {
+            @Override
+            public void onSynced(SyncEngine.Report report) {
+                results.add(report);
+            }
+
+            @Override
+            public void onSyncFailed(Exception e) {
+                results.add(e);
+            }
+        });
+        source.put("u3", "Cường", new float[]{0.6f, 0.8f}, 12);
+        source.embeddingReads = 0;
+
+        engine.sync();
+        SyncEngine.Report report = (SyncEngine.Report) results.poll(5, TimeUnit.SECONDS);
+        restarted.flush();
+
+        // u2 is read again because the checkpoint is inclusive, but its embedding is not
+        assertEquals(11L, report.getSince());
+        assertEquals(2, report.getRecords());
+        assertEquals(1, source.embeddingReads);
+        assertEquals(3, restarted.getSnapshot().size());
+    }
+
+    @Test
+    public void checkpointOf_skipsEntriesEnrolledLocally() {
+        FaceData synced = new FaceData("a", "A", new float[]{1f});
+        synced.setUpdatedAt(30L);
+        FaceData enrolled = new FaceData("b", "B", new float[]{1f});
+
+        assertEquals(30L, SyncEngine.checkpointOf(Arrays.asList(synced, enrolled)));
+        assertEquals(30L, SyncEngine.checkpointOf(Arrays.asList(enrolled, synced)));
+        assertEquals(0L, SyncEngine.checkpointOf(Arrays.asList(enrolled)));
+    }
+
+    @Test
+    public void failedFetch_appliesNothingAndKeepsTheCheckpoint() throws Exception {
+        source.put("u1", "An", new float[]{1f, 0f}, 10);
+        syncOnce();
+        source.put("u1", "An", new float[]{0f, 1f}, 20);
+        source.put("u2", "Bình", new float[]{0.6f, 0.8f}, 21);
+        source.failEmbedding = "u2";
+
+        engine.sync();
+        assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof Exception);
+        gallery.flush();
+        assertEquals(10L, engine.getCheckpoint());
+        assertArrayEquals(new float[]{1f, 0f}, gallery.getSnapshot().get("u1").getEmbedding(), 0f);
+        assertNull(gallery.getSnapshot().get("u2"));
+
+        source.failEmbedding = null;
+        SyncEngine.Report retry = syncOnce();
+        assertEquals(2, retry.getUpserted());
+        assertEquals(21L, engine.getCheckpoint());
+    }
+
+    @Test
+    public void staleEmbedding_appliesNothingAndKeepsTheCheckpoint() throws Exception {
+        source.put("u1", "An", new float[]{1f, 0f}, 10);
+        syncOnce();
+        EmbeddingRecord cached = source.embeddings.get("u1");
+        source.put("u1", "An", new float[]{0f, 1f}, 20);
+        // The users read is current, the embedding read answers with the copy seen before
+        source.embeddings.put("u1", cached);
+
+        engine.sync();
+        assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof Exception);
+        gallery.flush();
+        assertEquals(10L, engine.getCheckpoint());
+        assertEquals(10L, gallery.getSnapshot().get("u1").getUpdatedAt());
+
+        source.put("u1", "An", new float[]{0f, 1f}, 20);
+        syncOnce();
+        assertEquals(20L, engine.getCheckpoint());
+        assertArrayEquals(new float[]{0f, 1f}, gallery.getSnapshot().get("u1").getEmbedding(), 0f);
+    }
+
+    @Test
+    public void fullSync_dropsLocalEntriesMissingRemotely() throws Exception {
+        gallery.upsert(new FaceData("gone", "Gone", new float[]{1f, 0f}));
+        source.put("u1", "An", new float[]{0f, 1f}, 10);
+        source.users.put("broken", new UserRecord("Broken", "h", 11L));
+
+        SyncEngine.Report report = syncOnce();
+
+        assertEquals(1, report.getRemoved());
+        assertEquals(1, report.getInvalid());
+        assertEquals(Arrays.asList("u1"), ids(gallery.getSnapshot()));
+    }
+
+    @Test
+    public void syncDuringAPass_runsOneMorePass() throws Exception {
+        source.put("u1", "An", new float[]{1f, 0f}, 10);
+        source.holdUsers = true;
+
+        engine.sync();
+        engine.sync();
+        engine.sync();
+        assertEquals(1, source.held.size());
+        source.release();
+
+        assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof SyncEngine.Report);
+        // The coalesced pass has started and is waiting for its users read
+        for (int i = 0; i < 100 && source.held.isEmpty(); i++) Thread.sleep(10);
+        assertEquals(1, source.held.size());
+        source.holdUsers = false;
+        source.release();
+        assertEquals(10L, ((SyncEngine.Report) results.poll(5, TimeUnit.SECONDS)).getSince());
+        assertNull(results.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private SyncEngine.Report syncOnce() throws Exception {
+        engine.sync();
+        Object result = results.poll(5, TimeUnit.SECONDS);
+        if (result instanceof Exception) throw (Exception) result;
+        assertNotNull("sync timed out", result);
+        gallery.flush();
+        return (SyncEngine.Report) result;
+    }
+
+    private static List<String> ids(GallerySnapshot snapshot) {
+        List<String> ids = new ArrayList<>();
+        for (FaceData faceData : snapshot.getEntries()) ids.add(faceData.getUserId());
+        return ids;
+    }
+
+    /** In-memory users and embeddings nodes. */
+    private static final class FakeSource implements SyncEngine.Source {
+        final Map<String, UserRecord> users = new LinkedHashMap<>();
+        final Map<String, EmbeddingRecord> embeddings = new LinkedHashMap<>();
+        final List<Runnable> held = new ArrayList<>();
+        volatile boolean holdUsers;
+        volatile String failEmbedding;
+        volatile int embeddingReads;
+
+        synchronized void put(String userId, String name, float[] embedding, long updatedAt) {
+            EmbeddingRecord record = FaceRecords.toEmbeddingRecord(new FaceData(userId, name, embedding), PRECISION);
+            embeddings.put(userId, record);
+            users.put(userId, new UserRecord(name, record.getEmbeddingHash(), updatedAt));
+        }
+
+        synchronized void rename(String userId, String name, long updatedAt) {
+            users.put(userId, new UserRecord(name, users.get(userId).getEmbeddingHash(), updatedAt));
+        }
+
+        synchronized void delete(String userId, long updatedAt) {
+            UserRecord tombstone = new UserRecord(null, null, updatedAt);
+            tombstone.setDeleted(true);
+            users.put(userId, tombstone);
+            embeddings.remove(userId);
+        }
+
+        void release() {
+            List<Runnable> reads;
+            synchronized (this) {
+                reads = new ArrayList<>(held);
+                held.clear();
+            }
+            for (Runnable read : reads) read.run();
+        }
+
+        @Override
+        public void readUsers(final long since, final SyncEngine.Callback<Map<String, UserRecord>> callback) {
+            Runnable read = () -> {
+                Map<String, UserRecord> result = new LinkedHashMap<>();
+                synchronized (this) {
+                    for (Map.Entry<String, UserRecord> entry : users.entrySet()) {
+                        if (since == 0 || entry.getValue().getUpdatedAt() >= since) {
+                            result.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                callback.onResult(result, 40L * result.size());
+            };
+            synchronized (this) {
+                if (holdUsers) {
+                    held.add(read);
+                    return;
+                }
+            }
+            read.run();
+        }
+
+        @Override
+        public void readEmbedding(String userId, SyncEngine.Callback<EmbeddingRecord> callback) {
+            embeddingReads++;
+            if (userId.equals(failEmbedding)) {
+                callback.onError(new IOException("offline"));
+                return;
+            }
+            EmbeddingRecord record;
+            synchronized (this) {
+                record = embeddings.get(userId);
+            }
+            callback.onResult(record, record != null ? record.getEmbeddingData().length() : 0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TemplatePolicyTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void withTemplate_growsToMaxThenEvictsOldestAfterEnrolment() {
+        Random random = new Random(4);
+        float[] enrolment = EmbeddingGalleryTest.randomVector(random);
+        FaceData faceData = new FaceData("u1", "An", enrolment);
+
+        for (int i = 1; i <= 4; i++) {
+            faceData = TemplatePolicy.withTemplate(faceData, EmbeddingGalleryTest.randomVector(random), i * 100L, 3);
+        }
+
+        assertEquals(3, faceData.getTemplateCount());
+        assertArrayEquals(new long[]{0L, 300L, 400L}, faceData.getCapturedAt());
+        assertEquals("u1", faceData.getUserId());
+        assertEquals("An", faceData.getName());
+        // The enrolment anchor survives eviction, normalized like the rest
+        float[] anchor = new float[enrolment.length];
+        System.arraycopy(faceData.getTemplates(), 0, anchor, 0, anchor.length);
+        assertEquals(1f, EmbeddingGalleryTest.cosine(anchor, enrolment), 1e-5f);
+        assertEquals(1f, EmbeddingGallery.norm(faceData.getEmbedding(), 0, enrolment.length), 1e-5f);
+    }
+
+    @Test
+    public void withTemplate_singleSlotReplacesTheTemplate() {
+        Random random = new Random(6);
+        float[] replacement = EmbeddingGalleryTest.randomVector(random);
+        FaceData faceData = TemplatePolicy.withTemplate(
+                new FaceData("u1", "An", EmbeddingGalleryTest.randomVector(random)), replacement, 50L, 1);
+
+        assertEquals(1, faceData.getTemplateCount());
+        assertArrayEquals(new long[]{50L}, faceData.getCapturedAt());
+        assertEquals(1f, EmbeddingGalleryTest.cosine(faceData.getEmbedding(), replacement), 1e-5f);
+    }
+
+    @Test
+    public void consider_addsOnlyConfidentNovelCaptures() {
+        Random random = new Random(10);
+        FaceData faceData = new FaceData("u1", "An", normalized(EmbeddingGalleryTest.randomVector(random)));
+        long now = 100 * HOUR;
+
+        float[] sameFrame = EmbeddingGalleryTest.perturb(random, faceData.getEmbedding(), 0.01f);
+        assertNull(new TemplatePolicy().consider(faceData, sameFrame, now));
+        float[] stranger = EmbeddingGalleryTest.randomVector(random);
+        assertNull(new TemplatePolicy().consider(faceData, stranger, now));
+
+        TemplatePolicy policy = new TemplatePolicy();
+        float[] newLighting = EmbeddingGalleryTest.perturb(random, faceData.getEmbedding(), 0.06f);
+        float similarity = EmbeddingGalleryTest.cosine(newLighting, faceData.getEmbedding());
+        assertTrue(similarity > TemplatePolicy.AUTO_ADD_MIN_SIMILARITY && similarity < TemplatePolicy.REDUNDANT_SIMILARITY);
+        FaceData updated = policy.consider(faceData, newLighting, now);
+        assertNotNull(updated);
+        assertEquals(2, updated.getTemplateCount());
+        assertEquals(now, updated.getLastCapturedAt());
+        assertEquals(1f, updated.maxTemplateSimilarity(newLighting, 0,
+                1f / EmbeddingGallery.norm(newLighting, 0, newLighting.length)), 1e-5f);
+
+        // Rate limited per identity, whether or not the gallery has caught up yet
+        float[] later = EmbeddingGalleryTest.perturb(random, faceData.getEmbedding(), 0.06f);
+        assertFalse(policy.isCandidate(faceData, 0.9f, now + HOUR));
+        assertFalse(policy.isCandidate(updated, 0.9f, now + HOUR));
+        assertNull(policy.consider(updated, later, now + HOUR));
+        assertNotNull(policy.consider(updated, later, now + TemplatePolicy.MIN_AUTO_ADD_INTERVAL_MS));
+    }
+
+    @Test
+    public void isCandidate_rejectsWeakMatchesAndUnknownUsers() {
+        TemplatePolicy policy = new TemplatePolicy();
+        FaceData faceData = new FaceData("u1", "An", new float[]{1f, 0f});
+        long now = 100 * HOUR;
+        assertTrue(policy.isCandidate(faceData, 0.9f, now));
+        assertFalse(policy.isCandidate(faceData, 0.6f, now));
+        assertFalse(policy.isCandidate(null, 0.9f, now));
+        // A template captured recently is variety enough for now
+        FaceData recent = TemplatePolicy.withTemplate(faceData, new float[]{0.8f, 0.6f}, now - HOUR, 5);
+        assertFalse(policy.isCandidate(recent, 0.9f, now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withTemplate_rejectsOtherDimension() {
+        TemplatePolicy.withTemplate(new FaceData("u1", "An", new float[]{1f, 0f}), new float[]{1f, 0f, 0f}, 1L, 5);
+    }
+
+    static float[] normalized(float[] vector) {
+        float[] result = new float[vector.length];
+        EmbeddingGallery.normalizeInto(vector, result, 0);
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.attendancetracking;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UserDirectoryTest {
+
+    @Test
+    public void entries_areSortedByNormalizedNameThenId() {
+        UserDirectory directory = UserDirectory.from(snapshot(
+                user("u3", "bình"), user("u1", "An"), user("u2", "Bình"), user("u4", "an  ")));
+
+        List<UserDirectory.Entry> entries = directory.search("");
+        assertEquals(4, entries.size());
+        assertEquals("u1", entries.get(0).getUserId());
+        assertEquals("u4", entries.get(1).getUserId());
+        assertEquals("u2", entries.get(2).getUserId());
+        assertEquals("u3", entries.get(3).getUserId());
+        assertEquals(7L, directory.getVersion());
+    }
+
+    @Test
+    public void search_matchesNameSubstringsAndIdPrefixes() {
+        UserDirectory directory = UserDirectory.from(snapshot(
+                user("emp-001", "Nguyễn Văn An"), user("emp-002", "Trần Thị Bình"), user("x-emp-003", "Lê Văn Cường")));
+
+        assertEquals(2, directory.search("văn").size());
+        // Case-insensitive and with whitespace collapsed, as GallerySnapshot compares names
+        assertEquals("emp-002", directory.search("  TRẦN   thị ").get(0).getUserId());
+        assertEquals(2, directory.search("emp-").size());
+        assertEquals(1, directory.search("x-emp").size());
+        assertTrue(directory.search("nobody").isEmpty());
+    }
+
+    @Test
+    public void page_growsByPageSizeUpToAllMatches() {
+        LinkedHashMap<String, FaceData> users = new LinkedHashMap<>();
+        for (int i = 0; i < 120; i++) {
+            String userId = String.format(Locale.US, "u%03d", i);
+            users.put(userId, new FaceData(userId, "User " + userId, new float[]{1f}));
+        }
+        List<UserDirectory.Entry> all = UserDirectory.from(new GallerySnapshot(users, 1)).search(null);
+
+        assertEquals(50, UserDirectory.page(all, 1, 50).size());
+        assertEquals(100, UserDirectory.page(all, 2, 50).size());
+        assertEquals(120, UserDirectory.page(all, 3, 50).size());
+        assertEquals(120, UserDirectory.page(all, Integer.MAX_VALUE, 50).size());
+        assertEquals("u050", UserDirectory.page(all, 2, 50).get(50).getUserId());
+    }
+
+    @Test
+    public void entries_areEqualWhenTheyRenderTheSame() {
+        UserDirectory.Entry entry = new UserDirectory.Entry("u1", "An", 1);
+        assertEquals(entry, new UserDirectory.Entry("u1", "An", 1));
+        assertEquals(entry.hashCode(), new UserDirectory.Entry("u1", "An", 1).hashCode());
+        assertNotEquals(entry, new UserDirectory.Entry("u1", "Anh", 1));
+        assertNotEquals(entry, new UserDirectory.Entry("u1", "An", 2));
+    }
+
+    @Test
+    public void formatEmbedding_matchesFourDecimalFormat() {
+        Random random = new Random(3);
+        float[] embedding = new float[512];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = (random.nextFloat() * 2f - 1f) * (i % 4 == 0 ? 20f : 0.5f);
+        }
+        embedding[0] = 0f;
+        embedding[1] = 0.00005f;
+        embedding[2] = -1.99996f;
+
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) expected.append(", ");
+            expected.append(String.format(Locale.US, "%.4f", embedding[i]));
+        }
+        expected.append(']');
+        assertEquals(expected.toString(), UserDirectory.formatEmbedding(embedding));
+        assertEquals("[]", UserDirectory.formatEmbedding(new float[0]));
+    }
+
+    private static FaceData user(String userId, String name) {
+        return new FaceData(userId, name, new float[]{1f, 0f});
+    }
+
+    private static GallerySnapshot snapshot(FaceData... users) {
+        LinkedHashMap<String, FaceData> byUserId = new LinkedHashMap<>();
+        for (FaceData user : users) {
+            byUserId.put(user.getUserId(), user);
+        }
+        return new GallerySnapshot(byUserId, 7);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.attendancetracking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic synthetic galleries shared by the benchmarks. */
+final class BenchmarkData {
+
+    static final int DIMENSION = 128;
+
+    private BenchmarkData() {
+    }
+
+    static List<FaceData> randomFaces(Random random, int count) {
+        List<FaceData> faces = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            faces.add(new FaceData("user-" + i, "Name " + i, randomVector(random)));
+        }
+        return faces;
+    }
+
+    static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    /** A camera-side probe of an enrolled face: the stored vector plus noise. */
+    static float[] probe(Random random, float[] base) {
+        float[] v = new float[base.length];
+        for (int i = 0; i < base.length; i++) {
+            v[i] = base[i] + (float) random.nextGaussian() * 0.5f;
+        }
+        return v;
+    }
+
+    static FaceIndex buildIndex(FaceIndex.Type type, List<FaceData> faces) {
+        FaceIndex index = FaceIndex.create(type);
+        for (FaceData face : faces) {
+            index.add(face.getUserId(), face.getName(), face.getEmbedding());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.attendancetracking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Enrolment duplicate check: a returning face and a genuinely new one. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DuplicateCheckBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int identities;
+
+    @Param({"BRUTE_FORCE", "HNSW"})
+    public FaceIndex.Type indexType;
+
+    private FaceMatcher matcher;
+    private float[] enrolledFace;
+    private float[] newFace;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<FaceData> faces = BenchmarkData.randomFaces(random, identities);
+        matcher = new FaceMatcher(BenchmarkData.buildIndex(indexType, faces));
+        enrolledFace = faces.get(random.nextInt(identities)).getEmbedding().clone();
+        newFace = BenchmarkData.randomVector(random);
+    }
+
+    @Benchmark
+    public EmbeddingGallery.Match duplicateOfEnrolledFace() {
+        return matcher.findDuplicate(enrolledFace);
+    }
+
+    @Benchmark
+    public EmbeddingGallery.Match duplicateOfNewFace() {
+        return matcher.findDuplicate(newFace);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.attendancetracking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user embedding conversions on the Firebase load and save paths: the legacy boxed
+ * List&lt;Float&gt; form and the compact EmbeddingCodec strings.
+ *
+ * The legacyJson benchmarks add the JSON text step that Firebase performs for the legacy form:
+ * every Float is widened to a Double and written as text, and read back as boxed numbers.
+ * Compare them with encodeFloat32 and decodeFloat32, whose output is already the wire form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmbeddingConversionBenchmark {
+
+    private float[] embedding;
+    private List<Float> embeddingList;
+    private String legacyJson;
+    private String float32Data;
+    private String float16Data;
+
+    @Setup
+    public void setUp() {
+        embedding = BenchmarkData.randomVector(new Random(1));
+        embeddingList = EmbeddingCodec.toList(embedding);
+        legacyJson = toLegacyJson(embeddingList);
+        float32Data = EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT32);
+        float16Data = EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT16);
+    }
+
+    @Benchmark
+    public List<Float> arrayToList() {
+        return EmbeddingCodec.toList(embedding);
+    }
+
+    @Benchmark
+    public float[] listToArray() {
+        return EmbeddingCodec.fromList(embeddingList);
+    }
+
+    @Benchmark
+    public String legacyJsonEncode() {
+        return toLegacyJson(EmbeddingCodec.toList(embedding));
+    }
+
+    @Benchmark
+    public float[] legacyJsonDecode() {
+        return EmbeddingCodec.fromList(fromLegacyJson(legacyJson));
+    }
+
+    @Benchmark
+    public String encodeFloat32() {
+        return EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT32);
+    }
+
+    @Benchmark
+    public float[] decodeFloat32() {
+        return EmbeddingCodec.decode(float32Data);
+    }
+
+    @Benchmark
+    public String encodeFloat16() {
+        return EmbeddingCodec.encode(embedding, EmbeddingCodec.Precision.FLOAT16);
+    }
+
+    @Benchmark
+    public float[] decodeFloat16() {
+        return EmbeddingCodec.decode(float16Data);
+    }
+
+    static String toLegacyJson(List<Float> embedding) {
+        StringBuilder sb = new StringBuilder(embedding.size() * 22);
+        sb.append('[');
+        for (int i = 0; i < embedding.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append((double) embedding.get(i));
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    static List<Float> fromLegacyJson(String json) {
+        List<Float> embedding = new ArrayList<>();
+        int start = 1;
+        int end = json.length() - 1;
+        while (start < end) {
+            int comma = json.indexOf(',', start);
+            if (comma < 0) comma = end;
+            embedding.add((float) Double.parseDouble(json.substring(start, comma)));
+            start = comma + 1;
+        }
+        return embedding;
+    }
+}
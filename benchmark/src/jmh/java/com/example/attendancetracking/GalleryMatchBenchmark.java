@@ -0,0 +1,55 @@
+package com.example.attendancetracking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Per-frame matching cost of FaceMatcher.match for every index type and gallery size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GalleryMatchBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int identities;
+
+    @Param({"BRUTE_FORCE", "HNSW", "INT8", "FLOAT16"})
+    public FaceIndex.Type indexType;
+
+    private FaceMatcher matcher;
+    private float[] oneFace;
+    private float[] fourFaces;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<FaceData> faces = BenchmarkData.randomFaces(random, identities);
+        matcher = new FaceMatcher(BenchmarkData.buildIndex(indexType, faces));
+
+        oneFace = BenchmarkData.probe(random, faces.get(random.nextInt(identities)).getEmbedding());
+        fourFaces = new float[4 * BenchmarkData.DIMENSION];
+        for (int i = 0; i < 4; i++) {
+            float[] probe = BenchmarkData.probe(random, faces.get(random.nextInt(identities)).getEmbedding());
+            System.arraycopy(probe, 0, fourFaces, i * BenchmarkData.DIMENSION, BenchmarkData.DIMENSION);
+        }
+    }
+
+    @Benchmark
+    public EmbeddingGallery.Match[] matchOneFace() {
+        return matcher.match(oneFace, 1);
+    }
+
+    @Benchmark
+    public EmbeddingGallery.Match[] matchFourFaces() {
+        return matcher.match(fourFaces, 4);
+    }
+}
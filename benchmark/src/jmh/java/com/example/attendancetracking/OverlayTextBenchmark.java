@@ -0,0 +1,38 @@
+package com.example.attendancetracking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Status strings built for every preview frame. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OverlayTextBenchmark {
+
+    public float previewFps = 29.7f;
+    public float latencyMs = 43.2f;
+    public float facesPerSecond = 11.4f;
+    public double latitude = 10.762622;
+    public double longitude = 106.660172;
+
+    @Benchmark
+    public String previewLine() {
+        return OverlayText.preview(previewFps);
+    }
+
+    @Benchmark
+    public String recognitionLine() {
+        return OverlayText.recognition(latencyMs, facesPerSecond);
+    }
+
+    @Benchmark
+    public String locationLine() {
+        return OverlayText.location(latitude, longitude);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.attendancetracking;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Top-1 agreement of every quantized index mode, with and without re-ranking, against float32,
+ * with the bytes each entry holds including any re-rank copy. Run by the quantizationReport task
+ * on a GalleryStore snapshot pulled from a kiosk, or on a synthetic gallery without one.
+ *
+ * Arguments: the report file, then optionally the snapshot.
+ */
+public final class QuantizationReport {
+
+    private static final int SYNTHETIC_FACES = 10_000;
+    private static final int QUERIES = 1_000;
+
+    private QuantizationReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File output = new File(args[0]);
+        Random random = new Random(1);
+        List<FaceData> gallery = args.length > 1
+                ? new GalleryStore(new File(args[1])).load()
+                : BenchmarkData.randomFaces(random, SYNTHETIC_FACES);
+
+        List<float[]> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(BenchmarkData.probe(random, gallery.get(random.nextInt(gallery.size())).getEmbedding()));
+        }
+
+        String report = String.format(Locale.US, "%s, %d faces, %d queries%n",
+                args.length > 1 ? args[1] : "synthetic gallery", gallery.size(), queries.size())
+                + compare(gallery, queries, 8);
+        File directory = output.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), "UTF-8")) {
+            writer.write(report);
+        }
+        System.out.print(report);
+        System.out.println("Written to " + output);
+    }
+
+    /**
+     * One line per mode; the candidate is expected to be slower than the reference, as the
+     * modes trade time for memory.
+     */
+    static String compare(List<FaceData> gallery, List<float[]> queries, int rerankDepth) {
+        FaceIndex reference = new EmbeddingGallery(gallery);
+        StringBuilder sb = new StringBuilder();
+        for (QuantizedFaceIndex.Quantization quantization : QuantizedFaceIndex.Quantization.values()) {
+            for (int depth : new int[]{0, rerankDepth}) {
+                QuantizedFaceIndex candidate = new QuantizedFaceIndex(quantization, depth);
+                for (FaceData faceData : gallery) {
+                    candidate.add(faceData.getUserId(), faceData.getName(), faceData.getEmbedding());
+                }
+                int bytesPerEntry = candidate.getCodeBytesPerEntry() + (depth > 0 ? 4 * faceDimension(gallery) : 0);
+                sb.append(String.format(Locale.US, "%s rerank=%d (%d bytes/entry): %s%n",
+                        quantization, depth, bytesPerEntry, IndexRecall.measure(candidate, reference, queries)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int faceDimension(List<FaceData> gallery) {
+        for (FaceData faceData : gallery) {
+            if (faceData.getEmbedding() != null) return faceData.getEmbedding().length;
+        }
+        return 0;
+    }
+}